@@ -0,0 +1,111 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares two result files written by the BenchRunner (bench.json) and
+ * prints the change of every benchmark present in both. Benchmarks slower by
+ * more than bench.threshold percent (default 10) are marked as regressions;
+ * the exit code is 2 if there is any. Benchmarks missing from one side, or
+ * without a positive finite mean (e.g. NaN), are reported and the exit code
+ * is 3.
+ */
+public class BenchCompare {
+  private static final Pattern RESULT = Pattern.compile(
+        "\\{\"name\": \"([^\"]+)\"([^}]*)\\}");
+  private static final Pattern MEAN = Pattern.compile(
+        "\"mean\": ([^,}\\s]+)");
+  
+  public static void main(String[] args) throws Exception {
+    if(args.length != 2) {
+      System.out.println("Usage: java BenchCompare <baseline.json> <current.json>");
+      System.exit(1);
+    }
+    double threshold = Double.parseDouble(
+                               System.getProperty("bench.threshold", "10"));
+    Map<String, Double> baseline = read(new File(args[0]));
+    Map<String, Double> current = read(new File(args[1]));
+    
+    Set<String> names = new LinkedHashSet<String>(baseline.keySet());
+    names.addAll(current.keySet());
+    boolean regression = false;
+    boolean incomplete = names.isEmpty();
+    for(String name : names) {
+      Double before = baseline.get(name);
+      Double after = current.get(name);
+      String problem = describe("baseline", baseline.containsKey(name), before);
+      if(problem == null) {
+        problem = describe("current", current.containsKey(name), after);
+      }
+      if(problem != null) {
+        incomplete = true;
+        System.out.println(String.format("%-60s %s", name, problem));
+        continue;
+      }
+      double change = (after - before) / before * 100;
+      boolean slower = change > threshold;
+      regression |= slower;
+      System.out.println(String.format("%-60s %14.1f %14.1f ns/op %+7.1f%%%s",
+            name, before, after, change,
+            slower ? "  REGRESSION" : ""));
+    }
+    if(incomplete) {
+      System.out.println(names.isEmpty()
+            ? "No benchmark results found" : "Missing or invalid benchmark results");
+      System.exit(3);
+    }
+    if(regression) {
+      System.exit(2);
+    }
+  }
+  
+  /**
+   * Returns why a result can't be compared, or null if it can.
+   */
+  private static String describe(String side, boolean present, Double mean) {
+    if(!present) {
+      return "MISSING in " + side;
+    }
+    if(mean == null || mean.isNaN() || mean.isInfinite() || mean <= 0) {
+      return "INVALID in " + side + " (mean " + mean + ")";
+    }
+    return null;
+  }
+  
+  private static Map<String, Double> read(File file) throws Exception {
+    InputStream in = new FileInputStream(file);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      byte[] buffer = new byte[8192];
+      int n;
+      while((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+    Map<String, Double> results = new LinkedHashMap<String, Double>();
+    Matcher matcher = RESULT.matcher(new String(out.toByteArray(), "UTF-8"));
+    while(matcher.find()) {
+      // Unparseable means are kept as null and reported as invalid
+      Double mean = null;
+      Matcher meanMatcher = MEAN.matcher(matcher.group(2));
+      if(meanMatcher.find()) {
+        try {
+          mean = Double.valueOf(meanMatcher.group(1));
+        } catch(NumberFormatException ex) {
+          // Invalid
+        }
+      }
+      results.put(matcher.group(1), mean);
+    }
+    return results;
+  }
+}
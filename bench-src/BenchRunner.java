@@ -0,0 +1,154 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A small time-sliced benchmark harness: every benchmark is warmed up, then
+ * measured over a number of fixed-length iterations. Tune it with the system
+ * properties bench.warmup and bench.time (milliseconds), bench.iterations and
+ * bench.filter (a regular expression on the benchmark name). If bench.json is
+ * set, the results of all suites are also written to that file, see
+ * BenchCompare.
+ */
+public class BenchRunner {
+  private static volatile int sink;
+  
+  private final long warmupMillis = Long.getLong("bench.warmup", 1000);
+  private final long iterationMillis = Long.getLong("bench.time", 1000);
+  private final int iterations = Integer.getInteger("bench.iterations", 5);
+  private final Pattern filter =
+                      Pattern.compile(System.getProperty("bench.filter", ".*"));
+  
+  public static void main(String[] args) throws Exception {
+    if(args.length == 0) {
+      System.out.println("Usage: java BenchRunner <suite class>...");
+      System.exit(1);
+    }
+    BenchRunner runner = new BenchRunner();
+    List<Result> results = new ArrayList<Result>();
+    for(String suite : args) {
+      for(Result result :
+               runner.run((BenchmarkSuite)Class.forName(suite).newInstance())) {
+        results.add(new Result(suite + "." + result.getName(),
+                               result.getMean(), result.getError()));
+      }
+    }
+    String json = System.getProperty("bench.json");
+    if(json != null && json.length() > 0) {
+      writeJSON(new File(json), results);
+      System.out.println("# Results written to: " + json);
+    }
+  }
+  
+  public static void writeJSON(File file, List<Result> results)
+                                                            throws Exception {
+    if(file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      out.write("{\n");
+      out.write("  \"date\": \"" + new Date() + "\",\n");
+      out.write("  \"java\": \"" + System.getProperty("java.version") + "\",\n");
+      out.write("  \"unit\": \"ns/op\",\n");
+      out.write("  \"results\": [\n");
+      for(int i = 0; i < results.size(); i++) {
+        Result result = results.get(i);
+        out.write(String.format(Locale.ROOT,
+              "    {\"name\": \"%s\", \"mean\": %.1f, \"error\": %.1f}%s\n",
+              result.getName(), result.getMean(), result.getError(),
+              i < results.size() - 1 ? "," : ""));
+      }
+      out.write("  ]\n");
+      out.write("}\n");
+    } finally {
+      out.close();
+    }
+  }
+  
+  public List<Result> run(BenchmarkSuite suite) throws Exception {
+    List<Result> results = new ArrayList<Result>();
+    System.out.println("# " + suite.getClass().getName());
+    for(Benchmark benchmark : suite.createBenchmarks()) {
+      if(filter.matcher(benchmark.getName()).find()) {
+        Result result = run(benchmark);
+        System.out.println(result);
+        results.add(result);
+      }
+    }
+    return results;
+  }
+  
+  public Result run(Benchmark benchmark) throws Exception {
+    benchmark.setUp();
+    measure(benchmark, warmupMillis);
+    double[] nanosPerOp = new double[iterations];
+    for(int i = 0; i < iterations; i++) {
+      nanosPerOp[i] = measure(benchmark, iterationMillis);
+    }
+    return new Result(benchmark.getName(), nanosPerOp);
+  }
+  
+  // Returns the average nanoseconds per operation over the time slice
+  private double measure(Benchmark benchmark, long millis) throws Exception {
+    long deadline = System.nanoTime() + millis * 1000000L;
+    long ops = 0;
+    long start = System.nanoTime();
+    long now;
+    do {
+      Object o = benchmark.run();
+      sink ^= (o == null ? 0 : System.identityHashCode(o));
+      ops++;
+    } while((now = System.nanoTime()) < deadline);
+    return (double)(now - start) / ops;
+  }
+  
+  public static class Result {
+    private final String name;
+    private final double mean;
+    private final double error;
+    
+    public Result(String name, double mean, double error) {
+      this.name = name;
+      this.mean = mean;
+      this.error = error;
+    }
+    
+    public Result(String name, double[] nanosPerOp) {
+      this.name = name;
+      double sum = 0;
+      for(double d : nanosPerOp) {
+        sum += d;
+      }
+      mean = sum / nanosPerOp.length;
+      double variance = 0;
+      for(double d : nanosPerOp) {
+        variance += (d - mean) * (d - mean);
+      }
+      error = nanosPerOp.length > 1
+                    ? Math.sqrt(variance / (nanosPerOp.length - 1)) : 0;
+    }
+    
+    public String getName() {
+      return name;
+    }
+    
+    public double getMean() {
+      return mean;
+    }
+    
+    public double getError() {
+      return error;
+    }
+    
+    public String toString() {
+      return String.format("%-50s %14.1f ns/op  +- %.1f", name, mean, error);
+    }
+  }
+}
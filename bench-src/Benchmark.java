@@ -0,0 +1,21 @@
+/**
+ * A single named operation measured by the BenchRunner. run() is called
+ * repeatedly, its return value is consumed so the JIT can't drop the work.
+ */
+public abstract class Benchmark {
+  private final String name;
+  
+  protected Benchmark(String name) {
+    this.name = name;
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  // Called once before warmup, outside of the measurement
+  public void setUp() throws Exception {
+  }
+  
+  public abstract Object run() throws Exception;
+}
@@ -0,0 +1,6 @@
+/**
+ * A group of related benchmarks, instantiated by name by the BenchRunner.
+ */
+public interface BenchmarkSuite {
+  public Benchmark[] createBenchmarks() throws Exception;
+}
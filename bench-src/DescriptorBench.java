@@ -0,0 +1,203 @@
+import org.teleal.cling.binding.xml.DeviceDescriptorBinder;
+import org.teleal.cling.binding.xml.ServiceDescriptorBinder;
+import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderImpl;
+import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderSAXImpl;
+import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderStAXImpl;
+import org.teleal.cling.binding.xml.UDA10ServiceDescriptorBinderImpl;
+import org.teleal.cling.binding.xml.UDA10ServiceDescriptorBinderStAXImpl;
+import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.meta.RemoteDevice;
+import org.teleal.cling.model.meta.RemoteDeviceIdentity;
+import org.teleal.cling.model.meta.RemoteService;
+import org.teleal.cling.model.types.ServiceType;
+import org.teleal.cling.model.types.UDN;
+import org.teleal.cling.protocol.ServiceModelPool;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the DOM, SAX and StAX descriptor binders on a corpus of device and
+ * service descriptors: the descriptors generated for TestApp and every
+ * *-device.xml and *-service.xml file in the directory bench.descriptors
+ * (default "descriptors"). Before measuring, every parser must produce the
+ * same model as the DOM binder. The "pool" benchmarks read a descriptor that
+ * is already known to the ServiceModelPool, as for every device but the first
+ * of a model.
+ */
+public class DescriptorBench implements BenchmarkSuite {
+  
+  public Benchmark[] createBenchmarks() throws Exception {
+    List<Benchmark> list = new ArrayList<Benchmark>();
+    
+    LocalDevice device = TestApp.createDevice();
+    addDeviceBenchmarks(list, "testapp",
+          new UDA10DeviceDescriptorBinderImpl().generate(device));
+    addServiceBenchmarks(list, "testapp",
+          new UDA10ServiceDescriptorBinderImpl().generate(
+                             device.getDeviceServices()[0].getService()));
+    addGenerateBenchmarks(list, device);
+    
+    File dir = new File(System.getProperty("bench.descriptors", "descriptors"));
+    File[] files = dir.listFiles();
+    if(files == null) {
+      System.out.println("No descriptor corpus in: " + dir.getAbsolutePath());
+      files = new File[0];
+    }
+    Arrays.sort(files);
+    for(File file : files) {
+      String name = file.getName();
+      if(name.endsWith("-device.xml")) {
+        addDeviceBenchmarks(list, name.substring(0, name.length() - 11),
+                            read(file));
+      } else if(name.endsWith("-service.xml")) {
+        addServiceBenchmarks(list, name.substring(0, name.length() - 12),
+                             read(file));
+      }
+    }
+    return list.toArray(new Benchmark[list.size()]);
+  }
+  
+  private void addDeviceBenchmarks(List<Benchmark> list, String corpus,
+                                   String xml) throws Exception {
+    String expected = null;
+    for(DeviceDescriptorBinder binder : new DeviceDescriptorBinder[] {
+          new UDA10DeviceDescriptorBinderImpl(),
+          new UDA10DeviceDescriptorBinderSAXImpl(),
+          new UDA10DeviceDescriptorBinderStAXImpl()}) {
+      String name = "device." + corpus + "." + parserName(binder);
+      // The generator is the same for all binders, it shows the parsed model
+      String generated = binder.generate(describe(binder, xml));
+      if(expected == null) {
+        expected = generated;
+      } else if(!expected.equals(generated)) {
+        throw new IllegalStateException("Different model parsed by: " + name);
+      }
+      list.add(new DeviceBenchmark(name, binder, xml));
+    }
+  }
+  
+  private void addServiceBenchmarks(List<Benchmark> list, String corpus,
+                                    String xml) throws Exception {
+    String expected = null;
+    for(ServiceDescriptorBinder binder : new ServiceDescriptorBinder[] {
+          new UDA10ServiceDescriptorBinderImpl(),
+          new UDA10ServiceDescriptorBinderStAXImpl()}) {
+      String name = "service." + corpus + "." + parserName(binder);
+      String generated =
+                   binder.generate(binder.read(RemoteService.class, xml));
+      if(expected == null) {
+        expected = generated;
+      } else if(!expected.equals(generated)) {
+        throw new IllegalStateException("Different model parsed by: " + name);
+      }
+      list.add(new ServiceBenchmark(name, binder, xml));
+    }
+    
+    final ServiceModelPool pool =
+              new ServiceModelPool(new UDA10ServiceDescriptorBinderStAXImpl());
+    final ServiceType serviceType =
+                      ServiceType.valueOf("urn:schemas-upnp-org:service:" +
+                                          corpus.replace('-', '_') + ":1");
+    String pooled = new UDA10ServiceDescriptorBinderImpl().generate(
+                                                 pool.read(serviceType, xml));
+    if(!expected.equals(pooled)) {
+      throw new IllegalStateException("Different model in pool: " + corpus);
+    }
+    list.add(new Benchmark("service." + corpus + ".pool") {
+      public Object run() throws Exception {
+        return pool.read(serviceType, xml);
+      }
+    });
+  }
+  
+  private void addGenerateBenchmarks(List<Benchmark> list,
+                                     final LocalDevice device) {
+    final DeviceDescriptorBinder deviceBinder =
+                                       new UDA10DeviceDescriptorBinderImpl();
+    final ServiceDescriptorBinder serviceBinder =
+                                       new UDA10ServiceDescriptorBinderImpl();
+    list.add(new Benchmark("device.testapp.generate") {
+      public Object run() throws Exception {
+        return deviceBinder.generate(device);
+      }
+    });
+    list.add(new Benchmark("service.testapp.generate") {
+      public Object run() throws Exception {
+        return serviceBinder.generate(device.getDeviceServices()[0].getService());
+      }
+    });
+  }
+  
+  private static String parserName(Object binder) {
+    String name = binder.getClass().getSimpleName();
+    if(name.endsWith("StAXImpl")) {
+      return "stax";
+    } else if(name.endsWith("SAXImpl")) {
+      return "sax";
+    }
+    return "dom";
+  }
+  
+  private static RemoteDevice describe(DeviceDescriptorBinder binder,
+                                       String xml) throws Exception {
+    RemoteDevice undescribed = new RemoteDevice(new RemoteDeviceIdentity(
+          UDN.valueOf("uuid:00000000-0000-0000-0000-000000000000"), 1800,
+          new URL("http://127.0.0.1:8080/desc.xml"), null, null));
+    return binder.describe(undescribed, xml);
+  }
+  
+  private static String read(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), "UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+  
+  private static class DeviceBenchmark extends Benchmark {
+    private final DeviceDescriptorBinder binder;
+    private final String xml;
+    
+    public DeviceBenchmark(String name, DeviceDescriptorBinder binder,
+                           String xml) {
+      super(name);
+      this.binder = binder;
+      this.xml = xml;
+    }
+    
+    public Object run() throws Exception {
+      return describe(binder, xml);
+    }
+  }
+  
+  private static class ServiceBenchmark extends Benchmark {
+    private final ServiceDescriptorBinder binder;
+    private final String xml;
+    
+    public ServiceBenchmark(String name, ServiceDescriptorBinder binder,
+                            String xml) {
+      super(name);
+      this.binder = binder;
+      this.xml = xml;
+    }
+    
+    public Object run() throws Exception {
+      return binder.read(RemoteService.class, xml);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+import org.teleal.cling.binding.xml.DeviceDescriptorBinder;
+import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderStAXImpl;
+import org.teleal.cling.model.meta.DeviceService;
+import org.teleal.cling.model.meta.RemoteDevice;
+import org.teleal.cling.model.meta.RemoteDeviceIdentity;
+import org.teleal.cling.model.types.UDN;
+import org.teleal.cling.protocol.RemoteDeviceCompactor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the retained heap of a synthetic registry of bench.devices
+ * (default 10000) remote device graphs, parsed from igd-device.xml in
+ * bench.descriptors with a unique UDN, serial number and address each. The
+ * graphs are rebuilt as RetrieveRemoteDescriptors does after hydration, once
+ * as parsed and once through the RemoteDeviceCompactor. The "absolute" corpus
+ * uses absolute service URLs, as some devices send them.
+ */
+public class HeapBench {
+  
+  public static void main(String[] args) throws Exception {
+    int count = Integer.getInteger("bench.devices", 10000);
+    File dir = new File(System.getProperty("bench.descriptors", "descriptors"));
+    String xml = read(new File(dir, "igd-device.xml"));
+    
+    System.out.println("# " + HeapBench.class.getName() + ", devices: " + count);
+    for(boolean absolute : new boolean[] {false, true}) {
+      String corpus = absolute ? "absolute" : "relative";
+      report("heap." + corpus + ".parsed", measure(xml, count, absolute, null), count);
+      report("heap." + corpus + ".compact",
+             measure(xml, count, absolute, new RemoteDeviceCompactor()), count);
+    }
+  }
+  
+  private static long measure(String xml, int count, boolean absolute,
+                              RemoteDeviceCompactor compactor) throws Exception {
+    DeviceDescriptorBinder binder = new UDA10DeviceDescriptorBinderStAXImpl();
+    long before = usedHeap();
+    List<RemoteDevice> registry = new ArrayList<RemoteDevice>(count);
+    for(int i = 0; i < count; i++) {
+      String host = "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+      String deviceXml = xml
+            .replace("2fac1234-31f8-11b4", String.format("%08x-31f8-11b4", i))
+            .replace("00A0C9141F2B", String.format("00A0C9%06X", i));
+      if(absolute) {
+        String url = "http://" + host + ":5000/";
+        deviceXml = deviceXml
+              .replace("<SCPDURL>/", "<SCPDURL>" + url)
+              .replace("<controlURL>/", "<controlURL>" + url)
+              .replace("<eventSubURL>/", "<eventSubURL>" + url);
+      }
+      RemoteDevice undescribed = new RemoteDevice(new RemoteDeviceIdentity(
+            UDN.valueOf(String.format("uuid:%08x-31f8-11b4-a222-08002b34c003", i)),
+            1800, new URL("http://" + host + ":5000/desc.xml"), null, null));
+      RemoteDevice described = binder.describe(undescribed, deviceXml);
+      registry.add(hydrate(described, described, compactor));
+    }
+    long after = usedHeap();
+    if(registry.size() != count) {
+      throw new IllegalStateException();
+    }
+    return after - before;
+  }
+  
+  // Mirrors RetrieveRemoteDescriptors.describeServicesRecursive(), without service models
+  private static RemoteDevice hydrate(RemoteDevice root, RemoteDevice device,
+                                      RemoteDeviceCompactor compactor) throws Exception {
+    List<DeviceService> services = new ArrayList<DeviceService>();
+    for(DeviceService ds : device.getDeviceServices()) {
+      services.add(compactor == null
+            ? new DeviceService(ds.getServiceType(), ds.getServiceId(),
+                                ds.getDescriptorURI(), ds.getControlURI(),
+                                ds.getEventSubscriptionURI())
+            : new DeviceService(ds.getServiceType(), ds.getServiceId(),
+                                compactor.compact(root, ds.getDescriptorURI()),
+                                compactor.compact(root, ds.getControlURI()),
+                                compactor.compact(root, ds.getEventSubscriptionURI())));
+    }
+    List<RemoteDevice> embedded = new ArrayList<RemoteDevice>();
+    if(device.hasEmbeddedDevices()) {
+      for(RemoteDevice embeddedDevice : device.getEmbeddedDevices()) {
+        embedded.add(hydrate(root, embeddedDevice, compactor));
+      }
+    }
+    return device.newInstance(
+          device.getIdentity().getUdn(), device.getVersion(), device.getType(),
+          compactor == null ? device.getDetails() : compactor.compact(device.getDetails()),
+          compactor == null ? device.getIcons() : compactor.compact(device.getIcons()),
+          services.toArray(new DeviceService[services.size()]), embedded);
+  }
+  
+  private static long usedHeap() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for(int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return used;
+  }
+  
+  private static void report(String name, long bytes, int count) {
+    System.out.println(String.format("%-50s %14.1f bytes/device", name,
+                                     (double)bytes / count));
+  }
+  
+  private static String read(File file) throws Exception {
+    InputStream in = new FileInputStream(file);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), "UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+import org.teleal.cling.binding.InvokerFactory;
+import org.teleal.cling.binding.MethodHandleInvokerFactory;
+import org.teleal.cling.binding.ReflectionInvokerFactory;
+import org.teleal.cling.binding.annotations.AnnotationLocalServiceBinder;
+import org.teleal.cling.binding.annotations.GeneratedServiceBinding;
+import org.teleal.cling.model.DefaultServiceManager;
+import org.teleal.cling.model.action.ActionExecutor;
+import org.teleal.cling.model.action.ActionInvocation;
+import org.teleal.cling.model.meta.DeviceService;
+import org.teleal.cling.model.meta.LocalService;
+import org.teleal.cling.model.state.StateVariableAccessor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the reflective, the method handle and the build-time generated
+ * bindings of TestServer: binding the service, action dispatch through the
+ * ActionExecutor and raw accessor reads.
+ */
+public class InvokerBench implements BenchmarkSuite {
+  
+  public Benchmark[] createBenchmarks() throws Exception {
+    List<Benchmark> list = new ArrayList<Benchmark>();
+    addBenchmarks(list, "reflection",
+                  new AnnotationReader(new ReflectionInvokerFactory()));
+    addBenchmarks(list, "methodhandle",
+                  new AnnotationReader(new MethodHandleInvokerFactory()));
+    addBenchmarks(list, "generated", new AnnotationLocalServiceBinder());
+    return list.toArray(new Benchmark[list.size()]);
+  }
+  
+  private void addBenchmarks(List<Benchmark> list, String prefix,
+                    final AnnotationLocalServiceBinder binder) throws Exception {
+    list.add(new Benchmark(prefix + ".bind") {
+      public Object run() throws Exception {
+        return binder.read(TestServer.class);
+      }
+    });
+    
+    DeviceService<LocalService> deviceService = binder.read(TestServer.class);
+    final LocalService service = deviceService.getService();
+    service.setManager(new DefaultServiceManager(service, TestServer.class));
+    final Object impl = service.getManager().getImplementation();
+    
+    list.add(new ActionBenchmark(prefix + ".action.GetChecksum",
+                                 service, "GetChecksum"));
+    list.add(new ActionBenchmark(prefix + ".action.GetData",
+                                 service, "GetData"));
+    
+    final StateVariableAccessor field = service.getAccessor("Checksum");
+    list.add(new Benchmark(prefix + ".accessor.field") {
+      public Object run() throws Exception {
+        return field.read(impl);
+      }
+    });
+    
+    final StateVariableAccessor getter =
+                           binder.getInvokerFactory().createGetterAccessor(
+                                TestServer.class.getMethod("getChecksum"));
+    list.add(new Benchmark(prefix + ".accessor.getter") {
+      public Object run() throws Exception {
+        return getter.read(impl);
+      }
+    });
+  }
+  
+  // Ignores the generated binding, always reads the annotations
+  private static class AnnotationReader extends AnnotationLocalServiceBinder {
+    public AnnotationReader(InvokerFactory invokerFactory) {
+      super(invokerFactory);
+    }
+    
+    protected GeneratedServiceBinding findGeneratedBinding(Class<?> clazz) {
+      return null;
+    }
+  }
+  
+  private static class ActionBenchmark extends Benchmark {
+    private final LocalService service;
+    private final String action;
+    private ActionExecutor executor;
+    
+    public ActionBenchmark(String name, LocalService service, String action) {
+      super(name);
+      this.service = service;
+      this.action = action;
+    }
+    
+    public void setUp() {
+      executor = service.getExecutor(action);
+    }
+    
+    public Object run() throws Exception {
+      ActionInvocation invocation =
+                                new ActionInvocation(service.getAction(action));
+      executor.execute(invocation);
+      if(invocation.getFailure() != null) {
+        throw invocation.getFailure();
+      }
+      return invocation.getOutput();
+    }
+  }
+}
@@ -0,0 +1,253 @@
+import org.teleal.cling.model.action.ActionInvocation;
+import org.teleal.cling.model.gena.CancelReason;
+import org.teleal.cling.model.gena.LocalGENASubscription;
+import org.teleal.cling.model.message.StreamRequestMessage;
+import org.teleal.cling.model.message.UpnpHeaders;
+import org.teleal.cling.model.message.OutgoingDatagramMessage;
+import org.teleal.cling.model.message.control.IncomingActionRequestMessage;
+import org.teleal.cling.model.message.control.IncomingActionResponseMessage;
+import org.teleal.cling.model.message.control.OutgoingActionRequestMessage;
+import org.teleal.cling.model.message.control.OutgoingActionResponseMessage;
+import org.teleal.cling.model.message.discovery.OutgoingNotificationRequestDeviceType;
+import org.teleal.cling.model.message.discovery.OutgoingSearchRequest;
+import org.teleal.cling.model.message.gena.IncomingEventRequestMessage;
+import org.teleal.cling.model.message.gena.OutgoingEventRequestMessage;
+import org.teleal.cling.model.message.header.STAllHeader;
+import org.teleal.cling.model.meta.Action;
+import org.teleal.cling.model.meta.DeviceService;
+import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.meta.LocalService;
+import org.teleal.cling.model.state.StateVariableValue;
+import org.teleal.cling.model.types.NotificationSubtype;
+import org.teleal.cling.model.types.UnsignedIntegerFourBytes;
+import org.teleal.cling.transport.impl.DatagramProcessorImpl;
+import org.teleal.cling.transport.impl.GENAEventProcessorImpl;
+import org.teleal.cling.transport.impl.GENAEventProcessorStAXImpl;
+import org.teleal.cling.transport.impl.SOAPActionProcessorImpl;
+import org.teleal.cling.transport.spi.DatagramProcessor;
+import org.teleal.cling.transport.spi.GENAEventProcessor;
+import org.teleal.cling.transport.spi.SOAPActionProcessor;
+import org.teleal.common.http.Headers;
+
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The message processing hot paths of TestApp's device: SSDP datagrams,
+ * header parsing, SOAP action request and response bodies (GetChecksum is a
+ * small payload, the bench device's PutPayload request and GetData response
+ * about 1 MB), and GENA event bodies.
+ */
+public class MessageBench implements BenchmarkSuite {
+  
+  public Benchmark[] createBenchmarks() throws Exception {
+    List<Benchmark> list = new ArrayList<Benchmark>();
+    
+    LocalDevice device = TestApp.createDevice();
+    DeviceService<LocalService> deviceService = device.getDeviceServices()[0];
+    
+    addDatagramBenchmarks(list, "notify",
+          new OutgoingNotificationRequestDeviceType(
+                InetAddress.getByName("127.0.0.1"), 8080, device,
+                NotificationSubtype.ALIVE));
+    addDatagramBenchmarks(list, "search",
+          new OutgoingSearchRequest(new STAllHeader()));
+    
+    final Headers headers = new Headers();
+    headers.add("HOST", "239.255.255.250:1900");
+    headers.add("CACHE-CONTROL", "max-age=1800");
+    headers.add("LOCATION", "http://192.168.1.1:5000/rootDesc.xml");
+    headers.add("NT", "urn:schemas-upnp-org:service:WANIPConnection:1");
+    headers.add("NTS", "ssdp:alive");
+    headers.add("SERVER", "Linux/2.6 UPnP/1.0 Example/1.0");
+    headers.add("USN", "uuid:2fac1234-31f8-11b4-a222-08002b34c003::" +
+                       "urn:schemas-upnp-org:service:WANIPConnection:1");
+    list.add(new Benchmark("headers.notify") {
+      public Object run() throws Exception {
+        return new UpnpHeaders(headers);
+      }
+    });
+    
+    DeviceService<LocalService> benchService =
+          TestApp.createBenchDevice().getDeviceServices()[0];
+    
+    addSOAPRequestBenchmarks(list, "small", deviceService, "GetChecksum");
+    addSOAPResponseBenchmarks(list, "small", deviceService, "GetChecksum");
+    addSOAPRequestBenchmarks(list, "1mb", benchService, "PutPayload",
+                             BenchServer.createPayload(1024*1024));
+    addSOAPResponseBenchmarks(list, "1mb", deviceService, "GetData");
+    addGENABenchmarks(list, deviceService);
+    
+    return list.toArray(new Benchmark[list.size()]);
+  }
+  
+  private void addDatagramBenchmarks(List<Benchmark> list, String name,
+                                     final OutgoingDatagramMessage message)
+                                                            throws Exception {
+    final DatagramProcessor processor = new DatagramProcessorImpl();
+    final InetAddress address = InetAddress.getByName("127.0.0.1");
+    final DatagramPacket packet = processor.write(message);
+    list.add(new Benchmark("datagram.write." + name) {
+      public Object run() throws Exception {
+        return processor.write(message);
+      }
+    });
+    list.add(new Benchmark("datagram.read." + name) {
+      public Object run() throws Exception {
+        return processor.read(address, packet);
+      }
+    });
+  }
+  
+  private void addSOAPRequestBenchmarks(List<Benchmark> list, String payload,
+                                 final DeviceService<LocalService> deviceService,
+                                 String actionName, final Object... input)
+                                                            throws Exception {
+    final SOAPActionProcessor processor = new SOAPActionProcessorImpl();
+    final URL controlURL = new URL("http://127.0.0.1:8080/control");
+    final Action action = deviceService.getService().getAction(actionName);
+    
+    ActionInvocation requested = new ActionInvocation(action);
+    requested.getInput().setValues(input);
+    final OutgoingActionRequestMessage request =
+          new OutgoingActionRequestMessage(requested, controlURL);
+    processor.writeBody(request, requested);
+    
+    list.add(new Benchmark("soap.request.write." + payload) {
+      public Object run() throws Exception {
+        ActionInvocation requested = new ActionInvocation(action);
+        requested.getInput().setValues(input);
+        OutgoingActionRequestMessage message =
+                        new OutgoingActionRequestMessage(requested, controlURL);
+        processor.writeBody(message, requested);
+        return message;
+      }
+    });
+    list.add(new Benchmark("soap.request.read." + payload) {
+      public Object run() throws Exception {
+        IncomingActionRequestMessage message =
+                     new IncomingActionRequestMessage(request, deviceService);
+        ActionInvocation received = new ActionInvocation(action);
+        processor.readBody(message, received);
+        return received;
+      }
+    });
+  }
+  
+  private void addSOAPResponseBenchmarks(List<Benchmark> list, String payload,
+                                 final DeviceService<LocalService> deviceService,
+                                 String actionName) throws Exception {
+    final SOAPActionProcessor processor = new SOAPActionProcessorImpl();
+    final Action action = deviceService.getService().getAction(actionName);
+    
+    final ActionInvocation invocation = new ActionInvocation(action);
+    deviceService.getService().getExecutor(action).execute(invocation);
+    if(invocation.getFailure() != null) {
+      throw invocation.getFailure();
+    }
+    
+    final OutgoingActionResponseMessage response =
+                                       new OutgoingActionResponseMessage(action);
+    processor.writeBody(response, invocation);
+    
+    list.add(new Benchmark("soap.response.write." + payload) {
+      public Object run() throws Exception {
+        OutgoingActionResponseMessage message =
+                                       new OutgoingActionResponseMessage(action);
+        processor.writeBody(message, invocation);
+        return message;
+      }
+    });
+    list.add(new Benchmark("soap.response.read." + payload) {
+      public Object run() throws Exception {
+        IncomingActionResponseMessage message =
+                                   new IncomingActionResponseMessage(response);
+        ActionInvocation received = new ActionInvocation(action);
+        processor.readBody(message, received);
+        return received;
+      }
+    });
+  }
+  
+  private void addGENABenchmarks(List<Benchmark> list,
+                  final DeviceService<LocalService> deviceService)
+                                                            throws Exception {
+    final GENAEventProcessor processor = new GENAEventProcessorImpl();
+    final URL callbackURL = new URL("http://127.0.0.1:8080/callback");
+    final LocalGENASubscription subscription =
+          new LocalGENASubscription(deviceService,
+                                    Collections.singletonList(callbackURL)) {
+            public void failed(Exception ex) {
+            }
+            
+            public void ended(CancelReason reason) {
+            }
+            
+            public void established() {
+            }
+            
+            public void eventReceived() {
+            }
+          };
+    
+    final List<StateVariableValue> values = new ArrayList<StateVariableValue>();
+    values.add(new StateVariableValue(
+          deviceService.getService().getStateVariable("Checksum"), 123456789));
+    values.add(new StateVariableValue(
+          deviceService.getService().getStateVariable("Data"),
+          "QUJDREVGR0hJSktMTU5PUFFSU1RVVldYWVphYmNkZWZnaGlqa2xtbm9wcXJzdHV2"));
+    
+    final OutgoingEventRequestMessage event = new OutgoingEventRequestMessage(
+          subscription, callbackURL, new UnsignedIntegerFourBytes(0), values);
+    processor.writeBody(event);
+    
+    list.add(new Benchmark("gena.event.write") {
+      public Object run() throws Exception {
+        OutgoingEventRequestMessage message = new OutgoingEventRequestMessage(
+              subscription, callbackURL, new UnsignedIntegerFourBytes(0), values);
+        processor.writeBody(message);
+        return message;
+      }
+    });
+    list.add(new Benchmark("gena.event.read") {
+      public Object run() throws Exception {
+        IncomingEventRequestMessage message = new IncomingEventRequestMessage(
+              new StreamRequestMessage(event), deviceService);
+        processor.readBody(message);
+        return message;
+      }
+    });
+    
+    final GENAEventProcessor staxProcessor = new GENAEventProcessorStAXImpl();
+    if(!readValues(processor, event, deviceService).equals(
+          readValues(staxProcessor, event, deviceService))) {
+      throw new IllegalStateException("Different event values read by StAX");
+    }
+    list.add(new Benchmark("gena.event.read.stax") {
+      public Object run() throws Exception {
+        IncomingEventRequestMessage message = new IncomingEventRequestMessage(
+              new StreamRequestMessage(event), deviceService);
+        staxProcessor.readBody(message);
+        return message;
+      }
+    });
+  }
+  
+  private static String readValues(GENAEventProcessor processor,
+                  OutgoingEventRequestMessage event,
+                  DeviceService<LocalService> deviceService) throws Exception {
+    IncomingEventRequestMessage message = new IncomingEventRequestMessage(
+          new StreamRequestMessage(event), deviceService);
+    processor.readBody(message);
+    StringBuilder sb = new StringBuilder();
+    for(StateVariableValue value : message.getStateVariableValues()) {
+      sb.append(value.getStateVariable().getName()).append('=')
+        .append(value).append('\n');
+    }
+    return sb.toString();
+  }
+}
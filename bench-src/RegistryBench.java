@@ -0,0 +1,114 @@
+import org.teleal.cling.DefaultUpnpServiceConfiguration;
+import org.teleal.cling.binding.xml.DeviceDescriptorBinder;
+import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderStAXImpl;
+import org.teleal.cling.model.Resource;
+import org.teleal.cling.model.meta.RemoteDevice;
+import org.teleal.cling.model.meta.RemoteDeviceIdentity;
+import org.teleal.cling.model.types.DeviceType;
+import org.teleal.cling.model.types.ServiceType;
+import org.teleal.cling.model.types.UDN;
+import org.teleal.cling.registry.Registry;
+import org.teleal.cling.registry.RegistryImpl;
+import org.teleal.cling.registry.RegistryMaintainer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry lookups with 10, 100 and 1000 remote devices, parsed from
+ * igd-device.xml in bench.descriptors with a unique UDN each. The lookups
+ * target the last registered device. The registry maintainer is not started.
+ */
+public class RegistryBench implements BenchmarkSuite {
+  
+  public Benchmark[] createBenchmarks() throws Exception {
+    List<Benchmark> list = new ArrayList<Benchmark>();
+    File dir = new File(System.getProperty("bench.descriptors", "descriptors"));
+    String xml = read(new File(dir, "igd-device.xml"));
+    for(int size : new int[] {10, 100, 1000}) {
+      addRegistryBenchmarks(list, xml, size);
+    }
+    return list.toArray(new Benchmark[list.size()]);
+  }
+  
+  private void addRegistryBenchmarks(List<Benchmark> list, String xml,
+                                     int size) throws Exception {
+    final Registry registry = new RegistryImpl(
+          new DefaultUpnpServiceConfiguration(), null) {
+      protected RegistryMaintainer createRegistryMaintainer() {
+        return null;
+      }
+    };
+    DeviceDescriptorBinder binder = new UDA10DeviceDescriptorBinderStAXImpl();
+    RemoteDevice last = null;
+    for(int i = 0; i < size; i++) {
+      String host = "10.0." + (i >> 8 & 0xff) + "." + (i & 0xff);
+      RemoteDevice undescribed = new RemoteDevice(new RemoteDeviceIdentity(
+            UDN.valueOf(String.format("uuid:%08x-31f8-11b4-a222-08002b34c003", i)),
+            1800, new URL("http://" + host + ":5000/desc.xml"), null, null));
+      last = binder.describe(undescribed, xml.replace(
+            "2fac1234-31f8-11b4", String.format("%08x-31f8-11b4", i)));
+      registry.addDevice(last);
+    }
+    
+    final UDN rootUDN = last.getIdentity().getUdn();
+    final UDN embeddedUDN =
+          last.getEmbeddedDevices()[0].getIdentity().getUdn();
+    final DeviceType deviceType =
+          DeviceType.valueOf("urn:schemas-upnp-org:device:WANConnectionDevice:1");
+    final ServiceType serviceType =
+          ServiceType.valueOf("urn:schemas-upnp-org:service:WANIPConnection:1");
+    Resource[] resources = last.getResources();
+    final URI pathQuery = resources[resources.length - 1].getLocalPathQuery();
+    if(registry.getResource(pathQuery) == null) {
+      throw new IllegalStateException("Resource not registered: " + pathQuery);
+    }
+    
+    list.add(new Benchmark("device.root." + size) {
+      public Object run() throws Exception {
+        return registry.getDevice(rootUDN, true);
+      }
+    });
+    list.add(new Benchmark("device.embedded." + size) {
+      public Object run() throws Exception {
+        return registry.getDevice(embeddedUDN, false);
+      }
+    });
+    list.add(new Benchmark("devices.devicetype." + size) {
+      public Object run() throws Exception {
+        return registry.getDevices(deviceType);
+      }
+    });
+    list.add(new Benchmark("devices.servicetype." + size) {
+      public Object run() throws Exception {
+        return registry.getDevices(serviceType);
+      }
+    });
+    list.add(new Benchmark("resource." + size) {
+      public Object run() throws Exception {
+        return registry.getResource(pathQuery);
+      }
+    });
+  }
+  
+  private static String read(File file) throws Exception {
+    InputStream in = new FileInputStream(file);
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), "UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -19,20 +19,33 @@ package org.teleal.cling;
 
 import org.teleal.cling.binding.xml.DeviceDescriptorBinder;
 import org.teleal.cling.binding.xml.ServiceDescriptorBinder;
-import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderImpl;
-import org.teleal.cling.binding.xml.UDA10ServiceDescriptorBinderImpl;
+import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderStAXImpl;
+import org.teleal.cling.binding.xml.UDA10ServiceDescriptorBinderStAXImpl;
+import org.teleal.cling.controlpoint.ControlPointImpl;
+import org.teleal.cling.model.types.ServiceType;
+import org.teleal.cling.protocol.DescriptorCache;
+import org.teleal.cling.protocol.ProtocolMetrics;
+import org.teleal.cling.protocol.RemoteDeviceCompactor;
+import org.teleal.cling.protocol.ServiceModelPool;
+import org.teleal.cling.protocol.sync.SendingAction;
+import org.teleal.cling.registry.LocalSubscriptionStore;
+import org.teleal.cling.registry.RegistryListenerDispatcher;
+import org.teleal.cling.registry.RenewalScheduler;
+import org.teleal.cling.transport.EndpointHealth;
+import org.teleal.cling.transport.StreamRequestTask;
+import org.teleal.cling.transport.StreamAdmissionControl;
 import org.teleal.cling.transport.impl.DatagramIOConfigurationImpl;
 import org.teleal.cling.transport.impl.DatagramIOImpl;
 import org.teleal.cling.transport.impl.DatagramProcessorImpl;
-import org.teleal.cling.transport.impl.GENAEventProcessorImpl;
+import org.teleal.cling.transport.impl.GENAEventProcessorStAXImpl;
 import org.teleal.cling.transport.impl.MulticastReceiverConfigurationImpl;
 import org.teleal.cling.transport.impl.MulticastReceiverImpl;
 import org.teleal.cling.transport.impl.NetworkAddressFactoryImpl;
 import org.teleal.cling.transport.impl.SOAPActionProcessorImpl;
-import org.teleal.cling.transport.impl.StreamClientConfigurationImpl;
-import org.teleal.cling.transport.impl.StreamClientImpl;
 import org.teleal.cling.transport.impl.StreamServerConfigurationImpl;
 import org.teleal.cling.transport.impl.StreamServerImpl;
+import org.teleal.cling.transport.impl.nio.StreamClientConfigurationImpl;
+import org.teleal.cling.transport.impl.nio.StreamClientImpl;
 import org.teleal.cling.transport.spi.DatagramIO;
 import org.teleal.cling.transport.spi.DatagramProcessor;
 import org.teleal.cling.transport.spi.GENAEventProcessor;
@@ -41,7 +54,9 @@ import org.teleal.cling.transport.spi.NetworkAddressFactory;
 import org.teleal.cling.transport.spi.SOAPActionProcessor;
 import org.teleal.cling.transport.spi.StreamClient;
 import org.teleal.cling.transport.spi.StreamServer;
+import org.teleal.cling.transport.spi.UpnpStream;
 
+import java.net.URI;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -65,6 +80,13 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
     final private DeviceDescriptorBinder deviceDescriptorBinderUDA10;
     final private ServiceDescriptorBinder serviceDescriptorBinderUDA10;
+    final private DescriptorCache descriptorCache;
+    final private ServiceModelPool serviceModelPool;
+    final private RemoteDeviceCompactor remoteDeviceCompactor;
+    final private ProtocolMetrics protocolMetrics;
+    final private StreamAdmissionControl streamAdmissionControl;
+    final private LocalSubscriptionStore localSubscriptionStore;
+    final private EndpointHealth endpointHealth;
 
     public DefaultUpnpServiceConfiguration() {
         this(NetworkAddressFactoryImpl.DEFAULT_TCP_HTTP_LISTEN_PORT);
@@ -82,6 +104,13 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
 
         deviceDescriptorBinderUDA10 = createDeviceDescriptorBinderUDA10();
         serviceDescriptorBinderUDA10 = createServiceDescriptorBinderUDA10();
+        descriptorCache = createDescriptorCache();
+        serviceModelPool = createServiceModelPool();
+        remoteDeviceCompactor = createRemoteDeviceCompactor();
+        protocolMetrics = createProtocolMetrics();
+        streamAdmissionControl = createStreamAdmissionControl();
+        localSubscriptionStore = createLocalSubscriptionStore();
+        endpointHealth = createEndpointHealth();
     }
 
     public DatagramProcessor getDatagramProcessor() {
@@ -97,7 +126,7 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     }
 
     public StreamClient createStreamClient() {
-        return new StreamClientImpl(new StreamClientConfigurationImpl());
+        return new StreamClientImpl(new StreamClientConfigurationImpl(), getEndpointHealth());
     }
 
     public MulticastReceiver createMulticastReceiver(NetworkAddressFactory networkAddressFactory) {
@@ -146,6 +175,54 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
         return serviceDescriptorBinderUDA10;
     }
 
+    public DescriptorCache getDescriptorCache() {
+        return descriptorCache;
+    }
+
+    public ServiceModelPool getServiceModelPool() {
+        return serviceModelPool;
+    }
+
+    public RemoteDeviceCompactor getRemoteDeviceCompactor() {
+        return remoteDeviceCompactor;
+    }
+
+    /**
+     * Override this and return the service types your control point uses (or an empty array) to
+     * register remote devices without retrieving the descriptors of their other services.
+     */
+    public ServiceType[] getEagerlyHydratedServiceTypes() {
+        return null;
+    }
+
+    public ProtocolMetrics getProtocolMetrics() {
+        return protocolMetrics;
+    }
+
+    /**
+     * Override this and return a path such as <tt>/status</tt> to serve the registry, executor
+     * and protocol metrics to monitoring tools.
+     */
+    public URI getStatusURI() {
+        return null;
+    }
+
+    public StreamAdmissionControl getStreamAdmissionControl() {
+        return streamAdmissionControl;
+    }
+
+    public LocalSubscriptionStore getLocalSubscriptionStore() {
+        return localSubscriptionStore;
+    }
+
+    public EndpointHealth getEndpointHealth() {
+        return endpointHealth;
+    }
+
+    public int getMaxEventDeliveryFailures() {
+        return 3;
+    }
+
     public Executor getAsyncProtocolExecutor() {
         return getDefaultExecutor();
     }
@@ -179,15 +256,63 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
     }
 
     protected GENAEventProcessor createGENAEventProcessor() {
-        return new GENAEventProcessorImpl();
+        return new GENAEventProcessorStAXImpl();
     }
 
     protected DeviceDescriptorBinder createDeviceDescriptorBinderUDA10() {
-        return new UDA10DeviceDescriptorBinderImpl();
+        return new UDA10DeviceDescriptorBinderStAXImpl();
     }
 
     protected ServiceDescriptorBinder createServiceDescriptorBinderUDA10() {
-        return new UDA10ServiceDescriptorBinderImpl();
+        return new UDA10ServiceDescriptorBinderStAXImpl();
+    }
+
+    /**
+     * Override this and return a {@link org.teleal.cling.protocol.DescriptorCacheImpl} to keep remote
+     * device descriptors across restarts.
+     */
+    protected DescriptorCache createDescriptorCache() {
+        return null;
+    }
+
+    protected ServiceModelPool createServiceModelPool() {
+        return new ServiceModelPool(getServiceDescriptorBinderUDA10());
+    }
+
+    protected RemoteDeviceCompactor createRemoteDeviceCompactor() {
+        return new RemoteDeviceCompactor();
+    }
+
+    /**
+     * Override this and return a {@link org.teleal.cling.protocol.ManagedProtocolMetrics} to access the
+     * statistics through JMX, or <tt>null</tt> to disable the protocol metrics.
+     */
+    protected ProtocolMetrics createProtocolMetrics() {
+        return new ProtocolMetrics();
+    }
+
+    /**
+     * The budgets leave room in the default executor for the other protocols and services, override
+     * this to change them or return <tt>null</tt> to disable admission control.
+     */
+    protected StreamAdmissionControl createStreamAdmissionControl() {
+        return new StreamAdmissionControl(32, 32, 32, 1);
+    }
+
+    /**
+     * Override this to keep subscriptions to local services across restarts, for example with
+     * <code>new LocalSubscriptionStore(new File("subscriptions.log"))</code>.
+     */
+    protected LocalSubscriptionStore createLocalSubscriptionStore() {
+        return null;
+    }
+
+    /**
+     * A host's circuit opens after 3 consecutive failures, for 5 seconds up to 5 minutes. Connection
+     * timeouts adapt to the host, but are at least 2 seconds.
+     */
+    protected EndpointHealth createEndpointHealth() {
+        return new EndpointHealth(3, 5000, 5 * 60 * 1000, 2000);
     }
 
     protected Executor getDefaultExecutor() {
@@ -208,6 +333,47 @@ public class DefaultUpnpServiceConfiguration implements UpnpServiceConfiguration
                     @Override
                     public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
 
+                        // Don't leave the client waiting for a response until it times out
+                        if (runnable instanceof UpnpStream) {
+                            log.warning("Thread pool saturated, rejecting stream with 503 Service Unavailable");
+                            ((UpnpStream) runnable).reject(
+                                    getStreamAdmissionControl() != null
+                                            ? getStreamAdmissionControl().getRetryAfterSeconds()
+                                            : 1
+                            );
+                            return;
+                        }
+
+                        // A discarded listener queue would never be scheduled again
+                        if (runnable instanceof RegistryListenerDispatcher.ListenerQueue) {
+                            ((RegistryListenerDispatcher.ListenerQueue) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded local action would never complete its future
+                        if (runnable instanceof ControlPointImpl.LocalExecution) {
+                            ((ControlPointImpl.LocalExecution) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded response would never complete its action invocation
+                        if (runnable instanceof SendingAction.ResponseHandler) {
+                            ((SendingAction.ResponseHandler) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded request would never notify its callback
+                        if (runnable instanceof StreamRequestTask) {
+                            ((StreamRequestTask) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded renewal would hold its slot in the scheduler
+                        if (runnable instanceof RenewalScheduler.Execution) {
+                            ((RenewalScheduler.Execution) runnable).rejected();
+                            return;
+                        }
+
                         // Log and discard
                         log.warning(
                                 "Thread pool saturated, discarding execution " +
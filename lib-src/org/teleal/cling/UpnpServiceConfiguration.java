@@ -19,7 +19,15 @@ package org.teleal.cling;
 
 import org.teleal.cling.binding.xml.DeviceDescriptorBinder;
 import org.teleal.cling.binding.xml.ServiceDescriptorBinder;
+import org.teleal.cling.model.types.ServiceType;
+import org.teleal.cling.protocol.DescriptorCache;
+import org.teleal.cling.protocol.ProtocolMetrics;
+import org.teleal.cling.protocol.RemoteDeviceCompactor;
+import org.teleal.cling.protocol.ServiceModelPool;
 import org.teleal.cling.protocol.ProtocolFactory;
+import org.teleal.cling.registry.LocalSubscriptionStore;
+import org.teleal.cling.transport.EndpointHealth;
+import org.teleal.cling.transport.StreamAdmissionControl;
 import org.teleal.cling.transport.spi.DatagramIO;
 import org.teleal.cling.transport.spi.DatagramProcessor;
 import org.teleal.cling.transport.spi.GENAEventProcessor;
@@ -29,6 +37,7 @@ import org.teleal.cling.transport.spi.SOAPActionProcessor;
 import org.teleal.cling.transport.spi.StreamClient;
 import org.teleal.cling.transport.spi.StreamServer;
 
+import java.net.URI;
 import java.util.concurrent.Executor;
 
 /**
@@ -56,6 +65,67 @@ public interface UpnpServiceConfiguration {
     public DeviceDescriptorBinder getDeviceDescriptorBinderUDA10();
     public ServiceDescriptorBinder getServiceDescriptorBinderUDA10();
 
+    /**
+     * @return The cache of remote device descriptors, or <tt>null</tt> if descriptors are not cached.
+     */
+    public DescriptorCache getDescriptorCache();
+
+    /**
+     * @return The models of remote services shared by identical service descriptors, or <tt>null</tt>
+     *         if every remote service descriptor is parsed.
+     */
+    public ServiceModelPool getServiceModelPool();
+
+    /**
+     * @return The compactor applied to hydrated remote device graphs, or <tt>null</tt> if the
+     *         graphs are stored as parsed.
+     */
+    public RemoteDeviceCompactor getRemoteDeviceCompactor();
+
+    /**
+     * @return The types of remote services hydrated before their device is registered, all other
+     *         remote services are hydrated on first use. If <tt>null</tt>, all remote services
+     *         are hydrated before their device is registered.
+     */
+    public ServiceType[] getEagerlyHydratedServiceTypes();
+
+    /**
+     * @return The recorder of protocol latencies and failures, or <tt>null</tt> if protocol
+     *         executions are not measured.
+     */
+    public ProtocolMetrics getProtocolMetrics();
+
+    /**
+     * @return The local path of the read-only status resource in Prometheus text format, or
+     *         <tt>null</tt> if it should not be served.
+     */
+    public URI getStatusURI();
+
+    /**
+     * @return The budgets of incoming stream requests in flight, or <tt>null</tt> if all received
+     *         streams are passed to the executor.
+     */
+    public StreamAdmissionControl getStreamAdmissionControl();
+
+    /**
+     * @return The log of subscriptions to local services that are restored after a restart, or
+     *         <tt>null</tt> if subscriptions end with the service.
+     */
+    public LocalSubscriptionStore getLocalSubscriptionStore();
+
+    /**
+     * @return The health of remote hosts, used by the stream client to fail fast on hosts that don't
+     *         respond, or <tt>null</tt> if every request waits for its timeouts.
+     */
+    public EndpointHealth getEndpointHealth();
+
+    /**
+     * @return The number of consecutive event messages a subscriber of a local service may fail to
+     *         accept before its subscription is ended, or <tt>0</tt> if subscriptions only expire. Events
+     *         that an open circuit of the {@link EndpointHealth} refused are not counted.
+     */
+    public int getMaxEventDeliveryFailures();
+
     public Executor getAsyncProtocolExecutor();
     public Executor getSyncProtocolExecutor();
 
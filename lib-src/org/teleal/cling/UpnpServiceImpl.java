@@ -66,13 +66,23 @@ public class UpnpServiceImpl implements UpnpService {
             this.registry.addListener(registryListener);
         }
 
-        this.router = new RouterImpl(configuration, protocolFactory);
+        this.router = createRouter(protocolFactory, registry);
 
         this.controlPoint = new ControlPointImpl(configuration, protocolFactory, registry);
 
+        if (configuration.getProtocolMetrics() != null) {
+            configuration.getProtocolMetrics().publish(
+                    Integer.toHexString(System.identityHashCode(this))
+            );
+        }
+
         log.info("<<< UPnP service started successfully");
     }
 
+    protected Router createRouter(ProtocolFactory protocolFactory, Registry registry) {
+        return new RouterImpl(getConfiguration(), protocolFactory);
+    }
+
     public UpnpServiceConfiguration getConfiguration() {
         return configuration;
     }
@@ -98,9 +108,18 @@ public class UpnpServiceImpl implements UpnpService {
         // might actually make it into the log or not...
         log.info(">>> Shutting down UPnP service...");
 
+        getControlPoint().shutdown();
         getRegistry().shutdown();
         getRouter().shutdown();
 
+        if (getConfiguration().getDescriptorCache() != null) {
+            getConfiguration().getDescriptorCache().close();
+        }
+
+        if (getConfiguration().getProtocolMetrics() != null) {
+            getConfiguration().getProtocolMetrics().unpublish();
+        }
+
         log.info("<<< UPnP service shutdown completed");
     }
 
@@ -1,11 +1,22 @@
 package org.teleal.cling.android;
 
 import org.teleal.cling.DefaultUpnpServiceConfiguration;
+import org.teleal.cling.binding.xml.DeviceDescriptorBinder;
+import org.teleal.cling.binding.xml.ServiceDescriptorBinder;
+import org.teleal.cling.binding.xml.UDA10DeviceDescriptorBinderImpl;
+import org.teleal.cling.binding.xml.UDA10ServiceDescriptorBinderImpl;
+import org.teleal.cling.controlpoint.ControlPointImpl;
+import org.teleal.cling.protocol.sync.SendingAction;
+import org.teleal.cling.registry.RegistryListenerDispatcher;
+import org.teleal.cling.registry.RenewalScheduler;
+import org.teleal.cling.transport.StreamRequestTask;
+import org.teleal.cling.transport.impl.GENAEventProcessorImpl;
 import org.teleal.cling.transport.impl.NetworkAddressFactoryImpl;
 import org.teleal.cling.transport.impl.apache.StreamClientConfigurationImpl;
 import org.teleal.cling.transport.impl.apache.StreamClientImpl;
 import org.teleal.cling.transport.impl.apache.StreamServerConfigurationImpl;
 import org.teleal.cling.transport.impl.apache.StreamServerImpl;
+import org.teleal.cling.transport.spi.GENAEventProcessor;
 import org.teleal.cling.transport.spi.NetworkAddressFactory;
 import org.teleal.cling.transport.spi.StreamClient;
 import org.teleal.cling.transport.spi.StreamServer;
@@ -48,6 +59,23 @@ public class AndroidUpnpServiceConfiguration extends DefaultUpnpServiceConfigura
         return new StreamClientImpl(new StreamClientConfigurationImpl());
     }
 
+    // Android has no StAX, use the DOM binders and event processor
+
+    @Override
+    protected DeviceDescriptorBinder createDeviceDescriptorBinderUDA10() {
+        return new UDA10DeviceDescriptorBinderImpl();
+    }
+
+    @Override
+    protected ServiceDescriptorBinder createServiceDescriptorBinderUDA10() {
+        return new UDA10ServiceDescriptorBinderImpl();
+    }
+
+    @Override
+    protected GENAEventProcessor createGENAEventProcessor() {
+        return new GENAEventProcessorImpl();
+    }
+
     @Override
     protected Executor createDefaultExecutor() {
 
@@ -65,6 +93,36 @@ public class AndroidUpnpServiceConfiguration extends DefaultUpnpServiceConfigura
                     @Override
                     public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
 
+                        // A discarded local action would never complete its future
+                        if (runnable instanceof ControlPointImpl.LocalExecution) {
+                            ((ControlPointImpl.LocalExecution) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded listener queue would never be scheduled again
+                        if (runnable instanceof RegistryListenerDispatcher.ListenerQueue) {
+                            ((RegistryListenerDispatcher.ListenerQueue) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded response would never complete its action invocation
+                        if (runnable instanceof SendingAction.ResponseHandler) {
+                            ((SendingAction.ResponseHandler) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded request would never notify its callback
+                        if (runnable instanceof StreamRequestTask) {
+                            ((StreamRequestTask) runnable).rejected();
+                            return;
+                        }
+
+                        // A discarded renewal would hold its slot in the scheduler
+                        if (runnable instanceof RenewalScheduler.Execution) {
+                            ((RenewalScheduler.Execution) runnable).rejected();
+                            return;
+                        }
+
                         // Log and discard
                         log.warning(
                                 "Thread pool saturated, discarding execution " +
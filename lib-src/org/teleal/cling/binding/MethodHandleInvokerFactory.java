@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding;
+
+import org.teleal.cling.model.action.ActionExecutor;
+import org.teleal.cling.model.action.MethodHandleActionExecutor;
+import org.teleal.cling.model.meta.ActionArgument;
+import org.teleal.cling.model.meta.LocalService;
+import org.teleal.cling.model.state.MethodHandleFieldStateVariableAccessor;
+import org.teleal.cling.model.state.MethodHandleGetterStateVariableAccessor;
+import org.teleal.cling.model.state.StateVariableAccessor;
+import org.teleal.common.util.Reflections;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Binds members through <code>java.lang.invoke.MethodHandle</code>s, resolved when the service is bound.
+ * <p>
+ * Static members and members that can't be unreflected fall back to the reflective implementation.
+ * This factory can only be used if the runtime supports method handles, see {@link #isAvailable()}.
+ * </p>
+ */
+public class MethodHandleInvokerFactory extends ReflectionInvokerFactory {
+
+    private static Logger log = Logger.getLogger(MethodHandleInvokerFactory.class.getName());
+
+    public static boolean isAvailable() {
+        return Reflections.isClassAvailable("java.lang.invoke.MethodHandles");
+    }
+
+    @Override
+    public StateVariableAccessor createFieldAccessor(Field field) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+            try {
+                return new MethodHandleFieldStateVariableAccessor(field);
+            } catch (IllegalAccessException ex) {
+                log.warning("Can't bind method handle, using reflection for field '" + field + "': " + ex);
+            }
+        }
+        return super.createFieldAccessor(field);
+    }
+
+    @Override
+    public StateVariableAccessor createGetterAccessor(Method getter) {
+        if (!Modifier.isStatic(getter.getModifiers())) {
+            try {
+                return new MethodHandleGetterStateVariableAccessor(getter);
+            } catch (IllegalAccessException ex) {
+                log.warning("Can't bind method handle, using reflection for getter '" + getter + "': " + ex);
+            }
+        }
+        return super.createGetterAccessor(getter);
+    }
+
+    @Override
+    public ActionExecutor createActionExecutor(Map<ActionArgument<LocalService>, StateVariableAccessor> outputArgumentAccessors,
+                                               Method method) {
+        if (!Modifier.isStatic(method.getModifiers())) {
+            try {
+                return new MethodHandleActionExecutor(outputArgumentAccessors, method);
+            } catch (IllegalAccessException ex) {
+                log.warning("Can't bind method handle, using reflection for action method '" + method + "': " + ex);
+            }
+        }
+        return super.createActionExecutor(outputArgumentAccessors, method);
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding;
+
+import org.teleal.cling.model.action.ActionExecutor;
+import org.teleal.cling.model.action.MethodActionExecutor;
+import org.teleal.cling.model.meta.ActionArgument;
+import org.teleal.cling.model.meta.LocalService;
+import org.teleal.cling.model.state.FieldStateVariableAccessor;
+import org.teleal.cling.model.state.GetterStateVariableAccessor;
+import org.teleal.cling.model.state.StateVariableAccessor;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Binds members with plain <code>java.lang.reflect</code> calls, works on every platform.
+ */
+public class ReflectionInvokerFactory implements InvokerFactory {
+
+    public StateVariableAccessor createFieldAccessor(Field field) {
+        return new FieldStateVariableAccessor(field);
+    }
+
+    public StateVariableAccessor createGetterAccessor(Method getter) {
+        return new GetterStateVariableAccessor(getter);
+    }
+
+    public ActionExecutor createActionExecutor(Map<ActionArgument<LocalService>, StateVariableAccessor> outputArgumentAccessors,
+                                               Method method) {
+        return new MethodActionExecutor(outputArgumentAccessors, method);
+    }
+
+}
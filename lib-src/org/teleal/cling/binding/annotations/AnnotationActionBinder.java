@@ -17,16 +17,16 @@
 
 package org.teleal.cling.binding.annotations;
 
+import org.teleal.cling.binding.InvokerFactory;
 import org.teleal.cling.binding.LocalServiceBindingException;
+import org.teleal.cling.binding.ReflectionInvokerFactory;
 import org.teleal.cling.model.Constants;
 import org.teleal.cling.model.ModelUtil;
 import org.teleal.cling.model.action.ActionExecutor;
-import org.teleal.cling.model.action.MethodActionExecutor;
 import org.teleal.cling.model.meta.Action;
 import org.teleal.cling.model.meta.ActionArgument;
 import org.teleal.cling.model.meta.LocalService;
 import org.teleal.cling.model.meta.StateVariable;
-import org.teleal.cling.model.state.GetterStateVariableAccessor;
 import org.teleal.cling.model.state.StateVariableAccessor;
 import org.teleal.cling.model.types.Datatype;
 import org.teleal.common.util.Reflections;
@@ -51,12 +51,19 @@ public class AnnotationActionBinder {
     protected Method method;
     protected Map<StateVariable, StateVariableAccessor> stateVariables;
     protected Set<Class> stringConvertibleTypes;
+    protected InvokerFactory invokerFactory;
 
     public AnnotationActionBinder(Method method, Map<StateVariable, StateVariableAccessor> stateVariables, Set<Class> stringConvertibleTypes) {
+        this(method, stateVariables, stringConvertibleTypes, new ReflectionInvokerFactory());
+    }
+
+    public AnnotationActionBinder(Method method, Map<StateVariable, StateVariableAccessor> stateVariables, Set<Class> stringConvertibleTypes,
+                                  InvokerFactory invokerFactory) {
         this.annotation = method.getAnnotation(UpnpAction.class);
         this.stateVariables = stateVariables;
         this.method = method;
         this.stringConvertibleTypes = stringConvertibleTypes;
+        this.invokerFactory = invokerFactory;
     }
 
     public UpnpAction getAnnotation() {
@@ -75,6 +82,10 @@ public class AnnotationActionBinder {
         return stringConvertibleTypes;
     }
 
+    public InvokerFactory getInvokerFactory() {
+        return invokerFactory;
+    }
+
     public void appendAction(Map<Action, ActionExecutor> actions) throws LocalServiceBindingException {
 
         String name;
@@ -101,7 +112,7 @@ public class AnnotationActionBinder {
 
     protected ActionExecutor createExecutor(Map<ActionArgument<LocalService>, StateVariableAccessor> outputArguments) {
         // TODO: Invent an annotation for this configuration
-        return new MethodActionExecutor(outputArguments, getMethod());
+        return getInvokerFactory().createActionExecutor(outputArguments, getMethod());
     }
 
     protected List<ActionArgument> createInputArguments() throws LocalServiceBindingException {
@@ -230,7 +241,7 @@ public class AnnotationActionBinder {
 
                 validateType(stateVariable, getter.getReturnType());
 
-                return new GetterStateVariableAccessor(getter);
+                return getInvokerFactory().createGetterAccessor(getter);
 
             } else {
                 log.finer("Action method is void, trying to find existing accessor of related: " + stateVariable);
@@ -250,7 +261,7 @@ public class AnnotationActionBinder {
 
             validateType(stateVariable, getter.getReturnType());
 
-            return new GetterStateVariableAccessor(getter);
+            return getInvokerFactory().createGetterAccessor(getter);
 
         } else if (!multipleArguments) {
             log.finer("Action method is not void, will use the returned instance: " + getMethod().getReturnType());
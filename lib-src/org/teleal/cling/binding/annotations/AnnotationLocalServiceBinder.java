@@ -17,8 +17,11 @@
 
 package org.teleal.cling.binding.annotations;
 
+import org.teleal.cling.binding.InvokerFactory;
 import org.teleal.cling.binding.LocalServiceBinder;
 import org.teleal.cling.binding.LocalServiceBindingException;
+import org.teleal.cling.binding.MethodHandleInvokerFactory;
+import org.teleal.cling.binding.ReflectionInvokerFactory;
 import org.teleal.cling.model.ValidationError;
 import org.teleal.cling.model.ValidationException;
 import org.teleal.cling.model.action.ActionExecutor;
@@ -29,8 +32,6 @@ import org.teleal.cling.model.meta.LocalDeviceService;
 import org.teleal.cling.model.meta.LocalService;
 import org.teleal.cling.model.meta.QueryStateVariableAction;
 import org.teleal.cling.model.meta.StateVariable;
-import org.teleal.cling.model.state.FieldStateVariableAccessor;
-import org.teleal.cling.model.state.GetterStateVariableAccessor;
 import org.teleal.cling.model.state.StateVariableAccessor;
 import org.teleal.cling.model.types.ServiceId;
 import org.teleal.cling.model.types.ServiceType;
@@ -45,10 +46,12 @@ import java.lang.reflect.Modifier;
 import java.net.URI;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.logging.Logger;
 
 
@@ -56,7 +59,32 @@ public class AnnotationLocalServiceBinder implements LocalServiceBinder {
 
     private static Logger log = Logger.getLogger(AnnotationLocalServiceBinder.class.getName());
 
+    final protected InvokerFactory invokerFactory;
+
+    // Service classes without a generated binding, so we don't look for it on every read
+    final protected Map<Class<?>, Boolean> withoutGeneratedBinding =
+            Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
+    public AnnotationLocalServiceBinder() {
+        this(createDefaultInvokerFactory());
+    }
+
+    public AnnotationLocalServiceBinder(InvokerFactory invokerFactory) {
+        this.invokerFactory = invokerFactory;
+    }
+
+    public InvokerFactory getInvokerFactory() {
+        return invokerFactory;
+    }
+
     public DeviceService read(Class<?> clazz) throws LocalServiceBindingException {
+
+        GeneratedServiceBinding generatedBinding = findGeneratedBinding(clazz);
+        if (generatedBinding != null) {
+            log.fine("Using binding generated at build time for service implementation class: " + clazz);
+            return generatedBinding.read(this);
+        }
+
         log.fine("Reading and binding annotations of service implementation class: " + clazz);
 
         // Read the service ID and service type from the annotation
@@ -96,6 +124,16 @@ public class AnnotationLocalServiceBinder implements LocalServiceBinder {
         Map<StateVariable, StateVariableAccessor> stateVariables = readStateVariables(clazz, stringConvertibleTypes);
         Map<Action, ActionExecutor> actions = readActions(clazz, stateVariables, stringConvertibleTypes);
 
+        return createDeviceService(id, type, actions, stateVariables, stringConvertibleTypes, supportsQueryStateVariables);
+    }
+
+    public DeviceService createDeviceService(ServiceId id, ServiceType type,
+                                             Map<Action, ActionExecutor> actions,
+                                             Map<StateVariable, StateVariableAccessor> stateVariables,
+                                             Set<Class> stringConvertibleTypes,
+                                             boolean supportsQueryStateVariables)
+            throws LocalServiceBindingException {
+
         // Special treatment of the state variable querying action
         if (supportsQueryStateVariables) {
             actions.put(new QueryStateVariableAction(), new QueryStateVariableExecutor());
@@ -121,6 +159,39 @@ public class AnnotationLocalServiceBinder implements LocalServiceBinder {
         );
     }
 
+    protected GeneratedServiceBinding findGeneratedBinding(Class<?> clazz) {
+        if (withoutGeneratedBinding.containsKey(clazz)) return null;
+        try {
+            Class<?> bindingClass = Class.forName(getGeneratedBindingClassName(clazz), true, clazz.getClassLoader());
+            if (GeneratedServiceBinding.class.isAssignableFrom(bindingClass)) {
+                return (GeneratedServiceBinding) bindingClass.newInstance();
+            }
+        } catch (ClassNotFoundException ex) {
+            // No generated binding
+        } catch (Exception ex) {
+            log.warning("Can't instantiate generated binding, reading annotations of '" + clazz + "': " + ex);
+        }
+        withoutGeneratedBinding.put(clazz, Boolean.TRUE);
+        return null;
+    }
+
+    // Called by generated bindings for members they can't access directly
+    public StateVariableAccessor createFieldAccessor(Class<?> clazz, String fieldName) throws LocalServiceBindingException {
+        try {
+            return getInvokerFactory().createFieldAccessor(clazz.getDeclaredField(fieldName));
+        } catch (NoSuchFieldException ex) {
+            throw new LocalServiceBindingException("Generated binding is stale, field not found: " + fieldName);
+        }
+    }
+
+    public StateVariableAccessor createGetterAccessor(Class<?> clazz, String getterName) throws LocalServiceBindingException {
+        try {
+            return getInvokerFactory().createGetterAccessor(clazz.getDeclaredMethod(getterName));
+        } catch (NoSuchMethodException ex) {
+            throw new LocalServiceBindingException("Generated binding is stale, getter method not found: " + getterName);
+        }
+    }
+
     protected Set<Class> readStringConvertibleTypes(Class[] declaredTypes) throws LocalServiceBindingException {
 
         for (Class stringConvertibleType : declaredTypes) {
@@ -168,12 +239,12 @@ public class AnnotationLocalServiceBinder implements LocalServiceBinder {
                 StateVariableAccessor accessor = null;
                 if (getter != null && field != null) {
                     accessor = variables.preferFields() ?
-                            new FieldStateVariableAccessor(field)
-                            : new GetterStateVariableAccessor(getter);
+                            getInvokerFactory().createFieldAccessor(field)
+                            : getInvokerFactory().createGetterAccessor(getter);
                 } else if (field != null) {
-                    accessor = new FieldStateVariableAccessor(field);
+                    accessor = getInvokerFactory().createFieldAccessor(field);
                 } else if (getter != null) {
-                    accessor = new GetterStateVariableAccessor(getter);
+                    accessor = getInvokerFactory().createGetterAccessor(getter);
                 } else {
                     log.finer("No field or getter found for state variable, skipping accessor: " + v.name());
                 }
@@ -191,7 +262,7 @@ public class AnnotationLocalServiceBinder implements LocalServiceBinder {
 
             UpnpStateVariable svAnnotation = field.getAnnotation(UpnpStateVariable.class);
 
-            StateVariableAccessor accessor = new FieldStateVariableAccessor(field);
+            StateVariableAccessor accessor = getInvokerFactory().createFieldAccessor(field);
 
             StateVariable stateVar = new AnnotationStateVariableBinder(
                     svAnnotation,
@@ -222,7 +293,7 @@ public class AnnotationLocalServiceBinder implements LocalServiceBinder {
 
             UpnpStateVariable svAnnotation = getter.getAnnotation(UpnpStateVariable.class);
 
-            StateVariableAccessor accessor = new GetterStateVariableAccessor(getter);
+            StateVariableAccessor accessor = getInvokerFactory().createGetterAccessor(getter);
 
             StateVariable stateVar = new AnnotationStateVariableBinder(
                     svAnnotation,
@@ -249,15 +320,39 @@ public class AnnotationLocalServiceBinder implements LocalServiceBinder {
 
         for (Method method : Reflections.getMethods(clazz, UpnpAction.class)) {
             AnnotationActionBinder actionBinder =
-                    new AnnotationActionBinder(method, stateVariables, stringConvertibleTypes);
+                    new AnnotationActionBinder(method, stateVariables, stringConvertibleTypes, getInvokerFactory());
             actionBinder.appendAction(map);
         }
 
         return map;
     }
 
+    public static InvokerFactory createDefaultInvokerFactory() {
+        // Method handles are not available on all platforms, e.g. older Android runtimes
+        return MethodHandleInvokerFactory.isAvailable()
+                ? new MethodHandleInvokerFactory()
+                : new ReflectionInvokerFactory();
+    }
+
     // TODO: I don't like the exceptions much, user has no idea what to do
 
+    public static String getGeneratedBindingClassName(Class<?> clazz) {
+        String packageName = clazz.getPackage() != null ? clazz.getPackage().getName() : "";
+        String className = packageName.length() > 0 ? clazz.getName().substring(packageName.length() + 1) : clazz.getName();
+        return (packageName.length() > 0 ? packageName + "." : "") + getGeneratedBindingClassName(className);
+    }
+
+    /**
+     * Escapes <tt>_</tt> as <tt>__</tt> and the <tt>$</tt> of nested classes as <tt>_$</tt>, so the
+     * bindings of <tt>Outer_Inner</tt> and <tt>Outer$Inner</tt> have different names.
+     *
+     * @param binaryName The binary name of the service class, without package.
+     * @return The simple name of the generated binding class.
+     */
+    public static String getGeneratedBindingClassName(String binaryName) {
+        return binaryName.replace("_", "__").replace("$", "_$") + GeneratedServiceBinding.CLASS_NAME_SUFFIX;
+    }
+
     public static String toUpnpStateVariableName(String javaName) {
         if (javaName.length() < 1) {
             throw new IllegalArgumentException("Variable name must be at least 1 character long");
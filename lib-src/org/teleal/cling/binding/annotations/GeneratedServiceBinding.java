@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding.annotations;
+
+import org.teleal.cling.binding.LocalServiceBindingException;
+import org.teleal.cling.model.meta.DeviceService;
+
+/**
+ * Implemented by the bindings the {@link org.teleal.cling.binding.annotations.processing.UpnpServiceProcessor}
+ * generates at build time for each <code>@UpnpService</code> class.
+ * <p>
+ * A generated binding creates the same service model as {@link AnnotationLocalServiceBinder}, but all
+ * annotations have been read, and all types and related state variables resolved, by the compiler.
+ * </p>
+ */
+public interface GeneratedServiceBinding {
+
+    public static final String CLASS_NAME_SUFFIX = "_UpnpBinding";
+
+    public DeviceService read(AnnotationLocalServiceBinder binder) throws LocalServiceBindingException;
+
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding.annotations.processing;
+
+import org.teleal.cling.binding.annotations.UpnpService;
+import org.teleal.cling.model.types.UDAServiceId;
+import org.teleal.cling.model.types.UDAServiceType;
+
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the Java source of a generated service binding.
+ */
+public class BindingWriter {
+
+    final protected UpnpServiceProcessor.ServiceModel service;
+    final protected Types types;
+    final protected PrintWriter out;
+
+    final protected Map<UpnpServiceProcessor.AccessorModel, String> accessorVariables = new HashMap();
+
+    public BindingWriter(UpnpServiceProcessor.ServiceModel service, Types types, PrintWriter out) {
+        this.service = service;
+        this.types = types;
+        this.out = out;
+    }
+
+    public void write() {
+        String serviceClassName = typeName(service.serviceClass.asType());
+
+        if (service.packageName.length() > 0) {
+            out.println("package " + service.packageName + ";");
+            out.println();
+        }
+        out.println("import org.teleal.cling.binding.LocalServiceBindingException;");
+        out.println("import org.teleal.cling.binding.annotations.AnnotationLocalServiceBinder;");
+        out.println("import org.teleal.cling.binding.annotations.GeneratedServiceBinding;");
+        out.println("import org.teleal.cling.model.action.ActionArgumentValue;");
+        out.println("import org.teleal.cling.model.action.ActionExecutor;");
+        out.println("import org.teleal.cling.model.action.ActionInvocation;");
+        out.println("import org.teleal.cling.model.meta.Action;");
+        out.println("import org.teleal.cling.model.meta.ActionArgument;");
+        out.println("import org.teleal.cling.model.meta.DeviceService;");
+        out.println("import org.teleal.cling.model.meta.LocalService;");
+        out.println("import org.teleal.cling.model.meta.StateVariable;");
+        out.println("import org.teleal.cling.model.meta.StateVariableAllowedValueRange;");
+        out.println("import org.teleal.cling.model.meta.StateVariableEventDetails;");
+        out.println("import org.teleal.cling.model.meta.StateVariableTypeDetails;");
+        out.println("import org.teleal.cling.model.state.StateVariableAccessor;");
+        out.println("import org.teleal.cling.model.types.Datatype;");
+        out.println();
+        out.println("import java.util.Arrays;");
+        out.println("import java.util.HashMap;");
+        out.println("import java.util.HashSet;");
+        out.println("import java.util.LinkedHashMap;");
+        out.println("import java.util.Map;");
+        out.println("import java.util.Set;");
+        out.println();
+        out.println("/**");
+        out.println(" * Generated by " + UpnpServiceProcessor.class.getSimpleName() + " for " + serviceClassName + ", do not edit.");
+        out.println(" */");
+        out.println("public class " + service.bindingClassName + " implements GeneratedServiceBinding {");
+        out.println();
+        out.println("    public DeviceService read(AnnotationLocalServiceBinder binder) throws LocalServiceBindingException {");
+        out.println();
+
+        writeStringConvertibleTypes();
+        writeStateVariables();
+        writeActions(serviceClassName);
+
+        UpnpService annotation = service.annotation;
+        out.println("        return binder.createDeviceService(");
+        out.println("                " + serviceIdExpression(annotation) + ",");
+        out.println("                " + serviceTypeExpression(annotation) + ",");
+        out.println("                actions,");
+        out.println("                stateVariables,");
+        out.println("                stringConvertibleTypes,");
+        out.println("                " + annotation.supportsQueryStateVariables());
+        out.println("        );");
+        out.println("    }");
+        out.println("}");
+    }
+
+    protected void writeStringConvertibleTypes() {
+        out.print("        Set<Class> stringConvertibleTypes = new HashSet(Arrays.asList(new Class[]{");
+        boolean first = true;
+        for (TypeMirror type : service.stringConvertibleTypes) {
+            out.print((first ? "" : ", ") + typeName(type) + ".class");
+            first = false;
+        }
+        out.println("}));");
+        out.println();
+    }
+
+    protected void writeStateVariables() {
+        out.println("        Map<StateVariable, StateVariableAccessor> stateVariables = new HashMap();");
+        out.println();
+        int i = 0;
+        for (UpnpServiceProcessor.StateVariableModel sv : service.stateVariables.values()) {
+            String accessorVariable = "stateVariable" + i + "Accessor";
+            out.println("        // " + sv.name);
+            out.println("        StateVariableAccessor " + accessorVariable + " = " + accessorExpression(sv.accessor, "        ") + ";");
+            if (sv.accessor != null) {
+                accessorVariables.put(sv.accessor, accessorVariable);
+            }
+            out.println("        stateVariables.put(");
+            out.println("                new StateVariable(");
+            out.println("                        " + literal(sv.name) + ",");
+            out.println("                        new StateVariableTypeDetails(");
+            out.println("                                Datatype.Builtin." + sv.builtin.name() + ".getDatatype(),");
+            out.println("                                " + literal(sv.defaultValue) + ",");
+            out.println("                                " + allowedValuesExpression(sv.allowedValues) + ",");
+            out.println("                                " + (sv.allowedValueRange != null
+                    ? "new StateVariableAllowedValueRange(" + sv.allowedValueRange[0] + "L, "
+                    + sv.allowedValueRange[1] + "L, " + sv.allowedValueRange[2] + "L)"
+                    : "null"));
+            out.println("                        ),");
+            out.println("                        new StateVariableEventDetails(" + sv.sendEvents + ", "
+                    + sv.eventMaximumRateMillis + ", " + sv.eventMinimumDelta + ")");
+            out.println("                ),");
+            out.println("                " + accessorVariable);
+            out.println("        );");
+            out.println();
+            i++;
+        }
+    }
+
+    protected void writeActions(String serviceClassName) {
+        out.println("        Map<Action, ActionExecutor> actions = new HashMap();");
+        out.println();
+        int i = 0;
+        for (UpnpServiceProcessor.ActionModel action : service.actions) {
+            String prefix = "action" + i;
+            out.println("        // " + action.name + " -> " + action.method.getSimpleName() + "()");
+
+            StringBuilder arguments = new StringBuilder();
+            int j = 0;
+            for (UpnpServiceProcessor.ArgumentModel argument : action.inputArguments) {
+                String variable = prefix + "Argument" + j++;
+                out.println("        ActionArgument " + variable + " = new ActionArgument("
+                        + literal(argument.name) + ", " + literal(argument.stateVariable.name) + ", ActionArgument.Direction.IN);");
+                arguments.append(arguments.length() > 0 ? ", " : "").append(variable);
+            }
+            out.println("        Map<ActionArgument<LocalService>, StateVariableAccessor> " + prefix + "Output = new LinkedHashMap();");
+            for (UpnpServiceProcessor.ArgumentModel argument : action.outputArguments) {
+                String variable = prefix + "Argument" + j++;
+                out.println("        ActionArgument " + variable + " = new ActionArgument("
+                        + literal(argument.name) + ", " + literal(argument.stateVariable.name)
+                        + ", ActionArgument.Direction.OUT, " + argument.returnValue + ");");
+                out.println("        " + prefix + "Output.put(" + variable + ", "
+                        + accessorExpression(argument.accessor, "        ") + ");");
+                arguments.append(arguments.length() > 0 ? ", " : "").append(variable);
+            }
+
+            out.println("        actions.put(");
+            out.println("                new Action(" + literal(action.name) + ", new ActionArgument[]{" + arguments + "}),");
+            out.println("                new ActionExecutor(" + prefix + "Output) {");
+            out.println("                    @Override");
+            out.println("                    protected void execute(ActionInvocation<LocalService> actionInvocation, Object serviceImpl) throws Exception {");
+            if (!action.inputArguments.isEmpty()) {
+                out.println("                        ActionArgumentValue[] input = actionInvocation.getInput().getValues();");
+            }
+
+            String call = "((" + serviceClassName + ") serviceImpl)." + action.method.getSimpleName() + "(" + callArguments(action) + ")";
+
+            // Same decisions as MethodActionExecutor, made at build time
+            if (action.outputArguments.isEmpty()) {
+                out.println("                        " + call + ";");
+            } else if (action.isVoid()) {
+                out.println("                        " + call + ";");
+                out.println("                        setOutputArgumentValues(actionInvocation, readOutputArgumentValues(actionInvocation.getAction(), serviceImpl));");
+            } else if (action.isUseOutputArgumentAccessors()) {
+                out.println("                        Object returnedInstance = " + call + ";");
+                out.println("                        setOutputArgumentValues(actionInvocation, readOutputArgumentValues(actionInvocation.getAction(), returnedInstance));");
+            } else {
+                out.println("                        setOutputArgumentValues(actionInvocation, " + call + ");");
+            }
+            out.println("                    }");
+            out.println("                }");
+            out.println("        );");
+            out.println();
+            i++;
+        }
+    }
+
+    protected String callArguments(UpnpServiceProcessor.ActionModel action) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        for (UpnpServiceProcessor.ArgumentModel argument : action.inputArguments) {
+            if (sb.length() > 0) sb.append(", ");
+            String value = "input[" + i++ + "].getValue()";
+            TypeMirror type = argument.type;
+            if (type.getKind().isPrimitive()) {
+                sb.append("(").append(types.boxedClass((PrimitiveType) type).getQualifiedName()).append(") ").append(value);
+            } else if (service.isStringConvertibleType(type) && !isEnum(type)) {
+                sb.append("new ").append(typeName(type)).append("(").append(value).append(".toString())");
+            } else {
+                sb.append("(").append(typeName(type)).append(") ").append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    protected String accessorExpression(UpnpServiceProcessor.AccessorModel accessor, String indent) {
+        if (accessor == null) return "null";
+
+        String existing = accessorVariables.get(accessor);
+        if (existing != null) return existing;
+
+        String memberName = accessor.member.getSimpleName().toString();
+        if (!accessor.accessible) {
+            String declaringClass = typeName(accessor.member.getEnclosingElement().asType());
+            return accessor.isField()
+                    ? "binder.createFieldAccessor(" + declaringClass + ".class, " + literal(memberName) + ")"
+                    : "binder.createGetterAccessor(" + declaringClass + ".class, " + literal(memberName) + ")";
+        }
+
+        String read = "((" + typeName(accessor.ownerType.asType()) + ") serviceImpl)."
+                + memberName + (accessor.isField() ? "" : "()");
+        return "new StateVariableAccessor() {\n"
+                + indent + "    @Override\n"
+                + indent + "    public Class<?> getReturnType() {\n"
+                + indent + "        return " + typeName(accessor.returnType) + ".class;\n"
+                + indent + "    }\n"
+                + indent + "\n"
+                + indent + "    @Override\n"
+                + indent + "    public Object read(Object serviceImpl) throws Exception {\n"
+                + indent + "        return " + read + ";\n"
+                + indent + "    }\n"
+                + indent + "}";
+    }
+
+    protected String serviceIdExpression(UpnpService annotation) {
+        return annotation.serviceId().namespace().equals(UDAServiceId.DEFAULT_NAMESPACE)
+                ? "new org.teleal.cling.model.types.UDAServiceId(" + literal(annotation.serviceId().value()) + ")"
+                : "new org.teleal.cling.model.types.ServiceId("
+                + literal(annotation.serviceId().namespace()) + ", " + literal(annotation.serviceId().value()) + ")";
+    }
+
+    protected String serviceTypeExpression(UpnpService annotation) {
+        return annotation.serviceType().namespace().equals(UDAServiceType.DEFAULT_NAMESPACE)
+                ? "new org.teleal.cling.model.types.UDAServiceType("
+                + literal(annotation.serviceType().value()) + ", " + annotation.serviceType().version() + ")"
+                : "new org.teleal.cling.model.types.ServiceType("
+                + literal(annotation.serviceType().namespace()) + ", "
+                + literal(annotation.serviceType().value()) + ", " + annotation.serviceType().version() + ")";
+    }
+
+    protected String allowedValuesExpression(String[] allowedValues) {
+        if (allowedValues == null) return "null";
+        StringBuilder sb = new StringBuilder("new String[]{");
+        for (int i = 0; i < allowedValues.length; i++) {
+            sb.append(i > 0 ? ", " : "").append(literal(allowedValues[i]));
+        }
+        return sb.append("}").toString();
+    }
+
+    protected String typeName(TypeMirror type) {
+        return types.erasure(type).toString();
+    }
+
+    protected boolean isEnum(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) types.asElement(type)).getKind() == ElementKind.ENUM;
+    }
+
+    protected String literal(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append("\"").toString();
+    }
+
+}
@@ -0,0 +1,803 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding.annotations.processing;
+
+import org.teleal.cling.binding.annotations.AnnotationLocalServiceBinder;
+import org.teleal.cling.binding.annotations.UpnpAction;
+import org.teleal.cling.binding.annotations.UpnpInputArgument;
+import org.teleal.cling.binding.annotations.UpnpOutputArgument;
+import org.teleal.cling.binding.annotations.UpnpService;
+import org.teleal.cling.binding.annotations.UpnpStateVariable;
+import org.teleal.cling.binding.annotations.UpnpStateVariables;
+import org.teleal.cling.model.Constants;
+import org.teleal.cling.model.meta.StateVariableAllowedValueRange;
+import org.teleal.cling.model.types.Datatype;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link GeneratedServiceBinding} for every <code>@UpnpService</code> class at build time.
+ * <p>
+ * This processor applies the same rules as {@link AnnotationLocalServiceBinder} and its action and state
+ * variable binders, but on the compiler's model of the source. The generated class creates the actions,
+ * state variables, accessors and executors directly, calling the action methods and reading accessible
+ * fields and getters without any reflection. Binding errors are reported as compilation errors.
+ * </p>
+ * <p>
+ * Services this processor can't fully resolve are skipped with a note, they are bound at runtime by
+ * reading their annotations as usual.
+ * </p>
+ */
+public class UpnpServiceProcessor extends AbstractProcessor {
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(UpnpService.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement serviceClass : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(UpnpService.class))) {
+            try {
+                ServiceModel model = new ServiceModel(serviceClass);
+                model.read();
+                model.write();
+            } catch (BindingError error) {
+                getMessager().printMessage(Diagnostic.Kind.ERROR, error.getMessage(), error.element);
+            } catch (UnsupportedBinding unsupported) {
+                getMessager().printMessage(
+                        Diagnostic.Kind.NOTE,
+                        "Not generating binding, service will be bound at runtime: " + unsupported.getMessage(),
+                        serviceClass
+                );
+            } catch (IOException ex) {
+                getMessager().printMessage(
+                        Diagnostic.Kind.ERROR, "Can't write generated binding: " + ex, serviceClass
+                );
+            }
+        }
+        return false;
+    }
+
+    protected Messager getMessager() {
+        return processingEnv.getMessager();
+    }
+
+    protected Elements getElements() {
+        return processingEnv.getElementUtils();
+    }
+
+    protected Types getTypes() {
+        return processingEnv.getTypeUtils();
+    }
+
+    /* ##################################################################################################### */
+
+    protected class ServiceModel {
+
+        final TypeElement serviceClass;
+        final UpnpService annotation;
+        final List<TypeMirror> stringConvertibleTypes = new ArrayList();
+        final Map<String, StateVariableModel> stateVariables = new LinkedHashMap();
+        final List<ActionModel> actions = new ArrayList();
+
+        String packageName;
+        String bindingClassName;
+
+        ServiceModel(TypeElement serviceClass) {
+            this.serviceClass = serviceClass;
+            this.annotation = serviceClass.getAnnotation(UpnpService.class);
+        }
+
+        void read() throws BindingError, UnsupportedBinding {
+            packageName = getElements().getPackageOf(serviceClass).getQualifiedName().toString();
+            String binaryName = getElements().getBinaryName(serviceClass).toString();
+            bindingClassName = AnnotationLocalServiceBinder.getGeneratedBindingClassName(
+                    packageName.length() > 0 ? binaryName.substring(packageName.length() + 1) : binaryName
+            );
+
+            if (serviceClass.getModifiers().contains(Modifier.PRIVATE))
+                throw new UnsupportedBinding("private service class");
+
+            if (getElements().getTypeElement(getQualifiedBindingClassName()) != null)
+                throw new UnsupportedBinding("class with the name of the binding exists: " + getQualifiedBindingClassName());
+
+            readStringConvertibleTypes();
+            readStateVariables();
+            readActions();
+        }
+
+        void readStringConvertibleTypes() throws BindingError {
+            for (TypeMirror declaredType : getClassValues(findAnnotationMirror(serviceClass, UpnpService.class), "stringConvertibleTypes")) {
+                TypeElement declaredElement = (TypeElement) getTypes().asElement(declaredType);
+                if (!declaredElement.getModifiers().contains(Modifier.PUBLIC)) {
+                    throw new BindingError(serviceClass, "Declared string-convertible type must be public: " + declaredType);
+                }
+                boolean hasStringConstructor = false;
+                for (ExecutableElement ctor : ElementFilter.constructorsIn(declaredElement.getEnclosedElements())) {
+                    if (ctor.getModifiers().contains(Modifier.PUBLIC)
+                            && ctor.getParameters().size() == 1
+                            && isType(ctor.getParameters().get(0).asType(), String.class)) {
+                        hasStringConstructor = true;
+                    }
+                }
+                if (!hasStringConstructor) {
+                    throw new BindingError(serviceClass,
+                            "Declared string-convertible type needs a public single-argument String constructor: " + declaredType
+                    );
+                }
+                stringConvertibleTypes.add(declaredType);
+            }
+            // Some defaults, as in the runtime binder
+            stringConvertibleTypes.add(getTypeMirror(java.net.URI.class));
+            stringConvertibleTypes.add(getTypeMirror(java.net.URL.class));
+            stringConvertibleTypes.add(getTypeMirror(org.teleal.cling.model.types.csv.CSV.class));
+        }
+
+        void readStateVariables() throws BindingError, UnsupportedBinding {
+
+            // State variables declared on the class
+            UpnpStateVariables variables = serviceClass.getAnnotation(UpnpStateVariables.class);
+            if (variables != null) {
+                AnnotationMirror variablesMirror = findAnnotationMirror(serviceClass, UpnpStateVariables.class);
+                List<AnnotationMirror> variableMirrors = getAnnotationValues(variablesMirror, "value");
+                for (int i = 0; i < variables.value().length; i++) {
+                    UpnpStateVariable v = variables.value()[i];
+
+                    if (v.name().length() == 0)
+                        throw new BindingError(serviceClass, "Class-level @UpnpStateVariable name attribute value required");
+
+                    String javaPropertyName = AnnotationLocalServiceBinder.toJavaStateVariableName(v.name());
+
+                    ExecutableElement getter = findGetter(serviceClass, javaPropertyName);
+                    VariableElement field = findField(serviceClass, javaPropertyName);
+
+                    AccessorModel accessor = null;
+                    if (getter != null && field != null) {
+                        accessor = variables.preferFields()
+                                ? new AccessorModel(this, field)
+                                : new AccessorModel(this, serviceClass, getter);
+                    } else if (field != null) {
+                        accessor = new AccessorModel(this, field);
+                    } else if (getter != null) {
+                        accessor = new AccessorModel(this, serviceClass, getter);
+                    }
+
+                    addStateVariable(new StateVariableModel(this, serviceClass, v, variableMirrors.get(i), v.name(), accessor));
+                }
+            }
+
+            // State variables declared on fields
+            for (VariableElement field : getMembers(serviceClass, VariableElement.class)) {
+                UpnpStateVariable svAnnotation = field.getAnnotation(UpnpStateVariable.class);
+                if (svAnnotation == null) continue;
+                addStateVariable(new StateVariableModel(
+                        this,
+                        field,
+                        svAnnotation,
+                        findAnnotationMirror(field, UpnpStateVariable.class),
+                        svAnnotation.name().length() == 0
+                                ? AnnotationLocalServiceBinder.toUpnpStateVariableName(field.getSimpleName().toString())
+                                : svAnnotation.name(),
+                        new AccessorModel(this, field)
+                ));
+            }
+        }
+
+        void addStateVariable(StateVariableModel stateVariable) throws BindingError, UnsupportedBinding {
+            stateVariable.resolve();
+            stateVariables.put(stateVariable.name, stateVariable);
+        }
+
+        void readActions() throws BindingError, UnsupportedBinding {
+            for (ExecutableElement method : getMembers(serviceClass, ExecutableElement.class)) {
+                if (method.getAnnotation(UpnpAction.class) == null) continue;
+                ActionModel action = new ActionModel(this, method);
+                action.resolve();
+                actions.add(action);
+            }
+        }
+
+        boolean isStringConvertibleType(TypeMirror type) {
+            if (isEnum(type)) return true;
+            for (TypeMirror convertibleType : stringConvertibleTypes) {
+                if (getTypes().isAssignable(getTypes().erasure(type), getTypes().erasure(convertibleType)))
+                    return true;
+            }
+            return false;
+        }
+
+        String getQualifiedBindingClassName() {
+            return packageName.length() > 0 ? packageName + "." + bindingClassName : bindingClassName;
+        }
+
+        void write() throws IOException {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(getQualifiedBindingClassName(), serviceClass);
+            PrintWriter out = new PrintWriter(file.openWriter());
+            try {
+                new BindingWriter(this, getTypes(), out).write();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /* ##################################################################################################### */
+
+    protected class StateVariableModel {
+
+        final ServiceModel service;
+        final Element element;
+        final UpnpStateVariable annotation;
+        final AnnotationMirror annotationMirror;
+        final String name;
+        final AccessorModel accessor;
+
+        Datatype.Builtin builtin;
+        String defaultValue;
+        String[] allowedValues;
+        long[] allowedValueRange;
+        boolean sendEvents;
+        int eventMaximumRateMillis;
+        int eventMinimumDelta;
+
+        StateVariableModel(ServiceModel service, Element element, UpnpStateVariable annotation,
+                           AnnotationMirror annotationMirror, String name, AccessorModel accessor) {
+            this.service = service;
+            this.element = element;
+            this.annotation = annotation;
+            this.annotationMirror = annotationMirror;
+            this.name = name;
+            this.accessor = accessor;
+        }
+
+        // See AnnotationStateVariableBinder#createStateVariable()
+        void resolve() throws BindingError, UnsupportedBinding {
+            TypeMirror allowedValuesEnum = getClassValue(annotationMirror, "allowedValuesEnum");
+            boolean hasAllowedValuesEnum = allowedValuesEnum.getKind() != TypeKind.VOID;
+
+            // Datatype
+            String datatype = annotation.datatype();
+            if (datatype.length() == 0 && accessor != null) {
+                if (service.isStringConvertibleType(accessor.returnType)) {
+                    datatype = Datatype.Default.STRING.getBuiltinType().getDescriptorName();
+                } else {
+                    Datatype.Default defaultDatatype = getDefaultDatatype(accessor.returnType);
+                    if (defaultDatatype != null) {
+                        datatype = defaultDatatype.getBuiltinType().getDescriptorName();
+                    }
+                }
+            }
+            if (datatype.length() == 0 && hasAllowedValuesEnum) {
+                datatype = "string";
+            }
+            if (datatype.length() == 0) {
+                throw new BindingError(element, "Could not detect datatype of state variable: " + name);
+            }
+            builtin = Datatype.Builtin.getByDescriptorName(datatype);
+            if (builtin == null) {
+                throw new BindingError(element, "No built-in UPnP datatype found for: " + datatype);
+            }
+
+            // Default value
+            if (annotation.defaultValue().length() != 0) {
+                try {
+                    builtin.getDatatype().fromString(annotation.defaultValue());
+                } catch (Exception ex) {
+                    throw new BindingError(element,
+                            "Default value doesn't match datatype of state variable '" + name + "': " + ex.getMessage()
+                    );
+                }
+                defaultValue = annotation.defaultValue();
+            }
+
+            // Allowed values
+            if (Datatype.Builtin.STRING.equals(builtin)) {
+                if (hasAllowedValuesEnum) {
+                    allowedValues = getAllowedValues(allowedValuesEnum);
+                } else if (accessor != null && isEnum(accessor.returnType)) {
+                    allowedValues = getAllowedValues(accessor.returnType);
+                }
+                if (allowedValues != null && defaultValue != null) {
+                    boolean foundValue = false;
+                    for (String s : allowedValues) {
+                        if (s.equals(defaultValue)) {
+                            foundValue = true;
+                            break;
+                        }
+                    }
+                    if (!foundValue) {
+                        throw new BindingError(element,
+                                "Default value '" + defaultValue + "' is not in allowed values of: " + name
+                        );
+                    }
+                }
+            }
+
+            // Allowed value range, same condition as the runtime binder
+            if (Datatype.Builtin.isNumeric(builtin) &&
+                    annotation.allowedValueMinimum() > 0 || annotation.allowedValueMaximum() > 0) {
+
+                if (annotation.allowedValueMaximum() < annotation.allowedValueMinimum()) {
+                    throw new BindingError(element, "Allowed value range maximum is smaller than minimum: " + name);
+                }
+                allowedValueRange = new long[]{
+                        annotation.allowedValueMinimum(), annotation.allowedValueMaximum(), annotation.allowedValueStep()
+                };
+
+                if (defaultValue != null) {
+                    long v;
+                    try {
+                        v = Long.valueOf(defaultValue);
+                    } catch (Exception ex) {
+                        throw new BindingError(element,
+                                "Default value '" + defaultValue + "' is not numeric (for range checking) of: " + name
+                        );
+                    }
+                    StateVariableAllowedValueRange range =
+                            new StateVariableAllowedValueRange(allowedValueRange[0], allowedValueRange[1], allowedValueRange[2]);
+                    if (!range.isInRange(v)) {
+                        throw new BindingError(element,
+                                "Default value '" + defaultValue + "' is not in allowed range of: " + name
+                        );
+                    }
+                }
+            }
+
+            // Event details
+            sendEvents = annotation.sendEvents();
+            if (sendEvents && accessor == null) {
+                throw new BindingError(element,
+                        "State variable sends events but has no accessor for field or getter: " + name
+                );
+            }
+            if (sendEvents) {
+                if (annotation.eventMaximumRateMilliseconds() > 0) {
+                    eventMaximumRateMillis = annotation.eventMaximumRateMilliseconds();
+                }
+                if (annotation.eventMinimumDelta() > 0 && Datatype.Builtin.isNumeric(builtin)) {
+                    eventMinimumDelta = annotation.eventMinimumDelta();
+                }
+            }
+        }
+
+        String[] getAllowedValues(TypeMirror enumType) throws BindingError, UnsupportedBinding {
+            TypeElement enumElement = (TypeElement) getTypes().asElement(enumType);
+            for (ExecutableElement method : ElementFilter.methodsIn(enumElement.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals("toString") && method.getParameters().isEmpty()) {
+                    // We only know the constant names, not what toString() returns at runtime
+                    throw new UnsupportedBinding("enum overrides toString(): " + enumType);
+                }
+            }
+            List<String> values = new ArrayList();
+            for (Element constant : enumElement.getEnclosedElements()) {
+                if (constant.getKind() != ElementKind.ENUM_CONSTANT) continue;
+                String value = constant.getSimpleName().toString();
+                if (value.length() > 32) {
+                    throw new BindingError(element,
+                            "Allowed value string (that is, Enum constant name) is longer than 32 characters: " + value
+                    );
+                }
+                values.add(value);
+            }
+            return values.toArray(new String[values.size()]);
+        }
+    }
+
+    /* ##################################################################################################### */
+
+    protected class AccessorModel {
+
+        final ServiceModel service;
+        final TypeMirror returnType;
+        final TypeElement ownerType; // The type of the instance the accessor reads
+        final Element member;
+        final boolean accessible;
+
+        AccessorModel(ServiceModel service, VariableElement field) {
+            this.service = service;
+            this.returnType = field.asType();
+            this.ownerType = service.serviceClass;
+            this.member = field;
+            this.accessible = isAccessible(field);
+        }
+
+        // A getter called on an instance of the given type
+        AccessorModel(ServiceModel service, TypeElement ownerType, ExecutableElement getter) {
+            this.service = service;
+            this.returnType = getter.getReturnType();
+            this.ownerType = ownerType;
+            this.member = getter;
+            this.accessible = isAccessible(getter);
+        }
+
+        boolean isField() {
+            return member.getKind() == ElementKind.FIELD;
+        }
+
+        boolean isAccessible(Element member) {
+            Set<Modifier> modifiers = member.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) return false;
+            if (modifiers.contains(Modifier.PUBLIC)) return true;
+            // Package-private and protected members, the generated class is in the package of the service class
+            return getElements().getPackageOf(member).equals(getElements().getPackageOf(service.serviceClass));
+        }
+    }
+
+    /* ##################################################################################################### */
+
+    protected class ActionModel {
+
+        final ServiceModel service;
+        final ExecutableElement method;
+        final UpnpAction annotation;
+
+        String name;
+        final List<ArgumentModel> inputArguments = new ArrayList();
+        final List<ArgumentModel> outputArguments = new ArrayList();
+
+        ActionModel(ServiceModel service, ExecutableElement method) {
+            this.service = service;
+            this.method = method;
+            this.annotation = method.getAnnotation(UpnpAction.class);
+        }
+
+        boolean isVoid() {
+            return method.getReturnType().getKind() == TypeKind.VOID;
+        }
+
+        boolean isUseOutputArgumentAccessors() {
+            for (ArgumentModel outputArgument : outputArguments) {
+                if (outputArgument.accessor != null) return true;
+            }
+            return false;
+        }
+
+        // See AnnotationActionBinder#appendAction()
+        void resolve() throws BindingError, UnsupportedBinding {
+            if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)
+                    || !getElements().getPackageOf(method).equals(getElements().getPackageOf(service.serviceClass))
+                    && !method.getModifiers().contains(Modifier.PUBLIC)) {
+                throw new UnsupportedBinding("action method not accessible: " + method);
+            }
+
+            name = annotation.name().length() != 0
+                    ? annotation.name()
+                    : AnnotationLocalServiceBinder.toUpnpActionName(method.getSimpleName().toString());
+
+            String methodName = method.getSimpleName().toString();
+
+            // Input arguments are always method parameters
+            for (VariableElement param : method.getParameters()) {
+                UpnpInputArgument inputArgument = param.getAnnotation(UpnpInputArgument.class);
+                if (inputArgument == null) {
+                    throw new BindingError(method, "Method has parameters that are not input arguments: " + methodName);
+                }
+                StateVariableModel stateVariable =
+                        findRelatedStateVariable(inputArgument.stateVariable(), inputArgument.name(), methodName);
+                if (stateVariable == null) {
+                    throw new BindingError(method,
+                            "Could not detected related state variable of argument: " + inputArgument.name()
+                    );
+                }
+                validateType(stateVariable, param.asType());
+                ArgumentModel argument = new ArgumentModel(inputArgument.name(), stateVariable, false);
+                argument.type = param.asType();
+                inputArguments.add(argument);
+            }
+
+            // Output arguments
+            boolean hasMultipleOutputArguments = annotation.out().length > 1;
+            for (UpnpOutputArgument outputArgument : annotation.out()) {
+                StateVariableModel stateVariable =
+                        findRelatedStateVariable(outputArgument.stateVariable(), outputArgument.name(), methodName);
+
+                if (stateVariable == null && outputArgument.getterName().length() > 0) {
+                    stateVariable = findRelatedStateVariable(null, null, outputArgument.getterName());
+                }
+                if (stateVariable == null) {
+                    throw new BindingError(method,
+                            "Related state variable not found for output argument: " + outputArgument.name()
+                    );
+                }
+
+                ArgumentModel argument =
+                        new ArgumentModel(outputArgument.name(), stateVariable, !hasMultipleOutputArguments);
+                argument.accessor =
+                        findOutputArgumentAccessor(stateVariable, outputArgument.getterName(), hasMultipleOutputArguments);
+                outputArguments.add(argument);
+            }
+        }
+
+        // See AnnotationActionBinder#findOutputArgumentAccessor()
+        AccessorModel findOutputArgumentAccessor(StateVariableModel stateVariable, String getterName, boolean multipleArguments)
+                throws BindingError {
+
+            if (isVoid()) {
+                if (getterName != null && getterName.length() > 0) {
+                    TypeElement declaringClass = (TypeElement) method.getEnclosingElement();
+                    ExecutableElement getter = findMethod(declaringClass, getterName);
+                    if (getter == null)
+                        throw new BindingError(method,
+                                "Declared getter method '" + getterName + "' not found on: " + declaringClass
+                        );
+                    validateType(stateVariable, getter.getReturnType());
+                    return new AccessorModel(service, service.serviceClass, getter);
+                } else {
+                    return stateVariable.accessor;
+                }
+
+            } else if (getterName != null && getterName.length() > 0) {
+                if (method.getReturnType().getKind() != TypeKind.DECLARED) {
+                    throw new BindingError(method,
+                            "Declared getter method '" + getterName + "' not found on return type: " + method.getReturnType()
+                    );
+                }
+                TypeElement returnType = (TypeElement) getTypes().asElement(method.getReturnType());
+                ExecutableElement getter = findMethod(returnType, getterName);
+                if (getter == null)
+                    throw new BindingError(method,
+                            "Declared getter method '" + getterName + "' not found on return type: " + method.getReturnType()
+                    );
+                validateType(stateVariable, getter.getReturnType());
+                return new AccessorModel(service, returnType, getter);
+
+            } else if (!multipleArguments) {
+                validateType(stateVariable, method.getReturnType());
+            }
+            return null;
+        }
+
+        // See AnnotationActionBinder#findRelatedStateVariable()
+        StateVariableModel findRelatedStateVariable(String declaredName, String argumentName, String methodName) {
+            StateVariableModel related = null;
+            if (declaredName != null && declaredName.length() > 0) {
+                related = service.stateVariables.get(AnnotationLocalServiceBinder.toUpnpStateVariableName(declaredName));
+            }
+            if (related == null && argumentName != null && argumentName.length() > 0) {
+                related = service.stateVariables.get(Constants.ARG_TYPE_PREFIX + argumentName);
+            }
+            if (related == null && methodName != null && methodName.length() > 0) {
+                String methodPropertyName = org.teleal.common.util.Reflections.getMethodPropertyName(methodName);
+                if (methodPropertyName != null) {
+                    related = service.stateVariables.get(AnnotationLocalServiceBinder.toUpnpStateVariableName(methodPropertyName));
+                }
+            }
+            return related;
+        }
+
+        // See AnnotationActionBinder#validateType()
+        void validateType(StateVariableModel stateVariable, TypeMirror type) throws BindingError {
+            Datatype.Default expectedDatatype =
+                    service.isStringConvertibleType(type)
+                            ? Datatype.Default.STRING
+                            : getDefaultDatatype(type);
+
+            if (expectedDatatype != null && !expectedDatatype.getBuiltinType().equals(stateVariable.builtin)) {
+                throw new BindingError(method, "State variable has wrong type: " + stateVariable.name);
+            } else if (expectedDatatype == null && stateVariable.builtin != null) {
+                throw new BindingError(method,
+                        "State variable has wrong type (expected custom datatype '" + type + "'): " + stateVariable.name
+                );
+            }
+        }
+    }
+
+    protected class ArgumentModel {
+
+        final String name;
+        final StateVariableModel stateVariable;
+        final boolean returnValue;
+        TypeMirror type;
+        AccessorModel accessor;
+
+        ArgumentModel(String name, StateVariableModel stateVariable, boolean returnValue) {
+            this.name = name;
+            this.stateVariable = stateVariable;
+            this.returnValue = returnValue;
+        }
+    }
+
+    /* ##################################################################################################### */
+
+    protected Datatype.Default getDefaultDatatype(TypeMirror type) {
+        Class javaType = toJavaClass(type);
+        return javaType != null ? Datatype.Default.getByJavaType(javaType) : null;
+    }
+
+    // Only types known to this processor's classloader, that is, the JDK and this library, can be mapped
+    protected Class toJavaClass(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return Boolean.TYPE;
+            case SHORT:
+                return Short.TYPE;
+            case INT:
+                return Integer.TYPE;
+            case LONG:
+                return Long.TYPE;
+            case FLOAT:
+                return Float.TYPE;
+            case DOUBLE:
+                return Double.TYPE;
+            case CHAR:
+                return Character.TYPE;
+            case BYTE:
+                return Byte.TYPE;
+            case ARRAY:
+                Class componentType =
+                        toJavaClass(((javax.lang.model.type.ArrayType) type).getComponentType());
+                return componentType != null ? Array.newInstance(componentType, 0).getClass() : null;
+            case DECLARED:
+                TypeElement element = (TypeElement) getTypes().asElement(type);
+                try {
+                    return Class.forName(getElements().getBinaryName(element).toString(), false, getClass().getClassLoader());
+                } catch (ClassNotFoundException ex) {
+                    return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    protected boolean isEnum(TypeMirror type) {
+        Element element = getTypes().asElement(type);
+        return element != null && element.getKind() == ElementKind.ENUM;
+    }
+
+    protected boolean isType(TypeMirror type, Class clazz) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) getTypes().asElement(type)).getQualifiedName().contentEquals(clazz.getCanonicalName());
+    }
+
+    protected TypeMirror getTypeMirror(Class clazz) {
+        return getElements().getTypeElement(clazz.getCanonicalName()).asType();
+    }
+
+    // Declared members of the class and its superclasses, like Reflections.getFields() and getMethods()
+    protected <E extends Element> List<E> getMembers(TypeElement clazz, Class<E> kind) {
+        List<E> members = new ArrayList();
+        TypeElement current = clazz;
+        while (current != null) {
+            for (Element member : current.getEnclosedElements()) {
+                if (kind.equals(VariableElement.class) && member.getKind() == ElementKind.FIELD) {
+                    members.add(kind.cast(member));
+                } else if (kind.equals(ExecutableElement.class) && member.getKind() == ElementKind.METHOD) {
+                    members.add(kind.cast(member));
+                }
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement()
+                    : null;
+        }
+        return members;
+    }
+
+    protected VariableElement findField(TypeElement clazz, String name) {
+        for (VariableElement field : getMembers(clazz, VariableElement.class)) {
+            if (field.getSimpleName().contentEquals(name)) return field;
+        }
+        return null;
+    }
+
+    protected ExecutableElement findMethod(TypeElement clazz, String name) {
+        for (ExecutableElement method : getMembers(clazz, ExecutableElement.class)) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().isEmpty()) return method;
+        }
+        return null;
+    }
+
+    protected ExecutableElement findGetter(TypeElement clazz, String propertyName) {
+        String suffix = propertyName.substring(0, 1).toUpperCase() + propertyName.substring(1);
+        ExecutableElement getter = findMethod(clazz, "get" + suffix);
+        if (getter == null) {
+            getter = findMethod(clazz, "is" + suffix);
+            if (getter != null && getter.getReturnType().getKind() != TypeKind.BOOLEAN
+                    && !isType(getter.getReturnType(), Boolean.class)) {
+                getter = null;
+            }
+        }
+        return getter;
+    }
+
+    protected AnnotationMirror findAnnotationMirror(Element element, Class annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType.getName()))
+                return mirror;
+        }
+        return null;
+    }
+
+    protected AnnotationValue getAnnotationValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : getElements().getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) return entry.getValue();
+        }
+        return null;
+    }
+
+    protected TypeMirror getClassValue(AnnotationMirror mirror, String name) {
+        return (TypeMirror) getAnnotationValue(mirror, name).getValue();
+    }
+
+    protected List<TypeMirror> getClassValues(AnnotationMirror mirror, String name) {
+        List<TypeMirror> types = new ArrayList();
+        for (AnnotationValue value : (List<? extends AnnotationValue>) getAnnotationValue(mirror, name).getValue()) {
+            types.add((TypeMirror) value.getValue());
+        }
+        return types;
+    }
+
+    protected List<AnnotationMirror> getAnnotationValues(AnnotationMirror mirror, String name) {
+        List<AnnotationMirror> mirrors = new ArrayList();
+        for (AnnotationValue value : (List<? extends AnnotationValue>) getAnnotationValue(mirror, name).getValue()) {
+            mirrors.add((AnnotationMirror) value.getValue());
+        }
+        return mirrors;
+    }
+
+    protected static class BindingError extends Exception {
+        final Element element;
+
+        public BindingError(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    protected static class UnsupportedBinding extends Exception {
+        public UnsupportedBinding(String message) {
+            super(message);
+        }
+    }
+
+}
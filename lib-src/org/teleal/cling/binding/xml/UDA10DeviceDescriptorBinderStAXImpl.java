@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding.xml;
+
+import org.teleal.cling.binding.staging.MutableDeviceDescriptor;
+import org.teleal.cling.binding.staging.MutableDeviceService;
+import org.teleal.cling.binding.staging.MutableIcon;
+import org.teleal.cling.binding.xml.parser.DescriptorStreamReader;
+import org.teleal.cling.binding.xml.parser.DeviceDOM;
+import org.teleal.cling.binding.xml.parser.ELEMENT;
+import org.teleal.cling.model.ValidationException;
+import org.teleal.cling.model.meta.Device;
+import org.teleal.cling.model.types.ServiceId;
+import org.teleal.cling.model.types.ServiceType;
+import org.teleal.cling.model.types.UDN;
+
+import javax.xml.stream.XMLStreamException;
+import java.net.URI;
+import java.net.URL;
+import java.util.logging.Logger;
+
+/**
+ * Implementation based on a StAX pull parser, no DOM is built.
+ * <p>
+ * Reads the same elements with the same rules as the DOM implementation, generating
+ * descriptors is inherited.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class UDA10DeviceDescriptorBinderStAXImpl extends UDA10DeviceDescriptorBinderImpl {
+
+    private static Logger log = Logger.getLogger(DeviceDescriptorBinder.class.getName());
+
+    public <D extends Device> D describe(D undescribedDevice, String descriptorXml) throws DescriptorBindingException, ValidationException {
+
+        DescriptorStreamReader reader = null;
+        try {
+            log.fine("Populating device from XML descriptor: " + undescribedDevice);
+
+            reader = new DescriptorStreamReader(descriptorXml);
+
+            // Read the XML into a mutable descriptor graph
+            MutableDeviceDescriptor descriptor = new MutableDeviceDescriptor();
+            hydrateRoot(descriptor, reader);
+
+            // Build the immutable descriptor graph
+            return (D) descriptor.build(undescribedDevice);
+
+        } catch (ValidationException ex) {
+            throw ex;
+        } catch (DescriptorBindingException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new DescriptorBindingException("Could not parse device descriptor: " + ex.toString(), ex);
+        } finally {
+            if (reader != null) reader.close();
+        }
+    }
+
+    protected void hydrateRoot(MutableDeviceDescriptor descriptor, DescriptorStreamReader reader)
+            throws DescriptorBindingException, XMLStreamException {
+
+        if (!reader.nextRootElement()) {
+            throw new DescriptorBindingException("No root element in device descriptor");
+        }
+
+        if (!DeviceDOM.NAMESPACE_URI.equals(reader.getNamespaceURI())) {
+            throw new DescriptorBindingException("Wrong XML namespace declared on root element: "
+                    + reader.getNamespaceURI());
+        }
+
+        if (reader.getElement() != ELEMENT.root) {
+            throw new DescriptorBindingException("Root element name is not <root>: " + reader.getLocalName());
+        }
+
+        boolean foundDevice = false;
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == ELEMENT.specVersion) {
+                hydrateSpecVersion(descriptor, reader);
+            } else if (element == ELEMENT.URLBase) {
+                try {
+                    // We hope it's  RFC 2396 and RFC 2732 compliant
+                    descriptor.baseURL = new URL(reader.readText());
+                } catch (XMLStreamException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new DescriptorBindingException("Invalid URLBase: " + ex.getMessage());
+                }
+            } else if (element == ELEMENT.device) {
+                // Just sanity check here...
+                if (foundDevice)
+                    throw new DescriptorBindingException("Found multiple <device> elements in <root>");
+                foundDevice = true;
+                hydrateDevice(descriptor, reader);
+            } else {
+                log.finer("Ignoring unknown element: " + reader.getLocalName());
+                reader.skipElement();
+            }
+        }
+
+        if (!foundDevice) {
+            throw new DescriptorBindingException("No <device> element in <root>");
+        }
+    }
+
+    public void hydrateSpecVersion(MutableDeviceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == ELEMENT.major) {
+                descriptor.udaVersion.major = Integer.valueOf(reader.readText());
+            } else if (element == ELEMENT.minor) {
+                descriptor.udaVersion.minor = Integer.valueOf(reader.readText());
+            } else {
+                reader.skipElement();
+            }
+        }
+    }
+
+    public void hydrateDevice(MutableDeviceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == null) {
+                reader.skipElement();
+                continue;
+            }
+            switch (element) {
+                case deviceType:
+                    descriptor.deviceType = reader.readText();
+                    break;
+                case friendlyName:
+                    descriptor.friendlyName = reader.readText();
+                    break;
+                case manufacturer:
+                    descriptor.manufacturer = reader.readText();
+                    break;
+                case manufacturerURL:
+                    descriptor.manufacturerURI = createLenientURI(reader.readText());
+                    break;
+                case modelDescription:
+                    descriptor.modelDescription = reader.readText();
+                    break;
+                case modelName:
+                    descriptor.modelName = reader.readText();
+                    break;
+                case modelNumber:
+                    descriptor.modelNumber = reader.readText();
+                    break;
+                case modelURL:
+                    descriptor.modelURI = createLenientURI(reader.readText());
+                    break;
+                case presentationURL:
+                    descriptor.presentationURI = URI.create(reader.readText());
+                    break;
+                case UPC:
+                    descriptor.upc = reader.readText();
+                    break;
+                case serialNumber:
+                    descriptor.serialNumber = reader.readText();
+                    break;
+                case UDN:
+                    descriptor.udn = UDN.valueOf(reader.readText());
+                    break;
+                case iconList:
+                    hydrateIconList(descriptor, reader);
+                    break;
+                case serviceList:
+                    hydrateServiceList(descriptor, reader);
+                    break;
+                case deviceList:
+                    hydrateDeviceList(descriptor, reader);
+                    break;
+                default:
+                    reader.skipElement();
+            }
+        }
+    }
+
+    public void hydrateIconList(MutableDeviceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            if (reader.getElement() != ELEMENT.icon) {
+                reader.skipElement();
+                continue;
+            }
+
+            MutableIcon icon = new MutableIcon();
+
+            while (reader.nextChildElement()) {
+                ELEMENT element = reader.getElement();
+                if (element == ELEMENT.width) {
+                    icon.width = Integer.valueOf(reader.readText());
+                } else if (element == ELEMENT.height) {
+                    icon.height = Integer.valueOf(reader.readText());
+                } else if (element == ELEMENT.depth) {
+                    icon.depth = Integer.valueOf(reader.readText());
+                } else if (element == ELEMENT.url) {
+                    icon.uri = URI.create(reader.readText());
+                } else if (element == ELEMENT.mimetype) {
+                    icon.mimeType = reader.readText();
+                } else {
+                    reader.skipElement();
+                }
+            }
+
+            descriptor.icons.add(icon);
+        }
+    }
+
+    public void hydrateServiceList(MutableDeviceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            if (reader.getElement() != ELEMENT.service) {
+                reader.skipElement();
+                continue;
+            }
+
+            MutableDeviceService service = new MutableDeviceService();
+
+            while (reader.nextChildElement()) {
+                ELEMENT element = reader.getElement();
+                if (element == ELEMENT.serviceType) {
+                    service.serviceType = ServiceType.valueOf(reader.readText());
+                } else if (element == ELEMENT.serviceId) {
+                    service.serviceId = ServiceId.valueOf(reader.readText());
+                } else if (element == ELEMENT.SCPDURL) {
+                    service.descriptorURI = URI.create(reader.readText());
+                } else if (element == ELEMENT.controlURL) {
+                    service.controlURI = URI.create(reader.readText());
+                } else if (element == ELEMENT.eventSubURL) {
+                    service.eventSubscriptionURI = URI.create(reader.readText());
+                } else {
+                    reader.skipElement();
+                }
+            }
+
+            descriptor.deviceServices.add(service);
+        }
+    }
+
+    public void hydrateDeviceList(MutableDeviceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            if (reader.getElement() != ELEMENT.device) {
+                reader.skipElement();
+                continue;
+            }
+            MutableDeviceDescriptor embeddedDevice = new MutableDeviceDescriptor();
+            embeddedDevice.parentDevice = descriptor;
+            descriptor.embeddedDevices.add(embeddedDevice);
+            hydrateDevice(embeddedDevice, reader);
+        }
+    }
+
+    protected URI createLenientURI(String s) {
+        // TODO: UPNP VIOLATION: Netgear DG834 uses a non-URI: 'www.netgear.com'
+        if (s.startsWith("www.")) {
+            return URI.create("http://" + s);
+        }
+        return URI.create(s);
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding.xml;
+
+import org.teleal.cling.binding.staging.MutableAction;
+import org.teleal.cling.binding.staging.MutableActionArgument;
+import org.teleal.cling.binding.staging.MutableServiceDescriptor;
+import org.teleal.cling.binding.staging.MutableStateVariable;
+import org.teleal.cling.binding.xml.parser.ATTRIBUTE;
+import org.teleal.cling.binding.xml.parser.DescriptorStreamReader;
+import org.teleal.cling.binding.xml.parser.ELEMENT;
+import org.teleal.cling.model.ValidationException;
+import org.teleal.cling.model.meta.ActionArgument;
+import org.teleal.cling.model.meta.Service;
+import org.teleal.cling.model.meta.StateVariableAllowedValueRange;
+import org.teleal.cling.model.meta.StateVariableEventDetails;
+import org.teleal.cling.model.types.Datatype;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Implementation based on a StAX pull parser, no DOM is built.
+ * <p>
+ * Reads the same elements with the same rules as the DOM implementation, generating
+ * descriptors is inherited.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class UDA10ServiceDescriptorBinderStAXImpl extends UDA10ServiceDescriptorBinderImpl {
+
+    private static Logger log = Logger.getLogger(ServiceDescriptorBinder.class.getName());
+
+    public <S extends Service> S read(Class<S> serviceClass, String descriptorXml)
+            throws DescriptorBindingException, ValidationException {
+
+        DescriptorStreamReader reader = null;
+        try {
+            log.fine("Reading service from XML descriptor");
+
+            reader = new DescriptorStreamReader(descriptorXml);
+
+            // Read the XML into a mutable descriptor graph
+            MutableServiceDescriptor descriptor = new MutableServiceDescriptor();
+            hydrateRoot(descriptor, reader);
+
+            // Build the immutable descriptor graph
+            return descriptor.build(serviceClass);
+
+        } catch (ValidationException ex) {
+            throw ex;
+        } catch (DescriptorBindingException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new DescriptorBindingException("Could not parse service descriptor: " + ex.toString(), ex);
+        } finally {
+            if (reader != null) reader.close();
+        }
+    }
+
+    protected void hydrateRoot(MutableServiceDescriptor descriptor, DescriptorStreamReader reader)
+            throws DescriptorBindingException, XMLStreamException {
+
+        // We don't check the XMLNS, nobody bothers anyway...
+
+        if (!reader.nextRootElement()) {
+            throw new DescriptorBindingException("No root element in service descriptor");
+        }
+
+        if (reader.getElement() != ELEMENT.scpd) {
+            throw new DescriptorBindingException("Root element name is not <scpd>: " + reader.getLocalName());
+        }
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == ELEMENT.specVersion) {
+                hydrateSpecVersion(descriptor, reader);
+            } else if (element == ELEMENT.actionList) {
+                hydrateActionList(descriptor, reader);
+            } else if (element == ELEMENT.serviceStateTable) {
+                hydrateServiceStateTableList(descriptor, reader);
+            } else {
+                log.finer("Ignoring unknown element: " + reader.getLocalName());
+                reader.skipElement();
+            }
+        }
+    }
+
+    public void hydrateSpecVersion(MutableServiceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == ELEMENT.major) {
+                descriptor.udaMajorVersion = Integer.valueOf(reader.readText());
+            } else if (element == ELEMENT.minor) {
+                descriptor.udaMinorVersion = Integer.valueOf(reader.readText());
+            } else {
+                reader.skipElement();
+            }
+        }
+    }
+
+    public void hydrateActionList(MutableServiceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            if (reader.getElement() != ELEMENT.action) {
+                reader.skipElement();
+                continue;
+            }
+            MutableAction action = new MutableAction();
+            hydrateAction(action, reader);
+            descriptor.actions.add(action);
+        }
+    }
+
+    public void hydrateAction(MutableAction action, DescriptorStreamReader reader) throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == ELEMENT.name) {
+                action.name = reader.readText();
+            } else if (element == ELEMENT.argumentList) {
+                // Like the DOM implementation, every child element is an argument
+                while (reader.nextChildElement()) {
+                    MutableActionArgument actionArgument = new MutableActionArgument();
+                    hydrateActionArgument(actionArgument, reader);
+                    action.arguments.add(actionArgument);
+                }
+            } else {
+                reader.skipElement();
+            }
+        }
+    }
+
+    public void hydrateActionArgument(MutableActionArgument actionArgument, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == ELEMENT.name) {
+                actionArgument.name = reader.readText();
+            } else if (element == ELEMENT.direction) {
+                actionArgument.direction = ActionArgument.Direction.valueOf(reader.readText().toUpperCase());
+            } else if (element == ELEMENT.relatedStateVariable) {
+                actionArgument.relatedStateVariable = reader.readText();
+            } else if (element == ELEMENT.retval) {
+                actionArgument.retval = true;
+                reader.skipElement();
+            } else {
+                reader.skipElement();
+            }
+        }
+    }
+
+    public void hydrateServiceStateTableList(MutableServiceDescriptor descriptor, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextChildElement()) {
+            if (reader.getElement() != ELEMENT.stateVariable) {
+                reader.skipElement();
+                continue;
+            }
+            MutableStateVariable stateVariable = new MutableStateVariable();
+            hydrateStateVariable(stateVariable, reader);
+            descriptor.stateVariables.add(stateVariable);
+        }
+    }
+
+    public void hydrateStateVariable(MutableStateVariable stateVariable, DescriptorStreamReader reader)
+            throws XMLStreamException {
+
+        String sendEvents = reader.getAttribute(ATTRIBUTE.sendEvents);
+        stateVariable.eventDetails = new StateVariableEventDetails(
+                sendEvents != null && sendEvents.toUpperCase().equals("YES")
+        );
+
+        while (reader.nextChildElement()) {
+            ELEMENT element = reader.getElement();
+            if (element == ELEMENT.name) {
+                stateVariable.name = reader.readText();
+            } else if (element == ELEMENT.dataType) {
+                stateVariable.dataType =
+                        Datatype.Builtin.getByDescriptorName(reader.readText()).getDatatype();
+            } else if (element == ELEMENT.defaultValue) {
+                stateVariable.defaultValue = reader.readText();
+            } else if (element == ELEMENT.allowedValueList) {
+
+                List<String> allowedValues = new ArrayList();
+                while (reader.nextChildElement()) {
+                    if (reader.getElement() == ELEMENT.allowedValue) {
+                        allowedValues.add(reader.readText());
+                    } else {
+                        reader.skipElement();
+                    }
+                }
+
+                if (allowedValues.size() > 0) {
+                    stateVariable.allowedValues = allowedValues.toArray(new String[allowedValues.size()]);
+                }
+
+            } else if (element == ELEMENT.allowedValueRange) {
+
+                // TODO: UPNP VIOLATION: Some devices (Netgear Router again...) send empty elements, so use some sane defaults
+                // TODO: UPNP VIOLATION: The WANCommonInterfaceConfig example XML is even wrong, it does not include a <maximum> element!
+                Long minimum = 0l;
+                Long maximum = Long.MAX_VALUE;
+                Long step = 1l;
+
+                while (reader.nextChildElement()) {
+                    ELEMENT rangeElement = reader.getElement();
+                    String value = reader.readText();
+                    try {
+                        if (rangeElement == ELEMENT.minimum) {
+                            minimum = Long.valueOf(value);
+                        } else if (rangeElement == ELEMENT.maximum) {
+                            maximum = Long.valueOf(value);
+                        } else if (rangeElement == ELEMENT.step) {
+                            step = Long.valueOf(value);
+                        }
+                    } catch (Exception ex) {
+                    }
+                }
+
+                stateVariable.allowedValueRange = new StateVariableAllowedValueRange(minimum, maximum, step);
+            } else {
+                reader.skipElement();
+            }
+        }
+    }
+
+}
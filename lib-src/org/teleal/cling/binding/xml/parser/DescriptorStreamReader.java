@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.binding.xml.parser;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+/**
+ * Walks a descriptor document element by element with a StAX pull parser.
+ * <p>
+ * The binders read the children of an element by calling {@link #nextChildElement()} until it
+ * returns <tt>false</tt>, each child has to be consumed completely with {@link #readText()},
+ * {@link #skipElement()}, or by reading its own children.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class DescriptorStreamReader {
+
+    // Creating a factory is a service lookup, creating a reader is cheap
+    private static final XMLInputFactory factory = createFactory();
+
+    protected final XMLStreamReader reader;
+
+    public DescriptorStreamReader(String xml) throws XMLStreamException {
+        synchronized (factory) {
+            this.reader = factory.createXMLStreamReader(new StringReader(xml));
+        }
+    }
+
+    /**
+     * The encoding is detected from the byte order mark or the XML declaration, the default is UTF-8.
+     */
+    public DescriptorStreamReader(byte[] xml) throws XMLStreamException {
+        synchronized (factory) {
+            this.reader = factory.createXMLStreamReader(new ByteArrayInputStream(xml));
+        }
+    }
+
+    public XMLStreamReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return <tt>false</tt> if the document has no root element.
+     */
+    public boolean nextRootElement() throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the next child of the current element.
+     *
+     * @return <tt>false</tt> at the end of the current element.
+     */
+    public boolean nextChildElement() throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) return true;
+            if (event == XMLStreamConstants.END_ELEMENT) return false;
+        }
+        return false;
+    }
+
+    /**
+     * @return The known element at the current position, or <tt>null</tt>.
+     */
+    public ELEMENT getElement() {
+        return ELEMENT.valueOrNullOf(reader.getLocalName());
+    }
+
+    public String getLocalName() {
+        return reader.getLocalName();
+    }
+
+    public String getNamespaceURI() {
+        return reader.getNamespaceURI();
+    }
+
+    public String getAttribute(ATTRIBUTE attribute) {
+        return reader.getAttributeValue(null, attribute.toString());
+    }
+
+    /**
+     * Reads all text of the current element, including the text of nested elements, like DOM
+     * <tt>getTextContent()</tt>. Moves to the end of the current element.
+     */
+    public String readText() throws XMLStreamException {
+        String text = null;
+        StringBuilder sb = null;
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    // Most elements have a single text event, avoid the builder then
+                    if (text == null) {
+                        text = reader.getText();
+                    } else {
+                        if (sb == null) sb = new StringBuilder(text);
+                        sb.append(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document in element: " + reader.getLocalName());
+            }
+        }
+        return sb != null ? sb.toString() : text != null ? text : "";
+    }
+
+    /**
+     * Moves to the end of the current element, ignoring its content.
+     */
+    public void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document in element: " + reader.getLocalName());
+            }
+        }
+    }
+
+    public void close() {
+        try {
+            reader.close();
+        } catch (XMLStreamException ex) {
+            // Nothing to release for a string or byte array
+        }
+    }
+
+    protected static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        // Descriptors don't need DTDs, and no remote device gets to resolve entities with our network
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.controlpoint;
+
+import org.teleal.cling.model.action.ActionException;
+import org.teleal.cling.model.action.ActionInvocation;
+import org.teleal.cling.model.message.UpnpResponse;
+import org.teleal.cling.model.types.ErrorCode;
+import org.teleal.cling.protocol.sync.SendingAction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * The pending result of an action invocation started with {@link ControlPoint#executeAsync}.
+ * <p>
+ * If the invocation failed, <tt>get()</tt> throws an <tt>ExecutionException</tt> with the
+ * <tt>ActionException</tt> of the invocation as its cause. An invocation that is still outstanding
+ * when its deadline passes fails with {@link ErrorCode#ACTION_FAILED}, its connection is closed.
+ * </p>
+ * <p>
+ * Listeners are called once, on the thread that completed the invocation, or immediately if the
+ * invocation was already complete when the listener was added. They must not block, a remote
+ * invocation is completed by a thread of the sync protocol executor.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class ActionFuture implements Future<ActionInvocation> {
+
+    private static Logger log = Logger.getLogger(ActionFuture.class.getName());
+
+    public interface Listener {
+        public void completed(ActionFuture future);
+    }
+
+    protected final ActionInvocation actionInvocation;
+
+    private final List<Listener> listeners = new ArrayList();
+    private SendingAction sendingAction;
+    private Future deadline;
+    private UpnpResponse response;
+    private boolean done;
+    private boolean cancelled;
+
+    public ActionFuture(ActionInvocation actionInvocation) {
+        this.actionInvocation = actionInvocation;
+    }
+
+    public ActionInvocation getActionInvocation() {
+        return actionInvocation;
+    }
+
+    /**
+     * @return The response operation of a remote invocation, or <tt>null</tt> if it was executed
+     *         locally, is not complete, or no response has been received.
+     */
+    synchronized public UpnpResponse getResponse() {
+        return response;
+    }
+
+    public void addListener(Listener listener) {
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.completed(this);
+    }
+
+    synchronized public boolean isDone() {
+        return done;
+    }
+
+    synchronized public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return <tt>true</tt> if the invocation completed and did not fail.
+     */
+    synchronized public boolean isSuccessful() {
+        return done && !cancelled && actionInvocation.getFailure() == null;
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (!markDone(null)) return false;
+            cancelled = true;
+        }
+        log.fine("Cancelling action invocation: " + actionInvocation);
+        abort();
+        fireCompleted();
+        return true;
+    }
+
+    synchronized public ActionInvocation get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    synchronized public ActionInvocation get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long end = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!done) {
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException("Action invocation not complete: " + actionInvocation);
+            }
+            wait(remaining);
+        }
+        return getResult();
+    }
+
+    protected ActionInvocation getResult() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException("Action invocation cancelled: " + actionInvocation);
+        }
+        if (actionInvocation.getFailure() != null) {
+            throw new ExecutionException(actionInvocation.getFailure());
+        }
+        return actionInvocation;
+    }
+
+    protected void setSendingAction(SendingAction sendingAction) {
+        boolean abort;
+        synchronized (this) {
+            this.sendingAction = sendingAction;
+            abort = done;
+        }
+        if (abort) sendingAction.cancel();
+    }
+
+    protected void setDeadline(Future deadline) {
+        boolean abort;
+        synchronized (this) {
+            this.deadline = deadline;
+            abort = done;
+        }
+        if (abort) deadline.cancel(false);
+    }
+
+    /**
+     * Called when the deadline passed, fails the invocation if it is still outstanding.
+     */
+    protected void deadlineExceeded() {
+        synchronized (this) {
+            if (!markDone(null)) return;
+            log.fine("Deadline exceeded, aborting action invocation: " + actionInvocation);
+            actionInvocation.setFailure(
+                    new ActionException(ErrorCode.ACTION_FAILED, "Deadline exceeded, no response received in time")
+            );
+        }
+        abort();
+        fireCompleted();
+    }
+
+    /**
+     * Called when the invocation completed, successfully or not, ignored if it has already
+     * been cancelled or its deadline passed.
+     */
+    protected void complete(UpnpResponse response) {
+        synchronized (this) {
+            if (!markDone(response)) return;
+        }
+        fireCompleted();
+    }
+
+    protected void abort() {
+        SendingAction prot;
+        synchronized (this) {
+            prot = sendingAction;
+        }
+        if (prot != null) prot.cancel();
+    }
+
+    synchronized private boolean markDone(UpnpResponse response) {
+        if (done) return false;
+        done = true;
+        this.response = response;
+        notifyAll();
+        return true;
+    }
+
+    private void fireCompleted() {
+        List<Listener> completedListeners;
+        Future pendingDeadline;
+        synchronized (this) {
+            completedListeners = new ArrayList(listeners);
+            listeners.clear();
+            pendingDeadline = deadline;
+        }
+        if (pendingDeadline != null) {
+            pendingDeadline.cancel(false);
+        }
+        for (Listener listener : completedListeners) {
+            try {
+                listener.completed(this);
+            } catch (Exception ex) {
+                log.warning("Action future listener threw exception: " + ex);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(ActionFuture) " + actionInvocation;
+    }
+}
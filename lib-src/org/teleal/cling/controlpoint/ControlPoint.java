@@ -17,11 +17,14 @@
 
 package org.teleal.cling.controlpoint;
 
+import org.teleal.cling.model.action.ActionInvocation;
 import org.teleal.cling.model.message.header.UpnpHeader;
 import org.teleal.cling.protocol.ProtocolFactory;
 import org.teleal.cling.UpnpServiceConfiguration;
 import org.teleal.cling.registry.Registry;
 
+import java.util.concurrent.TimeUnit;
+
 
 public interface ControlPoint {
 
@@ -33,4 +36,20 @@ public interface ControlPoint {
     public void execute(ActionCallback callback);
     public void execute(SubscriptionCallback callback);
 
+    /**
+     * Invokes the action without occupying a thread while waiting for the remote response.
+     */
+    public ActionFuture executeAsync(ActionInvocation actionInvocation);
+
+    /**
+     * Invokes the action without occupying a thread while waiting for the remote response, the
+     * invocation fails if it didn't complete within the given time.
+     */
+    public ActionFuture executeAsync(ActionInvocation actionInvocation, long deadline, TimeUnit unit);
+
+    /**
+     * Stops the threads of the control point, asynchronous invocations started afterwards fail.
+     */
+    public void shutdown();
+
 }
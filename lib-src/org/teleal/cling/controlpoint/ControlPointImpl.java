@@ -18,10 +18,25 @@
 package org.teleal.cling.controlpoint;
 
 import org.teleal.cling.UpnpServiceConfiguration;
+import org.teleal.cling.model.action.ActionException;
+import org.teleal.cling.model.action.ActionInvocation;
+import org.teleal.cling.model.message.control.IncomingActionResponseMessage;
+import org.teleal.cling.model.meta.LocalService;
+import org.teleal.cling.model.meta.RemoteDevice;
+import org.teleal.cling.model.meta.RemoteService;
+import org.teleal.cling.model.meta.Service;
+import org.teleal.cling.model.types.ErrorCode;
+import org.teleal.cling.protocol.sync.SendingAction;
 import org.teleal.cling.registry.Registry;
 import org.teleal.cling.protocol.ProtocolFactory;
 import org.teleal.cling.model.message.header.UpnpHeader;
 
+import java.net.URL;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 
@@ -33,6 +48,9 @@ public class ControlPointImpl implements ControlPoint {
     protected final ProtocolFactory protocolFactory;
     protected final Registry registry;
 
+    private ScheduledExecutorService deadlineScheduler;
+    private boolean shutdown;
+
     public ControlPointImpl(UpnpServiceConfiguration configuration, ProtocolFactory protocolFactory, Registry registry) {
         log.fine("Creating ControlPoint: " + getClass().getName());
         
@@ -71,4 +89,142 @@ public class ControlPointImpl implements ControlPoint {
         callback.setControlPoint(this);
         getConfiguration().getSyncProtocolExecutor().execute(callback);
     }
+
+    public ActionFuture executeAsync(ActionInvocation actionInvocation) {
+        return executeAsync(actionInvocation, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public ActionFuture executeAsync(ActionInvocation actionInvocation, long deadline, TimeUnit unit) {
+        log.fine("Invoking action asynchronously: " + actionInvocation);
+        final ActionFuture future = new ActionFuture(actionInvocation);
+
+        if (deadline > 0) {
+            try {
+                future.setDeadline(
+                        getDeadlineScheduler().schedule(
+                                new Runnable() {
+                                    public void run() {
+                                        future.deadlineExceeded();
+                                    }
+                                },
+                                deadline, unit
+                        )
+                );
+            } catch (RejectedExecutionException ex) {
+                failed(future, "Control point has been shut down");
+                return future;
+            }
+        }
+
+        Service service = actionInvocation.getAction().getService();
+        if (service instanceof LocalService) {
+            executeLocal(future, (LocalService)service);
+        } else if (service instanceof RemoteService) {
+            executeRemote(future, (RemoteService)service);
+        } else {
+            failed(future, "Service is neither local nor remote: " + service);
+        }
+        return future;
+    }
+
+    protected void executeLocal(ActionFuture future, LocalService service) {
+        // Local execution is fast, but it runs the service implementation which shouldn't run on the caller's thread
+        LocalExecution execution = new LocalExecution(future, service);
+        try {
+            getConfiguration().getSyncProtocolExecutor().execute(execution);
+        } catch (RejectedExecutionException ex) {
+            execution.rejected();
+        }
+    }
+
+    protected void executeRemote(final ActionFuture future, RemoteService service) {
+        ActionInvocation actionInvocation = future.getActionInvocation();
+
+        if (!actionInvocation.getInput().isValid()) {
+            actionInvocation.setFailure(new ActionException(ErrorCode.INVALID_ARGS));
+            future.complete(null);
+            return;
+        }
+
+        URL controlURL = ((RemoteDevice)service.getDeviceService().getDevice()).normalizeURI(
+                service.getDeviceService().getControlURI()
+        );
+
+        final SendingAction prot = getProtocolFactory().createSendingAction(actionInvocation, controlURL);
+        future.setSendingAction(prot);
+        prot.executeAsync(new Runnable() {
+            public void run() {
+                IncomingActionResponseMessage response = prot.getOutputMessage();
+                future.complete(response != null ? response.getOperation() : null);
+            }
+        });
+    }
+
+    protected void failed(ActionFuture future, String message) {
+        log.fine("Action invocation failed: " + message);
+        future.getActionInvocation().setFailure(new ActionException(ErrorCode.ACTION_FAILED, message));
+        future.complete(null);
+    }
+
+    synchronized public void shutdown() {
+        if (deadlineScheduler != null) {
+            log.fine("Stopping action deadline scheduler");
+            deadlineScheduler.shutdownNow();
+        }
+        shutdown = true;
+    }
+
+    synchronized protected ScheduledExecutorService getDeadlineScheduler() {
+        if (shutdown) {
+            throw new RejectedExecutionException("Control point has been shut down");
+        }
+        if (deadlineScheduler == null) {
+            deadlineScheduler = createDeadlineScheduler();
+        }
+        return deadlineScheduler;
+    }
+
+    protected ScheduledExecutorService createDeadlineScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "cling-action-deadlines");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Executes a local action invocation and completes its future, also when the executor rejected or
+     * discarded it.
+     */
+    public class LocalExecution implements Runnable {
+
+        protected final ActionFuture future;
+        protected final LocalService service;
+
+        public LocalExecution(ActionFuture future, LocalService service) {
+            this.future = future;
+            this.service = service;
+        }
+
+        public void run() {
+            if (future.isDone()) return;
+            ActionInvocation actionInvocation = future.getActionInvocation();
+            try {
+                service.getExecutor(actionInvocation.getAction()).execute(actionInvocation);
+            } catch (RuntimeException ex) {
+                log.warning("Local action execution threw exception: " + ex);
+                actionInvocation.setFailure(
+                        new ActionException(ErrorCode.ACTION_FAILED, "Local execution failed: " + ex, ex)
+                );
+            } finally {
+                future.complete(null);
+            }
+        }
+
+        public void rejected() {
+            failed(future, "Thread pool saturated, local action execution rejected");
+        }
+    }
 }
@@ -24,7 +24,7 @@ import java.net.URISyntaxException;
 public class Resource<M> {
 
     public enum Type {
-        DEVICE_DESCRIPTOR, SERVICE_DESCRIPTOR, ICON, CONTROL, EVENT_SUBSCRIPTION, EVENT_CALLBACK
+        DEVICE_DESCRIPTOR, SERVICE_DESCRIPTOR, ICON, CONTROL, EVENT_SUBSCRIPTION, EVENT_CALLBACK, STATUS
     }
 
     private Type type;
@@ -59,7 +59,7 @@ public class MethodActionExecutor extends ActionExecutor {
         // Simple case: no output arguments
         if (actionInvocation.getOutput().getArguments().size() == 0) {
             log.fine("Calling local service method with no output arguments");
-            Reflections.invoke(method, serviceImpl, inputArgumentValues);
+            invoke(serviceImpl, inputArgumentValues);
             return;
         }
 
@@ -69,25 +69,29 @@ public class MethodActionExecutor extends ActionExecutor {
         if (isVoid) {
 
             log.fine("Action method is void, calling declared accessors(s) on service instance to retrieve ouput argument(s)");
-            Reflections.invoke(method, serviceImpl, inputArgumentValues);
+            invoke(serviceImpl, inputArgumentValues);
             Object result = readOutputArgumentValues(actionInvocation.getAction(), serviceImpl);
             setOutputArgumentValues(actionInvocation, result);
 
         } else if (isUseOutputArgumentAccessors(actionInvocation)) {
 
             log.fine("Action method is not void, calling declared accessor(s) on returned instance to retrieve ouput argument(s)");
-            Object returnedInstance = Reflections.invoke(method, serviceImpl, inputArgumentValues);
+            Object returnedInstance = invoke(serviceImpl, inputArgumentValues);
             Object result = readOutputArgumentValues(actionInvocation.getAction(), returnedInstance);
             setOutputArgumentValues(actionInvocation, result);
 
         } else {
 
             log.fine("Action method is not void, using returned value as (single) ouput argument");
-            Object result = Reflections.invoke(method, serviceImpl, inputArgumentValues);
+            Object result = invoke(serviceImpl, inputArgumentValues);
             setOutputArgumentValues(actionInvocation, result);
         }
     }
 
+    protected Object invoke(Object serviceImpl, Object[] inputArgumentValues) throws Exception {
+        return Reflections.invoke(method, serviceImpl, inputArgumentValues);
+    }
+
     protected boolean isUseOutputArgumentAccessors(ActionInvocation<LocalService> actionInvocation) {
         for (ActionArgument argument : actionInvocation.getOutput().getArguments()) {
             // If there is one output argument for which we have an accessor, all arguments need accessors
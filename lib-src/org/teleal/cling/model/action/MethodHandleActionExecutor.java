@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.action;
+
+import org.teleal.cling.model.meta.ActionArgument;
+import org.teleal.cling.model.meta.LocalService;
+import org.teleal.cling.model.state.StateVariableAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Invokes the action method through a method handle bound once, instead of <code>Method.invoke()</code>.
+ * <p>
+ * The handle is adapted to <code>(Object, Object[])Object</code>, so primitive parameters are unboxed
+ * and a <code>void</code> method returns <code>null</code>, just like the reflective call.
+ * </p>
+ */
+public class MethodHandleActionExecutor extends MethodActionExecutor {
+
+    final protected MethodHandle handle;
+
+    public MethodHandleActionExecutor(Method method) throws IllegalAccessException {
+        super(method);
+        this.handle = bind(method);
+    }
+
+    public MethodHandleActionExecutor(Map<ActionArgument<LocalService>, StateVariableAccessor> outputArgumentAccessors,
+                                      Method method) throws IllegalAccessException {
+        super(outputArgumentAccessors, method);
+        this.handle = bind(method);
+    }
+
+    protected static MethodHandle bind(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method)
+                .asSpreader(Object[].class, method.getParameterTypes().length)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+
+    @Override
+    protected Object invoke(Object serviceImpl, Object[] inputArgumentValues) throws Exception {
+        try {
+            return (Object) handle.invokeExact(serviceImpl, inputArgumentValues);
+        } catch (Exception ex) {
+            throw ex;
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+}
@@ -25,5 +25,6 @@ public enum CancelReason {
     UNSUBSCRIBE_FAILED,
     LOCAL_CALLBACK_CREATION_FAILED,
     EXPIRED,
-    SHUTDOWN
+    SHUTDOWN,
+    DELIVERY_FAILED
 }
@@ -51,6 +51,8 @@ public abstract class LocalGENASubscription extends GENASubscription<LocalServic
     final Map<String, Long> lastSentTimestamp = new HashMap();
     final Map<String, Long> lastSentNumericValue = new HashMap();
 
+    int consecutiveDeliveryFailures;
+
     public LocalGENASubscription(DeviceService<LocalService> deviceService, List<URL> callbackURLs) {
         this(deviceService, null, callbackURLs);
     }
@@ -95,6 +97,17 @@ public abstract class LocalGENASubscription extends GENASubscription<LocalServic
         this.callbackURLs = callbackURLs;
     }
 
+    /**
+     * Restores a subscription with the identifier and event sequence it had before a restart.
+     */
+    public LocalGENASubscription(DeviceService<LocalService> deviceService, String subscriptionId,
+                                 UnsignedIntegerFourBytes currentSequence, int remainingDurationSeconds,
+                                 List<URL> callbackURLs) {
+        this(deviceService, remainingDurationSeconds, callbackURLs);
+        this.subscriptionId = subscriptionId;
+        this.currentSequence = currentSequence;
+    }
+
     synchronized public List<URL> getCallbackURLs() {
         return callbackURLs;
     }
@@ -205,6 +218,21 @@ public abstract class LocalGENASubscription extends GENASubscription<LocalServic
         return excludedVariables;
     }
 
+    synchronized public int getConsecutiveDeliveryFailures() {
+        return consecutiveDeliveryFailures;
+    }
+
+    /**
+     * @return The number of consecutive event messages that no callback URL accepted.
+     */
+    synchronized public int deliveryFailed() {
+        return ++consecutiveDeliveryFailures;
+    }
+
+    synchronized public void deliverySucceeded() {
+        consecutiveDeliveryFailures = 0;
+    }
+
     synchronized public void incrementSequence() {
         this.currentSequence.increment(true);
     }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.message.header;
+
+/**
+ * An entity tag, the quoted opaque validator of a response body (RfC 2616, section 14.19).
+ *
+ * @author Christian Bauer
+ */
+public class ETagHeader extends UpnpHeader<String> {
+
+    public static final String WEAK_PREFIX = "W/";
+
+    public ETagHeader() {
+    }
+
+    public ETagHeader(String value) {
+        setValue(value);
+    }
+
+    public void setString(String s) throws InvalidHeaderException {
+        String tag = s.startsWith(WEAK_PREFIX) ? s.substring(WEAK_PREFIX.length()) : s;
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new InvalidHeaderException("Invalid entity tag, must be a quoted string: " + s);
+        }
+        setValue(s);
+    }
+
+    public String getString() {
+        return getValue();
+    }
+
+    public boolean isWeak() {
+        return getValue().startsWith(WEAK_PREFIX);
+    }
+
+    /**
+     * @return A quoted strong entity tag, the hex representation of the given digest.
+     */
+    public static String toStrongTag(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2 + 2);
+        sb.append('"');
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        sb.append('"');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.message.header;
+
+/**
+ * A list of entity tags, or <tt>*</tt>, the client already has (RfC 2616, section 14.26).
+ *
+ * @author Christian Bauer
+ */
+public class IfNoneMatchHeader extends UpnpHeader<String> {
+
+    public static final String ANY = "*";
+
+    public IfNoneMatchHeader() {
+    }
+
+    public IfNoneMatchHeader(String value) {
+        setValue(value);
+    }
+
+    public void setString(String s) throws InvalidHeaderException {
+        if (s.trim().length() == 0) {
+            throw new InvalidHeaderException("Invalid If-None-Match header, it has no value: " + s);
+        }
+        setValue(s.trim());
+    }
+
+    public String getString() {
+        return getValue();
+    }
+
+    /**
+     * Uses the weak comparison function, permitted for GET requests.
+     *
+     * @return <tt>true</tt> if the given entity tag is one of the listed tags.
+     */
+    public boolean matches(String entityTag) {
+        if (ANY.equals(getValue())) return true;
+        String tag = stripWeakPrefix(entityTag);
+        for (String listedTag : getValue().split(",")) {
+            if (stripWeakPrefix(listedTag.trim()).equals(tag)) return true;
+        }
+        return false;
+    }
+
+    protected String stripWeakPrefix(String entityTag) {
+        return entityTag.startsWith(ETagHeader.WEAK_PREFIX)
+                ? entityTag.substring(ETagHeader.WEAK_PREFIX.length())
+                : entityTag;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.message.header;
+
+/**
+ * The modification date of a response body (RfC 2616, section 14.29).
+ * <p>
+ * The date is not parsed, a client only sends it back unchanged in an
+ * {@link IfModifiedSinceHeader}.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class LastModifiedHeader extends UpnpHeader<String> {
+
+    public LastModifiedHeader() {
+    }
+
+    public LastModifiedHeader(String value) {
+        setValue(value);
+    }
+
+    public void setString(String s) throws InvalidHeaderException {
+        if (s.trim().length() == 0) {
+            throw new InvalidHeaderException("Invalid Last-Modified header, it has no value: " + s);
+        }
+        setValue(s.trim());
+    }
+
+    public String getString() {
+        return getValue();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.message.header;
+
+/**
+ * Delay in seconds after which a client may repeat a request that was answered with
+ * <tt>503 Service Unavailable</tt> (RfC 2616, section 14.37).
+ *
+ * @author Christian Bauer
+ */
+public class RetryAfterHeader extends UpnpHeader<Integer> {
+
+    public RetryAfterHeader() {
+    }
+
+    public RetryAfterHeader(Integer delayInSeconds) {
+        setValue(delayInSeconds);
+    }
+
+    public void setString(String s) throws InvalidHeaderException {
+        Integer value;
+        try {
+            value = Integer.parseInt(s.trim());
+        } catch (Exception ex) {
+            throw new InvalidHeaderException("Can't parse Retry-After seconds integer from: " + s);
+        }
+        if (value < 0) {
+            throw new InvalidHeaderException("Invalid Retry-After seconds, must not be negative: " + s);
+        }
+        setValue(value);
+    }
+
+    public String getString() {
+        return getValue().toString();
+    }
+}
@@ -38,7 +38,7 @@ public class UDNHeader extends UpnpHeader<UDN> {
             throw new InvalidHeaderException("Invalid UDA header value, must not contain '::urn': " + s);
         }
 
-        UDN udn = new UDN( s.substring(UDN.PREFIX.length()) );
+        UDN udn = UDN.valueOf(s);
         setValue(udn);
     }
 
@@ -39,7 +39,7 @@ public class USNRootDeviceHeader extends UpnpHeader<UDN> {
                             ROOT_DEVICE_SUFFIX + "' but is '" + s + "'"
             );
         }
-        UDN udn = new UDN(s.substring(UDN.PREFIX.length(), s.length() - ROOT_DEVICE_SUFFIX.length()));
+        UDN udn = UDN.valueOf(s.substring(0, s.length() - ROOT_DEVICE_SUFFIX.length()));
         setValue(udn);
     }
 
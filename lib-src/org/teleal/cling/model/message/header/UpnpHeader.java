@@ -65,6 +65,11 @@ public abstract class UpnpHeader<T> {
         CALLBACK("CALLBACK", CallbackHeader.class),
         SID("SID", SubscriptionIdHeader.class),
         SEQ("SEQ", EventSequenceHeader.class),
+        ETAG("ETAG", ETagHeader.class),
+        IF_NONE_MATCH("IF-NONE-MATCH", IfNoneMatchHeader.class),
+        LAST_MODIFIED("LAST-MODIFIED", LastModifiedHeader.class),
+        IF_MODIFIED_SINCE("IF-MODIFIED-SINCE", IfModifiedSinceHeader.class),
+        RETRY_AFTER("RETRY-AFTER", RetryAfterHeader.class),
 
         EXT_IFACE_MAC("X-CLING-IFACE-MAC", InterfaceMacHeader.class);
 
@@ -60,6 +60,20 @@ public class Action<S extends Service> implements Validatable {
         return service;
     }
 
+    /**
+     * @return A copy with copied arguments that is not bound to a service yet.
+     */
+    public Action<S> deepCopy() {
+        ActionArgument<S>[] actionArgumentsDupe = null;
+        if (getArguments() != null) {
+            actionArgumentsDupe = new ActionArgument[getArguments().length];
+            for (int i = 0; i < getArguments().length; i++) {
+                actionArgumentsDupe[i] = getArguments()[i].deepCopy();
+            }
+        }
+        return new Action<S>(getName(), actionArgumentsDupe);
+    }
+
     void setService(S service) {
         if (this.service != null)
             throw new IllegalStateException("Final value has been set already, model is immutable");
@@ -71,6 +71,13 @@ public class ActionArgument<S extends Service> implements Validatable {
         return action;
     }
 
+    /**
+     * @return A copy that is not bound to an action yet.
+     */
+    public ActionArgument<S> deepCopy() {
+        return new ActionArgument<S>(getName(), getRelatedStateVariableName(), getDirection(), isReturnValue());
+    }
+
     void setAction(Action<S> action) {
         if (this.action != null)
             throw new IllegalStateException("Final value has been set already, model is immutable");
@@ -41,6 +41,10 @@ public abstract class Device<DI extends DeviceIdentity, D extends Device, S exte
 
     private static Logger log = Logger.getLogger(Device.class.getName());
 
+    // Shared by all devices without icons or services, empty arrays are immutable
+    private static final Icon[] NO_ICONS = new Icon[0];
+    private static final DeviceService[] NO_DEVICE_SERVICES = new DeviceService[0];
+
     final private DI identity;
 
     final private UDAVersion version;
@@ -77,12 +81,12 @@ public abstract class Device<DI extends DeviceIdentity, D extends Device, S exte
         this.type = type;
         this.details = details;
 
-        this.icons = icons == null ? new Icon[0] : icons;
+        this.icons = icons == null || icons.length == 0 ? NO_ICONS : icons;
         for (Icon icon : this.icons) {
             icon.setDevice(this);
         }
 
-        this.deviceServices = deviceServices == null ? new DeviceService[0] : deviceServices;
+        this.deviceServices = deviceServices == null || deviceServices.length == 0 ? NO_DEVICE_SERVICES : deviceServices;
         for (DeviceService deviceService : this.deviceServices) {
             deviceService.setDevice(this);
         }
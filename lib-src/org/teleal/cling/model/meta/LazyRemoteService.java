@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.meta;
+
+import org.teleal.cling.model.ValidationError;
+import org.teleal.cling.model.ValidationException;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A remote service of which the actions and state variables are loaded on first use.
+ * <p>
+ * The device graph can be registered after the device descriptor has been retrieved, the
+ * service descriptor is retrieved and bound when an action or state variable of this
+ * service is accessed for the first time, or when {@link #hydrate()} is called. If loading
+ * or validation fails, the service has no actions and state variables, {@link #getFailure()}
+ * returns the cause, and the next access tries again.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class LazyRemoteService extends RemoteService {
+
+    private static Logger log = Logger.getLogger(LazyRemoteService.class.getName());
+
+    /**
+     * Retrieves and parses the descriptor of a lazy service.
+     */
+    public interface Loader {
+
+        /**
+         * @return The parsed service model, or <tt>null</tt> if the descriptor could not be retrieved.
+         */
+        public RemoteService load(LazyRemoteService service) throws Exception;
+    }
+
+    final private Loader loader;
+    private volatile boolean hydrated;
+    private volatile Exception failure;
+
+    // Guarded by this, set while the bound actions and state variables are validated
+    private boolean validating;
+
+    public LazyRemoteService(Loader loader) {
+        super((UDAVersion) null);
+        this.loader = loader;
+    }
+
+    public Loader getLoader() {
+        return loader;
+    }
+
+    public boolean isHydrated() {
+        return hydrated;
+    }
+
+    /**
+     * @return The reason the last attempt to load this service failed, or <tt>null</tt>.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Loads and binds the actions and state variables of this service, if this hasn't been done before.
+     *
+     * @return <tt>true</tt> if the service is hydrated.
+     */
+    public boolean hydrate() {
+        if (hydrated) return true;
+        synchronized (this) {
+            if (hydrated || validating) return hydrated;
+
+            RemoteService model;
+            try {
+                log.fine("Loading descriptor of lazy service: " + getDeviceService());
+                model = getLoader().load(this);
+            } catch (Exception ex) {
+                log.warning("Could not load descriptor of lazy service: " + getDeviceService());
+                log.warning("Cause was: " + ex.toString());
+                failure = ex;
+                return false;
+            }
+            if (model == null) {
+                log.warning("Could not retrieve descriptor of lazy service: " + getDeviceService());
+                failure = new Exception("Descriptor of service not retrieved: " + getDeviceService());
+                return false;
+            }
+
+            // The actions and state variables of the model are bound to it, so we bind copies
+            Action[] actions = model.getActions();
+            Action[] actionsDupe = new Action[actions.length];
+            for (int i = 0; i < actions.length; i++) {
+                actionsDupe[i] = actions[i].deepCopy();
+            }
+            StateVariable[] stateVariables = model.getStateVariables();
+            StateVariable[] stateVariablesDupe = new StateVariable[stateVariables.length];
+            for (int i = 0; i < stateVariables.length; i++) {
+                stateVariablesDupe[i] = stateVariables[i].deepCopy();
+            }
+            bind(actionsDupe, stateVariablesDupe);
+
+            List<ValidationError> errors;
+            validating = true;
+            try {
+                errors = validate();
+            } finally {
+                validating = false;
+            }
+            if (errors.size() > 0) {
+                log.warning("Validation of lazy service failed: " + getDeviceService());
+                for (ValidationError error : errors) {
+                    log.warning("Validation error: " + error);
+                }
+                unbind();
+                failure = new ValidationException("Validation of lazy service failed, call getErrors() on exception", errors);
+                return false;
+            }
+
+            failure = null;
+            hydrated = true;
+            return true;
+        }
+    }
+
+    @Override
+    public Action[] getActions() {
+        hydrate();
+        return super.getActions();
+    }
+
+    @Override
+    public StateVariable[] getStateVariables() {
+        hydrate();
+        return super.getStateVariables();
+    }
+
+    @Override
+    public Action getAction(String name) {
+        hydrate();
+        return super.getAction(name);
+    }
+
+    @Override
+    public StateVariable getStateVariable(String name) {
+        hydrate();
+        return super.getStateVariable(name);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") Hydrated: " + isHydrated();
+    }
+}
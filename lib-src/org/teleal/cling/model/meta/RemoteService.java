@@ -43,6 +43,10 @@ public class RemoteService extends Service {
         super(actions, stateVariables);
     }
 
+    protected RemoteService(UDAVersion version) {
+        super(version);
+    }
+
     @Override
     public Action getQueryStateVariableAction() {
         return new QueryStateVariableAction(this);
@@ -43,8 +43,24 @@ public abstract class Service<S extends Service> {
     }
 
     public Service(UDAVersion version, Action<S>[] actions, StateVariable<S>[] stateVariables) throws ValidationException {
+        this(version);
+
+        bind(actions, stateVariables);
+
+        List<ValidationError> errors = validate();
+        if (errors.size() > 0) {
+            throw new ValidationException("Validation of device graph failed, call getErrors() on exception", errors);
+        }
+    }
+
+    /**
+     * Creates a service without actions and state variables, for subclasses which bind them later.
+     */
+    protected Service(UDAVersion version) {
         this.version = version == null ? new UDAVersion() : version;
+    }
 
+    protected void bind(Action<S>[] actions, StateVariable<S>[] stateVariables) {
         if (actions != null) {
             for (Action action : actions) {
                 this.actions.put(action.getName(), action);
@@ -58,11 +74,11 @@ public abstract class Service<S extends Service> {
                 stateVariable.setService(this);
             }
         }
+    }
 
-        List<ValidationError> errors = validate();
-        if (errors.size() > 0) {
-            throw new ValidationException("Validation of device graph failed, call getErrors() on exception", errors);
-        }
+    protected void unbind() {
+        actions.clear();
+        stateVariables.clear();
     }
 
     public UDAVersion getVersion() {
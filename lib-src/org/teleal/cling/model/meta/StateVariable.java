@@ -62,6 +62,13 @@ public class StateVariable<S extends Service> implements Validatable {
         return service;
     }
 
+    /**
+     * @return A copy that is not bound to a service yet, the immutable type and event details are shared.
+     */
+    public StateVariable<S> deepCopy() {
+        return new StateVariable<S>(getName(), getTypeDetails(), getEventDetails());
+    }
+
     void setService(S service) {
         if (this.service != null)
             throw new IllegalStateException("Final value has been set already, model is immutable");
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.state;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Calls the getter through a method handle bound once, instead of <code>Method.invoke()</code> on every read.
+ */
+public class MethodHandleGetterStateVariableAccessor extends GetterStateVariableAccessor {
+
+    final protected MethodHandle handle;
+
+    public MethodHandleGetterStateVariableAccessor(Method getter) throws IllegalAccessException {
+        super(getter);
+        getter.setAccessible(true);
+        this.handle = MethodHandles.lookup().unreflect(getter)
+                .asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    @Override
+    public Object read(Object serviceImpl) throws Exception {
+        try {
+            return (Object) handle.invokeExact(serviceImpl);
+        } catch (Exception ex) {
+            throw ex;
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+}
@@ -28,9 +28,13 @@ public class DeviceType {
     public static final Pattern PATTERN =
             Pattern.compile("urn:(" + Constants.REGEX_NAMESPACE + "):device:(" + Constants.REGEX_TYPE + "):([0-9]+)");
 
-    private String namespace;
-    private String type;
-    private int version = 1;
+    protected static final Interner<DeviceType> INTERNED = new Interner();
+
+    final private String namespace;
+    final private String type;
+    final private int version;
+    final private int hash;
+    private String string;
 
     public DeviceType(String namespace, String type, int version) {
         if (namespace != null && !namespace.matches(Constants.REGEX_NAMESPACE)) {
@@ -44,6 +48,11 @@ public class DeviceType {
         this.type = type;
 
         this.version = version;
+
+        int result = namespace != null ? namespace.hashCode() : 0;
+        result = 31 * result + (type != null ? type.hashCode() : 0);
+        result = 31 * result + version;
+        this.hash = result;
     }
 
     public String getNamespace() {
@@ -58,9 +67,13 @@ public class DeviceType {
         return version;
     }
 
+    /**
+     * Returns the canonical instance for this type string, known types are not parsed again.
+     */
     public static DeviceType valueOf(String s) throws RuntimeException {
 
-        DeviceType deviceType = null;
+        DeviceType deviceType = INTERNED.get(s);
+        if (deviceType != null) return deviceType;
 
         // First try UDADeviceType parse
         try {
@@ -73,7 +86,7 @@ public class DeviceType {
         if (deviceType == null) {
             Matcher matcher = PATTERN.matcher(s);
             if (matcher.matches()) {
-                return new DeviceType(matcher.group(1), matcher.group(2), Integer.valueOf(matcher.group(3)));
+                return intern(new DeviceType(matcher.group(1), matcher.group(2), Integer.valueOf(matcher.group(3))));
             } else {
                 throw new RuntimeException("Can't parse device type string (namespace/type/version): " + s);
             }
@@ -81,6 +94,11 @@ public class DeviceType {
         return deviceType;
     }
 
+    protected static <T extends DeviceType> T intern(T deviceType) {
+        DeviceType interned = INTERNED.intern(deviceType.toString(), deviceType);
+        return interned.getClass() == deviceType.getClass() ? (T) interned : deviceType;
+    }
+
     public boolean implementsVersion(DeviceType that) {
         if (!namespace.equals(that.namespace)) return false;
         if (!type.equals(that.type)) return false;
@@ -94,7 +112,8 @@ public class DeviceType {
 
     @Override
     public String toString() {
-        return "urn:" + getNamespace() + ":device:" + getType()+ ":" + getVersion();
+        if (string == null) string = "urn:" + getNamespace() + ":device:" + getType()+ ":" + getVersion();
+        return string;
     }
 
     @Override
@@ -104,6 +123,7 @@ public class DeviceType {
 
         DeviceType that = (DeviceType) o;
 
+        if (hash != that.hash) return false;
         if (version != that.version) return false;
         if (!namespace.equals(that.namespace)) return false;
         if (!type.equals(that.type)) return false;
@@ -113,9 +133,6 @@ public class DeviceType {
 
     @Override
     public int hashCode() {
-        int result = namespace.hashCode();
-        result = 31 * result + type.hashCode();
-        result = 31 * result + version;
-        return result;
+        return hash;
     }
 }
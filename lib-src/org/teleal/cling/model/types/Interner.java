@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.model.types;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonicalizing pool for immutable identity value objects.
+ * <p>
+ * Instances are keyed by their canonical string form, which the instance itself has to hold
+ * strongly. An entry therefore stays in the pool exactly as long as its instance is reachable
+ * from somewhere else, e.g. from a registered device. The pool is split into independently
+ * locked segments so that concurrent discovery threads rarely contend.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class Interner<T> {
+
+    public static final int SEGMENTS = 16;
+
+    final private Map<String, WeakReference<T>>[] segments;
+
+    public Interner() {
+        segments = new Map[SEGMENTS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new WeakHashMap();
+        }
+    }
+
+    /**
+     * @param key The canonical string form of a value.
+     * @return The pooled instance for this key, or <code>null</code> if it is not (or no longer) pooled.
+     */
+    public T get(String key) {
+        Map<String, WeakReference<T>> segment = segmentFor(key);
+        synchronized (segment) {
+            WeakReference<T> ref = segment.get(key);
+            return ref != null ? ref.get() : null;
+        }
+    }
+
+    /**
+     * @param key The canonical string form of the value, must be the same instance strongly held by the value.
+     * @param value The value to pool if no equal value is pooled already.
+     * @return The pooled instance, either the given value or an earlier equal value.
+     */
+    public T intern(String key, T value) {
+        Map<String, WeakReference<T>> segment = segmentFor(key);
+        synchronized (segment) {
+            WeakReference<T> ref = segment.get(key);
+            T existing = ref != null ? ref.get() : null;
+            if (existing != null) return existing;
+            // Replace the key as well, a stale entry might still hold an equal key of a collected value
+            segment.remove(key);
+            segment.put(key, new WeakReference(value));
+            return value;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, WeakReference<T>> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    protected Map<String, WeakReference<T>> segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+}
@@ -29,8 +29,12 @@ public class ServiceId {
     public static final Pattern PATTERN =
             Pattern.compile("urn:(" + Constants.REGEX_NAMESPACE + "):serviceId:(" + Constants.REGEX_ID+ ")");
 
-    private String namespace;
-    private String id;
+    protected static final Interner<ServiceId> INTERNED = new Interner();
+
+    final private String namespace;
+    final private String id;
+    final private int hash;
+    private String string;
 
     public ServiceId(String namespace, UUID uuid) {
         this(namespace, uuid.toString());
@@ -46,6 +50,10 @@ public class ServiceId {
             throw new IllegalArgumentException("Service ID suffix too long (64) or contains illegal characters");
         }
         this.id = id;
+
+        int result = namespace != null ? namespace.hashCode() : 0;
+        result = 31 * result + (id != null ? id.hashCode() : 0);
+        this.hash = result;
     }
 
     public String getNamespace() {
@@ -56,9 +64,13 @@ public class ServiceId {
         return id;
     }
 
+    /**
+     * Returns the canonical instance for this service identifier string, known identifiers are not parsed again.
+     */
     public static ServiceId valueOf(String s) throws RuntimeException {
 
-        ServiceId serviceId = null;
+        ServiceId serviceId = INTERNED.get(s);
+        if (serviceId != null) return serviceId;
 
         // First try UDAServiceId parse
         try {
@@ -71,7 +83,7 @@ public class ServiceId {
         if (serviceId == null) {
             Matcher matcher = ServiceId.PATTERN.matcher(s);
             if (matcher.matches()) {
-                return new ServiceId(matcher.group(1), matcher.group(2));
+                return intern(new ServiceId(matcher.group(1), matcher.group(2)));
             } else {
                 throw new RuntimeException("Can't parse Service ID string (namespace/id): " + s);
             }
@@ -79,9 +91,15 @@ public class ServiceId {
         return serviceId;
     }
 
+    protected static <T extends ServiceId> T intern(T serviceId) {
+        ServiceId interned = INTERNED.intern(serviceId.toString(), serviceId);
+        return interned.getClass() == serviceId.getClass() ? (T) interned : serviceId;
+    }
+
     @Override
     public String toString() {
-        return "urn:" + getNamespace() + ":serviceId:" + getId();
+        if (string == null) string = "urn:" + getNamespace() + ":serviceId:" + getId();
+        return string;
     }
 
     @Override
@@ -91,6 +109,7 @@ public class ServiceId {
 
         ServiceId serviceId = (ServiceId) o;
 
+        if (hash != serviceId.hash) return false;
         if (!id.equals(serviceId.id)) return false;
         if (!namespace.equals(serviceId.namespace)) return false;
 
@@ -99,8 +118,6 @@ public class ServiceId {
 
     @Override
     public int hashCode() {
-        int result = namespace.hashCode();
-        result = 31 * result + id.hashCode();
-        return result;
+        return hash;
     }
 }
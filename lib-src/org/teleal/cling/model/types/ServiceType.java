@@ -28,9 +28,13 @@ public class ServiceType {
     public static final Pattern PATTERN =
             Pattern.compile("urn:(" + Constants.REGEX_NAMESPACE + "):service:(" + Constants.REGEX_TYPE + "):([0-9]+)");
 
-    private String namespace;
-    private String type;
-    private int version = 1;
+    protected static final Interner<ServiceType> INTERNED = new Interner();
+
+    final private String namespace;
+    final private String type;
+    final private int version;
+    final private int hash;
+    private String string;
 
     public ServiceType(String namespace, String type, int version) {
 
@@ -45,6 +49,11 @@ public class ServiceType {
         this.type = type;
 
         this.version = version;
+
+        int result = namespace != null ? namespace.hashCode() : 0;
+        result = 31 * result + (type != null ? type.hashCode() : 0);
+        result = 31 * result + version;
+        this.hash = result;
     }
 
     public String getNamespace() {
@@ -59,9 +68,13 @@ public class ServiceType {
         return version;
     }
 
+    /**
+     * Returns the canonical instance for this type string, known types are not parsed again.
+     */
     public static ServiceType valueOf(String s) throws RuntimeException {
 
-        ServiceType serviceType = null;
+        ServiceType serviceType = INTERNED.get(s);
+        if (serviceType != null) return serviceType;
 
         // First try UDAServiceType parse
         try {
@@ -74,7 +87,7 @@ public class ServiceType {
         if (serviceType == null) {
             Matcher matcher = ServiceType.PATTERN.matcher(s);
             if (matcher.matches()) {
-                return new ServiceType(matcher.group(1), matcher.group(2), Integer.valueOf(matcher.group(3)));
+                return intern(new ServiceType(matcher.group(1), matcher.group(2), Integer.valueOf(matcher.group(3))));
             } else {
                 throw new RuntimeException("Can't parse service type string (namespace/type/version): " + s);
             }
@@ -82,6 +95,11 @@ public class ServiceType {
         return serviceType;
     }
 
+    protected static <T extends ServiceType> T intern(T serviceType) {
+        ServiceType interned = INTERNED.intern(serviceType.toString(), serviceType);
+        return interned.getClass() == serviceType.getClass() ? (T) interned : serviceType;
+    }
+
     public boolean implementsVersion(ServiceType that) {
         if (that == null) return false;
         if (!namespace.equals(that.namespace)) return false;
@@ -96,7 +114,8 @@ public class ServiceType {
 
     @Override
     public String toString() {
-        return "urn:" + getNamespace() + ":service:" + getType() + ":" + getVersion();
+        if (string == null) string = "urn:" + getNamespace() + ":service:" + getType() + ":" + getVersion();
+        return string;
     }
 
     @Override
@@ -106,6 +125,7 @@ public class ServiceType {
 
         ServiceType that = (ServiceType) o;
 
+        if (hash != that.hash) return false;
         if (version != that.version) return false;
         if (!namespace.equals(that.namespace)) return false;
         if (!type.equals(that.type)) return false;
@@ -115,9 +135,6 @@ public class ServiceType {
 
     @Override
     public int hashCode() {
-        int result = namespace.hashCode();
-        result = 31 * result + type.hashCode();
-        result = 31 * result + version;
-        return result;
+        return hash;
     }
 }
@@ -35,9 +35,11 @@ public class UDADeviceType extends DeviceType {
     }
 
     public static UDADeviceType fromString(String s) throws RuntimeException {
+        DeviceType interned = INTERNED.get(s);
+        if (interned instanceof UDADeviceType) return (UDADeviceType) interned;
         Matcher matcher = PATTERN.matcher(s);
         if (matcher.matches()) {
-            return new UDADeviceType(matcher.group(1), Integer.valueOf(matcher.group(2)));
+            return intern(new UDADeviceType(matcher.group(1), Integer.valueOf(matcher.group(2))));
         } else {
             throw new RuntimeException("Can't parse UDA device type string (namespace/type/version): " + s);
         }
@@ -40,9 +40,11 @@ public class UDAServiceId extends ServiceId {
     }
 
     public static UDAServiceId fromString(String s) throws RuntimeException {
+        ServiceId interned = INTERNED.get(s);
+        if (interned instanceof UDAServiceId) return (UDAServiceId) interned;
         Matcher matcher = UDAServiceId.PATTERN.matcher(s);
         if (matcher.matches()) {
-            return new UDAServiceId(matcher.group(1));
+            return intern(new UDAServiceId(matcher.group(1)));
         } else {
             throw new RuntimeException("Can't parse UDA service ID string (upnp-org/id): " + s);
         }
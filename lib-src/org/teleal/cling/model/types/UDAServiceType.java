@@ -35,9 +35,11 @@ public class UDAServiceType extends ServiceType {
     }
 
     public static UDAServiceType fromString(String s) throws RuntimeException {
+        ServiceType interned = INTERNED.get(s);
+        if (interned instanceof UDAServiceType) return (UDAServiceType) interned;
         Matcher matcher = UDAServiceType.PATTERN.matcher(s);
         if (matcher.matches()) {
-            return new UDAServiceType(matcher.group(1), Integer.valueOf(matcher.group(2)));
+            return intern(new UDAServiceType(matcher.group(1), Integer.valueOf(matcher.group(2))));
         } else {
             throw new RuntimeException("Can't parse UDA service type string (namespace/type/version): " + s);
         }
@@ -31,14 +31,19 @@ public class UDN {
 
     public static final String PREFIX = "uuid:";
 
-    private String uuidString;
+    protected static final Interner<UDN> INTERNED = new Interner();
+
+    final private String uuidString;
+    final private int hash;
+    private String string;
 
     public UDN(String uuidString) {
         this.uuidString = uuidString;
+        this.hash = uuidString.hashCode();
     }
 
     public UDN(UUID uuid) {
-        this.uuidString = uuid.toString();
+        this(uuid.toString());
     }
 
     public boolean isUDA11Compliant() {
@@ -57,8 +62,14 @@ public class UDN {
         }
     }
 
+    /**
+     * Returns the canonical instance for this UDN string, known devices don't allocate new identities.
+     */
     public static UDN valueOf(String udnString) {
-        return new UDN(udnString.substring(PREFIX.length()));
+        UDN udn = INTERNED.get(udnString);
+        if (udn != null) return udn;
+        udn = new UDN(udnString.substring(PREFIX.length()));
+        return INTERNED.intern(udn.toString(), udn);
     }
 
     public static UDN uniqueSystemIdentifier(String salt) {
@@ -93,7 +104,8 @@ public class UDN {
 
     @Override
     public String toString() {
-        return PREFIX + getIdentifierString();
+        if (string == null) string = PREFIX + getIdentifierString();
+        return string;
     }
 
     @Override
@@ -101,12 +113,12 @@ public class UDN {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         UDN udn = (UDN) o;
-        return uuidString.equals(udn.uuidString);
+        return hash == udn.hash && uuidString.equals(udn.uuidString);
     }
 
     @Override
     public int hashCode() {
-        return uuidString.hashCode();
+        return hash;
     }
 
     // TODO: Should implement Validatable and be called in Device.validate()
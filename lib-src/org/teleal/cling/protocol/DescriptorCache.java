@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import org.teleal.cling.model.types.UDN;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Keeps the descriptors of hydrated remote devices, so a device can be hydrated again without
+ * retrieving its descriptors.
+ * <p>
+ * Entries are keyed by the device descriptor URL and the UDN of the discovered device, which is
+ * the root or one of the embedded devices described by the descriptor.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public interface DescriptorCache {
+
+    public Entry get(URL descriptorURL, UDN udn);
+
+    public void put(URL descriptorURL, UDN udn, Entry entry);
+
+    public void remove(URL descriptorURL, UDN udn);
+
+    /**
+     * Called when the UPnP service shuts down, releases any resources held by the cache.
+     */
+    public void close();
+
+    /**
+     * The device descriptor and the descriptors of all services of the device graph.
+     */
+    public static class Entry {
+
+        final private Descriptor deviceDescriptor;
+        final private Map<URL, Descriptor> serviceDescriptors;
+
+        public Entry(Descriptor deviceDescriptor, Map<URL, Descriptor> serviceDescriptors) {
+            this.deviceDescriptor = deviceDescriptor;
+            this.serviceDescriptors = Collections.unmodifiableMap(serviceDescriptors);
+        }
+
+        public Descriptor getDeviceDescriptor() {
+            return deviceDescriptor;
+        }
+
+        /**
+         * @return The service descriptors, keyed by their absolute URL.
+         */
+        public Map<URL, Descriptor> getServiceDescriptors() {
+            return serviceDescriptors;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Entry entry = (Entry) o;
+            return deviceDescriptor.equals(entry.deviceDescriptor) && serviceDescriptors.equals(entry.serviceDescriptors);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * deviceDescriptor.hashCode() + serviceDescriptors.hashCode();
+        }
+    }
+
+    /**
+     * The XML of a descriptor and the <tt>ETag</tt> and <tt>Last-Modified</tt> validators it was
+     * retrieved with, so it can be revalidated with a conditional request.
+     */
+    public static class Descriptor {
+
+        final private String xml;
+        final private String entityTag;
+        final private String lastModified;
+
+        public Descriptor(String xml, String entityTag, String lastModified) {
+            this.xml = xml;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+
+        public String getXml() {
+            return xml;
+        }
+
+        public String getEntityTag() {
+            return entityTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Descriptor that = (Descriptor) o;
+            return xml.equals(that.xml)
+                    && (entityTag != null ? entityTag.equals(that.entityTag) : that.entityTag == null)
+                    && (lastModified != null ? lastModified.equals(that.lastModified) : that.lastModified == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = xml.hashCode();
+            result = 31 * result + (entityTag != null ? entityTag.hashCode() : 0);
+            result = 31 * result + (lastModified != null ? lastModified.hashCode() : 0);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import org.teleal.cling.model.types.UDN;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Keeps descriptors in memory and appends every change to a file, which is read on startup.
+ * <p>
+ * At most <tt>maxEntries</tt> are kept, the least recently used entry is dropped when a new one is
+ * added. The file is a sequence of put and remove records. When it contains more superseded than
+ * live records, or a record was truncated by a crash, it is rewritten with only the live entries.
+ * If the file can't be written, the cache continues in memory only.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class DescriptorCacheImpl implements DescriptorCache {
+
+    private static Logger log = Logger.getLogger(DescriptorCacheImpl.class.getName());
+
+    // Increment the version when the record layout changes, old files are then discarded
+    protected static final int FILE_MAGIC = 0x436c4443;
+    protected static final int FILE_VERSION = 2;
+
+    protected static final byte RECORD_PUT = 1;
+    protected static final byte RECORD_REMOVE = 2;
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    // Don't bother compacting small files
+    protected static final int MIN_RECORDS_FOR_COMPACTION = 32;
+
+    protected final File file;
+    protected final int maxEntries;
+    protected final Map<Key, Entry> entries;
+
+    protected DataOutputStream out;
+    private int records;
+
+    public DescriptorCacheImpl(File file) {
+        this(file, DEFAULT_MAX_ENTRIES);
+    }
+
+    public DescriptorCacheImpl(File file, final int maxEntries) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+
+        // Least recently used entries are dropped first, their records are then superseded
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        boolean rewrite = !load();
+        if (rewrite || isCompactionNeeded()) {
+            compact();
+        } else {
+            open(true);
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    synchronized public Entry get(URL descriptorURL, UDN udn) {
+        return entries.get(new Key(descriptorURL, udn));
+    }
+
+    synchronized public void put(URL descriptorURL, UDN udn, Entry entry) {
+        Key key = new Key(descriptorURL, udn);
+        entries.put(key, entry);
+        if (out == null) return;
+        try {
+            writePut(out, key, entry);
+            out.flush();
+            records++;
+        } catch (IOException ex) {
+            writeFailed(ex);
+            return;
+        }
+        if (isCompactionNeeded()) compact();
+    }
+
+    synchronized public void remove(URL descriptorURL, UDN udn) {
+        Key key = new Key(descriptorURL, udn);
+        if (entries.remove(key) == null || out == null) return;
+        try {
+            out.writeByte(RECORD_REMOVE);
+            writeString(out, key.url);
+            writeString(out, key.udn.toString());
+            out.flush();
+            records++;
+        } catch (IOException ex) {
+            writeFailed(ex);
+            return;
+        }
+        if (isCompactionNeeded()) compact();
+    }
+
+    synchronized public void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException ex) {
+            log.fine("Could not close descriptor cache file: " + ex);
+        }
+        out = null;
+    }
+
+    /**
+     * @return <tt>true</tt> if the file has more superseded than live records.
+     */
+    protected boolean isCompactionNeeded() {
+        return records >= MIN_RECORDS_FOR_COMPACTION && records - entries.size() > entries.size();
+    }
+
+    /**
+     * @return <tt>false</tt> if the file was not complete or unreadable and should be rewritten.
+     */
+    protected boolean load() {
+        if (!file.exists()) return true;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                log.info("Discarding descriptor cache file of unknown format: " + file);
+                return false;
+            }
+            while (true) {
+                int type = in.read();
+                if (type == -1) break;
+                Key key = new Key(readString(in), UDN.valueOf(readString(in)));
+                if (type == RECORD_PUT) {
+                    Descriptor deviceDescriptor = readDescriptor(in);
+                    int serviceCount = in.readInt();
+                    Map<URL, Descriptor> serviceDescriptors = new LinkedHashMap();
+                    for (int i = 0; i < serviceCount; i++) {
+                        serviceDescriptors.put(new URL(readString(in)), readDescriptor(in));
+                    }
+                    entries.put(key, new Entry(deviceDescriptor, serviceDescriptors));
+                } else if (type == RECORD_REMOVE) {
+                    entries.remove(key);
+                } else {
+                    throw new IOException("Unknown record type: " + type);
+                }
+                records++;
+            }
+            log.fine("Loaded descriptor cache with " + entries.size() + " entries: " + file);
+            return true;
+
+        } catch (EOFException ex) {
+            log.info("Descriptor cache file was truncated, keeping " + entries.size() + " complete entries: " + file);
+            return false;
+        } catch (IOException ex) {
+            log.warning("Could not read descriptor cache file, keeping " + entries.size() + " entries: " + ex);
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    protected void compact() {
+        log.fine("Rewriting descriptor cache file with " + entries.size() + " entries: " + file);
+        close();
+        File tempFile = new File(file.getPath() + ".tmp");
+        DataOutputStream tempOut = null;
+        try {
+            tempOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            tempOut.writeInt(FILE_MAGIC);
+            tempOut.writeInt(FILE_VERSION);
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                writePut(tempOut, entry.getKey(), entry.getValue());
+            }
+            tempOut.close();
+            tempOut = null;
+
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not delete: " + file);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Could not rename '" + tempFile + "' to: " + file);
+            }
+            records = entries.size();
+            open(true);
+
+        } catch (IOException ex) {
+            log.warning("Could not rewrite descriptor cache file, continuing without persistence: " + ex);
+            if (tempOut != null) {
+                try {
+                    tempOut.close();
+                } catch (IOException closeEx) {
+                    // Ignore
+                }
+            }
+            tempFile.delete();
+        }
+    }
+
+    protected void open(boolean append) {
+        try {
+            boolean exists = file.exists() && file.length() > 0;
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)));
+            if (!exists || !append) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.flush();
+            }
+        } catch (IOException ex) {
+            writeFailed(ex);
+        }
+    }
+
+    protected void writeFailed(IOException ex) {
+        log.warning("Could not write descriptor cache file, continuing without persistence: " + ex);
+        close();
+    }
+
+    protected void writePut(DataOutputStream out, Key key, Entry entry) throws IOException {
+        out.writeByte(RECORD_PUT);
+        writeString(out, key.url);
+        writeString(out, key.udn.toString());
+        writeDescriptor(out, entry.getDeviceDescriptor());
+        out.writeInt(entry.getServiceDescriptors().size());
+        for (Map.Entry<URL, Descriptor> serviceDescriptor : entry.getServiceDescriptors().entrySet()) {
+            writeString(out, serviceDescriptor.getKey().toString());
+            writeDescriptor(out, serviceDescriptor.getValue());
+        }
+    }
+
+    protected void writeDescriptor(DataOutputStream out, Descriptor descriptor) throws IOException {
+        writeString(out, descriptor.getXml());
+        writeNullableString(out, descriptor.getEntityTag());
+        writeNullableString(out, descriptor.getLastModified());
+    }
+
+    protected Descriptor readDescriptor(DataInputStream in) throws IOException {
+        return new Descriptor(readString(in), readNullableString(in), readNullableString(in));
+    }
+
+    // Not writeUTF(), descriptors can be larger than 64kb
+    protected void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected void writeNullableString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) writeString(out, string);
+    }
+
+    protected String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    protected String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 16 * 1024 * 1024) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    // Compares the URL string, URL.equals() would resolve host names
+    protected static class Key {
+
+        final String url;
+        final UDN udn;
+
+        Key(URL url, UDN udn) {
+            this(url.toString(), udn);
+        }
+
+        Key(String url, UDN udn) {
+            this.url = url;
+            this.udn = udn;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return url.equals(key.url) && udn.equals(key.udn);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * url.hashCode() + udn.hashCode();
+        }
+    }
+
+}
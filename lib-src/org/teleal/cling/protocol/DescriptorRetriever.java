@@ -0,0 +1,444 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import org.teleal.cling.UpnpService;
+import org.teleal.cling.model.message.StreamRequestMessage;
+import org.teleal.cling.model.message.StreamResponseMessage;
+import org.teleal.cling.model.message.UpnpRequest;
+import org.teleal.cling.model.message.UpnpResponse;
+import org.teleal.cling.model.message.header.ContentTypeHeader;
+import org.teleal.cling.model.message.header.ETagHeader;
+import org.teleal.cling.model.message.header.IfModifiedSinceHeader;
+import org.teleal.cling.model.message.header.IfNoneMatchHeader;
+import org.teleal.cling.model.message.header.LastModifiedHeader;
+import org.teleal.cling.model.message.header.UpnpHeader;
+import org.teleal.cling.model.meta.RemoteDevice;
+import org.teleal.cling.transport.spi.AsyncStreamClient;
+import org.teleal.cling.transport.spi.StreamClient;
+import org.teleal.cling.transport.spi.StreamResponseCallback;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Retrieves remote device and service descriptors, shared by all descriptor retrieval protocols.
+ * <p>
+ * Concurrent retrievals of the same URL share one request, its result is delivered to all
+ * callers through the same {@link Retrieval} future. At most <tt>maxConcurrentRetrievals</tt>
+ * requests are in flight, additional retrievals are queued. A URL that failed is not requested
+ * again until its back-off period passed, the period doubles with each consecutive failure.
+ * </p>
+ * <p>
+ * The last valid response of a URL is kept together with its <tt>ETag</tt> and
+ * <tt>Last-Modified</tt> validators, the next retrieval of the URL is a conditional
+ * request. If the server answers <tt>304 Not Modified</tt>, the kept response is the
+ * result and {@link Retrieval#isNotModified()} is <tt>true</tt>.
+ * </p>
+ * <p>
+ * Validators are kept in memory only, for the <tt>maxValidatedDescriptors</tt> most recently
+ * retrieved URLs. Descriptors persisted elsewhere, for example in the {@link DescriptorCache},
+ * are validated conditionally after a restart only if their validators are passed to
+ * {@link #validated(java.net.URL, String, String, String)}.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class DescriptorRetriever {
+
+    private static Logger log = Logger.getLogger(DescriptorRetriever.class.getName());
+
+    public static final int DEFAULT_MAX_CONCURRENT_RETRIEVALS = 16;
+    public static final long DEFAULT_MIN_BACKOFF_MILLIS = 30 * 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 10 * 60 * 1000;
+    public static final int DEFAULT_MAX_VALIDATED_DESCRIPTORS = 256;
+
+    // Start removing expired entries from the negative cache when it gets larger than this
+    protected static final int MAX_FAILED_RETRIEVALS = 256;
+
+    protected final UpnpService upnpService;
+    protected final int maxConcurrentRetrievals;
+    protected final long minBackoffMillis;
+    protected final long maxBackoffMillis;
+    protected final int maxValidatedDescriptors;
+
+    // All guarded by this
+    protected final Map<URL, Retrieval> activeRetrievals = new HashMap();
+    protected final LinkedList<Retrieval> queuedRetrievals = new LinkedList();
+    protected final Map<URL, FailedRetrieval> failedRetrievals = new HashMap();
+    protected final Map<URL, ValidatedDescriptor> validatedDescriptors;
+    private int runningRetrievals;
+
+    public DescriptorRetriever(UpnpService upnpService) {
+        this(upnpService, DEFAULT_MAX_CONCURRENT_RETRIEVALS, DEFAULT_MIN_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS,
+                DEFAULT_MAX_VALIDATED_DESCRIPTORS);
+    }
+
+    public DescriptorRetriever(UpnpService upnpService, int maxConcurrentRetrievals,
+                               long minBackoffMillis, long maxBackoffMillis, final int maxValidatedDescriptors) {
+        this.upnpService = upnpService;
+        this.maxConcurrentRetrievals = maxConcurrentRetrievals;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxValidatedDescriptors = maxValidatedDescriptors;
+
+        // Least recently retrieved descriptors are forgotten first
+        this.validatedDescriptors = new LinkedHashMap<URL, ValidatedDescriptor>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URL, ValidatedDescriptor> eldest) {
+                return size() > maxValidatedDescriptors;
+            }
+        };
+    }
+
+    public UpnpService getUpnpService() {
+        return upnpService;
+    }
+
+    /**
+     * @return The (possibly shared and already completed) retrieval of the descriptor, its result is
+     *         the valid descriptor response or <tt>null</tt> if the retrieval failed.
+     */
+    public Retrieval retrieve(URL url) {
+        Retrieval retrieval;
+        synchronized (this) {
+            retrieval = activeRetrievals.get(url);
+            if (retrieval != null) {
+                log.finer("Joining active retrieval of: " + url);
+                return retrieval;
+            }
+
+            retrieval = new Retrieval(url);
+
+            FailedRetrieval failed = failedRetrievals.get(url);
+            if (failed != null && failed.retryAfter > System.currentTimeMillis()) {
+                log.fine("Not retrieving descriptor, URL failed recently: " + url);
+                retrieval.set(null);
+                return retrieval;
+            }
+
+            retrieval.validated = validatedDescriptors.get(url);
+            activeRetrievals.put(url, retrieval);
+            if (runningRetrievals >= maxConcurrentRetrievals) {
+                log.finer("Queueing retrieval, too many in flight: " + url);
+                queuedRetrievals.add(retrieval);
+                return retrieval;
+            }
+            runningRetrievals++;
+        }
+        send(retrieval);
+        return retrieval;
+    }
+
+    /**
+     * Remembers a descriptor and its validators kept elsewhere, the next retrieval of the URL is a
+     * conditional request. Does nothing if there are no validators, or the retriever already knows
+     * a response of the URL.
+     */
+    public void validated(URL url, String descriptor, String entityTag, String lastModified) {
+        if (entityTag == null && lastModified == null) return;
+        synchronized (this) {
+            if (validatedDescriptors.containsKey(url)) return;
+            validatedDescriptors.put(
+                    url,
+                    new ValidatedDescriptor(
+                            new StreamResponseMessage(descriptor, new ContentTypeHeader()),
+                            entityTag,
+                            lastModified
+                    )
+            );
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if a device graph hydrated from the last known descriptor of the URL is
+     *         available, see {@link #hydrated(Retrieval, RemoteDevice)}.
+     */
+    synchronized public boolean isHydrated(URL url) {
+        ValidatedDescriptor validated = validatedDescriptors.get(url);
+        return validated != null && validated.hydratedDevice != null;
+    }
+
+    /**
+     * @return <tt>true</tt> if the current thread completes retrievals, waiting for one on it would
+     *         block until the retrieval times out.
+     */
+    public boolean isCompletingThread() {
+        StreamClient streamClient = getUpnpService().getRouter().getStreamClient();
+        return streamClient instanceof AsyncStreamClient && ((AsyncStreamClient) streamClient).isCallbackThread();
+    }
+
+    /**
+     * Remembers the device graph hydrated from the result of a retrieval.
+     * <p>
+     * The graph is available through {@link Retrieval#getHydratedDevice()} of later retrievals,
+     * as long as the server answers that the device descriptor was not modified.
+     * </p>
+     */
+    public void hydrated(Retrieval retrieval, RemoteDevice device) {
+        if (retrieval.validated != null) {
+            retrieval.validated.hydratedDevice = device;
+        }
+    }
+
+    protected void send(final Retrieval retrieval) {
+        StreamRequestMessage retrievalMsg = new StreamRequestMessage(UpnpRequest.Method.GET, retrieval.getURL());
+
+        ValidatedDescriptor validated = retrieval.validated;
+        if (validated != null) {
+            if (validated.entityTag != null) {
+                retrievalMsg.getHeaders().add(UpnpHeader.Type.IF_NONE_MATCH, new IfNoneMatchHeader(validated.entityTag));
+            }
+            if (validated.lastModified != null) {
+                retrievalMsg.getHeaders().add(UpnpHeader.Type.IF_MODIFIED_SINCE, new IfModifiedSinceHeader(validated.lastModified));
+            }
+        }
+
+        log.fine("Sending descriptor retrieval message: " + retrievalMsg);
+        getUpnpService().getRouter().send(
+                retrievalMsg,
+                new StreamResponseCallback() {
+                    public void responseReceived(StreamResponseMessage responseMessage) {
+                        received(retrieval, responseMessage);
+                    }
+                }
+        );
+    }
+
+    protected void received(Retrieval retrieval, StreamResponseMessage responseMessage) {
+        if (retrieval.validated != null && responseMessage != null
+                && responseMessage.getOperation().getStatusCode() == UpnpResponse.Status.NOT_MODIFIED.getStatusCode()) {
+            log.fine("Descriptor not modified: " + retrieval.getURL());
+            retrieval.notModified = true;
+            completed(retrieval, retrieval.validated.responseMessage);
+        } else {
+            // The kept descriptor is outdated, don't hand out its hydrated device
+            retrieval.validated = null;
+            completed(retrieval, isValidResponse(retrieval.getURL(), responseMessage) ? responseMessage : null);
+        }
+    }
+
+    protected void completed(Retrieval retrieval, StreamResponseMessage responseMessage) {
+        Retrieval next;
+        synchronized (this) {
+            activeRetrievals.remove(retrieval.getURL());
+            if (responseMessage != null) {
+                failedRetrievals.remove(retrieval.getURL());
+                if (!retrieval.notModified) {
+                    retrieval.validated = createValidatedDescriptor(responseMessage);
+                    if (retrieval.validated != null) {
+                        validatedDescriptors.put(retrieval.getURL(), retrieval.validated);
+                    } else {
+                        validatedDescriptors.remove(retrieval.getURL());
+                    }
+                }
+            } else {
+                FailedRetrieval failed = failedRetrievals.get(retrieval.getURL());
+                long backoff = failed != null ? Math.min(failed.backoff * 2, maxBackoffMillis) : minBackoffMillis;
+                log.fine("Descriptor retrieval failed, backing off for " + backoff + "ms: " + retrieval.getURL());
+                failedRetrievals.put(retrieval.getURL(), new FailedRetrieval(System.currentTimeMillis() + backoff, backoff));
+                if (failedRetrievals.size() > MAX_FAILED_RETRIEVALS) removeExpiredFailures();
+            }
+            next = queuedRetrievals.poll();
+            if (next == null) runningRetrievals--;
+        }
+        retrieval.set(responseMessage);
+        if (next != null) send(next);
+    }
+
+    // Forget failures that are long past their back-off period
+    protected void removeExpiredFailures() {
+        long now = System.currentTimeMillis();
+        for (Iterator<FailedRetrieval> it = failedRetrievals.values().iterator(); it.hasNext();) {
+            if (it.next().retryAfter + maxBackoffMillis < now) it.remove();
+        }
+    }
+
+    /**
+     * @return The response with its validators, or <tt>null</tt> if the server didn't send any.
+     */
+    protected ValidatedDescriptor createValidatedDescriptor(StreamResponseMessage responseMessage) {
+        ETagHeader entityTagHeader =
+                responseMessage.getHeaders().getFirstHeader(UpnpHeader.Type.ETAG, ETagHeader.class);
+        LastModifiedHeader lastModifiedHeader =
+                responseMessage.getHeaders().getFirstHeader(UpnpHeader.Type.LAST_MODIFIED, LastModifiedHeader.class);
+        if (entityTagHeader == null && lastModifiedHeader == null) return null;
+        return new ValidatedDescriptor(
+                responseMessage,
+                entityTagHeader != null ? entityTagHeader.getValue() : null,
+                lastModifiedHeader != null ? lastModifiedHeader.getValue() : null
+        );
+    }
+
+    protected boolean isValidResponse(URL url, StreamResponseMessage responseMessage) {
+        if (responseMessage == null) {
+            log.warning("Could not retrieve descriptor: " + url);
+            return false;
+        }
+
+        if (responseMessage.getOperation().isFailed()) {
+            log.warning("Descriptor retrieval failed: " + url + ", " + responseMessage.getOperation().getResponseDetails());
+            return false;
+        }
+
+        ContentTypeHeader contentTypeHeader =
+                responseMessage.getHeaders().getFirstHeader(UpnpHeader.Type.CONTENT_TYPE, ContentTypeHeader.class);
+        if (contentTypeHeader == null) {
+            log.warning("Received descriptor without Content-Type: " + url);
+            return false;
+        }
+
+        if (!contentTypeHeader.isUDACompliant()) {
+            log.warning("Received descriptor with an invalid Content-Type: " + url);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The pending result of a descriptor retrieval.
+     * <p>
+     * A retrieval is shared by all callers that asked for the same URL at the same time, it can't
+     * be cancelled.
+     * </p>
+     */
+    public static class Retrieval implements Future<StreamResponseMessage> {
+
+        protected final URL url;
+
+        // Written before the result is set, read after it is available
+        protected ValidatedDescriptor validated;
+        protected boolean notModified;
+
+        private StreamResponseMessage responseMessage;
+        private boolean done;
+
+        public Retrieval(URL url) {
+            this.url = url;
+        }
+
+        public URL getURL() {
+            return url;
+        }
+
+        /**
+         * @return <tt>true</tt> if the server confirmed that the result, kept from an earlier
+         *         retrieval, is still valid.
+         */
+        public boolean isNotModified() {
+            return notModified;
+        }
+
+        /**
+         * @return The <tt>ETag</tt> of the result, or <tt>null</tt> if the server didn't send one.
+         */
+        public String getEntityTag() {
+            return validated != null ? validated.entityTag : null;
+        }
+
+        /**
+         * @return The <tt>Last-Modified</tt> date of the result, or <tt>null</tt> if the server didn't send one.
+         */
+        public String getLastModified() {
+            return validated != null ? validated.lastModified : null;
+        }
+
+        /**
+         * @return The device graph hydrated from the same descriptor, if the descriptor was not modified.
+         */
+        public RemoteDevice getHydratedDevice() {
+            return notModified ? validated.hydratedDevice : null;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        synchronized public boolean isDone() {
+            return done;
+        }
+
+        /**
+         * @return The descriptor response, or <tt>null</tt> if the retrieval failed.
+         */
+        synchronized public StreamResponseMessage get() throws InterruptedException {
+            while (!done) {
+                wait();
+            }
+            return responseMessage;
+        }
+
+        /**
+         * @return The descriptor response, or <tt>null</tt> if the retrieval failed.
+         */
+        synchronized public StreamResponseMessage get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            long end = System.currentTimeMillis() + unit.toMillis(timeout);
+            while (!done) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) throw new TimeoutException();
+                wait(remaining);
+            }
+            return responseMessage;
+        }
+
+        synchronized protected void set(StreamResponseMessage responseMessage) {
+            if (done) return;
+            done = true;
+            this.responseMessage = responseMessage;
+            notifyAll();
+        }
+    }
+
+    protected static class ValidatedDescriptor {
+
+        final StreamResponseMessage responseMessage;
+        final String entityTag;
+        final String lastModified;
+        volatile RemoteDevice hydratedDevice;
+
+        ValidatedDescriptor(StreamResponseMessage responseMessage, String entityTag, String lastModified) {
+            this.responseMessage = responseMessage;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    protected static class FailedRetrieval {
+
+        final long retryAfter;
+        final long backoff;
+
+        FailedRetrieval(long retryAfter, long backoff) {
+            this.retryAfter = retryAfter;
+            this.backoff = backoff;
+        }
+    }
+
+}
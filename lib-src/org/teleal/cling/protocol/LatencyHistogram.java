@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in microseconds, with logarithmic buckets.
+ * <p>
+ * Every power of two is divided into 32 linear buckets, so a recorded value is off by
+ * at most about 3%. Latencies of more than about 19 hours are counted in the last bucket.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 31;
+
+    protected final AtomicLongArray counts = new AtomicLongArray((MAX_SHIFT + 2) * SUB_BUCKETS);
+    protected final AtomicLong count = new AtomicLong();
+    protected final AtomicLong totalMicros = new AtomicLong();
+    protected final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        counts.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max;
+        while (micros > (max = maxMicros.get())) {
+            if (maxMicros.compareAndSet(max, micros)) break;
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return n > 0 ? totalMicros.get() / (double) n / 1000 : 0;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000d;
+    }
+
+    /**
+     * @param percentile Between 0 and 100.
+     * @return The highest latency in the bucket holding the given percentile, at most the maximum.
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long target = Math.max((long) Math.ceil(percentile / 100 * n), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), maxMicros.get()) / 1000d;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS, MAX_SHIFT);
+        long top = Math.min(micros >>> shift, 2 * SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + (int) (top - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+/**
+ * Registers the statistics on the platform MBean server while the UPnP service is running.
+ * <p>
+ * The object names are <tt>org.teleal.cling:instance=...,type=Protocol|Action|Hydration,name=...</tt>,
+ * statistics created after the service started are registered as well. JMX is opt-in, return an
+ * instance of this class from <tt>DefaultUpnpServiceConfiguration#createProtocolMetrics()</tt>.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class ManagedProtocolMetrics extends ProtocolMetrics {
+
+    private static Logger log = Logger.getLogger(ManagedProtocolMetrics.class.getName());
+
+    public static final String DOMAIN = "org.teleal.cling";
+
+    protected MBeanServer mbeanServer;
+    protected String instance;
+
+    @Override
+    synchronized public void publish(String instance) {
+        this.mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        this.instance = instance;
+        for (ProtocolStatistics statistics : protocols.values()) {
+            register("Protocol", statistics);
+        }
+        for (ProtocolStatistics statistics : actions.values()) {
+            register("Action", statistics);
+        }
+        for (ProtocolStatistics statistics : hydrations.values()) {
+            register("Hydration", statistics);
+        }
+    }
+
+    @Override
+    synchronized public void unpublish() {
+        if (mbeanServer == null) return;
+        try {
+            for (ObjectName name : mbeanServer.queryNames(new ObjectName(DOMAIN + ":instance=" + instance + ",*"), null)) {
+                mbeanServer.unregisterMBean(name);
+            }
+        } catch (Exception ex) {
+            log.warning("Could not unregister protocol statistics MBeans: " + ex);
+        }
+        mbeanServer = null;
+        instance = null;
+    }
+
+    @Override
+    synchronized protected void created(String type, ProtocolStatistics statistics) {
+        register(type, statistics);
+    }
+
+    protected void register(String type, ProtocolStatistics statistics) {
+        if (mbeanServer == null) return;
+        try {
+            ObjectName name = new ObjectName(
+                    DOMAIN + ":instance=" + instance + ",type=" + type +
+                            ",name=" + ObjectName.quote(statistics.getName())
+            );
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(statistics, name);
+            }
+        } catch (Exception ex) {
+            log.warning("Could not register protocol statistics MBean '" + statistics.getName() + "': " + ex);
+        }
+    }
+
+}
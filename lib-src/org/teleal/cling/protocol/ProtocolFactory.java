@@ -20,6 +20,7 @@ package org.teleal.cling.protocol;
 import org.teleal.cling.UpnpService;
 import org.teleal.cling.model.action.ActionInvocation;
 import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.meta.RemoteDevice;
 import org.teleal.cling.model.gena.LocalGENASubscription;
 import org.teleal.cling.model.gena.RemoteGENASubscription;
 import org.teleal.cling.model.message.IncomingDatagramMessage;
@@ -44,12 +45,15 @@ public interface ProtocolFactory {
     public ReceivingAsync createReceivingAsync(IncomingDatagramMessage message);
     public ReceivingSync createReceivingSync(StreamRequestMessage requestMessage);
 
+    public RetrieveRemoteDescriptors createRetrieveRemoteDescriptors(RemoteDevice remoteDevice);
+
     public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice);
     public SendingNotificationByebye createSendingNotificationByebye(LocalDevice localDevice);
     public SendingSearch createSendingSearch(UpnpHeader searchTarget);
     public SendingAction createSendingAction(ActionInvocation actionInvocation, URL controlURL);
     public SendingSubscribe createSendingSubscribe(RemoteGENASubscription subscription);
     public SendingRenewal createSendingRenewal(RemoteGENASubscription subscription);
+    public SendingRenewal createSendingRenewal(RemoteGENASubscription subscription, boolean lastAttempt);
     public SendingUnsubscribe createSendingUnsubscribe(RemoteGENASubscription subscription);
     public SendingEvent createSendingEvent(LocalGENASubscription subscription);
 }
@@ -18,8 +18,10 @@
 package org.teleal.cling.protocol;
 
 import org.teleal.cling.UpnpService;
+import org.teleal.cling.model.Resource;
 import org.teleal.cling.model.action.ActionInvocation;
 import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.meta.RemoteDevice;
 import org.teleal.cling.model.gena.LocalGENASubscription;
 import org.teleal.cling.model.gena.RemoteGENASubscription;
 import org.teleal.cling.model.message.IncomingDatagramMessage;
@@ -36,6 +38,7 @@ import org.teleal.cling.protocol.async.SendingSearch;
 import org.teleal.cling.protocol.sync.ReceivingAction;
 import org.teleal.cling.protocol.sync.ReceivingEvent;
 import org.teleal.cling.protocol.sync.ReceivingRetrieval;
+import org.teleal.cling.protocol.sync.ReceivingStatus;
 import org.teleal.cling.protocol.sync.ReceivingSubscribe;
 import org.teleal.cling.protocol.sync.ReceivingUnsubscribe;
 import org.teleal.cling.protocol.sync.SendingAction;
@@ -44,6 +47,7 @@ import org.teleal.cling.protocol.sync.SendingRenewal;
 import org.teleal.cling.protocol.sync.SendingSubscribe;
 import org.teleal.cling.protocol.sync.SendingUnsubscribe;
 
+import java.net.URI;
 import java.net.URL;
 import java.util.logging.Logger;
 
@@ -53,17 +57,27 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
     private static Logger log = Logger.getLogger(ProtocolFactoryImpl.class.getName());
 
     protected final UpnpService upnpService;
+    protected final DescriptorRetriever descriptorRetriever;
 
     public ProtocolFactoryImpl(UpnpService upnpService) {
         log.fine("Creating ProtocolFactory: " + getClass().getName());
 
         this.upnpService = upnpService;
+        this.descriptorRetriever = createDescriptorRetriever();
     }
 
     public UpnpService getUpnpService() {
         return upnpService;
     }
 
+    public DescriptorRetriever getDescriptorRetriever() {
+        return descriptorRetriever;
+    }
+
+    protected DescriptorRetriever createDescriptorRetriever() {
+        return new DescriptorRetriever(getUpnpService());
+    }
+
     public ReceivingAsync createReceivingAsync(IncomingDatagramMessage message) {
         log.fine("Creating protocol for incoming asynchronous: " + message);
 
@@ -90,6 +104,10 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
 
         if (message.getOperation().getMethod().equals(UpnpRequest.Method.GET)) {
 
+            if (isStatusRequest(message)) {
+                return new ReceivingStatus(getUpnpService(), message);
+            }
+
             return new ReceivingRetrieval(getUpnpService(), message);
 
         } else if (message.getOperation().getMethod().equals(UpnpRequest.Method.POST)) {
@@ -113,6 +131,17 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
         }
     }
 
+    protected boolean isStatusRequest(StreamRequestMessage message) {
+        URI statusURI = getUpnpService().getConfiguration().getStatusURI();
+        if (statusURI == null) return false;
+        Resource resource = getUpnpService().getRegistry().getResource(message.getOperation().getURI());
+        return resource != null && Resource.Type.STATUS.equals(resource.getType());
+    }
+
+    public RetrieveRemoteDescriptors createRetrieveRemoteDescriptors(RemoteDevice remoteDevice) {
+        return new RetrieveRemoteDescriptors(getUpnpService(), getDescriptorRetriever(), remoteDevice);
+    }
+
     public SendingNotificationAlive createSendingNotificationAlive(LocalDevice localDevice) {
         return new SendingNotificationAlive(getUpnpService(), localDevice);
     }
@@ -137,6 +166,10 @@ public class ProtocolFactoryImpl implements ProtocolFactory {
         return new SendingRenewal(getUpnpService(), subscription);
     }
 
+    public SendingRenewal createSendingRenewal(RemoteGENASubscription subscription, boolean lastAttempt) {
+        return new SendingRenewal(getUpnpService(), subscription, lastAttempt);
+    }
+
     public SendingUnsubscribe createSendingUnsubscribe(RemoteGENASubscription subscription) {
         return new SendingUnsubscribe(getUpnpService(), subscription);
     }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import org.teleal.cling.model.types.ServiceType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the latency and failures of protocol executions, per protocol class and per action, and
+ * the time it took to hydrate remote devices, per device type.
+ * <p>
+ * Actions are recorded per direction, service type, and name, a node that is both control point
+ * and device keeps the latencies of its outgoing and incoming invocations apart.
+ * </p>
+ * <p>
+ * The {@link ProtocolStatistics} are created on first use. This class does not depend on
+ * <code>javax.management</code>, see {@link ManagedProtocolMetrics} for JMX access to the statistics.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class ProtocolMetrics {
+
+    public enum Direction {
+        INCOMING, OUTGOING
+    }
+
+    protected final ConcurrentMap<String, ProtocolStatistics> protocols = new ConcurrentHashMap();
+    protected final ConcurrentMap<String, ProtocolStatistics> actions = new ConcurrentHashMap();
+    protected final ConcurrentMap<String, ProtocolStatistics> hydrations = new ConcurrentHashMap();
+    protected final AtomicLong evictedSubscriptions = new AtomicLong();
+
+    public void record(Class protocolClass, long nanos, boolean failed) {
+        while (protocolClass.isAnonymousClass()) {
+            protocolClass = protocolClass.getSuperclass();
+        }
+        getStatistics(protocols, "Protocol", protocolClass.getSimpleName()).record(nanos, failed);
+    }
+
+    public void recordAction(Direction direction, ServiceType serviceType, String actionName,
+                             long nanos, boolean failed) {
+        getStatistics(actions, "Action", getActionKey(direction, serviceType, actionName)).record(nanos, failed);
+    }
+
+    /**
+     * Records the time from the start of the device descriptor retrieval until the remote device
+     * was registered.
+     */
+    public void recordHydration(String deviceType, long nanos) {
+        getStatistics(hydrations, "Hydration", deviceType).record(nanos, false);
+    }
+
+    /**
+     * Counts a subscription to a local service that was ended because its subscriber stopped accepting events.
+     */
+    public void recordEviction() {
+        evictedSubscriptions.incrementAndGet();
+    }
+
+    public long getEvictedSubscriptionCount() {
+        return evictedSubscriptions.get();
+    }
+
+    public Map<String, ProtocolStatistics> getProtocolStatistics() {
+        return Collections.unmodifiableMap(protocols);
+    }
+
+    public Map<String, ProtocolStatistics> getActionStatistics() {
+        return Collections.unmodifiableMap(actions);
+    }
+
+    public Map<String, ProtocolStatistics> getHydrationStatistics() {
+        return Collections.unmodifiableMap(hydrations);
+    }
+
+    /**
+     * Called when the UPnP service starts, does nothing by default.
+     *
+     * @param instance A name unique for the UPnP service instance.
+     */
+    public void publish(String instance) {
+    }
+
+    /**
+     * Called when the UPnP service shuts down, does nothing by default.
+     */
+    public void unpublish() {
+    }
+
+    /**
+     * @return The name of the statistics of an action, for example
+     *         <tt>outgoing urn:schemas-upnp-org:service:SwitchPower:1#SetTarget</tt>.
+     */
+    protected String getActionKey(Direction direction, ServiceType serviceType, String actionName) {
+        return direction.name().toLowerCase() + " " + serviceType + "#" + actionName;
+    }
+
+    protected ProtocolStatistics getStatistics(ConcurrentMap<String, ProtocolStatistics> map,
+                                               String type, String name) {
+        ProtocolStatistics statistics = map.get(name);
+        if (statistics == null) {
+            ProtocolStatistics created = new ProtocolStatistics(name);
+            statistics = map.putIfAbsent(name, created);
+            if (statistics == null) {
+                statistics = created;
+                created(type, statistics);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Called once for every new statistics, does nothing by default.
+     *
+     * @param type One of <tt>Protocol</tt>, <tt>Action</tt>, or <tt>Hydration</tt>.
+     */
+    protected void created(String type, ProtocolStatistics statistics) {
+    }
+
+}
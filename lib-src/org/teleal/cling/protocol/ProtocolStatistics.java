@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count, error count and latency histogram of one protocol or action.
+ *
+ * @author Christian Bauer
+ */
+public class ProtocolStatistics implements ProtocolStatisticsMBean {
+
+    final protected String name;
+    final protected LatencyHistogram histogram = new LatencyHistogram();
+    final protected AtomicLong errorCount = new AtomicLong();
+
+    public ProtocolStatistics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos, boolean failed) {
+        histogram.record(nanos);
+        if (failed) errorCount.incrementAndGet();
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public double getMeanMillis() {
+        return histogram.getMeanMillis();
+    }
+
+    public double getMaxMillis() {
+        return histogram.getMaxMillis();
+    }
+
+    public double getPercentile50Millis() {
+        return histogram.getPercentileMillis(50);
+    }
+
+    public double getPercentile99Millis() {
+        return histogram.getPercentileMillis(99);
+    }
+
+    public double getPercentile999Millis() {
+        return histogram.getPercentileMillis(99.9);
+    }
+
+    public void reset() {
+        histogram.reset();
+        errorCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") " + getName() + ", count: " + getCount() +
+                ", errors: " + getErrorCount() + ", p50: " + getPercentile50Millis() + "ms" +
+                ", p99: " + getPercentile99Millis() + "ms";
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+/**
+ * Management interface of {@link ProtocolStatistics}, latencies are in milliseconds.
+ *
+ * @author Christian Bauer
+ */
+public interface ProtocolStatisticsMBean {
+
+    public long getCount();
+    public long getErrorCount();
+
+    public double getMeanMillis();
+    public double getMaxMillis();
+    public double getPercentile50Millis();
+    public double getPercentile99Millis();
+    public double getPercentile999Millis();
+
+    public void reset();
+
+}
@@ -49,8 +49,20 @@ public abstract class ReceivingAsync<M extends UpnpMessage> implements Runnable
             proceed = false;
         }
 
-        if (proceed) {
+        if (!proceed) return;
+
+        ProtocolMetrics metrics = getUpnpService().getConfiguration().getProtocolMetrics();
+        if (metrics == null) {
+            execute();
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
             execute();
+            failed = isFailed();
+        } finally {
+            metrics.record(getClass(), System.nanoTime() - start, failed);
         }
     }
 
@@ -61,6 +73,13 @@ public abstract class ReceivingAsync<M extends UpnpMessage> implements Runnable
 
     protected abstract void execute();
 
+    /**
+     * @return <tt>true</tt> if the completed execution is recorded as an error by the {@link ProtocolMetrics}.
+     */
+    protected boolean isFailed() {
+        return false;
+    }
+
     protected <H extends UpnpHeader> H getFirstHeader(UpnpHeader.Type headerType, Class<H> subtype) {
         return getInputMessage().getHeaders().getFirstHeader(headerType, subtype);
     }
@@ -40,6 +40,11 @@ public abstract class ReceivingSync<IN extends StreamRequestMessage, OUT extends
 
     protected abstract OUT executeSync();
 
+    @Override
+    protected boolean isFailed() {
+        return outputMessage == null || outputMessage.getOperation().isFailed();
+    }
+
     public void responseSent(StreamResponseMessage responseMessage) {
     }
 
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import org.teleal.cling.model.meta.DeviceDetails;
+import org.teleal.cling.model.meta.Icon;
+import org.teleal.cling.model.meta.ManufacturerDetails;
+import org.teleal.cling.model.meta.ModelDetails;
+import org.teleal.cling.model.meta.RemoteDevice;
+import org.teleal.cling.model.types.Interner;
+import org.teleal.common.util.MimeType;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reduces the heap footprint of hydrated remote device graphs.
+ * <p>
+ * Devices of the same model repeat most of their descriptor: Names, manufacturer and model
+ * details, icon metadata, and service URIs. Repeated strings and URIs are interned, equal
+ * manufacturer and model details and icon mime types are shared instances. Absolute service
+ * URIs pointing at the device itself are stored relative to the base URL of the device, as
+ * they are always resolved with {@link RemoteDevice#normalizeURI(java.net.URI)}. The least
+ * recently used shared details are dropped when there are more than <tt>maxShared</tt>.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class RemoteDeviceCompactor {
+
+    public static final int DEFAULT_MAX_SHARED = 256;
+
+    protected final Interner<String> strings = new Interner();
+    protected final Interner<URI> uris = new Interner();
+
+    protected final Map<String, ManufacturerDetails> manufacturerDetails; // Guarded by this
+    protected final Map<String, ModelDetails> modelDetails; // Guarded by this
+    protected final Map<String, MimeType> mimeTypes; // Guarded by this
+
+    public RemoteDeviceCompactor() {
+        this(DEFAULT_MAX_SHARED);
+    }
+
+    public RemoteDeviceCompactor(int maxShared) {
+        this.manufacturerDetails = createLRUMap(maxShared);
+        this.modelDetails = createLRUMap(maxShared);
+        this.mimeTypes = createLRUMap(maxShared);
+    }
+
+    public String compact(String s) {
+        return s != null ? strings.intern(s, s) : null;
+    }
+
+    public URI compact(URI uri) {
+        return uri != null ? uris.intern(uri.toString(), uri) : null;
+    }
+
+    /**
+     * @return The shared (relative, if possible) instance of a service URI of the given device.
+     */
+    public URI compact(RemoteDevice device, URI uri) {
+        return compact(relativize(getBaseURL(device), uri));
+    }
+
+    public DeviceDetails compact(DeviceDetails details) {
+        if (details == null) return null;
+        return new DeviceDetails(
+                details.getBaseURL(),
+                compact(details.getFriendlyName()),
+                compact(details.getManufacturerDetails()),
+                compact(details.getModelDetails()),
+                details.getSerialNumber(),
+                compact(details.getUpc()),
+                compact(details.getPresentationURI())
+        );
+    }
+
+    public Icon[] compact(Icon[] icons) {
+        if (icons == null) return null;
+        Icon[] compacted = new Icon[icons.length];
+        for (int i = 0; i < icons.length; i++) {
+            Icon icon = icons[i];
+            compacted[i] = new Icon(
+                    compact(icon.getMimeType()),
+                    icon.getWidth(), icon.getHeight(), icon.getDepth(),
+                    compact(icon.getUri()),
+                    icon.getData()
+            );
+        }
+        return compacted;
+    }
+
+    public ManufacturerDetails compact(ManufacturerDetails details) {
+        if (details == null) return null;
+        String key = details.getManufacturer() + "\n" + details.getManufacturerURI();
+        synchronized (this) {
+            ManufacturerDetails shared = manufacturerDetails.get(key);
+            if (shared != null) return shared;
+            manufacturerDetails.put(key, details);
+            return details;
+        }
+    }
+
+    public ModelDetails compact(ModelDetails details) {
+        if (details == null) return null;
+        String key = details.getModelName() + "\n" + details.getModelDescription() + "\n" +
+                details.getModelNumber() + "\n" + details.getModelURI();
+        synchronized (this) {
+            ModelDetails shared = modelDetails.get(key);
+            if (shared != null) return shared;
+            modelDetails.put(key, details);
+            return details;
+        }
+    }
+
+    public MimeType compact(MimeType mimeType) {
+        if (mimeType == null) return null;
+        String key = mimeType.toString();
+        synchronized (this) {
+            MimeType shared = mimeTypes.get(key);
+            if (shared != null) return shared;
+            mimeTypes.put(key, mimeType);
+            return mimeType;
+        }
+    }
+
+    /**
+     * @return The URL relative URIs of this device are resolved against, see {@link RemoteDevice#normalizeURI(java.net.URI)}.
+     */
+    protected URL getBaseURL(RemoteDevice device) {
+        if (device.getDetails() != null && device.getDetails().getBaseURL() != null) {
+            return device.getDetails().getBaseURL();
+        }
+        return device.getIdentity().getDescriptorURL();
+    }
+
+    /**
+     * @return A path-absolute URI if the given URI has the same scheme, host, and port as the base, otherwise the given URI.
+     */
+    protected URI relativize(URL base, URI uri) {
+        if (base == null || uri == null || !uri.isAbsolute() || uri.getRawAuthority() == null) return uri;
+
+        if (!uri.getScheme().equalsIgnoreCase(base.getProtocol())
+                || uri.getHost() == null
+                || !uri.getHost().equalsIgnoreCase(base.getHost())) return uri;
+
+        int basePort = base.getPort() != -1 ? base.getPort() : base.getDefaultPort();
+        int port = uri.getPort() != -1 ? uri.getPort() : base.getDefaultPort();
+        if (port != basePort) return uri;
+
+        StringBuilder s = new StringBuilder();
+        s.append(uri.getRawPath() != null && uri.getRawPath().length() > 0 ? uri.getRawPath() : "/");
+        if (uri.getRawQuery() != null) s.append("?").append(uri.getRawQuery());
+        if (uri.getRawFragment() != null) s.append("#").append(uri.getRawFragment());
+        return URI.create(s.toString());
+    }
+
+    protected <V> Map<String, V> createLRUMap(final int maxEntries) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+}
@@ -23,34 +23,51 @@ import org.teleal.cling.binding.xml.DeviceDescriptorBinder;
 import org.teleal.cling.binding.xml.ServiceDescriptorBinder;
 import org.teleal.cling.model.ValidationError;
 import org.teleal.cling.model.ValidationException;
-import org.teleal.cling.model.message.StreamRequestMessage;
 import org.teleal.cling.model.message.StreamResponseMessage;
-import org.teleal.cling.model.message.UpnpRequest;
-import org.teleal.cling.model.message.header.ContentTypeHeader;
-import org.teleal.cling.model.message.header.UpnpHeader;
 import org.teleal.cling.model.meta.DeviceService;
+import org.teleal.cling.model.meta.LazyRemoteService;
 import org.teleal.cling.model.meta.RemoteDevice;
 import org.teleal.cling.model.meta.RemoteService;
+import org.teleal.cling.model.types.ServiceType;
+import org.teleal.cling.model.types.UDN;
 import org.teleal.cling.registry.RegistrationException;
 
+import java.net.InetAddress;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 public class RetrieveRemoteDescriptors implements Runnable {
 
     private static Logger log = Logger.getLogger(RetrieveRemoteDescriptors.class.getName());
 
+    // How long we wait for a descriptor, the StreamClient should time out earlier
+    public static final long RETRIEVAL_TIMEOUT_SECONDS = 60;
+
     private final UpnpService upnpService;
+    private final DescriptorRetriever descriptorRetriever;
     private RemoteDevice rd;
 
-    private static final Set<URL> activeRetrievals = new CopyOnWriteArraySet();
+    private final Map<URL, DescriptorRetriever.Retrieval> serviceRetrievals = new HashMap();
+    private final Map<URL, DescriptorCache.Descriptor> serviceDescriptors = new LinkedHashMap();
+    private DescriptorCache.Entry cachedDescriptors;
+    private long hydrationStart;
+
+    // Keyed by UpnpService and URL, each instance in a JVM hydrates its own devices
+    private static final Set<List<Object>> activeRetrievals = new CopyOnWriteArraySet();
 
-    public RetrieveRemoteDescriptors(UpnpService upnpService, RemoteDevice rd) {
+    public RetrieveRemoteDescriptors(UpnpService upnpService, DescriptorRetriever descriptorRetriever, RemoteDevice rd) {
         this.upnpService = upnpService;
+        this.descriptorRetriever = descriptorRetriever;
         this.rd = rd;
     }
 
@@ -58,6 +75,10 @@ public class RetrieveRemoteDescriptors implements Runnable {
         return upnpService;
     }
 
+    public DescriptorRetriever getDescriptorRetriever() {
+        return descriptorRetriever;
+    }
+
     public void run() {
 
         URL deviceURL = rd.getIdentity().getDescriptorURL();
@@ -66,16 +87,23 @@ public class RetrieveRemoteDescriptors implements Runnable {
         // if we retrieve it once, we have the hydrated device. There is no different outcome
         // processing this several times concurrently.
 
-        if (activeRetrievals.contains(deviceURL)) {
+        List<Object> retrieval = Arrays.<Object>asList(upnpService, deviceURL);
+        if (!activeRetrievals.add(retrieval)) {
             log.finer("Exiting early, active retrieval for URL already in progress: " + deviceURL);
             return;
         }
 
+        ProtocolMetrics metrics = upnpService.getConfiguration().getProtocolMetrics();
+        long start = System.nanoTime();
+        boolean failed = true;
         try {
-            activeRetrievals.add(deviceURL);
             describe();
+            failed = false;
         } finally {
-            activeRetrievals.remove(deviceURL);
+            activeRetrievals.remove(retrieval);
+            if (metrics != null) {
+                metrics.record(getClass(), System.nanoTime() - start, failed);
+            }
         }
     }
 
@@ -86,46 +114,209 @@ public class RetrieveRemoteDescriptors implements Runnable {
         // steps - all of this could be done with one and it wouldn't make a difference. So every
         // call of this method has to be really necessary and rare.
 
-        StreamRequestMessage deviceDescRetrievalMsg =
-                new StreamRequestMessage(UpnpRequest.Method.GET, rd.getIdentity().getDescriptorURL());
+        hydrationStart = System.currentTimeMillis();
+
+        URL descriptorURL = rd.getIdentity().getDescriptorURL();
+        UDN udn = rd.getIdentity().getUdn();
+        DescriptorCache descriptorCache = getUpnpService().getConfiguration().getDescriptorCache();
+
+        DescriptorCache.Entry cachedEntry = descriptorCache != null ? descriptorCache.get(descriptorURL, udn) : null;
+        RemoteDevice cachedDevice = null;
+        if (cachedEntry != null) {
+            // The retrievals below are conditional requests, also after a restart
+            validated(descriptorURL, cachedEntry);
+
+            // Make the device available immediately if we know its descriptors, then revalidate them. A
+            // graph hydrated earlier in this process is registered again without parsing, see rehydrate().
+            if (!getDescriptorRetriever().isHydrated(descriptorURL)) {
+                log.fine("Hydrating remote device from cached descriptors: " + rd);
+                cachedDescriptors = cachedEntry;
+                cachedDevice = describe(cachedEntry.getDeviceDescriptor().getXml());
+                cachedDescriptors = null;
+                if (cachedDevice == null) {
+                    log.fine("Cached descriptors are not usable, removing them: " + rd);
+                    descriptorCache.remove(descriptorURL, udn);
+                }
+            }
+        }
 
-        log.fine("Sending device descriptor retrieval message: " + deviceDescRetrievalMsg);
-        StreamResponseMessage deviceDescMsg = getUpnpService().getRouter().send(deviceDescRetrievalMsg);
+        // The retriever shares the request with concurrent retrievals of the same URL and doesn't
+        // even try if the URL failed recently. If it retrieved the descriptor before, this is a
+        // conditional request.
+        DescriptorRetriever.Retrieval deviceRetrieval = getDescriptorRetriever().retrieve(descriptorURL);
+        StreamResponseMessage deviceDescMsg = await(deviceRetrieval);
 
         if (deviceDescMsg == null) {
             log.warning("Could not retrieve device descriptor: " + rd);
             return;
         }
 
-        if (deviceDescMsg.getOperation().isFailed()) {
-            log.warning(
-                    "Device descriptor retrieval failed:" + rd.getIdentity().getDescriptorURL() +
-                    ", " + deviceDescMsg.getOperation().getResponseDetails()
-            );
-            return;
+        if (cachedDevice != null) {
+            DescriptorCache.Entry revalidatedEntry = revalidate(cachedEntry, deviceRetrieval, deviceDescMsg);
+            if (revalidatedEntry != null) {
+                log.fine("Cached descriptors are still valid: " + rd);
+                getDescriptorRetriever().hydrated(deviceRetrieval, cachedDevice);
+                if (!revalidatedEntry.equals(cachedEntry)) {
+                    descriptorCache.put(descriptorURL, udn, revalidatedEntry);
+                }
+                return;
+            }
+            log.fine("Descriptors changed, replacing device hydrated from cached descriptors: " + rd);
+            getUpnpService().getRegistry().removeDevice(cachedDevice);
+            serviceRetrievals.clear();
+            serviceDescriptors.clear();
+            hydrationStart = System.currentTimeMillis();
         }
 
-        if (deviceDescMsg.getHeaders().getFirstHeader(UpnpHeader.Type.CONTENT_TYPE) == null) {
-            log.warning("Received device descriptor without Content-Type: " + rd.getIdentity().getDescriptorURL());
+        if (deviceRetrieval.isNotModified() && rehydrate(deviceRetrieval.getHydratedDevice())) {
             return;
         }
 
-        if (!deviceDescMsg.getHeaders().getFirstHeader(UpnpHeader.Type.CONTENT_TYPE, ContentTypeHeader.class).isUDACompliant()) {
-            log.warning("Received device descriptor was received with an invalid Content-Type: " + rd.getIdentity().getDescriptorURL());
-            return;
+        log.fine("Received root device descriptor: " + deviceDescMsg);
+        RemoteDevice describedDevice = describe(deviceDescMsg.getBodyString());
+
+        if (describedDevice != null && serviceDescriptors.size() == serviceRetrievals.size()) {
+            getDescriptorRetriever().hydrated(deviceRetrieval, describedDevice);
+            if (descriptorCache != null) {
+                descriptorCache.put(descriptorURL, udn, new DescriptorCache.Entry(
+                        new DescriptorCache.Descriptor(
+                                deviceDescMsg.getBodyString(),
+                                deviceRetrieval.getEntityTag(),
+                                deviceRetrieval.getLastModified()
+                        ),
+                        serviceDescriptors
+                ));
+            }
         }
+    }
 
-        log.fine("Received root device descriptor: " + deviceDescMsg);
-        describe(deviceDescMsg.getBodyString());
+    /**
+     * Passes the validators of the cached descriptors to the retriever.
+     */
+    protected void validated(URL descriptorURL, DescriptorCache.Entry cachedEntry) {
+        DescriptorCache.Descriptor deviceDescriptor = cachedEntry.getDeviceDescriptor();
+        getDescriptorRetriever().validated(
+                descriptorURL,
+                deviceDescriptor.getXml(), deviceDescriptor.getEntityTag(), deviceDescriptor.getLastModified()
+        );
+        for (Map.Entry<URL, DescriptorCache.Descriptor> serviceDescriptor : cachedEntry.getServiceDescriptors().entrySet()) {
+            getDescriptorRetriever().validated(
+                    serviceDescriptor.getKey(),
+                    serviceDescriptor.getValue().getXml(),
+                    serviceDescriptor.getValue().getEntityTag(),
+                    serviceDescriptor.getValue().getLastModified()
+            );
+        }
+    }
+
+    /**
+     * Revalidates the cached device descriptor and all cached service descriptors, the service
+     * descriptors are retrieved in parallel. A descriptor that can't be retrieved is kept.
+     *
+     * @return The cached entry with the validators of the retrievals, or <tt>null</tt> if a
+     *         descriptor was modified.
+     */
+    protected DescriptorCache.Entry revalidate(DescriptorCache.Entry cachedEntry,
+                                               DescriptorRetriever.Retrieval deviceRetrieval,
+                                               StreamResponseMessage deviceDescMsg) {
+        DescriptorCache.Descriptor deviceDescriptor =
+                revalidate(cachedEntry.getDeviceDescriptor(), deviceRetrieval, deviceDescMsg);
+        if (deviceDescriptor == null) return null;
+
+        Map<URL, DescriptorRetriever.Retrieval> retrievals = new LinkedHashMap();
+        for (URL descriptorURL : cachedEntry.getServiceDescriptors().keySet()) {
+            retrievals.put(descriptorURL, getDescriptorRetriever().retrieve(descriptorURL));
+        }
+
+        Map<URL, DescriptorCache.Descriptor> serviceDescriptors = new LinkedHashMap();
+        for (Map.Entry<URL, DescriptorRetriever.Retrieval> retrieval : retrievals.entrySet()) {
+            DescriptorCache.Descriptor serviceDescriptor = revalidate(
+                    cachedEntry.getServiceDescriptors().get(retrieval.getKey()),
+                    retrieval.getValue(),
+                    await(retrieval.getValue())
+            );
+            if (serviceDescriptor == null) {
+                log.fine("Service descriptor was modified: " + retrieval.getKey());
+                return null;
+            }
+            serviceDescriptors.put(retrieval.getKey(), serviceDescriptor);
+        }
+        return new DescriptorCache.Entry(deviceDescriptor, serviceDescriptors);
     }
 
-    protected void describe(String descriptorXML) {
+    protected DescriptorCache.Descriptor revalidate(DescriptorCache.Descriptor cachedDescriptor,
+                                                    DescriptorRetriever.Retrieval retrieval,
+                                                    StreamResponseMessage responseMessage) {
+        if (responseMessage == null) {
+            return cachedDescriptor;
+        }
+        if (!retrieval.isNotModified() && !cachedDescriptor.getXml().equals(responseMessage.getBodyString())) {
+            return null;
+        }
+        return new DescriptorCache.Descriptor(
+                cachedDescriptor.getXml(), retrieval.getEntityTag(), retrieval.getLastModified()
+        );
+    }
+
+    /**
+     * Registers the device graph hydrated earlier from the same device descriptor again, if none
+     * of its service descriptors was modified either. Nothing is parsed, each descriptor costs a
+     * conditional request.
+     *
+     * @return <tt>false</tt> if the device has to be hydrated from the descriptors.
+     */
+    protected boolean rehydrate(RemoteDevice hydratedDevice) {
+        if (hydratedDevice == null || hydratedDevice.findDevice(rd.getIdentity().getUdn()) == null) {
+            return false;
+        }
+
+        // Callback URLs of GENA subscriptions depend on the local address the device was discovered on
+        InetAddress reachableLocalAddress = hydratedDevice.getIdentity().getReachableLocalAddress();
+        if (reachableLocalAddress == null
+                ? rd.getIdentity().getReachableLocalAddress() != null
+                : !reachableLocalAddress.equals(rd.getIdentity().getReachableLocalAddress())) {
+            return false;
+        }
+
+        retrieveServiceDescriptorsRecursive(hydratedDevice, hydratedDevice);
+        for (DescriptorRetriever.Retrieval serviceRetrieval : serviceRetrievals.values()) {
+            if (await(serviceRetrieval) == null || !serviceRetrieval.isNotModified()) {
+                log.fine("Service descriptor was modified, hydrating device again: " + serviceRetrieval.getURL());
+                return false;
+            }
+        }
+
+        try {
+            log.fine("Descriptors not modified, adding earlier hydrated device to registry: " + hydratedDevice);
+            getUpnpService().getRegistry().addDevice(hydratedDevice);
+        } catch (RegistrationException ex) {
+            log.warning("Adding earlier hydrated device to registry failed: " + hydratedDevice);
+            log.warning("Cause was: " + ex.toString());
+            return false;
+        }
+
+        // The earlier graph has the expiration of the earlier announcement
+        if (!hydratedDevice.getIdentity().getMaxAgeSeconds().equals(rd.getIdentity().getMaxAgeSeconds())) {
+            getUpnpService().getRegistry().update(rd.getIdentity());
+        }
+
+        hydrated(hydratedDevice, System.currentTimeMillis() - hydrationStart);
+        return true;
+    }
+
+    /**
+     * @return The hydrated and registered device, or <tt>null</tt> if hydration failed.
+     */
+    protected RemoteDevice describe(String descriptorXML) {
         try {
 
             DeviceDescriptorBinder deviceDescriptorBinder =
                     getUpnpService().getConfiguration().getDeviceDescriptorBinderUDA10();
 
             RemoteDevice describedDevice = deviceDescriptorBinder.describe(rd, descriptorXML);
+
+            // Retrieve all service descriptors of the whole device graph in parallel, then wait for them
+            retrieveServiceDescriptorsRecursive(describedDevice, describedDevice);
             describedDevice = describeServicesRecursive(describedDevice, describedDevice);
 
             log.fine("Adding fully hydrated remote device to registry: " + describedDevice);
@@ -135,6 +326,9 @@ public class RetrieveRemoteDescriptors implements Runnable {
             // device.
             getUpnpService().getRegistry().addDevice(describedDevice);
 
+            hydrated(describedDevice, System.currentTimeMillis() - hydrationStart);
+            return describedDevice;
+
         } catch (ValidationException ex) {
             log.warning("Could not validate device model: " + rd);
             for (ValidationError validationError : ex.getErrors()) {
@@ -147,6 +341,29 @@ public class RetrieveRemoteDescriptors implements Runnable {
             log.warning("Adding hydrated device to registry failed: " + rd);
             log.warning("Cause was: " + ex.toString());
         }
+        return null;
+    }
+
+    protected void retrieveServiceDescriptorsRecursive(RemoteDevice rootDevice, RemoteDevice currentDevice) {
+        if (currentDevice.hasDeviceServices()) {
+            for (DeviceService deviceService : currentDevice.getDeviceServices()) {
+                if (!isHydratedEagerly(deviceService)) {
+                    continue;
+                }
+                URL descriptorURL = rootDevice.normalizeURI(deviceService.getDescriptorURI());
+                if (cachedDescriptors != null && cachedDescriptors.getServiceDescriptors().containsKey(descriptorURL)) {
+                    continue;
+                }
+                if (!serviceRetrievals.containsKey(descriptorURL)) {
+                    serviceRetrievals.put(descriptorURL, getDescriptorRetriever().retrieve(descriptorURL));
+                }
+            }
+        }
+        if (currentDevice.hasEmbeddedDevices()) {
+            for (RemoteDevice embeddedDevice : currentDevice.getEmbeddedDevices()) {
+                retrieveServiceDescriptorsRecursive(rootDevice, embeddedDevice);
+            }
+        }
     }
 
     protected RemoteDevice describeServicesRecursive(RemoteDevice rootDevice, RemoteDevice currentDevice)
@@ -167,12 +384,13 @@ public class RetrieveRemoteDescriptors implements Runnable {
         }
 
         // Yes, we create a completely new immutable graph here (this time with DS linked to S)
+        RemoteDeviceCompactor compactor = getUpnpService().getConfiguration().getRemoteDeviceCompactor();
         return currentDevice.newInstance(
                 currentDevice.getIdentity().getUdn(),
                 currentDevice.getVersion(),
                 currentDevice.getType(),
-                currentDevice.getDetails(),
-                currentDevice.getIcons(),
+                compactor != null ? compactor.compact(currentDevice.getDetails()) : currentDevice.getDetails(),
+                compactor != null ? compactor.compact(currentDevice.getIcons()) : currentDevice.getIcons(),
                 describedServices.toArray(new DeviceService[describedServices.size()]),
                 describedEmbeddedDevices
         );
@@ -182,33 +400,59 @@ public class RetrieveRemoteDescriptors implements Runnable {
             throws DescriptorBindingException, ValidationException {
 
         URL descriptorURL = device.normalizeURI(deviceService.getDescriptorURI());
-        StreamRequestMessage serviceDescRetrievalMsg = new StreamRequestMessage(UpnpRequest.Method.GET, descriptorURL);
-
-        log.fine("Sending service descriptor retrieval message: " + serviceDescRetrievalMsg);
-        StreamResponseMessage serviceDescMsg = getUpnpService().getRouter().send(serviceDescRetrievalMsg);
 
-        if (serviceDescMsg == null) {
-            log.warning("Could not retrieve service descriptor: " + deviceService);
-            return null;
+        String serviceDescriptor = cachedDescriptors != null && cachedDescriptors.getServiceDescriptors().containsKey(descriptorURL)
+                ? cachedDescriptors.getServiceDescriptors().get(descriptorURL).getXml()
+                : null;
+
+        if (serviceDescriptor == null && !isHydratedEagerly(deviceService)) {
+            log.fine("Service will be hydrated on first use: " + deviceService);
+            return createDeviceService(
+                    device,
+                    deviceService,
+                    new LazyRemoteService(
+                            createLazyServiceLoader(descriptorURL, deviceService.getServiceType())
+                    )
+            );
         }
 
-        if (serviceDescMsg.getOperation().isFailed()) {
-            log.warning("Service descriptor retrieval failed:" + serviceDescMsg.getOperation().getResponseDetails());
-            return null;
-        }
+        if (serviceDescriptor == null) {
+            DescriptorRetriever.Retrieval retrieval = serviceRetrievals.get(descriptorURL);
+            if (retrieval == null) {
+                retrieval = getDescriptorRetriever().retrieve(descriptorURL);
+                serviceRetrievals.put(descriptorURL, retrieval);
+            }
+            StreamResponseMessage serviceDescMsg = await(retrieval);
 
-        if (!serviceDescMsg.getHeaders().getFirstHeader(UpnpHeader.Type.CONTENT_TYPE, ContentTypeHeader.class).isUDACompliant()) {
-            log.warning("Received service descriptor was received with an invalid Content-Type: " + serviceDescMsg);
-            return null;
+            if (serviceDescMsg == null) {
+                log.warning("Could not retrieve service descriptor: " + deviceService);
+                return null;
+            }
+            log.fine("Received service descriptor, hydrating service model: " + serviceDescMsg);
+            serviceDescriptor = serviceDescMsg.getBodyString();
+            serviceDescriptors.put(
+                    descriptorURL,
+                    new DescriptorCache.Descriptor(serviceDescriptor, retrieval.getEntityTag(), retrieval.getLastModified())
+            );
         }
 
-        log.fine("Received service descriptor, hydrating service model: " + serviceDescMsg);
-        ServiceDescriptorBinder serviceDescriptorBinder =
-                getUpnpService().getConfiguration().getServiceDescriptorBinderUDA10();
-
-        RemoteService service = serviceDescriptorBinder.read(RemoteService.class, serviceDescMsg.getBodyString());
+        RemoteService service = readService(getUpnpService(), deviceService.getServiceType(), serviceDescriptor);
+        return createDeviceService(device, deviceService, service);
+    }
 
+    protected DeviceService createDeviceService(RemoteDevice device, DeviceService deviceService, RemoteService service) {
         // The DS now has a reference to an S - it's immutable so we create a new one
+        RemoteDeviceCompactor compactor = getUpnpService().getConfiguration().getRemoteDeviceCompactor();
+        if (compactor != null) {
+            return new DeviceService(
+                    deviceService.getServiceType(),
+                    deviceService.getServiceId(),
+                    compactor.compact(device, deviceService.getDescriptorURI()),
+                    compactor.compact(device, deviceService.getControlURI()),
+                    compactor.compact(device, deviceService.getEventSubscriptionURI()),
+                    service
+            );
+        }
         return new DeviceService(
                 deviceService.getServiceType(),
                 deviceService.getServiceId(),
@@ -219,4 +463,108 @@ public class RetrieveRemoteDescriptors implements Runnable {
         );
     }
 
+    /**
+     * @return <tt>true</tt> if the descriptor of the service has to be retrieved before the device is registered.
+     */
+    protected boolean isHydratedEagerly(DeviceService deviceService) {
+        if (deviceService.getService() instanceof LazyRemoteService) {
+            // Rehydrating an earlier graph, only services used since have to be revalidated
+            return ((LazyRemoteService) deviceService.getService()).isHydrated();
+        }
+        ServiceType[] serviceTypes = getUpnpService().getConfiguration().getEagerlyHydratedServiceTypes();
+        if (serviceTypes == null) return true;
+        for (ServiceType serviceType : serviceTypes) {
+            if (deviceService.getServiceType().implementsVersion(serviceType)) return true;
+        }
+        return false;
+    }
+
+    protected LazyRemoteService.Loader createLazyServiceLoader(URL descriptorURL, ServiceType serviceType) {
+        return new LazyServiceLoader(getDescriptorRetriever(), descriptorURL, serviceType);
+    }
+
+    protected static RemoteService readService(UpnpService upnpService, ServiceType serviceType, String serviceDescriptor)
+            throws DescriptorBindingException, ValidationException {
+
+        // Identical descriptors of many devices share one parsed model
+        ServiceModelPool serviceModelPool = upnpService.getConfiguration().getServiceModelPool();
+        if (serviceModelPool != null) {
+            return serviceModelPool.read(serviceType, serviceDescriptor);
+        }
+        ServiceDescriptorBinder serviceDescriptorBinder =
+                upnpService.getConfiguration().getServiceDescriptorBinderUDA10();
+        return serviceDescriptorBinder.read(RemoteService.class, serviceDescriptor);
+    }
+
+    protected StreamResponseMessage await(DescriptorRetriever.Retrieval retrieval) {
+        try {
+            return retrieval.get(RETRIEVAL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            log.warning("Timeout waiting for descriptor: " + retrieval.getURL());
+        } catch (InterruptedException ex) {
+            log.fine("Interrupted waiting for descriptor: " + retrieval.getURL());
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Called after a device graph has been hydrated and added to the registry.
+     *
+     * @param hydrationMillis Time from the start of the device descriptor retrieval to the registration.
+     */
+    protected void hydrated(RemoteDevice device, long hydrationMillis) {
+        log.fine("Hydrated remote device in " + hydrationMillis + "ms: " + device);
+        ProtocolMetrics metrics = getUpnpService().getConfiguration().getProtocolMetrics();
+        if (metrics != null) {
+            metrics.recordHydration(device.getType().toString(), hydrationMillis * 1000000L);
+        }
+    }
+
+    /**
+     * Retrieves the descriptor of a lazy service through the shared retriever, without a reference
+     * to the (short-lived) protocol that registered the device.
+     * <p>
+     * A service first accessed on the thread that completes retrievals, for example in a response
+     * callback of the non-blocking stream client, can't wait for its descriptor. Loading fails
+     * immediately and the retrieval continues in the background, the next access uses its result.
+     * </p>
+     */
+    protected static class LazyServiceLoader implements LazyRemoteService.Loader {
+
+        final private DescriptorRetriever descriptorRetriever;
+        final private URL descriptorURL;
+        final private ServiceType serviceType;
+
+        // Guarded by the service, it only calls load() while holding its lock
+        private DescriptorRetriever.Retrieval backgroundRetrieval;
+
+        public LazyServiceLoader(DescriptorRetriever descriptorRetriever, URL descriptorURL, ServiceType serviceType) {
+            this.descriptorRetriever = descriptorRetriever;
+            this.descriptorURL = descriptorURL;
+            this.serviceType = serviceType;
+        }
+
+        public RemoteService load(LazyRemoteService service) throws Exception {
+            DescriptorRetriever.Retrieval retrieval =
+                    backgroundRetrieval != null ? backgroundRetrieval : descriptorRetriever.retrieve(descriptorURL);
+            if (!retrieval.isDone() && descriptorRetriever.isCompletingThread()) {
+                log.warning("Can't wait for descriptor on the thread completing retrievals, continuing in background: " + descriptorURL);
+                backgroundRetrieval = retrieval;
+                return null;
+            }
+            backgroundRetrieval = null;
+
+            StreamResponseMessage serviceDescMsg;
+            try {
+                serviceDescMsg = retrieval.get(RETRIEVAL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (serviceDescMsg == null) return null;
+            return readService(descriptorRetriever.getUpnpService(), serviceType, serviceDescMsg.getBodyString());
+        }
+    }
+
 }
@@ -52,11 +52,30 @@ public abstract class SendingAsync implements Runnable {
     }
 
     public void run() {
-        execute();
+        ProtocolMetrics metrics = getUpnpService().getConfiguration().getProtocolMetrics();
+        if (metrics == null) {
+            execute();
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            execute();
+            failed = isFailed();
+        } finally {
+            metrics.record(getClass(), System.nanoTime() - start, failed);
+        }
     }
 
     protected abstract void execute();
 
+    /**
+     * @return <tt>true</tt> if the completed execution is recorded as an error by the {@link ProtocolMetrics}.
+     */
+    protected boolean isFailed() {
+        return false;
+    }
+
     @Override
     public String toString() {
         return "(" + getClass().getSimpleName() + ")";
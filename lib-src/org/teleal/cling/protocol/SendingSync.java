@@ -54,6 +54,11 @@ public abstract class SendingSync<IN extends StreamRequestMessage, OUT extends S
 
     protected abstract OUT executeSync();
 
+    @Override
+    protected boolean isFailed() {
+        return outputMessage == null || outputMessage.getOperation().isFailed();
+    }
+
     @Override
     public String toString() {
         return "(" + getClass().getSimpleName() + ")";
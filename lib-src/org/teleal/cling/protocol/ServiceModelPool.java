@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol;
+
+import org.teleal.cling.binding.xml.DescriptorBindingException;
+import org.teleal.cling.binding.xml.ServiceDescriptorBinder;
+import org.teleal.cling.model.ValidationException;
+import org.teleal.cling.model.meta.Action;
+import org.teleal.cling.model.meta.RemoteService;
+import org.teleal.cling.model.meta.StateVariable;
+import org.teleal.cling.model.types.ServiceType;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Parses each distinct remote service descriptor once, identical descriptors of many devices
+ * share the parsed model.
+ * <p>
+ * Models are keyed by service type and a digest of the descriptor. A service belongs to exactly
+ * one device, so every read returns a new {@link RemoteService}: Its actions, arguments and state
+ * variables are thin copies, their names, datatypes, allowed values and event details are the
+ * objects of the shared model. The least recently used models are dropped when there are more
+ * than <tt>maxModels</tt>.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class ServiceModelPool {
+
+    private static Logger log = Logger.getLogger(ServiceModelPool.class.getName());
+
+    public static final int DEFAULT_MAX_MODELS = 256;
+
+    protected final ServiceDescriptorBinder serviceDescriptorBinder;
+    protected final Map<Key, RemoteService> models; // Guarded by this
+
+    public ServiceModelPool(ServiceDescriptorBinder serviceDescriptorBinder) {
+        this(serviceDescriptorBinder, DEFAULT_MAX_MODELS);
+    }
+
+    public ServiceModelPool(ServiceDescriptorBinder serviceDescriptorBinder, final int maxModels) {
+        this.serviceDescriptorBinder = serviceDescriptorBinder;
+        this.models = new LinkedHashMap<Key, RemoteService>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RemoteService> eldest) {
+                return size() > maxModels;
+            }
+        };
+    }
+
+    public ServiceDescriptorBinder getServiceDescriptorBinder() {
+        return serviceDescriptorBinder;
+    }
+
+    public synchronized int getModelCount() {
+        return models.size();
+    }
+
+    /**
+     * @return A new service, not bound to a device, sharing the model of identical descriptors.
+     */
+    public RemoteService read(ServiceType serviceType, String descriptorXml)
+            throws DescriptorBindingException, ValidationException {
+
+        Key key = new Key(serviceType, digest(descriptorXml));
+
+        RemoteService model;
+        synchronized (this) {
+            model = models.get(key);
+        }
+
+        if (model == null) {
+            log.fine("Parsing descriptor of new service model: " + serviceType);
+            model = getServiceDescriptorBinder().read(RemoteService.class, descriptorXml);
+            synchronized (this) {
+                // Keep the model of a concurrent read of the same descriptor
+                RemoteService existing = models.get(key);
+                if (existing != null) {
+                    model = existing;
+                } else {
+                    models.put(key, model);
+                }
+            }
+        } else {
+            log.finer("Sharing known service model: " + serviceType);
+        }
+
+        return copy(model);
+    }
+
+    protected RemoteService copy(RemoteService model) throws ValidationException {
+        Action[] actions = model.getActions();
+        Action[] actionsDupe = new Action[actions.length];
+        for (int i = 0; i < actions.length; i++) {
+            actionsDupe[i] = actions[i].deepCopy();
+        }
+
+        StateVariable[] stateVariables = model.getStateVariables();
+        StateVariable[] stateVariablesDupe = new StateVariable[stateVariables.length];
+        for (int i = 0; i < stateVariables.length; i++) {
+            stateVariablesDupe[i] = stateVariables[i].deepCopy();
+        }
+
+        return new RemoteService(model.getVersion(), actionsDupe, stateVariablesDupe);
+    }
+
+    protected String digest(String descriptorXml) throws DescriptorBindingException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return new BigInteger(1, digest.digest(descriptorXml.getBytes("UTF-8"))).toString(16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new DescriptorBindingException("Can't create digest of service descriptor: " + ex, ex);
+        } catch (UnsupportedEncodingException ex) {
+            throw new DescriptorBindingException("Can't create digest of service descriptor: " + ex, ex);
+        }
+    }
+
+    protected static class Key {
+
+        final ServiceType serviceType;
+        final String digest;
+
+        Key(ServiceType serviceType, String digest) {
+            this.serviceType = serviceType;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return digest.equals(key.digest)
+                    && (serviceType != null ? serviceType.equals(key.serviceType) : key.serviceType == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (serviceType != null ? serviceType.hashCode() : 0) + digest.hashCode();
+        }
+    }
+
+}
@@ -27,7 +27,6 @@ import org.teleal.cling.model.meta.RemoteDevice;
 import org.teleal.cling.model.meta.RemoteDeviceIdentity;
 import org.teleal.cling.model.types.UDN;
 import org.teleal.cling.protocol.ReceivingAsync;
-import org.teleal.cling.protocol.RetrieveRemoteDescriptors;
 
 import java.util.logging.Logger;
 
@@ -90,7 +89,7 @@ public class ReceivingSearchResponse extends ReceivingAsync<IncomingSearchRespon
         // Unfortunately, we always have to retrieve the descriptor because at this point we
         // have no idea if it's a root or embedded device
         getUpnpService().getConfiguration().getAsyncProtocolExecutor().execute(
-                new RetrieveRemoteDescriptors(getUpnpService(), rd)
+                getUpnpService().getProtocolFactory().createRetrieveRemoteDescriptors(rd)
         );
 
     }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.protocol.sync;
+
+import org.teleal.cling.UpnpService;
+import org.teleal.cling.model.gena.CancelReason;
+import org.teleal.cling.model.gena.LocalGENASubscription;
+import org.teleal.cling.model.meta.DeviceService;
+import org.teleal.cling.model.meta.LocalService;
+import org.teleal.cling.model.types.UnsignedIntegerFourBytes;
+
+import java.net.URL;
+import java.util.List;
+
+/**
+ * A subscription to a local service, sends an event message whenever the state of the service changes.
+ *
+ * @author Christian Bauer
+ */
+public class IncomingSubscription extends LocalGENASubscription {
+
+    final protected UpnpService upnpService;
+
+    public IncomingSubscription(UpnpService upnpService, DeviceService<LocalService> deviceService,
+                                Integer requestedDurationSeconds, List<URL> callbackURLs) {
+        super(deviceService, requestedDurationSeconds, callbackURLs);
+        this.upnpService = upnpService;
+    }
+
+    public IncomingSubscription(UpnpService upnpService, DeviceService<LocalService> deviceService,
+                                String subscriptionId, UnsignedIntegerFourBytes currentSequence,
+                                int remainingDurationSeconds, List<URL> callbackURLs) {
+        super(deviceService, subscriptionId, currentSequence, remainingDurationSeconds, callbackURLs);
+        this.upnpService = upnpService;
+    }
+
+    public UpnpService getUpnpService() {
+        return upnpService;
+    }
+
+    public void failed(Exception ex) {
+        // This means we couldn't read the initial state of the service in constructor
+        throw new RuntimeException(ex);
+    }
+
+    public void established() {
+    }
+
+    public void ended(CancelReason reason) {
+    }
+
+    public void eventReceived() {
+        // The only thing we are interested in, sending an event when the state changes
+        getUpnpService().getConfiguration().getSyncProtocolExecutor().execute(
+                getUpnpService().getProtocolFactory().createSendingEvent(this)
+        );
+    }
+
+}
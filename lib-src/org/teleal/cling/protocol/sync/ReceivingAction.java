@@ -29,6 +29,7 @@ import org.teleal.cling.model.message.UpnpResponse;
 import org.teleal.cling.model.message.control.IncomingActionRequestMessage;
 import org.teleal.cling.model.message.control.OutgoingActionResponseMessage;
 import org.teleal.cling.model.types.ErrorCode;
+import org.teleal.cling.protocol.ProtocolMetrics;
 import org.teleal.cling.protocol.ReceivingSync;
 import org.teleal.cling.transport.spi.UnsupportedDataException;
 import org.teleal.common.util.Exceptions;
@@ -47,6 +48,8 @@ public class ReceivingAction extends ReceivingSync<StreamRequestMessage, StreamR
 
     protected StreamResponseMessage executeSync() {
 
+        long start = System.nanoTime();
+
         if (!getInputMessage().hasUDATextContentType()) {
             return new StreamResponseMessage(new UpnpResponse(UpnpResponse.Status.UNSUPPORTED_MEDIA_TYPE));
         }
@@ -122,10 +125,12 @@ public class ReceivingAction extends ReceivingSync<StreamRequestMessage, StreamR
                     getUpnpService().getConfiguration().getSoapActionProcessor().writeBody(responseMessage, invocation);
 
                     log.fine("Returning finished response message: " + responseMessage);
+                    recordAction(invocation, start, responseMessage.getOperation().isFailed());
                     return responseMessage;
 
                 } catch (UnsupportedDataException ex) {
                     log.fine("Failure writing body of response message, sending 500 Internal Server Error without body");
+                    recordAction(invocation, start, true);
                     return new StreamResponseMessage(UpnpResponse.Status.INTERNAL_SERVER_ERROR);
                 }
 
@@ -134,4 +139,17 @@ public class ReceivingAction extends ReceivingSync<StreamRequestMessage, StreamR
         }
 
     }
+
+    protected void recordAction(ActionInvocation invocation, long start, boolean failed) {
+        ProtocolMetrics metrics = getUpnpService().getConfiguration().getProtocolMetrics();
+        if (metrics != null && invocation.getAction() != null) {
+            metrics.recordAction(
+                    ProtocolMetrics.Direction.INCOMING,
+                    invocation.getAction().getService().getDeviceService().getServiceType(),
+                    invocation.getAction().getName(),
+                    System.nanoTime() - start,
+                    failed
+            );
+        }
+    }
 }
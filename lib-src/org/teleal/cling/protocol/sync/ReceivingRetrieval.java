@@ -28,10 +28,16 @@ import org.teleal.cling.model.message.StreamRequestMessage;
 import org.teleal.cling.model.message.StreamResponseMessage;
 import org.teleal.cling.model.message.UpnpResponse;
 import org.teleal.cling.model.message.header.ContentTypeHeader;
+import org.teleal.cling.model.message.header.ETagHeader;
+import org.teleal.cling.model.message.header.IfNoneMatchHeader;
+import org.teleal.cling.model.message.header.UpnpHeader;
 import org.teleal.cling.UpnpService;
 import org.teleal.cling.protocol.ReceivingSync;
 
+import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.logging.Logger;
 
 
@@ -70,7 +76,7 @@ public class ReceivingRetrieval extends ReceivingSync<StreamRequestMessage, Stre
                     DeviceDescriptorBinder deviceDescriptorBinder =
                             getUpnpService().getConfiguration().getDeviceDescriptorBinderUDA10();
                     String deviceDescriptor = deviceDescriptorBinder.generate(device);
-                    return new StreamResponseMessage(deviceDescriptor, new ContentTypeHeader());
+                    return createDescriptorResponse(deviceDescriptor);
 
                 case SERVICE_DESCRIPTOR:
 
@@ -80,7 +86,7 @@ public class ReceivingRetrieval extends ReceivingSync<StreamRequestMessage, Stre
                     ServiceDescriptorBinder serviceDescriptorBinder =
                             getUpnpService().getConfiguration().getServiceDescriptorBinderUDA10();
                     String serviceDescriptor = serviceDescriptorBinder.generate(deviceService.getService());
-                    return new StreamResponseMessage(serviceDescriptor, new ContentTypeHeader());
+                    return createDescriptorResponse(serviceDescriptor);
 
                 case ICON:
 
@@ -100,4 +106,43 @@ public class ReceivingRetrieval extends ReceivingSync<StreamRequestMessage, Stre
         }
     }
 
+    /**
+     * Answers with <tt>304 Not Modified</tt> if the client already has the descriptor.
+     * <p>
+     * The entity tag is a digest of the generated descriptor, so it is strong and it
+     * changes whenever the local device or service changes.
+     * </p>
+     */
+    protected StreamResponseMessage createDescriptorResponse(String descriptor) {
+        String entityTag = createEntityTag(descriptor);
+
+        IfNoneMatchHeader ifNoneMatchHeader =
+                getInputMessage().getHeaders().getFirstHeader(UpnpHeader.Type.IF_NONE_MATCH, IfNoneMatchHeader.class);
+
+        StreamResponseMessage responseMessage;
+        if (entityTag != null && ifNoneMatchHeader != null && ifNoneMatchHeader.matches(entityTag)) {
+            log.fine("Descriptor not modified, client has entity tag: " + entityTag);
+            responseMessage = new StreamResponseMessage(UpnpResponse.Status.NOT_MODIFIED);
+        } else {
+            responseMessage = new StreamResponseMessage(descriptor, new ContentTypeHeader());
+        }
+
+        if (entityTag != null) {
+            responseMessage.getHeaders().add(UpnpHeader.Type.ETAG, new ETagHeader(entityTag));
+        }
+        return responseMessage;
+    }
+
+    protected String createEntityTag(String descriptor) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return ETagHeader.toStrongTag(digest.digest(descriptor.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException ex) {
+            log.warning("Can't create entity tag of descriptor: " + ex);
+        } catch (UnsupportedEncodingException ex) {
+            log.warning("Can't create entity tag of descriptor: " + ex);
+        }
+        return null;
+    }
+
 }
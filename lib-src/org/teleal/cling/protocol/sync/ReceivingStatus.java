@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.teleal.cling.protocol.sync;
+
+import org.teleal.cling.UpnpService;
+import org.teleal.cling.UpnpServiceConfiguration;
+import org.teleal.cling.model.message.StreamRequestMessage;
+import org.teleal.cling.model.message.StreamResponseMessage;
+import org.teleal.cling.model.message.header.ContentTypeHeader;
+import org.teleal.cling.protocol.LatencyHistogram;
+import org.teleal.cling.protocol.ProtocolMetrics;
+import org.teleal.cling.protocol.ProtocolStatistics;
+import org.teleal.cling.protocol.ReceivingSync;
+import org.teleal.cling.registry.Registry;
+import org.teleal.cling.registry.RegistryImpl;
+import org.teleal.cling.registry.RenewalScheduler;
+import org.teleal.cling.transport.EndpointHealth;
+import org.teleal.cling.transport.StreamAdmissionControl;
+import org.teleal.cling.transport.spi.StreamClient;
+import org.teleal.common.util.MimeType;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Logger;
+
+/**
+ * Answers a GET request for the status resource with the current metrics in Prometheus text format.
+ * <p>
+ * The response has the sizes of the registry, the state of the thread pool executors of the
+ * configuration, the connections of the stream client, the stream admission budgets, and a latency
+ * summary of every protocol, action, and device hydration recorded by the {@link ProtocolMetrics}.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class ReceivingStatus extends ReceivingSync<StreamRequestMessage, StreamResponseMessage> {
+
+    private static Logger log = Logger.getLogger(ReceivingStatus.class.getName());
+
+    public static final MimeType CONTENT_TYPE = MimeType.valueOf("text/plain;version=0.0.4;charset=utf-8");
+
+    public ReceivingStatus(UpnpService upnpService, StreamRequestMessage inputMessage) {
+        super(upnpService, inputMessage);
+    }
+
+    protected StreamResponseMessage executeSync() {
+        log.fine("Generating status metrics: " + getInputMessage());
+
+        StringBuilder sb = new StringBuilder();
+        appendRegistry(sb);
+        appendRenewals(sb);
+        appendExecutors(sb);
+        appendStreamClient(sb);
+        appendEndpointHealth(sb);
+        appendAdmissionControl(sb);
+
+        ProtocolMetrics metrics = getUpnpService().getConfiguration().getProtocolMetrics();
+        if (metrics != null) {
+            appendStatistics(sb, "cling_protocol", "protocol", metrics.getProtocolStatistics());
+            appendStatistics(sb, "cling_action", "action", metrics.getActionStatistics());
+            appendStatistics(sb, "cling_device_hydration", "device", metrics.getHydrationStatistics());
+            appendType(sb, "cling_gena_subscriptions_evicted_total", "counter",
+                    "Local subscriptions ended after repeated event delivery failures.");
+            appendSample(sb, "cling_gena_subscriptions_evicted_total", null, null, metrics.getEvictedSubscriptionCount());
+        }
+
+        return new StreamResponseMessage(sb.toString(), new ContentTypeHeader(CONTENT_TYPE));
+    }
+
+    protected void appendRegistry(StringBuilder sb) {
+        Registry registry = getUpnpService().getRegistry();
+
+        appendType(sb, "cling_registry_devices", "gauge", "Root devices in the registry.");
+        appendSample(sb, "cling_registry_devices", "type", "local", registry.getLocalDevices().size());
+        appendSample(sb, "cling_registry_devices", "type", "remote", registry.getRemoteDevices().size());
+
+        appendType(sb, "cling_registry_resources", "gauge", "Local resources served by the stream server.");
+        appendSample(sb, "cling_registry_resources", null, null, registry.getResources().size());
+
+        appendType(sb, "cling_registry_subscriptions", "gauge", "GENA subscriptions in the registry.");
+        appendSample(sb, "cling_registry_subscriptions", "type", "local", registry.getLocalSubscriptions().size());
+        appendSample(sb, "cling_registry_subscriptions", "type", "remote", registry.getRemoteSubscriptions().size());
+    }
+
+    protected void appendRenewals(StringBuilder sb) {
+        if (!(getUpnpService().getRegistry() instanceof RegistryImpl)) return;
+        RenewalScheduler scheduler = ((RegistryImpl) getUpnpService().getRegistry()).getRenewalScheduler();
+
+        appendType(sb, "cling_gena_renewals_in_flight", "gauge", "Outgoing subscription renewals in flight.");
+        appendSample(sb, "cling_gena_renewals_in_flight", null, null, scheduler.getInFlightCount());
+        appendType(sb, "cling_gena_renewal_retries_total", "counter", "Renewals retried after receiving no response.");
+        appendSample(sb, "cling_gena_renewal_retries_total", null, null, scheduler.getRetryCount());
+
+        LatencyHistogram lag = scheduler.getLag();
+        if (lag.getCount() == 0) return;
+        appendType(sb, "cling_gena_renewal_lag_seconds", "summary", "Delay between the scheduled and the actual start of renewals.");
+        sb.append("cling_gena_renewal_lag_seconds{quantile=\"0.5\"} ").append(lag.getPercentileMillis(50) / 1000).append("\n");
+        sb.append("cling_gena_renewal_lag_seconds{quantile=\"0.99\"} ").append(lag.getPercentileMillis(99) / 1000).append("\n");
+        sb.append("cling_gena_renewal_lag_seconds_sum ").append(lag.getMeanMillis() * lag.getCount() / 1000).append("\n");
+        sb.append("cling_gena_renewal_lag_seconds_count ").append(lag.getCount()).append("\n");
+    }
+
+    protected void appendExecutors(StringBuilder sb) {
+        UpnpServiceConfiguration configuration = getUpnpService().getConfiguration();
+        Object[] executors = {
+                "multicast_receiver", configuration.getMulticastReceiverExecutor(),
+                "datagram_io", configuration.getDatagramIOExecutor(),
+                "stream_server", configuration.getStreamServerExecutor(),
+                "async_protocol", configuration.getAsyncProtocolExecutor(),
+                "sync_protocol", configuration.getSyncProtocolExecutor(),
+                "registry_maintainer", configuration.getRegistryMaintainerExecutor(),
+                "registry_listener", configuration.getRegistryListenerExecutor()
+        };
+
+        // Usually several or all of these are the same executor, this reports each of them anyway
+        appendType(sb, "cling_executor_queue_depth", "gauge", "Tasks waiting in the executor queue.");
+        for (int i = 0; i < executors.length; i += 2) {
+            ThreadPoolExecutor executor = toThreadPool((Executor) executors[i + 1]);
+            if (executor != null)
+                appendSample(sb, "cling_executor_queue_depth", "executor", (String) executors[i], executor.getQueue().size());
+        }
+        appendType(sb, "cling_executor_active_threads", "gauge", "Threads executing a task.");
+        for (int i = 0; i < executors.length; i += 2) {
+            ThreadPoolExecutor executor = toThreadPool((Executor) executors[i + 1]);
+            if (executor != null)
+                appendSample(sb, "cling_executor_active_threads", "executor", (String) executors[i], executor.getActiveCount());
+        }
+        appendType(sb, "cling_executor_pool_threads", "gauge", "Threads in the executor pool.");
+        for (int i = 0; i < executors.length; i += 2) {
+            ThreadPoolExecutor executor = toThreadPool((Executor) executors[i + 1]);
+            if (executor != null)
+                appendSample(sb, "cling_executor_pool_threads", "executor", (String) executors[i], executor.getPoolSize());
+        }
+    }
+
+    protected void appendStreamClient(StringBuilder sb) {
+        StreamClient streamClient = getUpnpService().getRouter().getStreamClient();
+        if (streamClient instanceof org.teleal.cling.transport.impl.nio.StreamClientImpl) {
+            org.teleal.cling.transport.impl.nio.StreamClientImpl client =
+                    (org.teleal.cling.transport.impl.nio.StreamClientImpl) streamClient;
+            appendType(sb, "cling_stream_client_queued_requests", "gauge", "Requests waiting for a connection.");
+            appendSample(sb, "cling_stream_client_queued_requests", null, null, client.getQueuedRequestCount());
+            appendType(sb, "cling_stream_client_connections", "gauge", "Open stream client connections.");
+            appendSample(sb, "cling_stream_client_connections", null, null, client.getOpenConnectionCount());
+        } else if (streamClient instanceof org.teleal.cling.transport.impl.apache.StreamClientImpl) {
+            org.teleal.cling.transport.impl.apache.StreamClientImpl client =
+                    (org.teleal.cling.transport.impl.apache.StreamClientImpl) streamClient;
+            appendType(sb, "cling_stream_client_connections", "gauge", "Open stream client connections.");
+            appendSample(sb, "cling_stream_client_connections", null, null, client.getConnectionsInPool());
+        }
+    }
+
+    protected void appendEndpointHealth(StringBuilder sb) {
+        EndpointHealth endpointHealth = getUpnpService().getConfiguration().getEndpointHealth();
+        if (endpointHealth == null) return;
+
+        appendType(sb, "cling_stream_client_open_circuits", "gauge", "Remote hosts failing fast after repeated failures.");
+        appendSample(sb, "cling_stream_client_open_circuits", null, null, endpointHealth.getOpenCount());
+    }
+
+    protected void appendAdmissionControl(StringBuilder sb) {
+        StreamAdmissionControl admissionControl = getUpnpService().getConfiguration().getStreamAdmissionControl();
+        if (admissionControl == null) return;
+
+        appendType(sb, "cling_stream_admission_in_flight", "gauge", "Admitted stream requests in flight.");
+        for (StreamAdmissionControl.RequestClass requestClass : StreamAdmissionControl.RequestClass.values()) {
+            appendSample(sb, "cling_stream_admission_in_flight", "class", requestClass.name().toLowerCase(),
+                    admissionControl.getInFlight(requestClass));
+        }
+        appendType(sb, "cling_stream_admission_rejected_total", "counter", "Stream requests rejected with 503.");
+        for (StreamAdmissionControl.RequestClass requestClass : StreamAdmissionControl.RequestClass.values()) {
+            appendSample(sb, "cling_stream_admission_rejected_total", "class", requestClass.name().toLowerCase(),
+                    admissionControl.getRejectedCount(requestClass));
+        }
+    }
+
+    protected void appendStatistics(StringBuilder sb, String metric, String label,
+                                    Map<String, ProtocolStatistics> statistics) {
+        if (statistics.isEmpty()) return;
+
+        String latency = metric + "_latency_seconds";
+        appendType(sb, latency, "summary", "Latency of completed " + label + " executions.");
+        for (ProtocolStatistics s : statistics.values()) {
+            String name = escape(s.getName());
+            appendQuantile(sb, latency, label, name, "0.5", s.getPercentile50Millis());
+            appendQuantile(sb, latency, label, name, "0.99", s.getPercentile99Millis());
+            appendQuantile(sb, latency, label, name, "0.999", s.getPercentile999Millis());
+            sb.append(latency).append("_sum{").append(label).append("=\"").append(name).append("\"} ")
+                    .append(s.getMeanMillis() * s.getCount() / 1000).append("\n");
+            sb.append(latency).append("_count{").append(label).append("=\"").append(name).append("\"} ")
+                    .append(s.getCount()).append("\n");
+        }
+
+        String errors = metric + "_errors_total";
+        appendType(sb, errors, "counter", "Failed " + label + " executions.");
+        for (ProtocolStatistics s : statistics.values()) {
+            appendSample(sb, errors, label, s.getName(), s.getErrorCount());
+        }
+    }
+
+    protected void appendType(StringBuilder sb, String metric, String type, String help) {
+        sb.append("# HELP ").append(metric).append(" ").append(help).append("\n");
+        sb.append("# TYPE ").append(metric).append(" ").append(type).append("\n");
+    }
+
+    protected void appendSample(StringBuilder sb, String metric, String label, String value, long sample) {
+        sb.append(metric);
+        if (label != null) {
+            sb.append("{").append(label).append("=\"").append(escape(value)).append("\"}");
+        }
+        sb.append(" ").append(sample).append("\n");
+    }
+
+    protected void appendQuantile(StringBuilder sb, String metric, String label, String escapedValue,
+                                  String quantile, double millis) {
+        sb.append(metric).append("{").append(label).append("=\"").append(escapedValue)
+                .append("\",quantile=\"").append(quantile).append("\"} ")
+                .append(millis / 1000).append("\n");
+    }
+
+    protected ThreadPoolExecutor toThreadPool(Executor executor) {
+        return executor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) executor : null;
+    }
+
+    protected String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
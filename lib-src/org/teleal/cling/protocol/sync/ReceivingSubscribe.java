@@ -20,7 +20,6 @@ package org.teleal.cling.protocol.sync;
 import org.teleal.cling.model.Resource;
 import org.teleal.cling.model.meta.DeviceService;
 import org.teleal.cling.model.gena.LocalGENASubscription;
-import org.teleal.cling.model.gena.CancelReason;
 import org.teleal.cling.model.message.StreamRequestMessage;
 import org.teleal.cling.model.message.StreamResponseMessage;
 import org.teleal.cling.model.message.UpnpResponse;
@@ -117,25 +116,9 @@ public class ReceivingSubscribe extends ReceivingSync<StreamRequestMessage, Outg
         Integer timeoutSeconds = requestMessage.getRequestedTimeoutSeconds();
 
         try {
-            subscription = new LocalGENASubscription(deviceService, timeoutSeconds, requestMessage.getCallbackURLs()) {
-                public void failed(Exception ex) {
-                    // This means we couldn't read the initial state of the service in constructor
-                    throw new RuntimeException(ex);
-                }
-
-                public void established() {
-                }
-
-                public void ended(CancelReason reason) {
-                }
-
-                public void eventReceived() {
-                    // The only thing we are interested in, sending an event when the state changes
-                    getUpnpService().getConfiguration().getSyncProtocolExecutor().execute(
-                            getUpnpService().getProtocolFactory().createSendingEvent(this)
-                    );
-                }
-            };
+            subscription = new IncomingSubscription(
+                    getUpnpService(), deviceService, timeoutSeconds, requestMessage.getCallbackURLs()
+            );
         } catch (RuntimeException ex) {
             log.warning("Could not read (initial) state of service for event subscription: " + ex);
             return new OutgoingSubscribeResponseMessage(UpnpResponse.Status.INTERNAL_SERVER_ERROR);
@@ -28,10 +28,14 @@ import org.teleal.cling.model.message.UpnpResponse;
 import org.teleal.cling.model.message.control.IncomingActionResponseMessage;
 import org.teleal.cling.model.message.control.OutgoingActionRequestMessage;
 import org.teleal.cling.model.types.ErrorCode;
+import org.teleal.cling.transport.spi.StreamResponseCallback;
 import org.teleal.cling.transport.spi.UnsupportedDataException;
+import org.teleal.cling.protocol.ProtocolMetrics;
 import org.teleal.cling.protocol.SendingSync;
 
 import java.net.URL;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 
 public class SendingAction extends SendingSync<OutgoingActionRequestMessage, IncomingActionResponseMessage> {
@@ -40,31 +44,201 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
 
     final protected ActionInvocation actionInvocation;
 
+    private Future<StreamResponseMessage> pendingRequest;
+    private boolean cancelled;
+    private long asyncStart;
+
     public SendingAction(UpnpService upnpService, ActionInvocation actionInvocation, URL controlURL) {
         super(upnpService, new OutgoingActionRequestMessage(actionInvocation, controlURL));
         this.actionInvocation = actionInvocation;
     }
 
     protected IncomingActionResponseMessage executeSync() {
-        return invokeRemote(getInputMessage());
+        long start = System.nanoTime();
+        IncomingActionResponseMessage responseMessage = invokeRemote(getInputMessage());
+        ProtocolMetrics metrics = getUpnpService().getConfiguration().getProtocolMetrics();
+        if (metrics != null) {
+            metrics.recordAction(
+                    ProtocolMetrics.Direction.OUTGOING,
+                    actionInvocation.getAction().getService().getDeviceService().getServiceType(),
+                    actionInvocation.getAction().getName(),
+                    System.nanoTime() - start,
+                    isFailed(responseMessage)
+            );
+        }
+        return responseMessage;
     }
 
     protected IncomingActionResponseMessage invokeRemote(OutgoingActionRequestMessage requestMessage) {
         Device device = actionInvocation.getAction().getService().getDeviceService().getDevice();
 
         log.fine("Sending outgoing action call '" + actionInvocation.getAction().getName() + "' to remote service of: " + device);
-        IncomingActionResponseMessage responseMessage = null;
+        StreamResponseMessage streamResponse;
+        try {
+            streamResponse = sendRemoteRequest(requestMessage);
+        } catch (ActionException ex) {
+            return remoteInvocationFailed(ex, null);
+        }
+        return receivedRemoteResponse(requestMessage, streamResponse);
+    }
+
+    /**
+     * Sends the action request without blocking the calling thread.
+     * <p>
+     * The given <tt>Runnable</tt> is called once the invocation completed, with the result available
+     * from {@link #getOutputMessage()}, exactly as after a synchronous {@link #run()}. It is called
+     * on a thread of the sync protocol executor, not on the transport thread that received the
+     * response, and not at all if the invocation has been cancelled.
+     * </p>
+     */
+    public void executeAsync(Runnable completion) {
+        asyncStart = System.nanoTime();
+        invokeRemoteAsync(getInputMessage(), completion);
+    }
+
+    /**
+     * Aborts an outstanding asynchronous invocation, the connection is closed if possible.
+     */
+    public void cancel() {
+        Future<StreamResponseMessage> request;
+        synchronized (this) {
+            cancelled = true;
+            request = pendingRequest;
+            pendingRequest = null;
+        }
+        if (request != null) {
+            request.cancel(true);
+        }
+    }
+
+    synchronized public boolean isCancelled() {
+        return cancelled;
+    }
+
+    protected void invokeRemoteAsync(final OutgoingActionRequestMessage requestMessage, final Runnable completion) {
+        Device device = actionInvocation.getAction().getService().getDeviceService().getDevice();
+
+        log.fine("Sending asynchronous action call '" + actionInvocation.getAction().getName() + "' to remote service of: " + device);
         try {
+            writeRemoteRequest(requestMessage);
+        } catch (ActionException ex) {
+            completed(remoteInvocationFailed(ex, null), completion);
+            return;
+        }
+
+        Future<StreamResponseMessage> request = getUpnpService().getRouter().send(
+                requestMessage,
+                new StreamResponseCallback() {
+                    public void responseReceived(StreamResponseMessage streamResponse) {
+                        if (isCancelled()) return;
+
+                        // Reading the SOAP body and completing the invocation would stall this (transport) thread
+                        ResponseHandler handler = new ResponseHandler(requestMessage, streamResponse, completion);
+                        try {
+                            getUpnpService().getConfiguration().getSyncProtocolExecutor().execute(handler);
+                        } catch (RejectedExecutionException ex) {
+                            handler.rejected();
+                        }
+                    }
+                }
+        );
+
+        boolean cancel;
+        synchronized (this) {
+            cancel = cancelled;
+            if (!cancel) pendingRequest = request;
+        }
+        if (cancel) {
+            request.cancel(true);
+        }
+    }
 
-            StreamResponseMessage streamResponse = sendRemoteRequest(requestMessage);
+    protected void completed(IncomingActionResponseMessage responseMessage, Runnable completion) {
+        synchronized (this) {
+            if (cancelled) return;
+            pendingRequest = null;
+            outputMessage = responseMessage;
+        }
+        ProtocolMetrics metrics = getUpnpService().getConfiguration().getProtocolMetrics();
+        if (metrics != null) {
+            long nanos = System.nanoTime() - asyncStart;
+            boolean failed = isFailed(responseMessage);
+            metrics.record(getClass(), nanos, failed);
+            metrics.recordAction(
+                    ProtocolMetrics.Direction.OUTGOING,
+                    actionInvocation.getAction().getService().getDeviceService().getServiceType(),
+                    actionInvocation.getAction().getName(),
+                    nanos,
+                    failed
+            );
+        }
+        completion.run();
+    }
 
-            if (streamResponse == null) {
-                log.fine("No connection or no no response received, returning null");
-                actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, "Connection error or no response received"));
-                return null;
+    /**
+     * Handles the response of an asynchronous invocation on a thread of the sync protocol executor.
+     */
+    public class ResponseHandler implements Runnable {
+
+        protected final OutgoingActionRequestMessage requestMessage;
+        protected final StreamResponseMessage streamResponse;
+        protected final Runnable completion;
+
+        public ResponseHandler(OutgoingActionRequestMessage requestMessage,
+                               StreamResponseMessage streamResponse,
+                               Runnable completion) {
+            this.requestMessage = requestMessage;
+            this.streamResponse = streamResponse;
+            this.completion = completion;
+        }
+
+        public void run() {
+            if (isCancelled()) return;
+
+            // Retry without blocking this thread
+            if (streamResponse != null) {
+                IncomingActionResponseMessage responseMessage = new IncomingActionResponseMessage(streamResponse);
+                try {
+                    if (!responseMessage.isFailedNonRecoverable() && isFailedTryAgain(responseMessage, requestMessage)) {
+                        log.fine("Received 'Method Not Supported', trying again with M-POST");
+                        invokeRemoteAsync(createTryAgainRequest(requestMessage), completion);
+                        return;
+                    }
+                } catch (ActionException ex) {
+                    completed(remoteInvocationFailed(ex, responseMessage), completion);
+                    return;
+                }
             }
 
-            responseMessage = new IncomingActionResponseMessage(streamResponse);
+            completed(receivedRemoteResponse(requestMessage, streamResponse), completion);
+        }
+
+        public void rejected() {
+            completed(
+                    remoteInvocationFailed(
+                            new ActionException(ErrorCode.ACTION_FAILED, "Thread pool saturated, response not handled"),
+                            null
+                    ),
+                    completion
+            );
+        }
+    }
+
+    protected boolean isFailed(IncomingActionResponseMessage responseMessage) {
+        return responseMessage == null || responseMessage.getOperation().isFailed() ||
+                actionInvocation.getFailure() != null;
+    }
+
+    protected IncomingActionResponseMessage receivedRemoteResponse(OutgoingActionRequestMessage requestMessage,
+                                                                   StreamResponseMessage streamResponse) {
+        if (streamResponse == null) {
+            log.fine("No connection or no no response received, returning null");
+            actionInvocation.setFailure(new ActionException(ErrorCode.ACTION_FAILED, "Connection error or no response received"));
+            return null;
+        }
+
+        IncomingActionResponseMessage responseMessage = new IncomingActionResponseMessage(streamResponse);
+        try {
 
             if (responseMessage.isFailedNonRecoverable()) {
                 log.fine("Response was a non-recoverable failure: " + responseMessage);
@@ -85,15 +259,18 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
 
             return responseMessage;
 
-
         } catch (ActionException ex) {
-            log.fine("Remote action invocation failed, returning Internal Server Error message: " + ex.getMessage());
-            actionInvocation.setFailure(ex);
-            if (responseMessage == null || !responseMessage.getOperation().isFailed()) {
-                return new IncomingActionResponseMessage(new UpnpResponse(UpnpResponse.Status.INTERNAL_SERVER_ERROR));
-            } else {
-                return responseMessage;
-            }
+            return remoteInvocationFailed(ex, responseMessage);
+        }
+    }
+
+    protected IncomingActionResponseMessage remoteInvocationFailed(ActionException ex, IncomingActionResponseMessage responseMessage) {
+        log.fine("Remote action invocation failed, returning Internal Server Error message: " + ex.getMessage());
+        actionInvocation.setFailure(ex);
+        if (responseMessage == null || !responseMessage.getOperation().isFailed()) {
+            return new IncomingActionResponseMessage(new UpnpResponse(UpnpResponse.Status.INTERNAL_SERVER_ERROR));
+        } else {
+            return responseMessage;
         }
     }
 
@@ -115,13 +292,16 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
     }
 
     protected StreamResponseMessage sendRemoteRequest(OutgoingActionRequestMessage requestMessage) throws ActionException {
+        writeRemoteRequest(requestMessage);
+
+        log.fine("Sending SOAP body of message as stream to remote device");
+        return getUpnpService().getRouter().send(requestMessage);
+    }
+
+    protected void writeRemoteRequest(OutgoingActionRequestMessage requestMessage) throws ActionException {
         try {
             log.fine("Writing SOAP request body of: " + requestMessage);
             getUpnpService().getConfiguration().getSoapActionProcessor().writeBody(requestMessage, actionInvocation);
-
-            log.fine("Sending SOAP body of message as stream to remote device");
-            return getUpnpService().getRouter().send(requestMessage);
-
         } catch (UnsupportedDataException ex) {
             log.fine("Error writing SOAP body, cause: " + ex.getCause());
             throw new ActionException(ErrorCode.ACTION_FAILED, "Error writing request message. " + ex.getMessage());
@@ -152,13 +332,14 @@ public class SendingAction extends SendingSync<OutgoingActionRequestMessage, Inc
 
     protected IncomingActionResponseMessage tryAgain(OutgoingActionRequestMessage originalRequestMessage) throws ActionException {
         log.fine("Received 'Method Not Supported', trying again with M-POST");
-        OutgoingActionRequestMessage mpostRequestMessage =
-                new OutgoingActionRequestMessage(
-                        actionInvocation.getAction(),
-                        new UpnpRequest(UpnpRequest.Method.MPOST, originalRequestMessage.getOperation().getURI())
-                );
+        return invokeRemote(createTryAgainRequest(originalRequestMessage));
+    }
 
-        return invokeRemote(mpostRequestMessage);
+    protected OutgoingActionRequestMessage createTryAgainRequest(OutgoingActionRequestMessage originalRequestMessage) {
+        return new OutgoingActionRequestMessage(
+                actionInvocation.getAction(),
+                new UpnpRequest(UpnpRequest.Method.MPOST, originalRequestMessage.getOperation().getURI())
+        );
     }
 
 }
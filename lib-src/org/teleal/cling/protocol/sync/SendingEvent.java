@@ -19,11 +19,13 @@ package org.teleal.cling.protocol.sync;
 
 import java.util.logging.Logger;
 import org.teleal.cling.UpnpService;
+import org.teleal.cling.model.gena.CancelReason;
 import org.teleal.cling.model.gena.LocalGENASubscription;
 import org.teleal.cling.model.message.StreamResponseMessage;
 import org.teleal.cling.model.message.gena.OutgoingEventRequestMessage;
 import org.teleal.cling.model.types.UnsignedIntegerFourBytes;
 import org.teleal.cling.protocol.SendingSync;
+import org.teleal.cling.transport.EndpointHealth;
 
 import java.net.URL;
 
@@ -32,6 +34,7 @@ public class SendingEvent extends SendingSync<OutgoingEventRequestMessage, Strea
 
     protected static Logger log = Logger.getLogger(SendingEvent.class.getName());
 
+    final protected LocalGENASubscription subscription;
     final protected String subscriptionId;
     final protected OutgoingEventRequestMessage[] requestMessages;
     final protected UnsignedIntegerFourBytes currentSequence;
@@ -41,6 +44,7 @@ public class SendingEvent extends SendingSync<OutgoingEventRequestMessage, Strea
 
         // TODO: Ugly design! It is critical (concurrency) that we prepare the event messages here, in the constructor thread!
 
+        this.subscription = subscription;
         subscriptionId = subscription.getSubscriptionId();
 
         requestMessages = new OutgoingEventRequestMessage[subscription.getCallbackURLs().size()];
@@ -56,6 +60,10 @@ public class SendingEvent extends SendingSync<OutgoingEventRequestMessage, Strea
         // Always increment sequence now, as (its value) has already been set on the headers and the
         // next event will use the incremented value
         subscription.incrementSequence();
+
+        if (getUpnpService().getConfiguration().getLocalSubscriptionStore() != null) {
+            getUpnpService().getConfiguration().getLocalSubscriptionStore().putSequence(subscription);
+        }
     }
 
     protected StreamResponseMessage executeSync() {
@@ -63,6 +71,8 @@ public class SendingEvent extends SendingSync<OutgoingEventRequestMessage, Strea
         log.fine("Sending event for subscription: " + subscriptionId);
 
         StreamResponseMessage lastResponse = null;
+        boolean delivered = false;
+        boolean attempted = false;
 
         for (OutgoingEventRequestMessage requestMessage : requestMessages) {
 
@@ -73,10 +83,30 @@ public class SendingEvent extends SendingSync<OutgoingEventRequestMessage, Strea
             }
 
 
+            // An open circuit refuses the request without trying, that's no failed delivery
+            boolean circuitOpen = isCircuitOpen(requestMessage);
+
             // Send request
             lastResponse = getUpnpService().getRouter().send(requestMessage);
             log.fine("Received event callback response: " + lastResponse);
 
+            if (lastResponse != null && !lastResponse.getOperation().isFailed()) {
+                delivered = true;
+            } else if (!circuitOpen) {
+                attempted = true;
+            }
+        }
+
+        if (delivered) {
+            subscription.deliverySucceeded();
+        } else if (!attempted) {
+            log.fine("Circuit of all callback hosts is open, not counting failed delivery: " + subscriptionId);
+        } else {
+            int failures = subscription.deliveryFailed();
+            int maxFailures = getUpnpService().getConfiguration().getMaxEventDeliveryFailures();
+            if (maxFailures > 0 && failures >= maxFailures) {
+                evict(failures);
+            }
         }
 
         // It's not really used, so just return the last one - we have only one callback URL most of the
@@ -84,4 +114,20 @@ public class SendingEvent extends SendingSync<OutgoingEventRequestMessage, Strea
         return lastResponse;
 
     }
+
+    protected boolean isCircuitOpen(OutgoingEventRequestMessage requestMessage) {
+        EndpointHealth endpointHealth = getUpnpService().getConfiguration().getEndpointHealth();
+        return endpointHealth != null && endpointHealth.isOpen(requestMessage.getUri().getHost());
+    }
+
+    protected void evict(int failures) {
+        // Only the first event that reaches the limit ends the subscription
+        if (!getUpnpService().getRegistry().removeLocalSubscription(subscription)) return;
+
+        log.info("Ending subscription after " + failures + " failed event deliveries: " + subscriptionId);
+        subscription.end(CancelReason.DELIVERY_FAILED);
+        if (getUpnpService().getConfiguration().getProtocolMetrics() != null) {
+            getUpnpService().getConfiguration().getProtocolMetrics().recordEviction();
+        }
+    }
 }
\ No newline at end of file
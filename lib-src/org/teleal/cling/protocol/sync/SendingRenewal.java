@@ -33,10 +33,20 @@ public class SendingRenewal extends SendingSync<OutgoingRenewalRequestMessage, I
     protected static Logger log = Logger.getLogger(SendingRenewal.class.getName());
 
     final protected RemoteGENASubscription subscription;
+    final protected boolean lastAttempt;
 
     public SendingRenewal(UpnpService upnpService, RemoteGENASubscription subscription) {
+        this(upnpService, subscription, true);
+    }
+
+    /**
+     * @param lastAttempt <tt>false</tt> if the subscription should be kept when no response is received,
+     *                    because the renewal will be retried.
+     */
+    public SendingRenewal(UpnpService upnpService, RemoteGENASubscription subscription, boolean lastAttempt) {
         super(upnpService, new OutgoingRenewalRequestMessage(subscription));
         this.subscription = subscription;
+        this.lastAttempt = lastAttempt;
     }
 
     protected IncomingSubscribeResponseMessage executeSync() {
@@ -44,6 +54,11 @@ public class SendingRenewal extends SendingSync<OutgoingRenewalRequestMessage, I
 
         StreamResponseMessage response = getUpnpService().getRouter().send(getInputMessage());
 
+        if (response == null && !lastAttempt) {
+            log.fine("No response received for subscription renewal, it will be retried");
+            return null;
+        }
+
         if (response == null) {
             log.fine("Subscription renewal failed, no response received");
             getUpnpService().getRegistry().removeRemoteSubscription(subscription);
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.teleal.cling.registry;
+
+import java.util.List;
+
+/**
+ * A listener that receives all pending registry changes in one call.
+ * <p>
+ * The registry calls {@link #registryChanged(Registry, java.util.List)} instead of the single event
+ * methods of {@link RegistryListener}. Events are in the order they occurred, and the next batch is
+ * not delivered before this call returns.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public interface BatchRegistryListener extends RegistryListener {
+
+    public void registryChanged(Registry registry, List<RegistryEvent> events);
+
+}
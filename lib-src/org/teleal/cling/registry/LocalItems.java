@@ -20,9 +20,13 @@ package org.teleal.cling.registry;
 import org.teleal.cling.model.Resource;
 import org.teleal.cling.model.gena.CancelReason;
 import org.teleal.cling.model.gena.LocalGENASubscription;
+import org.teleal.cling.model.meta.DeviceService;
 import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.meta.LocalService;
 import org.teleal.cling.model.types.UDN;
+import org.teleal.cling.model.types.UnsignedIntegerFourBytes;
 import org.teleal.cling.protocol.SendingAsync;
+import org.teleal.cling.protocol.sync.IncomingSubscription;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -69,10 +73,49 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
 
         advertiseAlive(localDevice);
 
-        for (RegistryListener listener : registry.getListeners()) {
-            listener.localDeviceAdded(registry, localDevice);
-        }
+        restoreSubscriptions(localDevice);
+
+        registry.fireEvent(new RegistryEvent(RegistryEvent.Type.LOCAL_DEVICE_ADDED, localDevice));
+
+    }
+
+    protected void restoreSubscriptions(LocalDevice localDevice) {
+        LocalSubscriptionStore store = registry.getConfiguration().getLocalSubscriptionStore();
+        if (store == null || registry.getProtocolFactory() == null) return;
+
+        for (LocalSubscriptionStore.Record record : store.takeRestorable(localDevice)) {
+            LocalDevice device = localDevice.findDevice(record.getUdn());
+            DeviceService<LocalService> deviceService = device.findDeviceService(record.getServiceId());
+            if (deviceService == null || !deviceService.getDevice().getIdentity().getUdn().equals(record.getUdn())) {
+                log.fine("Service of stored subscription no longer available: " + record);
+                continue;
+            }
+
+            LocalGENASubscription subscription;
+            try {
+                subscription = new IncomingSubscription(
+                        registry.getProtocolFactory().getUpnpService(),
+                        deviceService,
+                        record.getSubscriptionId(),
+                        new UnsignedIntegerFourBytes(record.getSequence()),
+                        record.getRemainingSeconds(),
+                        record.getCallbackURLs()
+                );
+            } catch (RuntimeException ex) {
+                log.warning("Could not read state of service for restored subscription: " + ex);
+                continue;
+            }
 
+            log.fine("Restoring subscription: " + subscription);
+            addSubscription(subscription);
+            subscription.registerOnService();
+            subscription.establish();
+
+            // The state might have changed while we were gone, the event continues the sequence
+            registry.executeAsyncProtocol(
+                    registry.getProtocolFactory().createSendingEvent(subscription)
+            );
+        }
     }
 
     Collection<LocalDevice> get() {
@@ -113,6 +156,9 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
                 if (subscriptionForUDN.equals(registeredDevice.getIdentity().getUdn())) {
                     log.fine("Removing incoming subscription: " + incomingSubscription.getKey());
                     it.remove();
+                    if (!shuttingDown && registry.getConfiguration().getLocalSubscriptionStore() != null) {
+                        registry.getConfiguration().getLocalSubscriptionStore().remove(incomingSubscription.getItem());
+                    }
                     if (!shuttingDown) {
                         registry.getConfiguration().getRegistryListenerExecutor().execute(
                                 new Runnable() {
@@ -128,15 +174,7 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
             advertiseByebye(localDevice, !shuttingDown);
 
             if (!shuttingDown) {
-                for (final RegistryListener listener : registry.getListeners()) {
-                    registry.getConfiguration().getRegistryListenerExecutor().execute(
-                            new Runnable() {
-                                public void run() {
-                                    listener.localDeviceRemoved(registry, localDevice);
-                                }
-                            }
-                    );
-                }
+                registry.fireEvent(new RegistryEvent(RegistryEvent.Type.LOCAL_DEVICE_REMOVED, localDevice));
             }
 
             return true;
@@ -145,6 +183,25 @@ class LocalItems extends RegistryItems<LocalDevice, LocalGENASubscription> {
         return false;
     }
 
+    @Override
+    void addSubscription(LocalGENASubscription subscription) {
+        super.addSubscription(subscription);
+        if (registry.getConfiguration().getLocalSubscriptionStore() != null) {
+            registry.getConfiguration().getLocalSubscriptionStore().put(subscription);
+        }
+    }
+
+    @Override
+    boolean removeSubscription(LocalGENASubscription subscription) {
+        if (super.removeSubscription(subscription)) {
+            if (registry.getConfiguration().getLocalSubscriptionStore() != null) {
+                registry.getConfiguration().getLocalSubscriptionStore().remove(subscription);
+            }
+            return true;
+        }
+        return false;
+    }
+
     void removeAll() {
         removeAll(false);
     }
@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.registry;
+
+import org.teleal.cling.model.gena.LocalGENASubscription;
+import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.types.ServiceId;
+import org.teleal.cling.model.types.UDN;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the subscriptions to local services in an append-only log file, so they survive a restart.
+ * <p>
+ * Every line of the log is one change: a subscription was added or renewed, its event sequence
+ * advanced, or it was removed. When the log is opened, the changes are replayed and the log is
+ * rewritten with only the subscriptions that have not expired. These subscriptions are restored
+ * when their local device is added to the registry again, with the same subscription identifier,
+ * callback URLs and event sequence, so subscribers continue to receive events without subscribing
+ * again. The log is also compacted when it has grown much larger than the number of subscriptions.
+ * </p>
+ * <p>
+ * A write is flushed to the operating system but not synchronized with the disk, a subscription
+ * lost in a crash will be renewed by its subscriber with a new subscription. Sending an event
+ * doesn't write to the log: advanced event sequences are only kept in memory and written with
+ * {@link #flush()}, which the registry calls during maintenance, and when the store is closed.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class LocalSubscriptionStore {
+
+    private static Logger log = Logger.getLogger(LocalSubscriptionStore.class.getName());
+
+    public static final int MIN_COMPACTION_LINES = 1000;
+
+    protected final File file;
+
+    protected final Map<String, Record> records = new LinkedHashMap();
+    protected final Set<String> restorable = new HashSet();
+    protected final Set<String> unwrittenSequences = new LinkedHashSet();
+
+    protected Writer writer;
+    protected int lines;
+
+    public LocalSubscriptionStore(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the log, drops expired subscriptions, and opens the log for writing.
+     */
+    synchronized public void open() throws IOException {
+        if (writer != null) return;
+
+        records.clear();
+        restorable.clear();
+        if (file.exists()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        replay(line.split(" "));
+                    } catch (Exception ex) {
+                        // The last line might have been written partially
+                        log.warning("Ignoring invalid line in subscription log '" + file + "': " + line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        long currentTime = System.currentTimeMillis();
+        Iterator<Record> it = records.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().getExpirationMillis() <= currentTime) {
+                it.remove();
+            }
+        }
+        restorable.addAll(records.keySet());
+        log.fine("Restorable local subscriptions in '" + file + "': " + restorable.size());
+
+        compact();
+    }
+
+    synchronized public void close() {
+        flush();
+        closeWriter();
+    }
+
+    synchronized public void put(LocalGENASubscription subscription) {
+        Record record = new Record(
+                subscription.getSubscriptionId(),
+                subscription.getDeviceService().getDevice().getIdentity().getUdn(),
+                subscription.getDeviceService().getServiceId(),
+                System.currentTimeMillis() + subscription.getActualDurationSeconds() * 1000l,
+                subscription.getCurrentSequence().getValue(),
+                subscription.getCallbackURLs()
+        );
+        records.put(record.getSubscriptionId(), record);
+        restorable.remove(record.getSubscriptionId());
+        unwrittenSequences.remove(record.getSubscriptionId());
+        write(toLine(record));
+    }
+
+    /**
+     * Records the sequence number of the next event of the subscription, it is written with the
+     * next {@link #flush()}.
+     */
+    synchronized public void putSequence(LocalGENASubscription subscription) {
+        Record record = records.get(subscription.getSubscriptionId());
+        if (record == null) return;
+        record.sequence = subscription.getCurrentSequence().getValue();
+        unwrittenSequences.add(record.getSubscriptionId());
+    }
+
+    /**
+     * Writes the sequence numbers recorded since the last flush, one line per subscription.
+     */
+    synchronized public void flush() {
+        if (unwrittenSequences.isEmpty()) return;
+        List<String> changes = new ArrayList();
+        for (String subscriptionId : unwrittenSequences) {
+            Record record = records.get(subscriptionId);
+            if (record != null) {
+                changes.add("Q " + record.getSubscriptionId() + " " + record.getSequence());
+            }
+        }
+        unwrittenSequences.clear();
+        write(changes.toArray(new String[changes.size()]));
+    }
+
+    synchronized public void remove(LocalGENASubscription subscription) {
+        restorable.remove(subscription.getSubscriptionId());
+        unwrittenSequences.remove(subscription.getSubscriptionId());
+        if (records.remove(subscription.getSubscriptionId()) != null) {
+            write("R " + subscription.getSubscriptionId());
+        }
+    }
+
+    /**
+     * @return The stored subscriptions that have not expired, to services of the given device or
+     *         its embedded devices. They are not returned again.
+     */
+    synchronized public List<Record> takeRestorable(LocalDevice device) {
+        List<Record> result = new ArrayList();
+        long currentTime = System.currentTimeMillis();
+        Iterator<String> it = restorable.iterator();
+        while (it.hasNext()) {
+            Record record = records.get(it.next());
+            if (device.findDevice(record.getUdn()) == null) continue;
+            it.remove();
+            if (record.getExpirationMillis() > currentTime) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    /* ############################################################################################################ */
+
+    protected void replay(String[] fields) throws Exception {
+        if (fields[0].equals("S")) {
+            List<URL> callbackURLs = new ArrayList();
+            for (int i = 6; i < fields.length; i++) {
+                callbackURLs.add(new URL(fields[i]));
+            }
+            records.put(fields[1], new Record(
+                    fields[1],
+                    UDN.valueOf(fields[2]),
+                    ServiceId.valueOf(fields[3]),
+                    Long.parseLong(fields[4]),
+                    Long.parseLong(fields[5]),
+                    callbackURLs
+            ));
+        } else if (fields[0].equals("Q")) {
+            Record record = records.get(fields[1]);
+            if (record != null) {
+                record.sequence = Long.parseLong(fields[2]);
+            }
+        } else if (fields[0].equals("R")) {
+            records.remove(fields[1]);
+        } else {
+            throw new IllegalArgumentException("Unknown change: " + fields[0]);
+        }
+    }
+
+    protected String toLine(Record record) {
+        StringBuilder line = new StringBuilder();
+        line.append("S ").append(record.getSubscriptionId())
+                .append(" ").append(record.getUdn())
+                .append(" ").append(record.getServiceId())
+                .append(" ").append(record.getExpirationMillis())
+                .append(" ").append(record.getSequence());
+        for (URL url : record.getCallbackURLs()) {
+            line.append(" ").append(url);
+        }
+        return line.toString();
+    }
+
+    protected void write(String... changes) {
+        if (writer == null || changes.length == 0) return;
+        try {
+            for (String line : changes) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+            lines += changes.length;
+            if (lines > MIN_COMPACTION_LINES && lines > records.size() * 10) {
+                compact();
+            }
+        } catch (IOException ex) {
+            log.warning("Could not write subscription log '" + file + "', closing it: " + ex);
+            closeWriter();
+        }
+    }
+
+    protected void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException ex) {
+            log.warning("Could not close subscription log '" + file + "': " + ex);
+        }
+        writer = null;
+    }
+
+    /**
+     * Rewrites the log with one line per stored subscription, replacing the old log atomically.
+     */
+    protected void compact() throws IOException {
+        closeWriter();
+        unwrittenSequences.clear();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+        lines = 0;
+        try {
+            for (Record record : records.values()) {
+                out.write(toLine(record));
+                out.write('\n');
+                lines++;
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace subscription log '" + file + "' with: " + tmp);
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+    }
+
+    /**
+     * A subscription as read from the log.
+     */
+    public static class Record {
+
+        final private String subscriptionId;
+        final private UDN udn;
+        final private ServiceId serviceId;
+        final private long expirationMillis;
+        final private List<URL> callbackURLs;
+        private long sequence;
+
+        public Record(String subscriptionId, UDN udn, ServiceId serviceId,
+                      long expirationMillis, long sequence, List<URL> callbackURLs) {
+            this.subscriptionId = subscriptionId;
+            this.udn = udn;
+            this.serviceId = serviceId;
+            this.expirationMillis = expirationMillis;
+            this.sequence = sequence;
+            this.callbackURLs = Collections.unmodifiableList(new ArrayList(callbackURLs));
+        }
+
+        public String getSubscriptionId() {
+            return subscriptionId;
+        }
+
+        public UDN getUdn() {
+            return udn;
+        }
+
+        public ServiceId getServiceId() {
+            return serviceId;
+        }
+
+        public long getExpirationMillis() {
+            return expirationMillis;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public List<URL> getCallbackURLs() {
+            return callbackURLs;
+        }
+
+        /**
+         * @return The remaining seconds of the subscription, rounded up.
+         */
+        public int getRemainingSeconds() {
+            long remaining = expirationMillis - System.currentTimeMillis();
+            return remaining > 0 ? (int) ((remaining + 999) / 1000) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + getClass().getSimpleName() + ") " + getSubscriptionId() + " " + getServiceId();
+        }
+    }
+
+}
@@ -34,6 +34,7 @@ import org.teleal.cling.protocol.ProtocolFactory;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.List;
 
 
 public interface Registry {
@@ -49,10 +50,28 @@ public interface Registry {
 
     public void addListener(RegistryListener listener);
 
+    /**
+     * @param expirationRefreshes <tt>true</tt> if the listener should be notified when a remote device
+     *                            announces itself again without any change, only extending its expiration.
+     */
+    public void addListener(RegistryListener listener, boolean expirationRefreshes);
+
     public void removeListener(RegistryListener listener);
 
     public Collection<RegistryListener> getListeners();
 
+    /**
+     * @return The root devices after the most recent change, shared by all readers until the
+     *         registry changes again.
+     */
+    public RegistrySnapshot getSnapshot();
+
+    /**
+     * @return The changes with a sequence number greater than the given number, oldest first, or
+     *         <tt>null</tt> if they are no longer retained and a new snapshot has to be read.
+     */
+    public List<RegistryEvent> getChangesSince(long sequence);
+
     // #################################################################################################
 
     public void addDevice(LocalDevice localDevice);
@@ -83,6 +102,12 @@ public interface Registry {
 
     public DeviceService getDeviceService(ServiceReference serviceReference);
 
+    /**
+     * @return <tt>true</tt> if requests to the device currently fail immediately, because it did not
+     *         respond to the last requests. Control points should prefer other devices.
+     */
+    public boolean isUnreachable(RemoteDevice remoteDevice);
+
     // #################################################################################################
 
     public void addResource(Resource resource);
@@ -113,6 +138,10 @@ public interface Registry {
 
     public void removeRemoteSubscription(RemoteGENASubscription subscription);
 
+    public Collection<LocalGENASubscription> getLocalSubscriptions();
+
+    public Collection<RemoteGENASubscription> getRemoteSubscriptions();
+
     // #################################################################################################
 
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.teleal.cling.registry;
+
+import org.teleal.cling.model.meta.Device;
+import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.meta.RemoteDevice;
+
+/**
+ * A change of the registry, delivered to listeners in the order it occurred.
+ *
+ * @author Christian Bauer
+ */
+public class RegistryEvent {
+
+    public enum Type {
+        REMOTE_DEVICE_ADDED,
+        REMOTE_DEVICE_UPDATED,
+        REMOTE_DEVICE_REMOVED,
+        LOCAL_DEVICE_ADDED,
+        LOCAL_DEVICE_REMOVED
+    }
+
+    final private Type type;
+    final private Device device;
+    final private boolean expirationRefresh;
+    private long sequence;
+
+    public RegistryEvent(Type type, Device device) {
+        this(type, device, false);
+    }
+
+    public RegistryEvent(Type type, Device device, boolean expirationRefresh) {
+        this.type = type;
+        this.device = device;
+        this.expirationRefresh = expirationRefresh;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+
+    /**
+     * @return <tt>true</tt> if this update only extends the expiration of a remote device that
+     *         announced itself again, with the same descriptor URL and max age.
+     */
+    public boolean isExpirationRefresh() {
+        return expirationRefresh;
+    }
+
+    /**
+     * @return The sequence number assigned by the {@link RegistryJournal}, or <tt>0</tt> if the
+     *         event was not journaled.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Calls the method of the listener for this event.
+     */
+    public void notify(Registry registry, RegistryListener listener) {
+        switch (type) {
+            case REMOTE_DEVICE_ADDED:
+                listener.remoteDeviceAdded(registry, (RemoteDevice) device);
+                break;
+            case REMOTE_DEVICE_UPDATED:
+                listener.remoteDeviceUpdated(registry, (RemoteDevice) device);
+                break;
+            case REMOTE_DEVICE_REMOVED:
+                listener.remoteDeviceRemoved(registry, (RemoteDevice) device);
+                break;
+            case LOCAL_DEVICE_ADDED:
+                listener.localDeviceAdded(registry, (LocalDevice) device);
+                break;
+            case LOCAL_DEVICE_REMOVED:
+                listener.localDeviceRemoved(registry, (LocalDevice) device);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") " + getSequence() + " " + getType() + " " + getDevice();
+    }
+}
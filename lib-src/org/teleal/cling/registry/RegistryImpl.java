@@ -31,7 +31,9 @@ import org.teleal.cling.model.types.DeviceType;
 import org.teleal.cling.model.types.ServiceType;
 import org.teleal.cling.model.types.UDN;
 import org.teleal.cling.protocol.ProtocolFactory;
+import org.teleal.cling.transport.EndpointHealth;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -39,6 +41,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,12 +54,33 @@ public class RegistryImpl implements Registry {
     protected final ProtocolFactory protocolFactory;
 
     protected final RegistryMaintainer registryMaintainer;
+    protected final RegistryListenerDispatcher registryListenerDispatcher;
+    protected final RegistryJournal registryJournal;
+    protected final RenewalScheduler renewalScheduler;
 
     public RegistryImpl(UpnpServiceConfiguration configuration, ProtocolFactory protocolFactory) {
         log.fine("Creating Registry: " + getClass().getName());
 
         this.configuration = configuration;
         this.protocolFactory = protocolFactory;
+        this.registryListenerDispatcher = createRegistryListenerDispatcher();
+        this.registryJournal = createRegistryJournal();
+        this.renewalScheduler = createRenewalScheduler();
+
+        if (configuration.getStatusURI() != null) {
+            log.fine("Serving status resource: " + configuration.getStatusURI());
+            addResource(new Resource<UpnpServiceConfiguration>(
+                    Resource.Type.STATUS, configuration.getStatusURI(), configuration
+            ));
+        }
+
+        if (configuration.getLocalSubscriptionStore() != null) {
+            try {
+                configuration.getLocalSubscriptionStore().open();
+            } catch (IOException ex) {
+                log.warning("Could not open local subscription store, subscriptions will not be restored: " + ex);
+            }
+        }
 
         log.fine("Starting registry background maintenance...");
         registryMaintainer = createRegistryMaintainer();
@@ -77,9 +101,24 @@ public class RegistryImpl implements Registry {
         return new RegistryMaintainer(this);
     }
 
+    protected RegistryListenerDispatcher createRegistryListenerDispatcher() {
+        return new RegistryListenerDispatcher(this, getConfiguration().getRegistryListenerExecutor());
+    }
+
+    protected RegistryJournal createRegistryJournal() {
+        return new RegistryJournal(this, 1024);
+    }
+
+    protected RenewalScheduler createRenewalScheduler() {
+        return new RenewalScheduler(this, 8);
+    }
+
+    public RenewalScheduler getRenewalScheduler() {
+        return renewalScheduler;
+    }
+
     // #################################################################################################
 
-    protected final Set<RegistryListener> registryListeners = new HashSet();
     protected final Set<Resource> resources = new HashSet();
     protected final List<Runnable> pendingExecutions = new ArrayList();
 
@@ -89,15 +128,34 @@ public class RegistryImpl implements Registry {
     // #################################################################################################
 
     synchronized public void addListener(RegistryListener listener) {
-        registryListeners.add(listener);
+        addListener(listener, false);
+    }
+
+    synchronized public void addListener(RegistryListener listener, boolean expirationRefreshes) {
+        registryListenerDispatcher.addListener(listener, expirationRefreshes);
     }
 
     synchronized public void removeListener(RegistryListener listener) {
-        registryListeners.remove(listener);
+        registryListenerDispatcher.removeListener(listener);
     }
 
     synchronized public Collection<RegistryListener> getListeners() {
-        return Collections.unmodifiableCollection(registryListeners);
+        return registryListenerDispatcher.getListeners();
+    }
+
+    synchronized void fireEvent(RegistryEvent event) {
+        registryJournal.append(event);
+        registryListenerDispatcher.dispatch(event);
+    }
+
+    // #################################################################################################
+
+    public RegistrySnapshot getSnapshot() {
+        return registryJournal.getSnapshot();
+    }
+
+    synchronized public List<RegistryEvent> getChangesSince(long sequence) {
+        return registryJournal.getChangesSince(sequence);
     }
 
     // #################################################################################################
@@ -137,19 +195,16 @@ public class RegistryImpl implements Registry {
         return null;
     }
 
-    synchronized public Collection<LocalDevice> getLocalDevices() {
-        return Collections.unmodifiableCollection(localItems.get());
+    public Collection<LocalDevice> getLocalDevices() {
+        return getSnapshot().getLocalDevices();
     }
 
-    synchronized public Collection<RemoteDevice> getRemoteDevices() {
-        return Collections.unmodifiableCollection(remoteItems.get());
+    public Collection<RemoteDevice> getRemoteDevices() {
+        return getSnapshot().getRemoteDevices();
     }
 
-    synchronized public Collection<Device> getDevices() {
-        Set all = new HashSet();
-        all.addAll(localItems.get());
-        all.addAll(remoteItems.get());
-        return Collections.unmodifiableCollection(all);
+    public Collection<Device> getDevices() {
+        return getSnapshot().getDevices();
     }
 
     synchronized public Collection<Device> getDevices(DeviceType deviceType) {
@@ -178,6 +233,12 @@ public class RegistryImpl implements Registry {
         return null;
     }
 
+    public boolean isUnreachable(RemoteDevice remoteDevice) {
+        EndpointHealth endpointHealth = getConfiguration().getEndpointHealth();
+        return endpointHealth != null
+                && endpointHealth.isOpen(remoteDevice.getIdentity().getDescriptorURL().getHost());
+    }
+
     // #################################################################################################
 
     synchronized public Resource getResource(URI pathQuery) throws IllegalArgumentException {
@@ -261,6 +322,22 @@ public class RegistryImpl implements Registry {
         remoteItems.removeSubscription(subscription);
     }
 
+    synchronized public Collection<LocalGENASubscription> getLocalSubscriptions() {
+        Collection<LocalGENASubscription> subscriptions = new ArrayList();
+        for (RegistryItem<String, LocalGENASubscription> item : localItems.getSubscriptionItems()) {
+            subscriptions.add(item.getItem());
+        }
+        return Collections.unmodifiableCollection(subscriptions);
+    }
+
+    synchronized public Collection<RemoteGENASubscription> getRemoteSubscriptions() {
+        Collection<RemoteGENASubscription> subscriptions = new ArrayList();
+        for (RegistryItem<String, RemoteGENASubscription> item : remoteItems.getSubscriptionItems()) {
+            subscriptions.add(item.getItem());
+        }
+        return Collections.unmodifiableCollection(subscriptions);
+    }
+
     /* ############################################################################################################ */
 
     // When you call this, make sure you have the Router lock before this lock is obtained!
@@ -270,6 +347,10 @@ public class RegistryImpl implements Registry {
         registryMaintainer.stop();
         remoteItems.shutdown();
         localItems.shutdown();
+        registryJournal.invalidate();
+        if (configuration.getLocalSubscriptionStore() != null) {
+            configuration.getLocalSubscriptionStore().close();
+        }
     }
 
     /* ############################################################################################################ */
@@ -284,11 +365,25 @@ public class RegistryImpl implements Registry {
         // We now run the queue asynchronously so the maintenance thread can continue its loop undisturbed
         log.finest("Executing pending operations: " + pendingExecutions.size());
         for (Runnable pendingExecution : pendingExecutions) {
-            getConfiguration().getAsyncProtocolExecutor().execute(pendingExecution);
+            try {
+                getConfiguration().getAsyncProtocolExecutor().execute(pendingExecution);
+            } catch (RejectedExecutionException ex) {
+                log.warning("Async protocol executor rejected pending operation: " + ex);
+                if (pendingExecution instanceof RenewalScheduler.Execution) {
+                    ((RenewalScheduler.Execution) pendingExecution).rejected();
+                }
+            }
         }
         if (pendingExecutions.size() > 0) {
             pendingExecutions.clear();
         }
+
+        // Event sequences are written in batches, not with every event
+        if (configuration.getLocalSubscriptionStore() != null) {
+            configuration.getLocalSubscriptionStore().flush();
+        }
+
+        registryListenerDispatcher.retryRejected();
     }
 
     synchronized void executeAsyncProtocol(Runnable runnable) {
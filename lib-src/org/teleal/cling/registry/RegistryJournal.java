@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.teleal.cling.registry;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Numbers the changes of the registry and keeps the most recent ones.
+ * <p>
+ * Every added, updated and removed device gets the next sequence number, except updates that only
+ * refresh the expiration of a remote device. Readers can ask for the changes after a sequence number
+ * they have seen, or for a {@link RegistrySnapshot}. The snapshot is created on the first read after
+ * a change and then shared by all readers, so polling an unchanged registry doesn't copy anything.
+ * </p>
+ * <p>
+ * All methods except {@link #getSnapshot()} have to be called while holding the registry lock.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class RegistryJournal {
+
+    protected final RegistryImpl registry;
+    protected final int maxChanges;
+    protected final LinkedList<RegistryEvent> changes = new LinkedList();
+
+    protected long sequence;
+    protected volatile RegistrySnapshot snapshot;
+
+    public RegistryJournal(RegistryImpl registry, int maxChanges) {
+        this.registry = registry;
+        this.maxChanges = maxChanges;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Assigns the next sequence number to the event, unless it is an expiration refresh.
+     */
+    public void append(RegistryEvent event) {
+        if (event.isExpirationRefresh()) return;
+        event.setSequence(++sequence);
+        changes.addLast(event);
+        if (changes.size() > maxChanges) {
+            changes.removeFirst();
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Drops the current snapshot, for changes of the registry that are not journaled.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * @return The changes with a sequence number greater than the given number, oldest first, or
+     *         <tt>null</tt> if some of these changes are no longer retained and a new snapshot has to
+     *         be read.
+     */
+    public List<RegistryEvent> getChangesSince(long sequence) {
+        if (sequence >= this.sequence) return new ArrayList();
+        if (changes.isEmpty() || changes.getFirst().getSequence() > sequence + 1) return null;
+        List<RegistryEvent> result = new ArrayList();
+        for (RegistryEvent change : changes) {
+            if (change.getSequence() > sequence) result.add(change);
+        }
+        return result;
+    }
+
+    public RegistrySnapshot getSnapshot() {
+        RegistrySnapshot current = snapshot;
+        if (current != null) return current;
+        synchronized (registry) {
+            if (snapshot == null) {
+                snapshot = new RegistrySnapshot(sequence, registry.localItems.get(), registry.remoteItems.get());
+            }
+            return snapshot;
+        }
+    }
+
+}
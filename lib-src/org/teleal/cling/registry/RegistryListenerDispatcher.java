@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.teleal.cling.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers registry events to listeners on the registry listener executor.
+ * <p>
+ * Every listener has its own queue, and at most one task per listener runs on the executor at any
+ * time. This task delivers all queued events in order, so a listener sees the addition, updates and
+ * removal of a device in the order they happened, even if the executor runs tasks concurrently.
+ * Updates that only refresh the expiration of a remote device are not queued, unless the listener
+ * was added with <tt>expirationRefreshes</tt>.
+ * </p>
+ * <p>
+ * Events are never delivered on the thread that dispatches them, which holds the registry lock. If
+ * the executor rejects a delivery, the events stay queued and the delivery is retried with the next
+ * event or registry maintenance.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class RegistryListenerDispatcher {
+
+    private static Logger log = Logger.getLogger(RegistryListenerDispatcher.class.getName());
+
+    protected final Registry registry;
+    protected final Executor executor;
+    protected final Map<RegistryListener, ListenerQueue> queues = new LinkedHashMap();
+
+    public RegistryListenerDispatcher(Registry registry, Executor executor) {
+        this.registry = registry;
+        this.executor = executor;
+    }
+
+    synchronized public void addListener(RegistryListener listener, boolean expirationRefreshes) {
+        queues.put(listener, new ListenerQueue(listener, expirationRefreshes));
+    }
+
+    synchronized public void removeListener(RegistryListener listener) {
+        queues.remove(listener);
+    }
+
+    synchronized public Collection<RegistryListener> getListeners() {
+        return Collections.unmodifiableCollection(new ArrayList(queues.keySet()));
+    }
+
+    synchronized public void dispatch(RegistryEvent event) {
+        for (ListenerQueue queue : queues.values()) {
+            queue.add(event);
+        }
+    }
+
+    /**
+     * Schedules the deliveries the executor rejected earlier again.
+     */
+    synchronized public void retryRejected() {
+        for (ListenerQueue queue : queues.values()) {
+            queue.retry();
+        }
+    }
+
+    protected void deliver(RegistryListener listener, List<RegistryEvent> events) {
+        if (listener instanceof BatchRegistryListener) {
+            try {
+                ((BatchRegistryListener) listener).registryChanged(registry, events);
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Registry listener failed on batch of events: " + events.size(), ex);
+            }
+            return;
+        }
+        for (RegistryEvent event : events) {
+            try {
+                event.notify(registry, listener);
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Registry listener failed on: " + event, ex);
+            }
+        }
+    }
+
+    public class ListenerQueue implements Runnable {
+
+        final protected RegistryListener listener;
+        final protected boolean expirationRefreshes;
+        final protected List<RegistryEvent> pending = new ArrayList();
+        protected boolean scheduled;
+        // Scheduled but rejected by the executor, retried later
+        protected boolean rejected;
+
+        public ListenerQueue(RegistryListener listener, boolean expirationRefreshes) {
+            this.listener = listener;
+            this.expirationRefreshes = expirationRefreshes;
+        }
+
+        public void add(RegistryEvent event) {
+            if (event.isExpirationRefresh() && !expirationRefreshes) return;
+            synchronized (this) {
+                pending.add(event);
+                if (scheduled && !rejected) return;
+                scheduled = true;
+                rejected = false;
+            }
+            schedule();
+        }
+
+        public void retry() {
+            synchronized (this) {
+                if (!rejected) return;
+                rejected = false;
+            }
+            schedule();
+        }
+
+        /**
+         * Called when the executor rejected or discarded this queue, it stays scheduled and is retried later.
+         */
+        public void rejected() {
+            log.warning("Registry listener executor rejected delivery, retrying later: " + listener);
+            synchronized (this) {
+                rejected = true;
+            }
+        }
+
+        protected void schedule() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                rejected();
+            }
+        }
+
+        public void run() {
+            while (true) {
+                List<RegistryEvent> batch;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                    batch = new ArrayList(pending);
+                    pending.clear();
+                }
+                deliver(listener, batch);
+            }
+        }
+    }
+}
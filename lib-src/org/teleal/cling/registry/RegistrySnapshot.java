@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.teleal.cling.registry;
+
+import org.teleal.cling.model.meta.Device;
+import org.teleal.cling.model.meta.LocalDevice;
+import org.teleal.cling.model.meta.RemoteDevice;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The root devices of the registry after the change with the given sequence number.
+ * <p>
+ * A snapshot never changes, it can be read without holding a lock on the registry.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class RegistrySnapshot {
+
+    final private long sequence;
+    final private Collection<LocalDevice> localDevices;
+    final private Collection<RemoteDevice> remoteDevices;
+    final private Collection<Device> devices;
+
+    public RegistrySnapshot(long sequence, Collection<LocalDevice> localDevices, Collection<RemoteDevice> remoteDevices) {
+        this.sequence = sequence;
+        this.localDevices = Collections.unmodifiableCollection(new HashSet(localDevices));
+        this.remoteDevices = Collections.unmodifiableCollection(new HashSet(remoteDevices));
+        Set<Device> all = new HashSet();
+        all.addAll(localDevices);
+        all.addAll(remoteDevices);
+        this.devices = Collections.unmodifiableCollection(all);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Collection<LocalDevice> getLocalDevices() {
+        return localDevices;
+    }
+
+    public Collection<RemoteDevice> getRemoteDevices() {
+        return remoteDevices;
+    }
+
+    public Collection<Device> getDevices() {
+        return devices;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + getClass().getSimpleName() + ") Sequence: " + getSequence()
+                + ", local: " + localDevices.size() + ", remote: " + remoteDevices.size();
+    }
+}
@@ -26,10 +26,8 @@ import org.teleal.cling.model.meta.RemoteDeviceIdentity;
 import org.teleal.cling.model.types.UDN;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -93,15 +91,7 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
 
         // Only notify the listeners when the device is fully usable
         log.fine("Completely hydrated remote device graph available, calling listeners: " + device);
-        for (final RegistryListener listener : registry.getListeners()) {
-            registry.getConfiguration().getRegistryListenerExecutor().execute(
-                    new Runnable() {
-                        public void run() {
-                            listener.remoteDeviceAdded(registry, device);
-                        }
-                    }
-            );
-        }
+        registry.fireEvent(new RegistryEvent(RegistryEvent.Type.REMOTE_DEVICE_ADDED, device));
 
     }
 
@@ -133,15 +123,11 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
             deviceItems.add(item);
 
             log.fine("Remote device updated, calling listeners: " + registeredRemoteDevice);
-            for (final RegistryListener listener : registry.getListeners()) {
-                registry.getConfiguration().getRegistryListenerExecutor().execute(
-                        new Runnable() {
-                            public void run() {
-                                listener.remoteDeviceUpdated(registry, item.getItem());
-                            }
-                        }
-                );
-            }
+            registry.fireEvent(new RegistryEvent(
+                    RegistryEvent.Type.REMOTE_DEVICE_UPDATED,
+                    registeredRemoteDevice,
+                    isExpirationRefresh(registeredRemoteDevice.getIdentity(), rdIdentity)
+            ));
 
             return true;
 
@@ -197,15 +183,7 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
 
             // Only notify listeners if we are NOT in the process of shutting down the registry
             if (!shuttingDown) {
-                for (final RegistryListener listener : registry.getListeners()) {
-                    registry.getConfiguration().getRegistryListenerExecutor().execute(
-                            new Runnable() {
-                                public void run() {
-                                    listener.remoteDeviceRemoved(registry, registeredDevice);
-                                }
-                            }
-                    );
-                }
+                registry.fireEvent(new RegistryEvent(RegistryEvent.Type.REMOTE_DEVICE_REMOVED, registeredDevice));
             }
 
             // Finally, remove the device from the registry
@@ -217,6 +195,14 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
         return false;
     }
 
+    /**
+     * @return <tt>true</tt> if the announced identity has the same descriptor URL and max age as the registered.
+     */
+    protected boolean isExpirationRefresh(RemoteDeviceIdentity registered, RemoteDeviceIdentity announced) {
+        return String.valueOf(registered.getMaxAgeSeconds()).equals(String.valueOf(announced.getMaxAgeSeconds()))
+                && String.valueOf(registered.getDescriptorURL()).equals(String.valueOf(announced.getDescriptorURL()));
+    }
+
     void removeAll() {
         removeAll(false);
     }
@@ -250,16 +236,7 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
         }
 
         // Renew outgoing subscriptions
-        Set<RemoteGENASubscription> expiredOutgoingSubscriptions = new HashSet();
-        for (RegistryItem<String, RemoteGENASubscription> item : subscriptionItems) {
-            if (item.hasExpired(true)) {
-                expiredOutgoingSubscriptions.add(item.getItem());
-            }
-        }
-        for (RemoteGENASubscription subscription : expiredOutgoingSubscriptions) {
-            log.fine("Renewing outgoing subscription: " + subscription);
-            renewOutgoingSubscription(subscription);
-        }
+        registry.getRenewalScheduler().maintain(subscriptionItems);
     }
 
     void shutdown() {
@@ -274,12 +251,4 @@ class RemoteItems extends RegistryItems<RemoteDevice, RemoteGENASubscription> {
         log.fine("Removing all remote devices from registry during shutdown");
         removeAll(true);
     }
-
-    /* ############################################################################################################ */
-
-    protected void renewOutgoingSubscription(final RemoteGENASubscription subscription) {
-        registry.executeAsyncProtocol(
-                registry.getProtocolFactory().createSendingRenewal(subscription)
-        );
-    }
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.registry;
+
+import org.teleal.cling.model.gena.RemoteGENASubscription;
+import org.teleal.cling.model.message.gena.IncomingSubscribeResponseMessage;
+import org.teleal.cling.protocol.LatencyHistogram;
+import org.teleal.cling.protocol.sync.SendingRenewal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Renews outgoing subscriptions, spread over time and with a limited number of renewals in flight.
+ * <p>
+ * Each subscription is renewed at a random time between one half and three quarters of its duration,
+ * so subscriptions established together are not renewed together. Due renewals are started in the
+ * order they became due, at most <tt>maxConcurrentRenewals</tt> at a time. A renewal that received no
+ * response is retried with exponential back-off, as long as there is time left before the
+ * subscription expires; the last attempt ends the subscription if it fails as well.
+ * </p>
+ * <p>
+ * The lag of a renewal is the time between its scheduled time and its start, it grows when the
+ * limit of renewals in flight is too small for the number of subscriptions.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class RenewalScheduler {
+
+    private static Logger log = Logger.getLogger(RenewalScheduler.class.getName());
+
+    public static final long MIN_RETRY_MILLIS = 2000;
+    public static final long MAX_RETRY_MILLIS = 60000;
+
+    protected final RegistryImpl registry;
+    protected final int maxConcurrentRenewals;
+    protected final Random random = new Random();
+
+    protected final Map<String, Renewal> renewals = new HashMap();
+    protected int inFlight;
+
+    protected final LatencyHistogram lag = new LatencyHistogram();
+    protected final AtomicLong retries = new AtomicLong();
+
+    public RenewalScheduler(RegistryImpl registry, int maxConcurrentRenewals) {
+        this.registry = registry;
+        this.maxConcurrentRenewals = maxConcurrentRenewals;
+    }
+
+    public int getMaxConcurrentRenewals() {
+        return maxConcurrentRenewals;
+    }
+
+    synchronized public int getInFlightCount() {
+        return inFlight;
+    }
+
+    synchronized public int getScheduledCount() {
+        return renewals.size();
+    }
+
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Schedules new and renewed subscriptions and starts due renewals, called by the registry
+     * maintenance with the registry lock held.
+     */
+    synchronized void maintain(Collection<RegistryItem<String, RemoteGENASubscription>> subscriptionItems) {
+        long currentTime = System.currentTimeMillis();
+
+        Set<String> subscriptionIds = new HashSet();
+        List<Renewal> due = new ArrayList();
+        for (RegistryItem<String, RemoteGENASubscription> item : subscriptionItems) {
+            subscriptionIds.add(item.getKey());
+
+            Renewal renewal = renewals.get(item.getKey());
+            if (renewal == null || renewal.refreshedSeconds != item.getLastRefreshTimestampSeconds()) {
+                Renewal previous = renewal;
+                renewal = new Renewal(item);
+                renewals.put(item.getKey(), renewal);
+                if (previous != null) abandon(previous);
+                log.finer("Scheduled renewal in milliseconds: " + (renewal.dueMillis - currentTime));
+            }
+            if (renewal.execution == null && renewal.dueMillis <= currentTime) {
+                due.add(renewal);
+            }
+        }
+
+        // Release the slots of executions the executor didn't start in time, they are assumed to be lost
+        for (Renewal renewal : new ArrayList<Renewal>(renewals.values())) {
+            if (!subscriptionIds.contains(renewal.subscription.getSubscriptionId())) {
+                renewals.remove(renewal.subscription.getSubscriptionId());
+                abandon(renewal);
+            } else if (renewal.execution != null && !renewal.execution.started
+                    && currentTime - renewal.execution.submittedMillis > getRetryMillis(renewal.attempts + 1)) {
+                log.warning("Renewal was not started by the executor, retrying: " + renewal.subscription);
+                abandon(renewal);
+            }
+        }
+
+        Collections.sort(due, new Comparator<Renewal>() {
+            public int compare(Renewal a, Renewal b) {
+                return a.dueMillis < b.dueMillis ? -1 : (a.dueMillis > b.dueMillis ? 1 : 0);
+            }
+        });
+        for (Renewal renewal : due) {
+            if (inFlight >= maxConcurrentRenewals) {
+                log.fine("Renewals in flight at limit, postponing due renewals: " + (due.size() - due.indexOf(renewal)));
+                break;
+            }
+            start(renewal, currentTime);
+        }
+    }
+
+    protected void start(Renewal renewal, long currentTime) {
+        renewal.execution = new Execution(renewal, currentTime);
+        inFlight++;
+        lag.record((currentTime - renewal.dueMillis) * 1000000l);
+
+        // No more retries if the next one wouldn't complete before the subscription expires
+        renewal.lastAttempt = currentTime + getRetryMillis(renewal.attempts + 1) >= renewal.expirationMillis;
+
+        log.fine("Renewing outgoing subscription" + (renewal.lastAttempt ? " (last attempt): " : ": ") + renewal.subscription);
+        registry.executeAsyncProtocol(renewal.execution);
+    }
+
+    synchronized protected void completed(Renewal renewal, IncomingSubscribeResponseMessage response) {
+        renewal.execution = null;
+        inFlight--;
+        if (renewals.get(renewal.subscription.getSubscriptionId()) != renewal) {
+            // Removed or rescheduled while in flight
+            return;
+        }
+        if (response == null && !renewal.lastAttempt) {
+            renewal.attempts++;
+            renewal.dueMillis = System.currentTimeMillis() + getRetryMillis(renewal.attempts);
+            retries.incrementAndGet();
+            log.fine("No response to renewal, retrying in milliseconds: " + (renewal.dueMillis - System.currentTimeMillis()));
+        } else {
+            // Renewed or ended, a renewed subscription is scheduled again by the next maintenance
+            renewals.remove(renewal.subscription.getSubscriptionId());
+        }
+    }
+
+    /**
+     * Releases the slot of an execution that has not been started, it will skip the renewal if it runs later.
+     */
+    synchronized protected void abandon(Renewal renewal) {
+        Execution execution = renewal.execution;
+        if (execution == null || execution.started) return;
+        execution.abandoned = true;
+        completed(renewal, null);
+    }
+
+    protected long getRetryMillis(int attempts) {
+        return Math.min(MAX_RETRY_MILLIS, MIN_RETRY_MILLIS << Math.min(attempts - 1, 16));
+    }
+
+    protected class Renewal {
+
+        final protected RemoteGENASubscription subscription;
+        final protected long refreshedSeconds;
+        final protected long expirationMillis;
+        protected long dueMillis;
+        protected int attempts;
+        protected boolean lastAttempt;
+        protected Execution execution;
+
+        protected Renewal(RegistryItem<String, RemoteGENASubscription> item) {
+            this.subscription = item.getItem();
+            this.refreshedSeconds = item.getLastRefreshTimestampSeconds();
+            long durationMillis = item.getMaxAgeSeconds() * 1000l;
+            this.expirationMillis = refreshedSeconds * 1000 + durationMillis;
+            this.dueMillis = refreshedSeconds * 1000 + (long) (durationMillis * (0.5 + random.nextDouble() * 0.25));
+        }
+    }
+
+    /**
+     * Runs one renewal attempt, call {@link #rejected()} if the executor doesn't accept it.
+     */
+    public class Execution implements Runnable {
+
+        final protected Renewal renewal;
+        final protected long submittedMillis;
+        protected boolean started;
+        protected boolean abandoned;
+
+        protected Execution(Renewal renewal, long submittedMillis) {
+            this.renewal = renewal;
+            this.submittedMillis = submittedMillis;
+        }
+
+        public void run() {
+            synchronized (RenewalScheduler.this) {
+                if (abandoned) return;
+                started = true;
+            }
+            SendingRenewal protocol =
+                    registry.getProtocolFactory().createSendingRenewal(renewal.subscription, renewal.lastAttempt);
+            try {
+                protocol.run();
+            } finally {
+                completed(renewal, protocol.getOutputMessage());
+            }
+        }
+
+        public void rejected() {
+            log.warning("Executor rejected renewal, retrying: " + renewal.subscription);
+            abandon(renewal);
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the health of remote hosts contacted by the stream client.
+ * <p>
+ * Every request to a host either gets a response or fails, because the connection could not be
+ * established or was refused or reset. A slow or invalid response is not a failure of the host, it
+ * is neither counted nor does it close the circuit. After a number of consecutive failures the
+ * circuit of the host opens: requests fail immediately instead of waiting for a timeout. When the
+ * back-off period is over, one request is let through. If it succeeds, the circuit closes, otherwise
+ * it opens again for twice as long.
+ * </p>
+ * <p>
+ * The time to establish a connection is measured, a host with enough samples gets a connection
+ * timeout of its smoothed round-trip time plus four times its variation, as TCP does for
+ * retransmissions, but never less than the minimum and never more than the configured timeout.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class EndpointHealth {
+
+    private static Logger log = Logger.getLogger(EndpointHealth.class.getName());
+
+    // Connection times measured before the timeout is adapted
+    public static final int MIN_RTT_SAMPLES = 3;
+
+    protected final int failureThreshold;
+    protected final long minBackoffMillis;
+    protected final long maxBackoffMillis;
+    protected final long minConnectTimeoutMillis;
+
+    protected final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap();
+
+    public EndpointHealth(int failureThreshold, long minBackoffMillis, long maxBackoffMillis,
+                          long minConnectTimeoutMillis) {
+        this.failureThreshold = failureThreshold;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.minConnectTimeoutMillis = minConnectTimeoutMillis;
+    }
+
+    /**
+     * @return <tt>false</tt> if the circuit of the host is open and the request should fail immediately.
+     */
+    public boolean allowRequest(String host) {
+        Endpoint endpoint = endpoints.get(host);
+        return endpoint == null || endpoint.allowRequest();
+    }
+
+    /**
+     * @return The timeout for establishing a connection to the host, at most the given timeout.
+     */
+    public long getConnectTimeoutMillis(String host, long configuredMillis) {
+        Endpoint endpoint = endpoints.get(host);
+        return endpoint != null ? endpoint.getConnectTimeoutMillis(configuredMillis) : configuredMillis;
+    }
+
+    public void connected(String host, long rttMillis) {
+        getEndpoint(host).connected(rttMillis);
+    }
+
+    public void succeeded(String host) {
+        getEndpoint(host).succeeded();
+    }
+
+    public void failed(String host) {
+        getEndpoint(host).failed();
+    }
+
+    /**
+     * @return <tt>true</tt> if requests to the host currently fail without trying to connect.
+     */
+    public boolean isOpen(String host) {
+        Endpoint endpoint = endpoints.get(host);
+        return endpoint != null && endpoint.isOpen();
+    }
+
+    public int getOpenCount() {
+        int count = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            if (endpoint.isOpen()) count++;
+        }
+        return count;
+    }
+
+    public Endpoint getEndpoint(String host) {
+        Endpoint endpoint = endpoints.get(host);
+        if (endpoint == null) {
+            endpoint = new Endpoint(host);
+            Endpoint existing = endpoints.putIfAbsent(host, endpoint);
+            if (existing != null) endpoint = existing;
+        }
+        return endpoint;
+    }
+
+    public class Endpoint {
+
+        protected final String host;
+
+        protected int consecutiveFailures;
+        protected long backoffMillis;
+        protected long openUntil;
+        protected boolean open;
+
+        protected int rttSamples;
+        protected double smoothedRttMillis;
+        protected double rttVariationMillis;
+
+        public Endpoint(String host) {
+            this.host = host;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        synchronized public boolean isOpen() {
+            return open;
+        }
+
+        synchronized public int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        synchronized public double getSmoothedRttMillis() {
+            return smoothedRttMillis;
+        }
+
+        synchronized boolean allowRequest() {
+            if (!open) return true;
+            long now = System.currentTimeMillis();
+            if (now < openUntil) return false;
+            // Let this one through, and no other until it had time to fail
+            openUntil = now + backoffMillis;
+            log.fine("Back-off period over, trying host again: " + host);
+            return true;
+        }
+
+        synchronized long getConnectTimeoutMillis(long configuredMillis) {
+            if (rttSamples < MIN_RTT_SAMPLES) return configuredMillis;
+            long timeout = (long) (smoothedRttMillis + 4 * rttVariationMillis);
+            return Math.min(configuredMillis, Math.max(minConnectTimeoutMillis, timeout));
+        }
+
+        synchronized void connected(long rttMillis) {
+            // RFC 6298 smoothing
+            if (rttSamples == 0) {
+                smoothedRttMillis = rttMillis;
+                rttVariationMillis = rttMillis / 2d;
+            } else {
+                rttVariationMillis = 0.75 * rttVariationMillis + 0.25 * Math.abs(smoothedRttMillis - rttMillis);
+                smoothedRttMillis = 0.875 * smoothedRttMillis + 0.125 * rttMillis;
+            }
+            rttSamples++;
+        }
+
+        synchronized void succeeded() {
+            if (open) {
+                log.info("Host is responding again, closing circuit: " + host);
+            }
+            open = false;
+            consecutiveFailures = 0;
+            backoffMillis = 0;
+        }
+
+        synchronized void failed() {
+            consecutiveFailures++;
+            if (open) {
+                backoffMillis = Math.min(maxBackoffMillis, backoffMillis * 2);
+            } else if (consecutiveFailures >= failureThreshold) {
+                open = true;
+                backoffMillis = minBackoffMillis;
+                log.info("Host failed " + consecutiveFailures + " times, opening circuit: " + host);
+            } else {
+                return;
+            }
+            openUntil = System.currentTimeMillis() + backoffMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + getClass().getSimpleName() + ") " + getHost() + (isOpen() ? " OPEN" : "");
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory network connecting several {@link LoopbackRouter}s in one JVM.
+ * <p>
+ * Every attached router gets its own loopback address, starting at <tt>127.0.1.1</tt>, no sockets are ever
+ * bound. Multicast datagrams are delivered to all other routers, unicast datagrams and
+ * stream requests to the router owning the destination address.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class LoopbackNetwork {
+
+    private static Logger log = Logger.getLogger(LoopbackNetwork.class.getName());
+
+    public static final int DEFAULT_STREAM_PORT = 8080;
+
+    protected final int streamPort;
+    protected final Map<InetAddress, LoopbackRouter> routers = new ConcurrentHashMap();
+    protected int nextAddress = 0x7f000100;
+
+    public LoopbackNetwork() {
+        this(DEFAULT_STREAM_PORT);
+    }
+
+    public LoopbackNetwork(int streamPort) {
+        this.streamPort = streamPort;
+    }
+
+    public int getStreamPort() {
+        return streamPort;
+    }
+
+    synchronized public InetAddress attach(LoopbackRouter router) {
+        InetAddress address;
+        try {
+            int a = ++nextAddress;
+            if ((a & 0xff) == 0xff) a = nextAddress += 2; // Skip x.y.z.255 and x.y.z+1.0
+            address = InetAddress.getByAddress(new byte[]{
+                    (byte) (a >> 24), (byte) (a >> 16), (byte) (a >> 8), (byte) a
+            });
+        } catch (UnknownHostException ex) {
+            throw new RuntimeException(ex);
+        }
+        log.fine("Attaching router to loopback network with address: " + address.getHostAddress());
+        routers.put(address, router);
+        return address;
+    }
+
+    public void detach(LoopbackRouter router) {
+        log.fine("Detaching router from loopback network: " + router.getAddress().getHostAddress());
+        routers.remove(router.getAddress());
+    }
+
+    public LoopbackRouter getRouter(InetAddress address) {
+        return address != null ? routers.get(address) : null;
+    }
+
+    public Collection<LoopbackRouter> getRouters() {
+        return new ArrayList(routers.values());
+    }
+
+}
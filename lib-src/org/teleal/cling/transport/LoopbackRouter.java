@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport;
+
+import org.teleal.cling.UpnpServiceConfiguration;
+import org.teleal.cling.model.Constants;
+import org.teleal.cling.model.message.IncomingDatagramMessage;
+import org.teleal.cling.model.message.OutgoingDatagramMessage;
+import org.teleal.cling.model.message.StreamRequestMessage;
+import org.teleal.cling.model.message.StreamResponseMessage;
+import org.teleal.cling.model.message.UpnpHeaders;
+import org.teleal.cling.model.message.UpnpRequest;
+import org.teleal.cling.model.message.UpnpResponse;
+import org.teleal.cling.model.message.header.HostHeader;
+import org.teleal.cling.model.message.header.UpnpHeader;
+import org.teleal.cling.protocol.ProtocolFactory;
+import org.teleal.cling.protocol.ReceivingSync;
+import org.teleal.cling.transport.spi.NetworkAddressFactory;
+import org.teleal.cling.transport.spi.StreamClient;
+import org.teleal.cling.transport.spi.StreamResponseCallback;
+import org.teleal.cling.transport.spi.UnsupportedDataException;
+import org.teleal.cling.transport.spi.UpnpStream;
+
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.URI;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * A router without network services, connected to other routers through a {@link LoopbackNetwork}.
+ * <p>
+ * Datagrams are still written and read with the configured <tt>DatagramProcessor</tt>, then
+ * handed to the asynchronous protocol executor of each receiving router. Stream requests are
+ * copied and processed by the <tt>ReceivingSync</tt> protocol of the receiving router on the
+ * calling thread, as a <tt>StreamServer</tt> would do on its own thread.
+ * </p>
+ * <p>
+ * Install it by overriding {@link org.teleal.cling.UpnpServiceImpl#createRouter}.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class LoopbackRouter implements Router {
+
+    private static Logger log = Logger.getLogger(Router.class.getName());
+
+    protected final UpnpServiceConfiguration configuration;
+    protected final ProtocolFactory protocolFactory;
+    protected final LoopbackNetwork network;
+
+    protected final InetAddress address;
+    protected final NetworkAddressFactory networkAddressFactory;
+
+    public LoopbackRouter(UpnpServiceConfiguration configuration, ProtocolFactory protocolFactory,
+                          LoopbackNetwork network) {
+
+        log.info("Creating Router: " + getClass().getName());
+
+        this.configuration = configuration;
+        this.protocolFactory = protocolFactory;
+        this.network = network;
+
+        this.address = network.attach(this);
+        this.networkAddressFactory = createNetworkAddressFactory();
+    }
+
+    protected NetworkAddressFactory createNetworkAddressFactory() {
+        return new LoopbackNetworkAddressFactory(getAddress(), getNetwork().getStreamPort());
+    }
+
+    public UpnpServiceConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public ProtocolFactory getProtocolFactory() {
+        return protocolFactory;
+    }
+
+    public LoopbackNetwork getNetwork() {
+        return network;
+    }
+
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    public StreamClient getStreamClient() {
+        return null;
+    }
+
+    public NetworkAddressFactory getNetworkAddressFactory() {
+        return networkAddressFactory;
+    }
+
+    public void shutdown() {
+        log.fine("Detaching from loopback network");
+        getNetwork().detach(this);
+    }
+
+    public void received(IncomingDatagramMessage msg) {
+        log.fine("Received asynchronous message: " + msg);
+        getConfiguration().getAsyncProtocolExecutor().execute(
+                getProtocolFactory().createReceivingAsync(msg)
+        );
+    }
+
+    public void received(UpnpStream stream) {
+        log.fine("Received synchronous stream: " + stream);
+        getConfiguration().getSyncProtocolExecutor().execute(stream);
+    }
+
+    public void send(OutgoingDatagramMessage msg) {
+        DatagramPacket packet;
+        try {
+            packet = getConfiguration().getDatagramProcessor().write(msg);
+        } catch (UnsupportedDataException ex) {
+            log.warning("Could not write datagram: " + ex);
+            return;
+        }
+
+        if (msg.getDestinationAddress().equals(getNetworkAddressFactory().getMulticastGroup())) {
+            log.fine("Sending to all routers on loopback network: " + msg);
+            for (LoopbackRouter router : getNetwork().getRouters()) {
+                if (router != this) router.received(getAddress(), packet);
+            }
+        } else {
+            LoopbackRouter router = getNetwork().getRouter(msg.getDestinationAddress());
+            if (router == null) {
+                log.fine("No router on loopback network with address, dropping: " + msg);
+                return;
+            }
+            router.received(getAddress(), packet);
+        }
+    }
+
+    protected void received(InetAddress sourceAddress, DatagramPacket packet) {
+        try {
+            received(getConfiguration().getDatagramProcessor().read(
+                    getAddress(),
+                    new DatagramPacket(
+                            packet.getData(), packet.getOffset(), packet.getLength(),
+                            sourceAddress, getNetworkAddressFactory().getMulticastPort()
+                    )
+            ));
+        } catch (UnsupportedDataException ex) {
+            log.fine("Could not read datagram: " + ex.getMessage());
+        }
+    }
+
+    public StreamResponseMessage send(StreamRequestMessage msg) {
+        LoopbackRouter router;
+        try {
+            router = getNetwork().getRouter(InetAddress.getByName(msg.getUri().getHost()));
+        } catch (Exception ex) {
+            router = null;
+        }
+        if (router == null) {
+            log.fine("No router on loopback network for request, ignoring: " + msg);
+            return null;
+        }
+        log.fine("Sending via loopback stream: " + msg);
+        return router.process(msg);
+    }
+
+    protected StreamResponseMessage process(StreamRequestMessage msg) {
+        // Copy the message as the stream server would read it, only path and query of the URI remain
+        URI uri = msg.getUri();
+        StreamRequestMessage requestMessage = new StreamRequestMessage(
+                new UpnpRequest(
+                        msg.getOperation().getMethod(),
+                        URI.create(uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : ""))
+                )
+        );
+        requestMessage.getOperation().setHttpMinorVersion(msg.getOperation().getHttpMinorVersion());
+        requestMessage.setHeaders(new UpnpHeaders(msg.getHeaders().toHttpHeaders()));
+        if (!requestMessage.hasHostHeader()) {
+            // Added by the HTTP client otherwise
+            requestMessage.getHeaders().add(
+                    UpnpHeader.Type.HOST,
+                    new HostHeader(uri.getHost(), uri.getPort() != -1 ? uri.getPort() : 80)
+            );
+        }
+        if (msg.hasBody()) requestMessage.setBody(msg.getBodyType(), msg.getBody());
+
+        ReceivingSync syncProtocol = null;
+        try {
+            syncProtocol = getProtocolFactory().createReceivingSync(requestMessage);
+            syncProtocol.run();
+            StreamResponseMessage responseMessage = syncProtocol.getOutputMessage();
+            syncProtocol.responseSent(responseMessage);
+
+            if (responseMessage == null) {
+                return new StreamResponseMessage(new UpnpResponse(UpnpResponse.Status.NOT_FOUND));
+            }
+            StreamResponseMessage copy = new StreamResponseMessage(
+                    new UpnpResponse(
+                            responseMessage.getOperation().getStatusCode(),
+                            responseMessage.getOperation().getStatusMessage()
+                    )
+            );
+            copy.setHeaders(new UpnpHeaders(responseMessage.getHeaders().toHttpHeaders()));
+            if (responseMessage.hasBody()) copy.setBody(responseMessage.getBodyType(), responseMessage.getBody());
+            return copy;
+
+        } catch (Throwable t) {
+            log.fine("Exception occured during loopback stream processing: " + t);
+            if (syncProtocol != null) syncProtocol.responseException(t);
+            return new StreamResponseMessage(new UpnpResponse(UpnpResponse.Status.INTERNAL_SERVER_ERROR));
+        }
+    }
+
+    public Future<StreamResponseMessage> send(final StreamRequestMessage msg, final StreamResponseCallback callback) {
+        StreamRequestTask task = new StreamRequestTask(this, msg, callback);
+        try {
+            getConfiguration().getSyncProtocolExecutor().execute(task);
+        } catch (RejectedExecutionException ex) {
+            task.rejected();
+        }
+        return task;
+    }
+
+    public void broadcast(byte[] bytes) {
+        log.fine("Broadcast is not supported on loopback network, ignoring " + bytes.length + " bytes");
+    }
+
+    /**
+     * Reports the router's loopback address as the only bind address, without network interfaces.
+     */
+    public static class LoopbackNetworkAddressFactory implements NetworkAddressFactory {
+
+        protected final InetAddress address;
+        protected final int streamListenPort;
+        protected final InetAddress multicastGroup;
+
+        public LoopbackNetworkAddressFactory(InetAddress address, int streamListenPort) {
+            this.address = address;
+            this.streamListenPort = streamListenPort;
+            try {
+                this.multicastGroup = InetAddress.getByName(Constants.IPV4_UPNP_MULTICAST_GROUP);
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        public InetAddress getMulticastGroup() {
+            return multicastGroup;
+        }
+
+        public int getMulticastPort() {
+            return Constants.UPNP_MULTICAST_PORT;
+        }
+
+        public int getStreamListenPort() {
+            return streamListenPort;
+        }
+
+        public NetworkInterface[] getNetworkInterfaces() {
+            return new NetworkInterface[0];
+        }
+
+        public InetAddress[] getBindAddresses() {
+            return new InetAddress[]{address};
+        }
+
+        public byte[] getHardwareAddress(InetAddress inetAddress) {
+            return null;
+        }
+
+        public InetAddress getBroadcastAddress(InetAddress inetAddress) {
+            return null;
+        }
+
+        public InetAddress getLocalAddress(NetworkInterface networkInterface, boolean isIPv6, InetAddress remoteAddress) {
+            return address;
+        }
+    }
+
+}
@@ -25,8 +25,11 @@ import org.teleal.cling.model.message.StreamResponseMessage;
 import org.teleal.cling.protocol.ProtocolFactory;
 import org.teleal.cling.transport.spi.NetworkAddressFactory;
 import org.teleal.cling.transport.spi.StreamClient;
+import org.teleal.cling.transport.spi.StreamResponseCallback;
 import org.teleal.cling.transport.spi.UpnpStream;
 
+import java.util.concurrent.Future;
+
 
 public interface Router {
 
@@ -46,6 +49,14 @@ public interface Router {
 
     public StreamResponseMessage send(StreamRequestMessage msg);
 
+    /**
+     * Sends the message without blocking the calling thread, if the <tt>StreamClient</tt> supports
+     * it, or on a thread of the synchronous protocol executor otherwise.
+     *
+     * @return The pending request, cancel it to abort the connection.
+     */
+    public Future<StreamResponseMessage> send(StreamRequestMessage msg, StreamResponseCallback callback);
+
     public void broadcast(byte[] bytes);
 
 }
@@ -27,7 +27,9 @@ import org.teleal.cling.transport.spi.DatagramIO;
 import org.teleal.cling.transport.spi.InitializationException;
 import org.teleal.cling.transport.spi.MulticastReceiver;
 import org.teleal.cling.transport.spi.NetworkAddressFactory;
+import org.teleal.cling.transport.spi.AsyncStreamClient;
 import org.teleal.cling.transport.spi.StreamClient;
+import org.teleal.cling.transport.spi.StreamResponseCallback;
 import org.teleal.cling.transport.spi.StreamServer;
 import org.teleal.cling.transport.spi.UpnpStream;
 
@@ -36,6 +38,8 @@ import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 
@@ -158,6 +162,11 @@ public class RouterImpl implements Router {
             entry.getValue().stop();
         }
         datagramIOs.clear();
+
+        if (streamClient != null) {
+            log.fine("Stopping stream client");
+            streamClient.stop();
+        }
     }
 
     public void received(IncomingDatagramMessage msg) {
@@ -169,6 +178,12 @@ public class RouterImpl implements Router {
 
     public void received(UpnpStream stream) {
         log.fine("Received synchronous stream: " + stream);
+        StreamAdmissionControl admissionControl = getConfiguration().getStreamAdmissionControl();
+        if (admissionControl != null && !stream.admit(admissionControl)) {
+            log.fine("Request budget exhausted, rejecting stream: " + admissionControl);
+            stream.reject(admissionControl.getRetryAfterSeconds());
+            return;
+        }
         getConfiguration().getSyncProtocolExecutor().execute(stream);
     }
 
@@ -187,6 +202,22 @@ public class RouterImpl implements Router {
         return getStreamClient().sendRequest(msg);
     }
 
+    public Future<StreamResponseMessage> send(final StreamRequestMessage msg, final StreamResponseCallback callback) {
+        if (getStreamClient() instanceof AsyncStreamClient) {
+            log.fine("Sending via non-blocking TCP unicast stream: " + msg);
+            return ((AsyncStreamClient)getStreamClient()).sendRequest(msg, callback);
+        }
+
+        // The StreamClient can only block, so spend a protocol thread on it
+        StreamRequestTask task = new StreamRequestTask(this, msg, callback);
+        try {
+            getConfiguration().getSyncProtocolExecutor().execute(task);
+        } catch (RejectedExecutionException ex) {
+            task.rejected();
+        }
+        return task;
+    }
+
     public void broadcast(byte[] bytes) {
         for (Map.Entry<InetAddress, DatagramIO> entry : getDatagramIOs().entrySet()) {
             InetAddress broadcast = getNetworkAddressFactory().getBroadcastAddress(entry.getKey());
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.teleal.cling.transport;
+
+import org.teleal.cling.model.message.UpnpRequest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of incoming stream requests in flight, separately for control, eventing and
+ * description traffic.
+ * <p>
+ * The {@link Router} asks for admission before it hands a received stream to the executor. A stream
+ * that exceeds the budget of its request class is answered immediately with <tt>503 Service
+ * Unavailable</tt> and a <tt>Retry-After</tt> header, so one class of requests can not starve the
+ * others and clients don't wait until they time out.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class StreamAdmissionControl {
+
+    public enum RequestClass {
+        CONTROL, EVENTING, DESCRIPTION
+    }
+
+    protected final Map<RequestClass, Semaphore> budgets = new EnumMap(RequestClass.class);
+    protected final Map<RequestClass, AtomicLong> rejections = new EnumMap(RequestClass.class);
+    protected final Map<RequestClass, Integer> limits = new EnumMap(RequestClass.class);
+    protected final int retryAfterSeconds;
+
+    public StreamAdmissionControl(int maxControl, int maxEventing, int maxDescription, int retryAfterSeconds) {
+        limits.put(RequestClass.CONTROL, maxControl);
+        limits.put(RequestClass.EVENTING, maxEventing);
+        limits.put(RequestClass.DESCRIPTION, maxDescription);
+        for (RequestClass requestClass : RequestClass.values()) {
+            budgets.put(requestClass, new Semaphore(limits.get(requestClass)));
+            rejections.put(requestClass, new AtomicLong());
+        }
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * @return The class of a request with the given method, or <tt>null</tt> if the method is unknown.
+     */
+    public RequestClass getRequestClass(UpnpRequest.Method method) {
+        if (method == null) return null;
+        switch (method) {
+            case GET:
+                return RequestClass.DESCRIPTION;
+            case POST:
+            case MPOST:
+                return RequestClass.CONTROL;
+            case SUBSCRIBE:
+            case UNSUBSCRIBE:
+            case NOTIFY:
+                return RequestClass.EVENTING;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the request is admitted, it then has to be released when it completes.
+     */
+    public boolean tryAcquire(RequestClass requestClass) {
+        if (budgets.get(requestClass).tryAcquire()) return true;
+        rejections.get(requestClass).incrementAndGet();
+        return false;
+    }
+
+    public void release(RequestClass requestClass) {
+        budgets.get(requestClass).release();
+    }
+
+    public int getLimit(RequestClass requestClass) {
+        return limits.get(requestClass);
+    }
+
+    public int getInFlight(RequestClass requestClass) {
+        return limits.get(requestClass) - budgets.get(requestClass).availablePermits();
+    }
+
+    public long getRejectedCount(RequestClass requestClass) {
+        return rejections.get(requestClass).get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (RequestClass requestClass : RequestClass.values()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(requestClass).append(": ").append(getInFlight(requestClass))
+                    .append("/").append(getLimit(requestClass));
+        }
+        return "(" + getClass().getSimpleName() + ") " + sb;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport;
+
+import org.teleal.cling.model.message.StreamRequestMessage;
+import org.teleal.cling.model.message.StreamResponseMessage;
+import org.teleal.cling.transport.spi.StreamResponseCallback;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Logger;
+
+/**
+ * Sends a stream request with the blocking {@link Router#send(StreamRequestMessage)} on a protocol thread.
+ * <p>
+ * Call {@link #rejected()} if the executor doesn't accept the task, the callback would never be
+ * notified otherwise.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class StreamRequestTask extends FutureTask<StreamResponseMessage> {
+
+    private static Logger log = Logger.getLogger(StreamRequestTask.class.getName());
+
+    final protected StreamResponseCallback callback;
+
+    public StreamRequestTask(final Router router, final StreamRequestMessage msg, StreamResponseCallback callback) {
+        super(new Callable<StreamResponseMessage>() {
+            public StreamResponseMessage call() throws Exception {
+                return router.send(msg);
+            }
+        });
+        this.callback = callback;
+    }
+
+    /**
+     * Completes the request without a response and notifies the callback.
+     */
+    public void rejected() {
+        log.warning("Executor rejected sending of stream request, completing without response");
+        set(null);
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) return;
+        StreamResponseMessage response = null;
+        try {
+            response = get();
+        } catch (Exception ex) {
+            log.fine("Sending stream request failed: " + ex);
+        }
+        callback.responseReceived(response);
+    }
+
+}
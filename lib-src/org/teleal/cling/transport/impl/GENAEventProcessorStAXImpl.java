@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport.impl;
+
+import org.teleal.cling.binding.xml.parser.DescriptorStreamReader;
+import org.teleal.cling.model.message.UpnpMessage;
+import org.teleal.cling.model.message.gena.IncomingEventRequestMessage;
+import org.teleal.cling.model.meta.Service;
+import org.teleal.cling.model.meta.StateVariable;
+import org.teleal.cling.model.state.StateVariableValue;
+import org.teleal.cling.transport.spi.GENAEventProcessor;
+import org.teleal.cling.transport.spi.UnsupportedDataException;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads event messages with a StAX pull parser, no DOM is built.
+ * <p>
+ * Property names are resolved with the state variable index of the service, instead of comparing
+ * them with every state variable. The body is parsed as received, a body of bytes is decoded by the
+ * parser with the encoding of its XML declaration. Writing event messages is inherited.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class GENAEventProcessorStAXImpl extends GENAEventProcessorImpl {
+
+    private static Logger log = Logger.getLogger(GENAEventProcessor.class.getName());
+
+    @Override
+    public void readBody(IncomingEventRequestMessage requestMessage) throws UnsupportedDataException {
+
+        log.fine("Reading body of: " + requestMessage);
+        if (log.isLoggable(Level.FINER)) {
+            log.finer("===================================== GENA BODY BEGIN ============================================");
+            log.finer(String.valueOf(requestMessage.getBody()));
+            log.finer("-===================================== GENA BODY END ============================================");
+        }
+
+        if (requestMessage.getBody() == null) {
+            throw new UnsupportedDataException("Can't transform null body of: " + requestMessage);
+        }
+
+        DescriptorStreamReader reader = null;
+        try {
+
+            if (requestMessage.getBodyType().equals(UpnpMessage.BodyType.STRING)) {
+                String body = requestMessage.getBodyString();
+                // TODO: UPNP VIOLATION: Some devices send whitespace before the XML declaration, which is fatal
+                if (body.length() > 0 && Character.isWhitespace(body.charAt(0))) {
+                    body = body.trim();
+                }
+                reader = new DescriptorStreamReader(body);
+            } else {
+                reader = new DescriptorStreamReader(requestMessage.getBodyBytes());
+            }
+
+            readPropertyset(reader, requestMessage);
+
+        } catch (Exception ex) {
+            throw new UnsupportedDataException("Can't transform message payload: " + ex.getMessage(), ex);
+        } finally {
+            if (reader != null) reader.close();
+        }
+    }
+
+    protected void readPropertyset(DescriptorStreamReader reader, IncomingEventRequestMessage message)
+            throws XMLStreamException {
+
+        if (!reader.nextRootElement() || !reader.getLocalName().equals("propertyset")) {
+            throw new RuntimeException("Root element was not 'propertyset'");
+        }
+
+        Service service = message.getDeviceService().getService();
+
+        while (reader.nextChildElement()) {
+            if (!reader.getLocalName().equals("property")) {
+                reader.skipElement();
+                continue;
+            }
+            while (reader.nextChildElement()) {
+                String stateVariableName = reader.getLocalName();
+                StateVariable stateVariable = service.getStateVariable(stateVariableName);
+                if (stateVariable == null) {
+                    log.finer("Ignoring unknown state variable: " + stateVariableName);
+                    reader.skipElement();
+                    continue;
+                }
+                log.fine("Reading state variable value: " + stateVariableName);
+                message.getStateVariableValues().add(
+                        new StateVariableValue(stateVariable, reader.readText())
+                );
+            }
+        }
+    }
+
+}
@@ -47,6 +47,22 @@ public class HttpExchangeUpnpStream extends UpnpStream {
         return httpExchange;
     }
 
+    @Override
+    public UpnpRequest.Method getRequestMethod() {
+        return UpnpRequest.Method.getByHttpMethodName(getHttpExchange().getRequestMethod());
+    }
+
+    protected void sendServiceUnavailable(int retryAfterSeconds) {
+        try {
+            getHttpExchange().getResponseHeaders().add("Retry-After", Integer.toString(retryAfterSeconds));
+            getHttpExchange().sendResponseHeaders(HttpURLConnection.HTTP_UNAVAILABLE, -1);
+        } catch (IOException ex) {
+            log.fine("Couldn't send service unavailable response: " + ex);
+        } finally {
+            getHttpExchange().close();
+        }
+    }
+
     public void execute() {
 
         try {
@@ -91,6 +91,10 @@ public class StreamClientImpl implements StreamClient {
         }
     }
 
+    public void stop() {
+        // Nothing to do, connections are not pooled
+    }
+
     public StreamResponseMessage sendRequest(StreamRequestMessage requestMessage) {
 
         final UpnpRequest requestOperation = requestMessage.getOperation();
@@ -26,17 +26,20 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpResponseFactory;
 import org.apache.http.HttpServerConnection;
 import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.MethodNotSupportedException;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.DefaultConnectionReuseStrategy;
 import org.apache.http.impl.DefaultHttpResponseFactory;
+import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.DefaultedHttpParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.BasicHttpProcessor;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpProcessor;
@@ -102,6 +105,29 @@ public class HttpServerConnectionUpnpStream extends UpnpStream {
         return connection;
     }
 
+    /**
+     * The request has not been read yet, this responds and closes the connection.
+     */
+    protected void sendServiceUnavailable(int retryAfterSeconds) {
+        try {
+            HttpResponse response = new BasicHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpStatus.SC_SERVICE_UNAVAILABLE, "Service Unavailable"
+            );
+            response.addHeader("Retry-After", Integer.toString(retryAfterSeconds));
+            response.addHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+            connection.sendResponseHeader(response);
+            connection.flush();
+        } catch (Exception ex) {
+            log.fine("Couldn't send service unavailable response: " + ex);
+        } finally {
+            try {
+                connection.shutdown();
+            } catch (IOException ex) {
+                log.fine("Error closing connection: " + ex.getMessage());
+            }
+        }
+    }
+
     @Override
     public void execute() {
 
@@ -107,6 +107,18 @@ public class StreamClientImpl implements StreamClient<StreamClientConfigurationI
         */
     }
 
+    /**
+     * @return The number of connections in the pool, in use or idle.
+     */
+    public int getConnectionsInPool() {
+        return clientConnectionManager != null ? clientConnectionManager.getConnectionsInPool() : 0;
+    }
+
+    public void stop() {
+        log.fine("Shutting down HTTP client connection manager");
+        clientConnectionManager.shutdown();
+    }
+
     public StreamResponseMessage sendRequest(StreamRequestMessage requestMessage) {
 
         final UpnpRequest requestOperation = requestMessage.getOperation();
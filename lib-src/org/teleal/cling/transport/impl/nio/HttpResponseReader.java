@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport.impl.nio;
+
+import org.teleal.common.http.Headers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incrementally parses an HTTP/1.x response from the bytes read on a non-blocking channel.
+ * <p>
+ * The body is delimited by <tt>Content-Length</tt>, chunked transfer encoding, or the end of the
+ * stream, in that order of preference. Interim <tt>1xx</tt> responses are skipped.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class HttpResponseReader {
+
+    final private static byte CR = '\r';
+    final private static byte LF = '\n';
+
+    protected final int maxResponseBytes;
+
+    private byte[] buffer = new byte[2048];
+    private int count;
+
+    private int headLength = -1;
+    private int httpMinorVersion;
+    private int statusCode;
+    private String statusMessage;
+    private Headers headers;
+
+    private int contentLength = -1;
+    private boolean chunked;
+    private int chunkPosition;
+    private ByteArrayOutputStream chunkedBody;
+
+    private boolean complete;
+
+    /**
+     * @param maxResponseBytes Reading fails if the response (head and body) is larger.
+     */
+    public HttpResponseReader(int maxResponseBytes) {
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
+    public int getHttpMinorVersion() {
+        return httpMinorVersion;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    public Headers getHeaders() {
+        return headers;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return The (decoded) entity body, or <tt>null</tt> if the response had none.
+     */
+    public byte[] getBody() {
+        if (!complete) throw new IllegalStateException("Response is not complete");
+        byte[] body;
+        if (chunked) {
+            body = chunkedBody.toByteArray();
+        } else {
+            int length = contentLength >= 0 ? contentLength : count - headLength;
+            body = new byte[length];
+            System.arraycopy(buffer, headLength, body, 0, length);
+        }
+        return body.length > 0 ? body : null;
+    }
+
+    /**
+     * Appends the readable bytes of the given buffer.
+     *
+     * @return <tt>true</tt> if the response is complete.
+     * @throws ProtocolException If the response is malformed or too large.
+     */
+    public boolean read(ByteBuffer data) throws IOException {
+        if (complete) return true;
+
+        int length = data.remaining();
+        if (count + length > maxResponseBytes) {
+            throw new ProtocolException("Response exceeds maximum size of " + maxResponseBytes + " bytes");
+        }
+        if (count + length > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, count + length)];
+            System.arraycopy(buffer, 0, grown, 0, count);
+            buffer = grown;
+        }
+        data.get(buffer, count, length);
+        count += length;
+
+        while (headLength == -1) {
+            int end = indexOfEmptyLine(0);
+            if (end == -1) return false;
+            readHead(end);
+        }
+
+        if (chunked) {
+            readChunks();
+        } else if (contentLength >= 0) {
+            complete = count - headLength >= contentLength;
+        }
+        return complete;
+    }
+
+    /**
+     * Called when the server closed the connection.
+     *
+     * @return <tt>true</tt> if the response is complete, which is the case if its body is delimited
+     *         by the end of the stream.
+     */
+    public boolean endOfStream() {
+        if (!complete && headLength != -1 && !chunked && contentLength == -1) {
+            complete = true;
+        }
+        return complete;
+    }
+
+    protected void readHead(int end) throws IOException {
+        ByteArrayInputStream is = new ByteArrayInputStream(buffer, 0, end);
+        String[] statusLine = Headers.readLine(is).split(" ", 3);
+        if (statusLine.length < 2 || !statusLine[0].toUpperCase().startsWith("HTTP/1.")) {
+            throw new ProtocolException("Invalid HTTP status line: " + statusLine[0]);
+        }
+        try {
+            statusCode = Integer.parseInt(statusLine[1]);
+        } catch (NumberFormatException ex) {
+            throw new ProtocolException("Invalid HTTP status code: " + statusLine[1]);
+        }
+
+        if (statusCode >= 100 && statusCode < 200) {
+            // Interim response, discard it and wait for the real one
+            System.arraycopy(buffer, end, buffer, 0, count - end);
+            count -= end;
+            return;
+        }
+
+        httpMinorVersion = statusLine[0].toUpperCase().equals("HTTP/1.1") ? 1 : 0;
+        statusMessage = statusLine.length > 2 ? statusLine[2] : "";
+        headers = new Headers(is);
+        headLength = end;
+
+        if (statusCode == 204 || statusCode == 304) {
+            contentLength = 0;
+            return;
+        }
+
+        String transferEncoding = getHeader("Transfer-Encoding");
+        String contentLengthValue = getHeader("Content-Length");
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            chunked = true;
+            chunkPosition = headLength;
+            chunkedBody = new ByteArrayOutputStream();
+        } else if (contentLengthValue != null) {
+            try {
+                contentLength = Integer.parseInt(contentLengthValue.trim());
+            } catch (NumberFormatException ex) {
+                throw new ProtocolException("Invalid Content-Length header: " + contentLengthValue);
+            }
+        }
+    }
+
+    protected void readChunks() throws IOException {
+        while (!complete) {
+            int lineEnd = indexOfLineEnd(chunkPosition);
+            if (lineEnd == -1) return;
+
+            String sizeLine = new String(buffer, chunkPosition, lineEnd - chunkPosition, "US-ASCII");
+            int extension = sizeLine.indexOf(';');
+            if (extension != -1) sizeLine = sizeLine.substring(0, extension);
+            int size;
+            try {
+                size = Integer.parseInt(sizeLine.trim(), 16);
+            } catch (NumberFormatException ex) {
+                throw new ProtocolException("Invalid chunk size: " + sizeLine);
+            }
+
+            int dataStart = lineEnd + 2;
+            if (size == 0) {
+                // Last chunk, skip the (usually empty) trailer
+                if (count >= dataStart + 2 && buffer[dataStart] == CR && buffer[dataStart + 1] == LF) {
+                    complete = true;
+                } else {
+                    complete = indexOfEmptyLine(lineEnd) != -1;
+                }
+                return;
+            }
+
+            if (count < dataStart + size + 2) return;
+            chunkedBody.write(buffer, dataStart, size);
+            chunkPosition = dataStart + size + 2;
+        }
+    }
+
+    protected String getHeader(String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name) && entry.getValue().size() > 0) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The index after the first empty line (CRLFCRLF) at or after the given offset, or <tt>-1</tt>.
+     */
+    protected int indexOfEmptyLine(int offset) {
+        for (int i = offset; i + 3 < count; i++) {
+            if (buffer[i] == CR && buffer[i + 1] == LF && buffer[i + 2] == CR && buffer[i + 3] == LF) {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The index of the first CRLF at or after the given offset, or <tt>-1</tt>.
+     */
+    protected int indexOfLineEnd(int offset) {
+        for (int i = offset; i + 1 < count; i++) {
+            if (buffer[i] == CR && buffer[i + 1] == LF) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
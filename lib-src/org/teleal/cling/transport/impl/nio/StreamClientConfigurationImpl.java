@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport.impl.nio;
+
+import org.teleal.cling.model.ServerClientTokens;
+import org.teleal.cling.transport.spi.StreamClientConfiguration;
+
+public class StreamClientConfigurationImpl implements StreamClientConfiguration {
+
+    // Timeout until connection is established
+    private int connectionTimeoutSeconds = 10;
+
+    // Timeout waiting for data during read
+    private int dataReadTimeoutSeconds = 10;
+
+    // UDA spec says it's always UTF-8 entity content
+    private String contentCharset = "UTF-8";
+
+    // Responses larger than this are dropped, protects against broken or hostile devices
+    private int maxResponseBytes = 8 * 1024 * 1024;
+
+    // Size of the buffer used for each socket read
+    private int readBufferSize = 8 * 1024;
+
+    // Limit for a whole synchronous request, including a slow transfer, zero means no limit
+    private int requestTimeoutSeconds = 0;
+
+    public int getConnectionTimeoutSeconds() {
+        return connectionTimeoutSeconds;
+    }
+
+    public void setConnectionTimeoutSeconds(int connectionTimeoutSeconds) {
+        this.connectionTimeoutSeconds = connectionTimeoutSeconds;
+    }
+
+    public int getDataReadTimeoutSeconds() {
+        return dataReadTimeoutSeconds;
+    }
+
+    public void setDataReadTimeoutSeconds(int dataReadTimeoutSeconds) {
+        this.dataReadTimeoutSeconds = dataReadTimeoutSeconds;
+    }
+
+    public String getContentCharset() {
+        return contentCharset;
+    }
+
+    public void setContentCharset(String contentCharset) {
+        this.contentCharset = contentCharset;
+    }
+
+    public int getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+
+    public void setMaxResponseBytes(int maxResponseBytes) {
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public void setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+    }
+
+    public int getRequestTimeoutSeconds() {
+        return requestTimeoutSeconds;
+    }
+
+    public void setRequestTimeoutSeconds(int requestTimeoutSeconds) {
+        this.requestTimeoutSeconds = requestTimeoutSeconds;
+    }
+
+    public String getUserAgentOS() {
+        return new ServerClientTokens().getOsToken();
+    }
+
+    public String getUserAgentProduct() {
+        return new ServerClientTokens().getProductToken();
+    }
+
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport.impl.nio;
+
+import org.teleal.cling.model.message.StreamRequestMessage;
+import org.teleal.cling.model.message.StreamResponseMessage;
+import org.teleal.cling.model.message.UpnpHeaders;
+import org.teleal.cling.model.message.UpnpMessage;
+import org.teleal.cling.model.message.UpnpRequest;
+import org.teleal.cling.model.message.UpnpResponse;
+import org.teleal.cling.transport.EndpointHealth;
+import org.teleal.cling.transport.Router;
+import org.teleal.cling.transport.spi.AsyncStreamClient;
+import org.teleal.cling.transport.spi.InitializationException;
+import org.teleal.cling.transport.spi.StreamResponseCallback;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A stream client on non-blocking channels, one selector thread multiplexes all outstanding requests.
+ * <p>
+ * Any HTTP method can be sent, including <tt>SUBSCRIBE</tt>, <tt>UNSUBSCRIBE</tt> and <tt>NOTIFY</tt>.
+ * Each request uses its own connection, which is closed when the response has been received.
+ * </p>
+ * <p>
+ * Response callbacks are called on the selector thread, they must not block.
+ * </p>
+ * <p>
+ * With an {@link EndpointHealth}, requests to a host that failed repeatedly fail immediately, and
+ * connection timeouts are adapted to the round-trip time of the host.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public class StreamClientImpl implements AsyncStreamClient<StreamClientConfigurationImpl>, Runnable {
+
+    final private static Logger log = Logger.getLogger(StreamClientImpl.class.getName());
+
+    // How often we look for requests that timed out
+    final private static long TIMEOUT_CHECK_MILLIS = 250;
+
+    protected final StreamClientConfigurationImpl configuration;
+    protected final EndpointHealth endpointHealth;
+
+    protected final Queue<Exchange> newExchanges = new ConcurrentLinkedQueue();
+    protected final List<Exchange> exchanges = new ArrayList();
+
+    protected Selector selector;
+    protected Thread selectorThread;
+    private volatile boolean stopped;
+    private volatile int openConnections;
+
+    public StreamClientImpl(StreamClientConfigurationImpl configuration) {
+        this(configuration, null);
+    }
+
+    public StreamClientImpl(StreamClientConfigurationImpl configuration, EndpointHealth endpointHealth) {
+        this.configuration = configuration;
+        this.endpointHealth = endpointHealth;
+    }
+
+    public StreamClientConfigurationImpl getConfiguration() {
+        return configuration;
+    }
+
+    public EndpointHealth getEndpointHealth() {
+        return endpointHealth;
+    }
+
+    synchronized public void init(Router router) throws InitializationException {
+        try {
+            selector = Selector.open();
+        } catch (IOException ex) {
+            throw new InitializationException("Could not open selector: " + ex, ex);
+        }
+        selectorThread = new Thread(this, "cling-stream-client");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * @return The number of requests waiting for the selector thread to open their connection.
+     */
+    public int getQueuedRequestCount() {
+        return newExchanges.size();
+    }
+
+    /**
+     * @return The number of connections with a request in progress.
+     */
+    public int getOpenConnectionCount() {
+        return openConnections;
+    }
+
+    synchronized public void stop() {
+        log.fine("Stopping stream client");
+        stopped = true;
+        if (selector != null) selector.wakeup();
+    }
+
+    public boolean isCallbackThread() {
+        return Thread.currentThread() == selectorThread;
+    }
+
+    public StreamResponseMessage sendRequest(StreamRequestMessage requestMessage) {
+        if (isCallbackThread()) {
+            throw new IllegalStateException("Can't send a synchronous request from a response callback");
+        }
+
+        Future<StreamResponseMessage> future = sendRequest(
+                requestMessage,
+                new StreamResponseCallback() {
+                    public void responseReceived(StreamResponseMessage responseMessage) {
+                    }
+                }
+        );
+        // The connect and idle read deadlines of the selector end the exchange, a transfer can take longer
+        int requestTimeoutSeconds = getConfiguration().getRequestTimeoutSeconds();
+        try {
+            if (requestTimeoutSeconds <= 0) return future.get();
+            return future.get(requestTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            log.info("Request timeout, no response received for: " + requestMessage);
+            future.cancel(true);
+            return null;
+        } catch (InterruptedException ex) {
+            log.fine("Interrupted while waiting for response, aborting request: " + requestMessage);
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            log.info("Unrecoverable exception occured, no response: " + ex.getCause());
+            return null;
+        }
+    }
+
+    public Future<StreamResponseMessage> sendRequest(StreamRequestMessage requestMessage, StreamResponseCallback callback) {
+        final UpnpRequest requestOperation = requestMessage.getOperation();
+        log.fine("Preparing HTTP request message with method '" + requestOperation.getHttpMethodName() + "': " + requestMessage);
+
+        Exchange exchange = new Exchange(requestMessage, callback);
+        try {
+            URI uri = requestOperation.getURI();
+            int port = uri.getPort() != -1 ? uri.getPort() : 80;
+            exchange.host = uri.getHost();
+            exchange.address = new InetSocketAddress(exchange.host, port);
+            if (exchange.address.isUnresolved()) {
+                throw new IOException("Could not resolve host: " + uri.getHost());
+            }
+            exchange.requestData = ByteBuffer.wrap(createRequestData(requestMessage));
+        } catch (Exception ex) {
+            log.info("Could not prepare HTTP request: " + ex);
+            exchange.complete(null);
+            return exchange;
+        }
+
+        if (endpointHealth != null && !endpointHealth.allowRequest(exchange.host)) {
+            log.fine("Circuit of host is open, failing immediately: " + requestMessage);
+            exchange.complete(null);
+            return exchange;
+        }
+
+        if (stopped || selector == null) {
+            log.fine("Stream client is not running, ignoring: " + requestMessage);
+            exchange.complete(null);
+            return exchange;
+        }
+
+        newExchanges.add(exchange);
+
+        // The selector thread might have drained the queue for the last time while we were adding
+        if (stopped && newExchanges.remove(exchange)) {
+            log.fine("Stream client stopped, ignoring: " + requestMessage);
+            exchange.complete(null);
+            return exchange;
+        }
+
+        selector.wakeup();
+        return exchange;
+    }
+
+    public void run() {
+        long lastTimeoutCheck = System.currentTimeMillis();
+        ByteBuffer readBuffer = ByteBuffer.allocate(getConfiguration().getReadBufferSize());
+
+        while (!stopped) {
+            try {
+                selector.select(TIMEOUT_CHECK_MILLIS);
+
+                Exchange exchange;
+                while ((exchange = newExchanges.poll()) != null) {
+                    connect(exchange);
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Exchange selected = (Exchange) key.attachment();
+                    if (!key.isValid()) {
+                        selected.close(null, null);
+                        continue;
+                    }
+                    try {
+                        if (key.isConnectable()) {
+                            connected(selected, key);
+                        } else if (key.isWritable()) {
+                            write(selected, key);
+                        } else if (key.isReadable()) {
+                            read(selected, readBuffer);
+                        }
+                    } catch (IOException ex) {
+                        log.info("Connection failed, no response for '" + selected.requestMessage + "': " + ex);
+                        selected.close(null, ex);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastTimeoutCheck >= TIMEOUT_CHECK_MILLIS) {
+                    lastTimeoutCheck = now;
+                    closeExpired(now);
+                }
+
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Unexpected exception in stream client selector loop", ex);
+            }
+        }
+
+        log.fine("Stream client stopped, aborting outstanding requests: " + exchanges.size());
+        for (Exchange exchange : new ArrayList<Exchange>(exchanges)) {
+            exchange.close(null, null);
+        }
+        Exchange exchange;
+        while ((exchange = newExchanges.poll()) != null) {
+            exchange.complete(null);
+        }
+        try {
+            selector.close();
+        } catch (IOException ex) {
+            log.fine("Could not close selector: " + ex);
+        }
+    }
+
+    protected void connect(Exchange exchange) {
+        if (exchange.isDone()) return;
+        try {
+            SocketChannel channel = SocketChannel.open();
+            exchange.channel = channel;
+            channel.configureBlocking(false);
+            exchanges.add(exchange);
+            openConnections = exchanges.size();
+            exchange.connectStart = System.currentTimeMillis();
+            long connectTimeoutMillis = getConfiguration().getConnectionTimeoutSeconds() * 1000L;
+            if (endpointHealth != null) {
+                connectTimeoutMillis = endpointHealth.getConnectTimeoutMillis(exchange.host, connectTimeoutMillis);
+            }
+            exchange.deadline = exchange.connectStart + connectTimeoutMillis;
+            if (channel.connect(exchange.address)) {
+                channel.register(selector, SelectionKey.OP_WRITE, exchange);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, exchange);
+            }
+            // Cancelled while we were registering
+            if (exchange.isDone()) exchange.close(null, null);
+        } catch (IOException ex) {
+            log.info("Could not open connection to '" + exchange.address + "': " + ex);
+            exchange.close(null, ex);
+        }
+    }
+
+    protected void connected(Exchange exchange, SelectionKey key) throws IOException {
+        if (exchange.channel.finishConnect()) {
+            log.fine("Connected to: " + exchange.address);
+            exchange.connected = true;
+            if (endpointHealth != null) {
+                endpointHealth.connected(exchange.host, System.currentTimeMillis() - exchange.connectStart);
+            }
+            exchange.deadline = System.currentTimeMillis() + getConfiguration().getDataReadTimeoutSeconds() * 1000L;
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    protected void write(Exchange exchange, SelectionKey key) throws IOException {
+        exchange.channel.write(exchange.requestData);
+        exchange.deadline = System.currentTimeMillis() + getConfiguration().getDataReadTimeoutSeconds() * 1000L;
+        if (!exchange.requestData.hasRemaining()) {
+            log.fine("Sent HTTP request: " + exchange.requestMessage);
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    protected void read(Exchange exchange, ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        int read = exchange.channel.read(readBuffer);
+        exchange.deadline = System.currentTimeMillis() + getConfiguration().getDataReadTimeoutSeconds() * 1000L;
+
+        if (read == -1) {
+            if (exchange.reader.endOfStream()) {
+                exchange.close(createResponse(exchange.reader), null);
+            } else {
+                throw new ProtocolException("Connection closed before response was complete");
+            }
+            return;
+        }
+
+        readBuffer.flip();
+        if (exchange.reader.read(readBuffer)) {
+            exchange.close(createResponse(exchange.reader), null);
+        }
+    }
+
+    protected void closeExpired(long now) {
+        for (Exchange exchange : new ArrayList<Exchange>(exchanges)) {
+            if (exchange.isDone()) {
+                exchange.close(null, null);
+            } else if (now > exchange.deadline) {
+                log.info("Timeout, no response received for: " + exchange.requestMessage);
+                exchange.close(null, new SocketTimeoutException(exchange.connected ? "Read timed out" : "Connect timed out"));
+            }
+        }
+    }
+
+    protected byte[] createRequestData(StreamRequestMessage requestMessage) throws UnsupportedEncodingException {
+        UpnpRequest requestOperation = requestMessage.getOperation();
+        URI uri = requestOperation.getURI();
+
+        String path = uri.getRawPath() != null && uri.getRawPath().length() > 0 ? uri.getRawPath() : "/";
+        if (uri.getRawQuery() != null) path = path + "?" + uri.getRawQuery();
+
+        byte[] body = null;
+        if (requestMessage.hasBody()) {
+            body = requestMessage.getBodyType().equals(UpnpMessage.BodyType.STRING)
+                    ? requestMessage.getBodyString().getBytes(getConfiguration().getContentCharset())
+                    : requestMessage.getBodyBytes();
+        }
+
+        StringBuilder head = new StringBuilder();
+        head.append(requestOperation.getHttpMethodName()).append(" ").append(path).append(" ");
+        head.append("HTTP/1.").append(requestOperation.getHttpMinorVersion()).append("\r\n");
+
+        if (!requestMessage.hasHostHeader()) {
+            head.append("Host: ").append(uri.getHost());
+            if (uri.getPort() != -1) head.append(":").append(uri.getPort());
+            head.append("\r\n");
+        }
+
+        // Let's just add the user-agent header on every request, the UDA 1.0 spec doesn't care and the UDA 1.1 spec says OK
+        head.append("User-Agent: ");
+        head.append(getConfiguration().getUserAgentOS()).append(" ");
+        head.append("UPnP/").append(requestMessage.getUdaMajorVersion()).append(".").append(requestMessage.getUdaMinorVersion()).append(" ");
+        head.append(getConfiguration().getUserAgentProduct()).append("\r\n");
+
+        for (Map.Entry<String, List<String>> entry : requestMessage.getHeaders().toHttpHeaders().entrySet()) {
+            for (String value : entry.getValue()) {
+                head.append(entry.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+
+        head.append("Content-Length: ").append(body != null ? body.length : 0).append("\r\n");
+        head.append("Connection: close\r\n");
+        head.append("\r\n");
+
+        // According to HTTP 1.0 RFC, headers and their values are US-ASCII
+        byte[] headData = head.toString().getBytes("US-ASCII");
+        if (body == null) return headData;
+
+        byte[] data = new byte[headData.length + body.length];
+        System.arraycopy(headData, 0, data, 0, headData.length);
+        System.arraycopy(body, 0, data, headData.length, body.length);
+        return data;
+    }
+
+    protected StreamResponseMessage createResponse(HttpResponseReader reader) {
+        try {
+            UpnpResponse responseOperation = new UpnpResponse(reader.getStatusCode(), reader.getStatusMessage());
+            responseOperation.setHttpMinorVersion(reader.getHttpMinorVersion());
+            log.fine("Received response: " + responseOperation);
+
+            StreamResponseMessage responseMessage = new StreamResponseMessage(responseOperation);
+            responseMessage.setHeaders(new UpnpHeaders(reader.getHeaders()));
+
+            byte[] body = reader.getBody();
+            if (body != null && responseMessage.getHeaders().containsTextContentType()) {
+                responseMessage.setBody(UpnpMessage.BodyType.STRING, new String(body, getConfiguration().getContentCharset()));
+            } else if (body != null) {
+                responseMessage.setBody(UpnpMessage.BodyType.BYTES, body);
+            }
+            return responseMessage;
+
+        } catch (Exception ex) {
+            log.info("Could not read HTTP response: " + ex);
+            return null;
+        }
+    }
+
+    /**
+     * An outstanding request, its connection and its (future) response.
+     */
+    protected class Exchange implements Future<StreamResponseMessage> {
+
+        protected final StreamRequestMessage requestMessage;
+        protected final StreamResponseCallback callback;
+        protected final HttpResponseReader reader;
+
+        protected String host;
+        protected InetSocketAddress address;
+        protected ByteBuffer requestData;
+        protected SocketChannel channel;
+        protected long connectStart;
+        protected boolean connected;
+        protected long deadline;
+
+        private StreamResponseMessage response;
+        private boolean done;
+        private boolean cancelled;
+
+        protected Exchange(StreamRequestMessage requestMessage, StreamResponseCallback callback) {
+            this.requestMessage = requestMessage;
+            this.callback = callback;
+            this.reader = new HttpResponseReader(getConfiguration().getMaxResponseBytes());
+        }
+
+        /**
+         * Closes the connection and completes the exchange, must be called on the selector thread.
+         *
+         * @param failure The reason why there is no response, <tt>null</tt> if the request was aborted.
+         */
+        protected void close(StreamResponseMessage response, Exception failure) {
+            exchanges.remove(this);
+            openConnections = exchanges.size();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    log.fine("Could not close connection: " + ex);
+                }
+                // Aborted requests say nothing about the host
+                if (endpointHealth != null && !stopped && !isCancelled()) {
+                    if (response != null) {
+                        endpointHealth.succeeded(host);
+                    } else if (isHostFailure(failure)) {
+                        endpointHealth.failed(host);
+                    }
+                }
+            }
+            complete(response);
+        }
+
+        /**
+         * @return <tt>true</tt> if the host could not be connected or dropped the connection, a slow or
+         *         invalid response says nothing about whether the host is alive.
+         */
+        protected boolean isHostFailure(Exception failure) {
+            if (failure == null) return false;
+            if (!connected) return true;
+            return !(failure instanceof SocketTimeoutException) && !(failure instanceof ProtocolException);
+        }
+
+        protected void complete(StreamResponseMessage response) {
+            synchronized (this) {
+                if (done) return;
+                done = true;
+                this.response = response;
+                notifyAll();
+            }
+            try {
+                callback.responseReceived(response);
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Stream response callback threw exception", ex);
+            }
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (this) {
+                if (done) return false;
+                done = true;
+                cancelled = true;
+                notifyAll();
+            }
+            log.fine("Request cancelled, closing connection: " + requestMessage);
+            // The selector thread removes and closes it on the next timeout check
+            selector.wakeup();
+            return true;
+        }
+
+        synchronized public boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized public boolean isDone() {
+            return done;
+        }
+
+        synchronized public StreamResponseMessage get() throws InterruptedException {
+            while (!done) {
+                wait();
+            }
+            if (cancelled) throw new CancellationException();
+            return response;
+        }
+
+        synchronized public StreamResponseMessage get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            long end = System.currentTimeMillis() + unit.toMillis(timeout);
+            while (!done) {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) throw new TimeoutException();
+                wait(remaining);
+            }
+            if (cancelled) throw new CancellationException();
+            return response;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport.spi;
+
+import org.teleal.cling.model.message.StreamRequestMessage;
+import org.teleal.cling.model.message.StreamResponseMessage;
+
+import java.util.concurrent.Future;
+
+/**
+ * A stream client that can send a request without blocking the calling thread.
+ * <p>
+ * The callback is called exactly once, unless the returned <tt>Future</tt> has been cancelled
+ * before a response was received. Cancelling the <tt>Future</tt> aborts the connection.
+ * </p>
+ * <p>
+ * The callback might be called on a thread that also completes all other requests, code running
+ * there must not wait for the response of another request, see {@link #isCallbackThread()}.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public interface AsyncStreamClient<C extends StreamClientConfiguration> extends StreamClient<C> {
+
+    public Future<StreamResponseMessage> sendRequest(StreamRequestMessage message, StreamResponseCallback callback);
+
+    /**
+     * @return <tt>true</tt> if the current thread completes requests of this client, waiting
+     *         for a response on it would block forever.
+     */
+    public boolean isCallbackThread();
+
+}
@@ -27,5 +27,6 @@ public interface StreamClient<C extends StreamClientConfiguration> {
     public void init(Router router) throws InitializationException;
     public StreamResponseMessage sendRequest(StreamRequestMessage message);
     public C getConfiguration();
+    public void stop();
 
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2010 Teleal GmbH, Switzerland
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.teleal.cling.transport.spi;
+
+import org.teleal.cling.model.message.StreamResponseMessage;
+
+/**
+ * Receives the outcome of a request sent with {@link AsyncStreamClient}.
+ * <p>
+ * Implementations are called on a transport thread and must not block.
+ * </p>
+ *
+ * @author Christian Bauer
+ */
+public interface StreamResponseCallback {
+
+    /**
+     * @param responseMessage The received response, or <tt>null</tt> if there was no connection or no response.
+     */
+    public void responseReceived(StreamResponseMessage responseMessage);
+
+}
@@ -20,7 +20,12 @@ package org.teleal.cling.transport.spi;
 import org.teleal.cling.model.message.StreamRequestMessage;
 import org.teleal.cling.model.message.StreamResponseMessage;
 import org.teleal.cling.protocol.ProtocolFactory;
+import org.teleal.cling.model.message.UpnpRequest;
+import org.teleal.cling.model.message.UpnpResponse;
+import org.teleal.cling.model.message.header.RetryAfterHeader;
+import org.teleal.cling.model.message.header.UpnpHeader;
 import org.teleal.cling.protocol.ReceivingSync;
+import org.teleal.cling.transport.StreamAdmissionControl;
 
 import java.util.logging.Logger;
 
@@ -32,6 +37,10 @@ public abstract class UpnpStream implements Runnable {
     protected final ProtocolFactory protocolFactory;
     protected ReceivingSync syncProtocol;
 
+    private StreamAdmissionControl admissionControl;
+    private StreamAdmissionControl.RequestClass admittedClass;
+    private StreamResponseMessage unavailableResponse;
+
     protected UpnpStream(ProtocolFactory protocolFactory) {
         this.protocolFactory = protocolFactory;
     }
@@ -42,10 +51,73 @@ public abstract class UpnpStream implements Runnable {
 
     public void run() {
         // TODO: Lock!
+        try {
+            execute();
+        } finally {
+            releaseAdmission();
+        }
+    }
+
+    /**
+     * @return The method of the request if it is known before the stream is executed, or <tt>null</tt>.
+     */
+    public UpnpRequest.Method getRequestMethod() {
+        return null;
+    }
+
+    /**
+     * Takes a slot from the budget of this stream's request class, released when the stream completes.
+     *
+     * @return <tt>false</tt> if the budget is exhausted; streams with an unknown request method are
+     *         always admitted.
+     */
+    public boolean admit(StreamAdmissionControl admissionControl) {
+        StreamAdmissionControl.RequestClass requestClass = admissionControl.getRequestClass(getRequestMethod());
+        if (requestClass == null) return true;
+        if (!admissionControl.tryAcquire(requestClass)) return false;
+        this.admissionControl = admissionControl;
+        this.admittedClass = requestClass;
+        return true;
+    }
+
+    /**
+     * Answers with <tt>503 Service Unavailable</tt> without executing the stream, called on the
+     * thread that received it.
+     */
+    public void reject(int retryAfterSeconds) {
+        releaseAdmission();
+        log.fine("Rejecting stream, retry after seconds: " + retryAfterSeconds);
+        sendServiceUnavailable(retryAfterSeconds);
+    }
+
+    protected void releaseAdmission() {
+        if (admittedClass != null) {
+            admissionControl.release(admittedClass);
+            admittedClass = null;
+        }
+    }
+
+    /**
+     * Executes this stream with a <tt>503 Service Unavailable</tt> response in place of the
+     * protocol's response, written through the regular response path of {@link #execute()}.
+     * <p>
+     * Implementations which can answer without reading the request should override this
+     * method, as the built-in streams do.
+     * </p>
+     */
+    protected void sendServiceUnavailable(int retryAfterSeconds) {
+        StreamResponseMessage responseMsg = new StreamResponseMessage(UpnpResponse.Status.SERVICE_UNAVAILABLE);
+        responseMsg.getHeaders().add(UpnpHeader.Type.RETRY_AFTER, new RetryAfterHeader(retryAfterSeconds));
+        unavailableResponse = responseMsg;
         execute();
     }
 
     public StreamResponseMessage process(StreamRequestMessage requestMsg) throws UnsupportedDataException {
+        if (unavailableResponse != null) {
+            log.fine("Not processing stream request message, service unavailable: " + requestMsg);
+            return unavailableResponse;
+        }
+
         log.fine("Processing stream request message: " + requestMsg);
 
         // Try to get a protocol implementation that matches the request message
@@ -70,11 +142,11 @@ public abstract class UpnpStream implements Runnable {
     public abstract void execute();
 
     public void responseSent(StreamResponseMessage responseMessage) {
-        syncProtocol.responseSent(responseMessage);
+        if (syncProtocol != null) syncProtocol.responseSent(responseMessage);
     }
 
     public void responseException(Throwable t) {
-        syncProtocol.responseException(t);
+        if (syncProtocol != null) syncProtocol.responseException(t);
     }
 
     @Override
@@ -0,0 +1,321 @@
+import org.teleal.cling.DefaultUpnpServiceConfiguration;
+import org.teleal.cling.UpnpService;
+import org.teleal.cling.UpnpServiceImpl;
+import org.teleal.cling.controlpoint.SubscriptionCallback;
+import org.teleal.cling.model.action.ActionInvocation;
+import org.teleal.cling.model.gena.CancelReason;
+import org.teleal.cling.model.gena.GENASubscription;
+import org.teleal.cling.model.message.UpnpResponse;
+import org.teleal.cling.model.message.header.STAllHeader;
+import org.teleal.cling.model.meta.DeviceService;
+import org.teleal.cling.model.meta.RemoteDevice;
+import org.teleal.cling.model.meta.Service;
+import org.teleal.cling.model.types.ServiceId;
+import org.teleal.cling.protocol.ProtocolFactory;
+import org.teleal.cling.registry.DefaultRegistryListener;
+import org.teleal.cling.registry.Registry;
+import org.teleal.cling.transport.LoopbackNetwork;
+import org.teleal.cling.transport.LoopbackRouter;
+import org.teleal.cling.transport.Router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The "bench-client" mode: discovers a bench server with N control points,
+ * each with its own UpnpService, and runs GetPayload and PutPayload for every
+ * payload size on all of them concurrently until the duration is over. Every
+ * payload is verified with its CRC. With "loopback=true" the server runs in
+ * the same JVM, connected through a LoopbackNetwork instead of sockets.
+ */
+public class BenchClient {
+  private static final int ACTION_DEADLINE_SECONDS = 30;
+  private static final int DISCOVERY_TIMEOUT_SECONDS = 30;
+  private static final int FIRST_PORT = 8082;
+  private static final ServiceId SERVICE_ID =
+                           new ServiceId("pipeep", "UPnPBenchServer-JavaCling");
+  
+  private int concurrency = 1;
+  private int durationSeconds = 30;
+  private int[] sizes = {1024, 64*1024, 1024*1024};
+  private int churnMillis = 0;
+  private boolean loopback = false;
+  
+  private final Map<String, ActionStats> stats =
+                                     new LinkedHashMap<String, ActionStats>();
+  private final AtomicLong eventsReceived = new AtomicLong();
+  
+  // Options are given as name=value
+  public BenchClient(String[] options) {
+    for(String option : options) {
+      int i = option.indexOf('=');
+      if(i == -1) {
+        throw new IllegalArgumentException("Invalid option: " + option);
+      }
+      String name = option.substring(0, i);
+      String value = option.substring(i + 1);
+      if(name.equals("concurrency")) {
+        concurrency = Integer.parseInt(value);
+      } else if(name.equals("duration")) {
+        durationSeconds = Integer.parseInt(value);
+      } else if(name.equals("sizes")) {
+        String[] values = value.split(",");
+        sizes = new int[values.length];
+        for(int j = 0; j < values.length; j++) {
+          sizes[j] = Integer.parseInt(values[j].trim());
+        }
+      } else if(name.equals("churn")) {
+        churnMillis = Integer.parseInt(value);
+      } else if(name.equals("loopback")) {
+        loopback = Boolean.parseBoolean(value);
+      } else {
+        throw new IllegalArgumentException("Unknown option: " + name);
+      }
+    }
+  }
+  
+  public static void printOptions() {
+    System.out.println("Options for \"bench-client\", as name=value:");
+    System.out.println("  concurrency  number of control points (1)");
+    System.out.println("  duration     seconds to run (30)");
+    System.out.println("  sizes        comma separated payload bytes (1024,65536,1048576)");
+    System.out.println("  churn        milliseconds between Counter events, 0 is off (0)");
+    System.out.println("  loopback     run the server in this JVM without sockets (false)");
+  }
+  
+  public void run() throws Exception {
+    List<UpnpService> services = new ArrayList<UpnpService>();
+    LoopbackNetwork network = loopback ? new LoopbackNetwork() : null;
+    try {
+      if(network != null) {
+        UpnpService server = createUpnpService(network, 0);
+        services.add(server);
+        server.getRegistry().addDevice(TestApp.createBenchDevice());
+      }
+      
+      System.out.println("Discovering bench server with " + concurrency +
+                         " control point(s)");
+      final DeviceService[] found = new DeviceService[concurrency];
+      final CountDownLatch discovered = new CountDownLatch(concurrency);
+      for(int i = 0; i < concurrency; i++) {
+        final int index = i;
+        UpnpService upnpService = createUpnpService(network, i);
+        services.add(upnpService);
+        upnpService.getRegistry().addListener(new DefaultRegistryListener() {
+          public void remoteDeviceAdded(Registry registry, RemoteDevice device) {
+            DeviceService deviceService = device.findDeviceService(SERVICE_ID);
+            if(deviceService == null) {
+              return;
+            }
+            synchronized(found) {
+              if(found[index] == null) {
+                found[index] = deviceService;
+                discovered.countDown();
+              }
+            }
+          }
+        });
+        upnpService.getControlPoint().search(new STAllHeader());
+      }
+      if(!discovered.await(DISCOVERY_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        System.out.println("Bench server not found by all control points");
+        return;
+      }
+      
+      final List<UpnpService> controlPoints =
+                           services.subList(network != null ? 1 : 0, services.size());
+      Service service = found[0].getService();
+      final Map<Integer, Integer> checksums = new LinkedHashMap<Integer, Integer>();
+      for(int size : sizes) {
+        checksums.put(size, (Integer)execute(controlPoints.get(0), service,
+                                             "GetPayloadChecksum", size));
+        stats.put("GetPayload." + size, new ActionStats());
+        stats.put("PutPayload." + size, new ActionStats());
+      }
+      if(churnMillis > 0) {
+        for(int i = 0; i < concurrency; i++) {
+          subscribe(controlPoints.get(i), found[i]);
+        }
+        execute(controlPoints.get(0), service, "SetChurn", churnMillis);
+      }
+      
+      System.out.println("Running for " + durationSeconds + " seconds");
+      final long deadline = System.nanoTime() +
+                            TimeUnit.SECONDS.toNanos(durationSeconds);
+      long started = System.nanoTime();
+      Thread[] workers = new Thread[concurrency];
+      for(int i = 0; i < concurrency; i++) {
+        final UpnpService upnpService = controlPoints.get(i);
+        final Service workerService = found[i].getService();
+        workers[i] = new Thread("BenchClient worker " + i) {
+          public void run() {
+            while(System.nanoTime() < deadline) {
+              for(int size : sizes) {
+                int checksum = checksums.get(size);
+                measure(upnpService, workerService, "GetPayload", size, size,
+                        checksum);
+                measure(upnpService, workerService, "PutPayload", size,
+                        BenchServer.createPayload(size), checksum);
+              }
+            }
+          }
+        };
+        workers[i].start();
+      }
+      for(Thread worker : workers) {
+        worker.join();
+      }
+      double seconds = (System.nanoTime() - started) / 1e9;
+      
+      if(churnMillis > 0) {
+        execute(controlPoints.get(0), service, "SetChurn", 0);
+      }
+      report(seconds);
+    } finally {
+      for(UpnpService upnpService : services) {
+        upnpService.shutdown();
+      }
+    }
+  }
+  
+  private UpnpService createUpnpService(final LoopbackNetwork network, int index) {
+    if(network == null) {
+      return new UpnpServiceImpl(
+        new DefaultUpnpServiceConfiguration(FIRST_PORT + index)
+      );
+    }
+    return new UpnpServiceImpl(new DefaultUpnpServiceConfiguration()) {
+      protected Router createRouter(ProtocolFactory protocolFactory,
+                                    Registry registry) {
+        return new LoopbackRouter(getConfiguration(), protocolFactory, network);
+      }
+    };
+  }
+  
+  private void measure(UpnpService upnpService, Service service,
+                       String action, int size, Object input, int checksum) {
+    ActionStats actionStats = stats.get(action + "." + size);
+    long start = System.nanoTime();
+    try {
+      Object output = execute(upnpService, service, action, input);
+      long latency = System.nanoTime() - start;
+      int received = output instanceof String
+                   ? TestServer.calculateChecksum((String)output)
+                   : (Integer)output;
+      if(received != checksum) {
+        throw new IllegalStateException("Checksum mismatch");
+      }
+      actionStats.completed(latency, size);
+    } catch (Exception ex) {
+      actionStats.failed();
+    }
+  }
+  
+  private static Object execute(UpnpService upnpService, Service service,
+                                String action, Object input) throws Exception {
+    ActionInvocation invocation = new ActionInvocation(service.getAction(action));
+    invocation.getInput().setValues(input);
+    upnpService.getControlPoint()
+               .executeAsync(invocation, ACTION_DEADLINE_SECONDS, TimeUnit.SECONDS)
+               .get();
+    if(invocation.getFailure() != null) {
+      throw invocation.getFailure();
+    }
+    return invocation.getOutput().getValues().length > 0
+           ? invocation.getOutput().getValues()[0].getValue()
+           : null;
+  }
+  
+  private void subscribe(UpnpService upnpService, DeviceService deviceService) {
+    upnpService.getControlPoint().execute(new SubscriptionCallback(deviceService) {
+      protected void failed(GENASubscription subscription,
+                            UpnpResponse responseStatus, Exception exception) {
+        System.out.println("Subscription failed: " + responseStatus +
+                           (exception != null ? " " + exception : ""));
+      }
+      
+      protected void established(GENASubscription subscription) {
+      }
+      
+      protected void ended(GENASubscription subscription, CancelReason reason,
+                           UpnpResponse responseStatus) {
+      }
+      
+      protected void eventReceived(GENASubscription subscription) {
+        eventsReceived.incrementAndGet();
+      }
+      
+      protected void eventsMissed(GENASubscription subscription,
+                                  int numberOfMissedEvents) {
+      }
+    });
+  }
+  
+  private void report(double seconds) {
+    System.out.println(String.format("%-20s %8s %10s %10s %9s %9s %9s %7s",
+          "action", "ops", "ops/s", "MB/s", "p50 ms", "p99 ms", "p999 ms",
+          "errors"));
+    for(Map.Entry<String, ActionStats> entry : stats.entrySet()) {
+      ActionStats actionStats = entry.getValue();
+      long[] latencies = actionStats.getLatencies();
+      System.out.println(String.format(
+            "%-20s %8d %10.1f %10.2f %9.2f %9.2f %9.2f %7d",
+            entry.getKey(), latencies.length, latencies.length / seconds,
+            actionStats.getBytes() / seconds / (1024*1024),
+            percentile(latencies, 0.5), percentile(latencies, 0.99),
+            percentile(latencies, 0.999), actionStats.getErrors()));
+    }
+    if(churnMillis > 0) {
+      System.out.println(String.format("Events received: %d (%.1f/s)",
+            eventsReceived.get(), eventsReceived.get() / seconds));
+    }
+  }
+  
+  // Milliseconds, latencies must be sorted
+  private static double percentile(long[] latencies, double p) {
+    if(latencies.length == 0) {
+      return 0;
+    }
+    int i = (int)Math.ceil(p * latencies.length) - 1;
+    return latencies[Math.max(i, 0)] / 1e6;
+  }
+  
+  private static class ActionStats {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long bytes;
+    private int errors;
+    
+    public synchronized void completed(long latency, int size) {
+      if(count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = latency;
+      bytes += size;
+    }
+    
+    public synchronized void failed() {
+      errors++;
+    }
+    
+    public synchronized long[] getLatencies() {
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+    
+    public synchronized long getBytes() {
+      return bytes;
+    }
+    
+    public synchronized int getErrors() {
+      return errors;
+    }
+  }
+}
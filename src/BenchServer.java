@@ -0,0 +1,110 @@
+import org.teleal.cling.binding.annotations.*;
+import org.teleal.common.util.Base64Coder;
+import java.beans.PropertyChangeSupport;
+import java.util.Map;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The service of the "bench-server" mode. Payloads of any size are generated
+ * from a seeded Random, so the client can create and verify the same data.
+ * SetChurn changes the evented Counter variable every Interval milliseconds.
+ */
+@UpnpService(
+  serviceId = @UpnpServiceId(value = "UPnPBenchServer-JavaCling",
+                             namespace = "pipeep"),
+  serviceType = @UpnpServiceType(value = "UPnPBenchServer",
+                                 namespace = "schemas-pipeep",
+                                 version = 1)
+)
+public class BenchServer {
+  public static final int MAX_PAYLOAD_SIZE = 16*1024*1024;
+  
+  private static final Map<Integer, String> payloads =
+                                      new ConcurrentHashMap<Integer, String>();
+  
+  private final PropertyChangeSupport propertyChangeSupport =
+                                               new PropertyChangeSupport(this);
+  private Timer churnTimer;
+  
+  @UpnpStateVariable(sendEvents = false)
+  private Integer size;
+  
+  @UpnpStateVariable(sendEvents = false)
+  private String payload;
+  
+  @UpnpStateVariable(sendEvents = false)
+  private Integer payloadChecksum;
+  
+  @UpnpStateVariable(sendEvents = false)
+  private Integer interval;
+  
+  @UpnpStateVariable(sendEvents = true)
+  private Integer counter = 0;
+  
+  public PropertyChangeSupport getPropertyChangeSupport() {
+    return propertyChangeSupport;
+  }
+  
+  @UpnpAction(out = @UpnpOutputArgument(name = "Payload",
+                                        stateVariable = "Payload"))
+  public String getPayload(
+        @UpnpInputArgument(name = "Size", stateVariable = "Size") Integer size) {
+    return createPayload(size);
+  }
+  
+  @UpnpAction(out = @UpnpOutputArgument(name = "PayloadChecksum",
+                                        stateVariable = "PayloadChecksum"))
+  public Integer getPayloadChecksum(
+        @UpnpInputArgument(name = "Size", stateVariable = "Size") Integer size) {
+    return TestServer.calculateChecksum(createPayload(size));
+  }
+  
+  @UpnpAction(out = @UpnpOutputArgument(name = "PayloadChecksum",
+                                        stateVariable = "PayloadChecksum"))
+  public Integer putPayload(
+        @UpnpInputArgument(name = "Payload", stateVariable = "Payload")
+        String payload) {
+    return TestServer.calculateChecksum(payload);
+  }
+  
+  @UpnpAction
+  public synchronized void setChurn(
+        @UpnpInputArgument(name = "Interval", stateVariable = "Interval")
+        Integer interval) {
+    if(churnTimer != null) {
+      churnTimer.cancel();
+      churnTimer = null;
+    }
+    if(interval != null && interval > 0) {
+      churnTimer = new Timer("BenchServer churn", true);
+      churnTimer.scheduleAtFixedRate(new TimerTask() {
+        public void run() {
+          Integer oldValue;
+          Integer newValue;
+          synchronized(BenchServer.this) {
+            oldValue = counter;
+            newValue = counter = counter + 1;
+          }
+          propertyChangeSupport.firePropertyChange("Counter", oldValue, newValue);
+        }
+      }, interval, interval);
+    }
+  }
+  
+  public static String createPayload(int size) {
+    if(size < 0 || size > MAX_PAYLOAD_SIZE) {
+      throw new IllegalArgumentException("Invalid payload size: " + size);
+    }
+    String payload = payloads.get(size);
+    if(payload == null) {
+      byte[] rawData = new byte[size];
+      new Random(size).nextBytes(rawData);
+      payload = new String(Base64Coder.encode(rawData));
+      payloads.put(size, payload);
+    }
+    return payload;
+  }
+}
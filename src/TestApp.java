@@ -1,3 +1,4 @@
+import org.teleal.cling.DefaultUpnpServiceConfiguration;
 import org.teleal.cling.UpnpService;
 import org.teleal.cling.UpnpServiceImpl;
 import org.teleal.cling.model.meta.LocalDevice;
@@ -15,6 +16,8 @@ import org.teleal.cling.model.DefaultServiceManager;
 import org.teleal.cling.model.types.UDN; // UUID
 import org.teleal.cling.model.meta.Icon;
 import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
 
 /**
  * Cling opens all accessible and usable NetworkInterfaces and uses them
@@ -31,9 +34,15 @@ public class TestApp {
       new TestClient().run();
     } else if(args.length > 0 && args[0].equals("server")) {
       runServer();
+    } else if(args.length > 0 && args[0].equals("bench-server")) {
+      runBenchServer();
+    } else if(args.length > 0 && args[0].equals("bench-client")) {
+      runBenchClient(Arrays.copyOfRange(args, 1, args.length));
     } else {
-      System.out.println("Usage: java TestApp <mode>");
-      System.out.println("Possible modes: \"server\" \"client\"");
+      System.out.println("Usage: java TestApp <mode> [option=value...]");
+      System.out.println("Possible modes: \"server\" \"client\" " +
+                         "\"bench-server\" \"bench-client\"");
+      BenchClient.printOptions();
       System.exit(1);
     }
   }
@@ -56,17 +65,60 @@ public class TestApp {
     }
   }
   
-  //This method is almost copied exactly from the example documentation
+  public static void runBenchServer() {
+    try {
+      final UpnpService upnpService = new UpnpServiceImpl(
+        new DefaultUpnpServiceConfiguration() {
+          public URI getStatusURI() {
+            return URI.create("/status");
+          }
+        }
+      );
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        public void run() {
+          upnpService.shutdown();
+        }
+      });
+      upnpService.getRegistry().addDevice(createBenchDevice());
+    } catch (Exception ex) {
+      System.err.println("Exception occured: " + ex);
+      ex.printStackTrace(System.err);
+      System.exit(1);
+    }
+  }
+  
+  public static void runBenchClient(String[] options) {
+    try {
+      new BenchClient(options).run();
+      System.exit(0);
+    } catch (Exception ex) {
+      System.err.println("Exception occured: " + ex);
+      ex.printStackTrace(System.err);
+      System.exit(1);
+    }
+  }
+  
   public static LocalDevice createDevice() throws
                 ValidationException, LocalServiceBindingException, IOException {
+    return createDevice("Test UPnP App (Java/Cling)", TestServer.class);
+  }
+  
+  public static LocalDevice createBenchDevice() throws
+                ValidationException, LocalServiceBindingException, IOException {
+    return createDevice("Test UPnP Bench App (Java/Cling)", BenchServer.class);
+  }
+  
+  //This method is almost copied exactly from the example documentation
+  private static LocalDevice createDevice(String name, Class serviceClass) throws
+                ValidationException, LocalServiceBindingException, IOException {
     
     DeviceIdentity identity = new DeviceIdentity(
-      UDN.uniqueSystemIdentifier("Test UPnP App (Java/Cling)")
+      UDN.uniqueSystemIdentifier(name)
     );
     DeviceType type = new DeviceType("pipeep", "UPnPTest", 1);
     
     DeviceDetails details = new DeviceDetails(
-      "UPnP Test App (Java/Cling)",
+      name.replace("Test UPnP", "UPnP Test"),
       new ManufacturerDetails("pipeep"),
       new ModelDetails("UPnPTestApp", "A UPnP test application made in Java "+
                                       "with the AGPL licensed Cling library",
@@ -75,10 +127,10 @@ public class TestApp {
     Icon icon = null;
     
     DeviceService<LocalService> deviceService =
-      new AnnotationLocalServiceBinder().read(TestServer.class);
+      new AnnotationLocalServiceBinder().read(serviceClass);
     
     deviceService.getService().setManager(
-      new DefaultServiceManager(deviceService.getService(), TestServer.class)
+      new DefaultServiceManager(deviceService.getService(), serviceClass)
     );
     
     return new LocalDevice(
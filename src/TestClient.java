@@ -10,10 +10,14 @@ import org.teleal.cling.model.meta.DeviceService;
 import org.teleal.cling.model.message.header.STAllHeader;
 import org.teleal.cling.model.message.UpnpResponse;
 import org.teleal.cling.model.action.ActionInvocation;
-import org.teleal.cling.controlpoint.ActionCallback;
-import org.teleal.common.util.Base64Coder;
+import org.teleal.cling.controlpoint.ActionFuture;
+import org.teleal.cling.controlpoint.ControlPoint;
+
+import java.util.concurrent.TimeUnit;
 
 public class TestClient {
+  private static final int ACTION_DEADLINE_SECONDS = 30;
+  
   private UpnpService upnpService;
   
   public TestClient() {
@@ -78,47 +82,61 @@ public class TestClient {
   // After the service has been found...
   
   public void executeAction(Service service) {
-    ActionInvocation getData =
+    final ActionInvocation getData =
                   new GetDataActionInvocation(service, "GetData", "RandomData");
-    ActionInvocation getChecksum =
+    final ActionInvocation getChecksum =
             new GetDataActionInvocation(service, "GetChecksum", "DataChecksum");
-    final String[] data = new String[1]; // making this an array is a cheap
-                                         // hack to allow this to work with
-                                         // inner classes
+    final ControlPoint controlPoint = upnpService.getControlPoint();
     
-    //GetChecksum
-    final ActionCallback getChecksumCallback = new ActionCallback(getChecksum) {
-      public void success(ActionInvocation actionInvocation) {
-        int serverChecksum = // leave it to Java to make things really verbose
-          ((Integer)((GetDataActionInvocation)actionInvocation).getData())
-                    .intValue();
-        System.out.println("Checksum: " + serverChecksum);
-        System.out.println("Read checksum from server, comparing to data...");
-        if(TestServer.calculateChecksum(Base64Coder.decode(data[0])) == serverChecksum) {
-          System.out.println("Match!");
-        } else {
-          System.out.println("Failure.");
+    System.out.println("Reading data from server");
+    // Neither call holds a thread while waiting for the server
+    final ActionFuture dataFuture =
+      controlPoint.executeAsync(getData, ACTION_DEADLINE_SECONDS, TimeUnit.SECONDS);
+    dataFuture.addListener(new ActionFuture.Listener() {
+      public void completed(ActionFuture future) {
+        if(!future.isSuccessful()) {
+          System.out.println("Failed to read data from server: " + describeFailure(future));
+          return;
         }
-      }
-      public void failure(ActionInvocation actionInvoc, UpnpResponse oper) {
-        System.out.println("Failed to read checksum from server: " + oper);
-      }
-    };
-    
-    // GetData
-    ActionCallback getDataCallback = new ActionCallback(getData) {
-      public void success(ActionInvocation actionInvocation) {
         System.out.println("Read data from server, reading checksum...");
-        data[0] = (String)((GetDataActionInvocation)actionInvocation).getData();
-        upnpService.getControlPoint().execute(getChecksumCallback);
+        controlPoint.executeAsync(getChecksum, ACTION_DEADLINE_SECONDS, TimeUnit.SECONDS)
+                    .addListener(new ActionFuture.Listener() {
+          public void completed(ActionFuture future) {
+            if(!future.isSuccessful()) {
+              System.out.println("Failed to read checksum from server: " + describeFailure(future));
+              return;
+            }
+            // Listeners must not block, compare the data on another thread
+            upnpService.getConfiguration().getSyncProtocolExecutor().execute(new Runnable() {
+              public void run() {
+                compareChecksum(getData, getChecksum);
+              }
+            });
+          }
+        });
       }
-      public void failure(ActionInvocation actionInvoc, UpnpResponse oper) {
-        System.out.println("Failed to read data from server: " + oper);
-      }
-    };
-    
-    System.out.println("Reading data from server");
-    // Executes asynchronous in the background
-    upnpService.getControlPoint().execute(getDataCallback);
+    });
+  }
+  
+  private void compareChecksum(ActionInvocation getData, ActionInvocation getChecksum) {
+    String data = (String)((GetDataActionInvocation)getData).getData();
+    int serverChecksum =
+      ((Integer)((GetDataActionInvocation)getChecksum).getData()).intValue();
+    System.out.println("Checksum: " + serverChecksum);
+    System.out.println("Read checksum from server, comparing to data...");
+    if(TestServer.calculateChecksum(data) == serverChecksum) {
+      System.out.println("Match!");
+    } else {
+      System.out.println("Failure.");
+    }
+  }
+  
+  private static String describeFailure(ActionFuture future) {
+    if(future.isCancelled()) {
+      return "cancelled";
+    }
+    UpnpResponse response = future.getResponse();
+    return future.getActionInvocation().getFailure() +
+           (response != null ? " (" + response.getResponseDetails() + ")" : "");
   }
 }
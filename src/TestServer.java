@@ -1,6 +1,7 @@
 import org.teleal.cling.binding.annotations.*;
 import org.teleal.common.util.ByteArray;
 import org.teleal.common.util.Base64Coder;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.zip.CRC32;
 
@@ -15,6 +16,15 @@ import java.util.zip.CRC32;
                                  version = 1)
 )
 public class TestServer {
+  private static final byte[] BASE64 = new byte[128];
+  static {
+    Arrays.fill(BASE64, (byte)-1);
+    String alphabet =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+    for(int i = 0; i < alphabet.length(); i++) {
+      BASE64[alphabet.charAt(i)] = (byte)i;
+    }
+  }
   
   @UpnpStateVariable(sendEvents = false)
   private String data;
@@ -49,4 +59,34 @@ public class TestServer {
     crc.update(data);
     return (int)crc.getValue();
   }
+  
+  // Decodes the Base64 string in small blocks instead of one byte array
+  public static int calculateChecksum(String base64) {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[3*1024];
+    int length = 0;
+    int bits = 0;
+    int accumulator = 0;
+    for(int i = 0; i < base64.length(); i++) {
+      char c = base64.charAt(i);
+      if(c == '=') {
+        break;
+      }
+      if(c >= BASE64.length || BASE64[c] < 0) {
+        continue; // Line breaks
+      }
+      accumulator = (accumulator << 6 | BASE64[c]) & 0xffffff;
+      bits += 6;
+      if(bits >= 8) {
+        bits -= 8;
+        buffer[length++] = (byte)(accumulator >> bits);
+        if(length == buffer.length) {
+          crc.update(buffer, 0, length);
+          length = 0;
+        }
+      }
+    }
+    crc.update(buffer, 0, length);
+    return (int)crc.getValue();
+  }
 }